@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.server.ClusterResourceHolder;
+import org.wso2.andes.server.cluster.ClusterManager;
+import org.wso2.carbon.utils.ServerConstants;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Prepares the static broker state kernel components expect, so that they can be benchmarked without starting a
+ * broker.
+ * <p>
+ * Configuration is read from the broker.xml of the carbon home given through the carbon.home system property. If
+ * it is not set an empty broker.xml is used, hence every property takes the default value defined in
+ * AndesConfiguration.
+ */
+public final class BenchmarkEnvironment {
+
+    /**
+     * Configuration used when no carbon home is given
+     */
+    private static final String EMPTY_BROKER_CONFIGURATION = "<broker></broker>";
+
+    private static boolean initialized = false;
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Initialize configuration, cluster manager and context of a standalone node. Subsequent calls do nothing.
+     *
+     * @throws Exception if the configuration cannot be loaded
+     */
+    public static synchronized void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+
+        // Has to be set before AndesConfigurationManager is loaded since the configuration path is read once
+        if (null == System.getProperty(ServerConstants.CARBON_HOME)) {
+            System.setProperty(ServerConstants.CARBON_HOME, createCarbonHome().toString());
+        }
+        AndesConfigurationManager.initialize(0);
+
+        // Node ID is 0 when clustering is disabled
+        AndesContext.getInstance().setClusteringEnabled(false);
+        ClusterResourceHolder.getInstance().setClusterManager(new ClusterManager());
+
+        initialized = true;
+    }
+
+    /**
+     * Create a temporary carbon home with an empty broker configuration
+     *
+     * @return path of the carbon home
+     * @throws IOException if the directory structure cannot be created
+     */
+    private static Path createCarbonHome() throws IOException {
+        Path carbonHome = Files.createTempDirectory("andes-benchmark");
+        Path configurationDirectory = Files.createDirectories(carbonHome.resolve("repository").resolve("conf"));
+        Path brokerConfiguration = configurationDirectory.resolve("broker.xml");
+        Files.write(brokerConfiguration, EMPTY_BROKER_CONFIGURATION.getBytes(StandardCharsets.UTF_8));
+
+        // Deleted in reverse order of creation
+        carbonHome.toFile().deleteOnExit();
+        configurationDirectory.getParent().toFile().deleteOnExit();
+        configurationDirectory.toFile().deleteOnExit();
+        brokerConfiguration.toFile().deleteOnExit();
+
+        return carbonHome;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.wso2.andes.framing.AMQShortString;
+import org.wso2.andes.framing.BasicContentHeaderProperties;
+import org.wso2.andes.framing.ContentHeaderBody;
+import org.wso2.andes.framing.FieldTable;
+import org.wso2.andes.framing.abstraction.MessagePublishInfoImpl;
+import org.wso2.andes.framing.amqp_8_0.BasicGetBodyImpl;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.mqtt.MQTTMessageMetaData;
+import org.wso2.andes.server.message.MessageMetaData;
+import org.wso2.andes.server.store.StorableMessageMetaData;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Builds messages the way transports hand them over to the kernel. Metadata is encoded into the same byte layout
+ * the message stores keep, so parsing and routing work on realistic input.
+ */
+public final class BenchmarkMessages {
+
+    /**
+     * Content chunk size used by AMQP publishers
+     */
+    public static final int CONTENT_CHUNK_SIZE = 65500;
+
+    /**
+     * Persistent delivery mode of AMQP messages
+     */
+    private static final byte PERSISTENT_DELIVERY_MODE = 2;
+
+    private BenchmarkMessages() {
+    }
+
+    /**
+     * Encode AMQP 0-8 metadata of a persistent message
+     *
+     * @param exchange      exchange the message is published to
+     * @param routingKey    routing key of the message
+     * @param contentLength content length of the message in bytes
+     * @param headers       application headers of the message, encoded in name, value order
+     * @return metadata as stored by the message stores
+     */
+    public static byte[] createAmqpMetadata(String exchange, String routingKey, int contentLength,
+                                            Object... headers) {
+        BasicContentHeaderProperties properties = new BasicContentHeaderProperties();
+        properties.setDeliveryMode(PERSISTENT_DELIVERY_MODE);
+        properties.setPriority((byte) 4);
+        properties.setTimestamp(System.currentTimeMillis());
+        properties.setContentType("text/plain");
+        properties.setMessageId("ID:" + System.nanoTime());
+
+        FieldTable headerTable = new FieldTable();
+        for (int i = 0; i + 1 < headers.length; i = i + 2) {
+            headerTable.setObject((String) headers[i], headers[i + 1]);
+        }
+        properties.setHeaders(headerTable);
+
+        ContentHeaderBody contentHeaderBody = new ContentHeaderBody(BasicGetBodyImpl.CLASS_ID, 0, properties,
+                contentLength);
+        MessagePublishInfoImpl publishInfo = new MessagePublishInfoImpl(new AMQShortString(exchange), false, false,
+                new AMQShortString(routingKey));
+        int chunkCount = (contentLength + CONTENT_CHUNK_SIZE - 1) / CONTENT_CHUNK_SIZE;
+
+        return encode(new MessageMetaData(publishInfo, contentHeaderBody, chunkCount));
+    }
+
+    /**
+     * Encode MQTT metadata of a message
+     *
+     * @param topic         topic the message is published to
+     * @param contentLength content length of the message in bytes
+     * @param qos           QoS level of the message
+     * @return metadata as stored by the message stores
+     */
+    public static byte[] createMqttMetadata(String topic, int contentLength, int qos) {
+        return encode(new MQTTMessageMetaData(0, System.currentTimeMillis(), true, topic, qos > 0, contentLength,
+                qos, false));
+    }
+
+    /**
+     * Create a message with random content split into chunks of {@link #CONTENT_CHUNK_SIZE}
+     *
+     * @param messageId     ID of the message
+     * @param metadata      encoded metadata of the message
+     * @param contentLength content length of the message in bytes
+     * @param random        source of the content
+     * @return message with parsed metadata and content
+     */
+    public static AndesMessage createMessage(long messageId, byte[] metadata, int contentLength, Random random) {
+        AndesMessage message = new AndesMessage(new AndesMessageMetadata(messageId, metadata, true));
+
+        int offset = 0;
+        while (offset < contentLength) {
+            byte[] data = new byte[Math.min(CONTENT_CHUNK_SIZE, contentLength - offset)];
+            random.nextBytes(data);
+            message.addMessagePart(createMessagePart(messageId, offset, data));
+            offset = offset + data.length;
+        }
+        return message;
+    }
+
+    /**
+     * Create a content chunk
+     *
+     * @param messageId ID of the message
+     * @param offset    offset of the chunk in the content
+     * @param data      content of the chunk
+     * @return content chunk
+     */
+    public static AndesMessagePart createMessagePart(long messageId, int offset, byte[] data) {
+        AndesMessagePart messagePart = new AndesMessagePart();
+        messagePart.setMessageID(messageId);
+        messagePart.setOffSet(offset);
+        messagePart.setData(data);
+        messagePart.setDataLength(data.length);
+        return messagePart;
+    }
+
+    private static byte[] encode(StorableMessageMetaData metaData) {
+        byte[] underlying = new byte[1 + metaData.getStorableSize()];
+        underlying[0] = (byte) metaData.getType().ordinal();
+        ByteBuffer buf = ByteBuffer.wrap(underlying);
+        buf.position(1);
+        buf = buf.slice();
+        metaData.writeToBuffer(0, buf);
+        return underlying;
+    }
+}
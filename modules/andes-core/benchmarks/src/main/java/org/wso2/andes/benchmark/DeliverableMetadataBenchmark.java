@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.MetadataPageCursor;
+import org.wso2.andes.kernel.ProtocolMessage;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.kernel.subscription.SubscriberConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the state transitions {@link DeliverableAndesMetadata} goes through while a message is delivered, from
+ * being read off a slot until it is acknowledged. Messages are read from an {@link InMemoryMessageStore} through
+ * {@link MetadataPageCursor}s as the delivery path does.
+ * <p>
+ * Results are per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeliverableMetadataBenchmark {
+
+    private static final String QUEUE_NAME = "benchmarkQueue";
+
+    /**
+     * Messages in the slot read by each invocation
+     */
+    private static final int PAGE_SIZE = 200;
+
+    private InMemoryMessageStore messageStore;
+
+    private Slot slot;
+
+    private AndesSubscription subscription;
+
+    private UUID channelId;
+
+    /**
+     * Unparsed metadata of the slot messages, used when only state transitions are measured
+     */
+    private byte[] metadata;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.initialize();
+
+        metadata = BenchmarkMessages.createAmqpMetadata(AMQPUtils.DIRECT_EXCHANGE_NAME, QUEUE_NAME, 1024);
+        messageStore = new InMemoryMessageStore(true);
+        List<AndesMessage> messages = new ArrayList<>(PAGE_SIZE);
+        Random random = new Random(PAGE_SIZE);
+        for (long messageId = 1; messageId <= PAGE_SIZE; messageId++) {
+            AndesMessage message = BenchmarkMessages.createMessage(messageId, metadata, 1024, random);
+            message.getMetadata().setStorageQueueName(QUEUE_NAME);
+            messages.add(message);
+        }
+        messageStore.storeMessages(messages);
+        slot = new Slot(1, PAGE_SIZE, QUEUE_NAME);
+
+        StorageQueue storageQueue = new StorageQueue(QUEUE_NAME, true, false, null, false);
+        channelId = UUID.randomUUID();
+        // Outbound subscription is only used to send messages, which is not measured
+        SubscriberConnection connection = new SubscriberConnection("127.0.0.1", "benchmarkNode", channelId, null);
+        subscription = new AndesSubscription(UUID.randomUUID().toString(), storageQueue, ProtocolType.AMQP,
+                connection);
+    }
+
+    /**
+     * Delivery of a message acknowledged on first delivery
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void deliverAndAcknowledge(Blackhole blackhole) {
+        for (long messageId = 1; messageId <= PAGE_SIZE; messageId++) {
+            DeliverableAndesMetadata message = new DeliverableAndesMetadata(slot, messageId, metadata, false);
+            deliver(message, blackhole);
+            acknowledge(message, blackhole);
+        }
+    }
+
+    /**
+     * Delivery of a message rejected once and acknowledged on redelivery
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void rejectAndRedeliver(Blackhole blackhole) {
+        for (long messageId = 1; messageId <= PAGE_SIZE; messageId++) {
+            DeliverableAndesMetadata message = new DeliverableAndesMetadata(slot, messageId, metadata, false);
+            deliver(message, blackhole);
+            message.markAsNackedByClient(channelId);
+            message.markAsBuffered();
+            deliver(message, blackhole);
+            blackhole.consume(message.isRedelivered(channelId));
+            acknowledge(message, blackhole);
+        }
+    }
+
+    /**
+     * Read a page of metadata from the store and deliver it, which includes parsing the metadata
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void readAndDeliver(Blackhole blackhole) throws AndesException {
+        MetadataPageCursor cursor = new MetadataPageCursor(slot, PAGE_SIZE);
+        for (DeliverableAndesMetadata message : messageStore.getNextMetadataPage(cursor)) {
+            deliver(message, blackhole);
+            acknowledge(message, blackhole);
+        }
+    }
+
+    private void deliver(DeliverableAndesMetadata message, Blackhole blackhole) {
+        message.markAsBuffered();
+        message.markAsScheduledToDeliver(subscription);
+        message.markAsDispatchedToDeliver(channelId);
+        ProtocolMessage protocolMessage = message.generateProtocolDeliverableMessage(channelId);
+        blackhole.consume(protocolMessage);
+    }
+
+    private void acknowledge(DeliverableAndesMetadata message, Blackhole blackhole) {
+        blackhole.consume(message.markAsAcknowledgedByChannel(channelId));
+        message.markAsDeletedMessage();
+        blackhole.consume(message.isOKToDispose());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DeliverableMetadataBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
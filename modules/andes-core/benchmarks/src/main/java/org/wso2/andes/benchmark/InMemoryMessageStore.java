@@ -0,0 +1,637 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContextStore;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.ConcurrentLongObjectMap;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.ExpiringMessage;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataPageCursor;
+import org.wso2.andes.kernel.slot.RecoverySlotCreator;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MessageStore} keeping messages in memory, so that benchmarks measure the kernel and not a database.
+ * <p>
+ * Queue messages and content are kept with the same semantics as the durable stores. A store created with
+ * retainMessages set to false only counts stored messages, which keeps memory flat while publishing benchmarks
+ * push millions of messages. DLC and retained message operations are not supported and return empty results.
+ */
+public class InMemoryMessageStore implements MessageStore {
+
+    /**
+     * Whether stored messages are kept or only counted
+     */
+    private final boolean retainMessages;
+
+    /**
+     * Metadata of each storage queue ordered by message ID
+     */
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Long, AndesMessageMetadata>> queues =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Content chunks of each message ordered by offset
+     */
+    private final ConcurrentLongObjectMap<List<AndesMessagePart>> contents = new ConcurrentLongObjectMap<>();
+
+    /**
+     * Number of messages given to {@link #storeMessages(List)}
+     */
+    private final AtomicLong storedMessageCount = new AtomicLong();
+
+    /**
+     * Create an in-memory store
+     *
+     * @param retainMessages false to discard messages after counting them
+     */
+    public InMemoryMessageStore(boolean retainMessages) {
+        this.retainMessages = retainMessages;
+    }
+
+    /**
+     * Get the number of messages stored since the store was created
+     *
+     * @return number of stored messages
+     */
+    public long getStoredMessageCount() {
+        return storedMessageCount.get();
+    }
+
+    /**
+     * Remove all messages
+     */
+    public void clear() {
+        queues.clear();
+        contents.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DurableStoreConnection initializeMessageStore(AndesContextStore contextStore,
+                                                         ConfigurationProperties connectionProperties)
+            throws AndesException {
+        // There is no durable store behind
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessagePart(List<AndesMessagePart> partList) throws AndesException {
+        if (!retainMessages) {
+            return;
+        }
+        for (AndesMessagePart part : partList) {
+            addMessagePart(part);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContent(long messageId, int offsetValue) throws AndesException {
+        List<AndesMessagePart> parts = contents.get(messageId);
+        if (null != parts) {
+            synchronized (parts) {
+                for (AndesMessagePart part : parts) {
+                    if (part.getOffset() == offsetValue) {
+                        return part;
+                    }
+                }
+            }
+        }
+        throw new AndesException("Content of message " + messageId + " at offset " + offsetValue
+                + " is not in the store");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIDList)
+            throws AndesException {
+        LongObjectHashMap<List<AndesMessagePart>> contentMap = new LongObjectHashMap<>(messageIDList.size());
+        for (int i = 0; i < messageIDList.size(); i++) {
+            long messageId = messageIDList.get(i);
+            List<AndesMessagePart> parts = contents.get(messageId);
+            if (null != parts) {
+                synchronized (parts) {
+                    contentMap.put(messageId, new ArrayList<>(parts));
+                }
+            }
+        }
+        return contentMap;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessages(List<AndesMessage> messageList) throws AndesException {
+        storedMessageCount.addAndGet(messageList.size());
+        if (!retainMessages) {
+            return;
+        }
+        for (AndesMessage message : messageList) {
+            AndesMessageMetadata metadata = message.getMetadata();
+            getQueue(metadata.getStorageQueueName()).put(metadata.getMessageID(), metadata);
+            for (AndesMessagePart part : message.getContentChunkList()) {
+                addMessagePart(part);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToQueue(long messageId, String currentQueueName, String targetQueueName)
+            throws AndesException {
+        AndesMessageMetadata metadata = getQueue(currentQueueName).remove(messageId);
+        if (null != metadata) {
+            metadata.setStorageQueueName(targetQueueName);
+            getQueue(targetQueueName).put(messageId, metadata);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(long messageId, String dlcQueueName) throws AndesException {
+        removeMetadata(messageId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(List<AndesMessageMetadata> messages, String dlcQueueName) throws AndesException {
+        for (AndesMessageMetadata message : messages) {
+            removeMetadata(message.getMessageID());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMetadataInformation(String currentQueueName, List<AndesMessageMetadata> metadataList)
+            throws AndesException {
+        ConcurrentSkipListMap<Long, AndesMessageMetadata> currentQueue = getQueue(currentQueueName);
+        for (AndesMessageMetadata metadata : metadataList) {
+            currentQueue.remove(metadata.getMessageID());
+            getQueue(metadata.getStorageQueueName()).put(metadata.getMessageID(), metadata);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessageMetadata getMetadata(long messageId) throws AndesException {
+        for (ConcurrentSkipListMap<Long, AndesMessageMetadata> queue : queues.values()) {
+            AndesMessageMetadata metadata = queue.get(messageId);
+            if (null != metadata) {
+                return metadata;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getMetadataList(Slot slot, String storageQueueName, long firstMsgId,
+                                                          long lastMsgID) throws AndesException {
+        NavigableMap<Long, AndesMessageMetadata> range = getQueue(storageQueueName)
+                .subMap(firstMsgId, true, lastMsgID, true);
+        List<DeliverableAndesMetadata> metadataList = new ArrayList<>(range.size());
+        for (AndesMessageMetadata metadata : range.values()) {
+            metadataList.add(toDeliverable(slot, storageQueueName, metadata));
+        }
+        return metadataList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getNextMetadataPage(MetadataPageCursor cursor) throws AndesException {
+        String storageQueueName = cursor.getStorageQueueName();
+        List<DeliverableAndesMetadata> metadataList = new ArrayList<>(cursor.getPageSize());
+        NavigableMap<Long, AndesMessageMetadata> range = getQueue(storageQueueName)
+                .subMap(cursor.getNextMessageId(), true, cursor.getLastMessageId(), true);
+
+        for (AndesMessageMetadata metadata : range.values()) {
+            if (metadataList.size() == cursor.getPageSize()) {
+                break;
+            }
+            metadataList.add(toDeliverable(cursor.getSlot(), storageQueueName, metadata));
+        }
+        cursor.advance(metadataList);
+        return metadataList;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Content is already in memory, hence nothing is loaded.
+     */
+    @Override
+    public void prefetchContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInRange(String storageQueueName, long firstMessageId, long lastMessageId)
+            throws AndesException {
+        return getQueue(storageQueueName).subMap(firstMessageId, true, lastMessageId, true).size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromQueue(String storageQueueName, long firstMsgId,
+                                                                      int count) throws AndesException {
+        List<AndesMessageMetadata> metadataList = new ArrayList<>(count);
+        for (AndesMessageMetadata metadata : getQueue(storageQueueName).tailMap(firstMsgId, true).values()) {
+            if (metadataList.size() == count) {
+                break;
+            }
+            metadataList.add(metadata);
+        }
+        return metadataList;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Messages do not outlive the store, hence there is nothing to recover.
+     */
+    @Override
+    public int recoverSlotsForQueue(String storageQueueName, long firstMsgId, int messageLimitPerSlot,
+                                    RecoverySlotCreator.CallBack callBack) throws AndesException {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataForQueueFromDLC(String storageQueueName,
+                                                                            String dlcQueueName, long firstMsgId,
+                                                                            int count) throws AndesException {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId,
+                                                                    int count) throws AndesException {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessageMetadataFromQueue(String storageQueueName,
+                                               List<AndesMessageMetadata> messagesToRemove)
+            throws AndesException {
+        ConcurrentSkipListMap<Long, AndesMessageMetadata> queue = getQueue(storageQueueName);
+        for (AndesMessageMetadata message : messagesToRemove) {
+            queue.remove(message.getMessageID());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(String storageQueueName, List<AndesMessageMetadata> messagesToRemove)
+            throws AndesException {
+        ConcurrentSkipListMap<Long, AndesMessageMetadata> queue = getQueue(storageQueueName);
+        for (AndesMessageMetadata message : messagesToRemove) {
+            queue.remove(message.getMessageID());
+            contents.remove(message.getMessageID());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(List<Long> messagesToRemove) throws AndesException {
+        for (Long messageId : messagesToRemove) {
+            removeMetadata(messageId);
+            contents.remove(messageId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteDLCMessages(List<AndesMessageMetadata> messagesToRemove) throws AndesException {
+        for (AndesMessageMetadata message : messagesToRemove) {
+            contents.remove(message.getMessageID());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessages(long lowerBoundMessageID, String queueName) throws AndesException {
+        List<Long> expiredMessages = new ArrayList<>();
+        for (AndesMessageMetadata metadata : getQueue(queueName).tailMap(lowerBoundMessageID, true).values()) {
+            if (metadata.isExpired()) {
+                expiredMessages.add(metadata.getMessageID());
+            }
+        }
+        return expiredMessages;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessagesFromDLC(long messageCount) throws AndesException {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Messages are not kept across restarts, hence there is nothing to index on startup.
+     */
+    @Override
+    public List<ExpiringMessage> getExpiringMessages() throws AndesException {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Expiry is evaluated from the stored metadata, hence nothing is indexed.
+     */
+    @Override
+    public void addMessageToExpiryQueue(Long messageId, Long expirationTime, boolean isMessageForTopic,
+                                        String destination) throws AndesException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteAllMessageMetadata(String storageQueueName) throws AndesException {
+        ConcurrentSkipListMap<Long, AndesMessageMetadata> queue = getQueue(storageQueueName);
+        int count = queue.size();
+        queue.clear();
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int clearDLCQueue(String dlcQueueName) throws AndesException {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongArrayList getMessageIDsAddressedToQueue(String storageQueueName, Long startMessageID)
+            throws AndesException {
+        LongArrayList messageIds = new LongArrayList();
+        for (Long messageId : getQueue(storageQueueName).tailMap(startMessageID, true).keySet()) {
+            messageIds.add(messageId);
+        }
+        return messageIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addQueue(String storageQueueName) throws AndesException {
+        getQueue(storageQueueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> getMessageCountForAllQueues(List<String> queueNames) throws AndesException {
+        Map<String, Integer> messageCounts = new HashMap<>(queueNames.size());
+        for (String queueName : queueNames) {
+            messageCounts.put(queueName, getQueue(queueName).size());
+        }
+        return messageCounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueue(String storageQueueName) throws AndesException {
+        return getQueue(storageQueueName).size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInDLC(String storageQueueName, String dlcQueueName) throws AndesException {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForDLCQueue(String dlcQueueName) throws AndesException {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Counts are derived from the stored messages, hence there is no counter to reset.
+     */
+    @Override
+    public void resetMessageCounterForQueue(String storageQueueName) throws AndesException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeQueue(String storageQueueName) throws AndesException {
+        queues.remove(storageQueueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeLocalQueueData(String storageQueueName) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementMessageCountForQueue(String storageQueueName, long incrementBy) throws AndesException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrementMessageCountForQueue(String storageQueueName, long decrementBy) throws AndesException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeRetainedMessages(Map<String, AndesMessage> retainMap) throws AndesException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllRetainedTopics() throws AndesException {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, AndesMessagePart> getRetainedContentParts(long messageID) throws AndesException {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeliverableAndesMetadata getRetainedMetadata(String destination) throws AndesException {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOperational(String testString, long testTime) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private ConcurrentSkipListMap<Long, AndesMessageMetadata> getQueue(String storageQueueName) {
+        ConcurrentSkipListMap<Long, AndesMessageMetadata> queue = queues.get(storageQueueName);
+        if (null == queue) {
+            queue = new ConcurrentSkipListMap<>();
+            ConcurrentSkipListMap<Long, AndesMessageMetadata> existingQueue =
+                    queues.putIfAbsent(storageQueueName, queue);
+            if (null != existingQueue) {
+                queue = existingQueue;
+            }
+        }
+        return queue;
+    }
+
+    private void removeMetadata(long messageId) {
+        for (ConcurrentSkipListMap<Long, AndesMessageMetadata> queue : queues.values()) {
+            if (null != queue.remove(messageId)) {
+                return;
+            }
+        }
+    }
+
+    private void addMessagePart(AndesMessagePart part) {
+        List<AndesMessagePart> parts = contents.get(part.getMessageID());
+        if (null == parts) {
+            parts = new ArrayList<>(1);
+            List<AndesMessagePart> existingParts = contents.putIfAbsent(part.getMessageID(), parts);
+            if (null != existingParts) {
+                parts = existingParts;
+            }
+        }
+        synchronized (parts) {
+            parts.add(part);
+        }
+    }
+
+    /**
+     * Create the delivery representation of stored metadata the same way durable stores do when reading it
+     */
+    private static DeliverableAndesMetadata toDeliverable(Slot slot, String storageQueueName,
+                                                          AndesMessageMetadata metadata) {
+        DeliverableAndesMetadata deliverableMetadata = new DeliverableAndesMetadata(slot, metadata.getMessageID(),
+                metadata.getMetadata(), true);
+        deliverableMetadata.setStorageQueueName(storageQueueName);
+        return deliverableMetadata;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.DisablePubAckImpl;
+import org.wso2.andes.kernel.FlowControlListener;
+import org.wso2.andes.kernel.FlowControlManager;
+import org.wso2.andes.kernel.MessageExpiryManager;
+import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.kernel.disruptor.inbound.InboundEventManager;
+import org.wso2.andes.kernel.disruptor.inbound.PubAckHandler;
+import org.wso2.andes.kernel.registry.MessageRouterRegistry;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.router.QueueMessageRouter;
+import org.wso2.andes.kernel.router.TopicMessageRouter;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes messages through the inbound disruptor of {@link InboundEventManager} into an
+ * {@link InMemoryMessageStore}. Every handler of the ring runs as in the broker: content chunking, routing,
+ * message writers and slot updates. Only the store is replaced.
+ * <p>
+ * publish measures throughput. Publishers block on the ring buffer once it is full, so the steady state
+ * throughput is the throughput of the slowest handler. publishAndAwaitAck measures the time from handing over a
+ * message until the publisher acknowledgement is sent.
+ * <p>
+ * Run {@link #main(String[])} to get results for 1 to 16 publisher threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InboundEventManagerBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    private static final String QUEUE_NAME = "benchmarkQueue";
+
+    private static final String TOPIC_NAME = "benchmark.topic";
+
+    /**
+     * Number of subscriber queues of the topic. Each topic message is written once per queue.
+     */
+    private static final int TOPIC_SUBSCRIBER_COUNT = 10;
+
+    @Param({"queue", "topic"})
+    public String destinationType;
+
+    @Param({"1024", "65536"})
+    public int contentLength;
+
+    private InboundEventManager inboundEventManager;
+
+    private FlowControlManager flowControlManager;
+
+    private String exchangeName;
+
+    private String routingKey;
+
+    private byte[] metadata;
+
+    private byte[] content;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.initialize();
+
+        InMemoryMessageStore messageStore = new InMemoryMessageStore(false);
+        AndesContext.getInstance().setMessageStore(messageStore);
+        MessagingEngine.getInstance().initialise(messageStore, new MessageExpiryManager(messageStore));
+
+        MessageRouterRegistry messageRouterRegistry = new MessageRouterRegistry();
+        AndesContext.getInstance().setMessageRouterRegistry(messageRouterRegistry);
+
+        AndesMessageRouter messageRouter;
+        if ("topic".equals(destinationType)) {
+            exchangeName = AMQPUtils.TOPIC_EXCHANGE_NAME;
+            routingKey = TOPIC_NAME;
+            messageRouter = new TopicMessageRouter(exchangeName, "topic", false);
+            for (int i = 0; i < TOPIC_SUBSCRIBER_COUNT; i++) {
+                StorageQueue queue = new StorageQueue(TOPIC_NAME + "_subscriber_" + i, false, false, null, false);
+                queue.bindQueueToMessageRouter(TOPIC_NAME, messageRouter);
+            }
+        } else {
+            exchangeName = AMQPUtils.DIRECT_EXCHANGE_NAME;
+            routingKey = QUEUE_NAME;
+            messageRouter = new QueueMessageRouter(exchangeName, "direct", false);
+            StorageQueue queue = new StorageQueue(QUEUE_NAME, true, false, null, false);
+            queue.bindQueueToMessageRouter(QUEUE_NAME, messageRouter);
+        }
+        messageRouterRegistry.registerMessageRouter(exchangeName, messageRouter);
+
+        metadata = BenchmarkMessages.createAmqpMetadata(exchangeName, routingKey, contentLength);
+        content = new byte[contentLength];
+        new Random(contentLength).nextBytes(content);
+
+        flowControlManager = new FlowControlManager();
+        inboundEventManager = new InboundEventManager(null, MessagingEngine.getInstance());
+    }
+
+    @TearDown
+    public void tearDown() {
+        inboundEventManager.stop();
+    }
+
+    @Benchmark
+    public void publish(Publisher publisher) {
+        inboundEventManager.messageReceived(createMessage(), publisher.channel, publisher.pubAckHandler);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void publishAndAwaitAck(Publisher publisher) throws InterruptedException {
+        inboundEventManager.messageReceived(createMessage(), publisher.channel, publisher.awaitingPubAckHandler);
+        publisher.acknowledgements.acquire();
+    }
+
+    /**
+     * Create a message the way the AMQP transport hands it over. The store discards content, hence the content
+     * array is shared by all messages.
+     *
+     * @return new message
+     */
+    private AndesMessage createMessage() {
+        AndesMessage message = new AndesMessage(new AndesMessageMetadata(0, metadata, true));
+        int offset = 0;
+        while (offset < contentLength) {
+            int chunkLength = Math.min(BenchmarkMessages.CONTENT_CHUNK_SIZE, contentLength - offset);
+            byte[] chunk = new byte[chunkLength];
+            System.arraycopy(content, offset, chunk, 0, chunkLength);
+            message.addMessagePart(BenchmarkMessages.createMessagePart(0, offset, chunk));
+            offset = offset + chunkLength;
+        }
+        return message;
+    }
+
+    /**
+     * Publisher connection of a benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class Publisher {
+
+        private AndesChannel channel;
+
+        private final PubAckHandler pubAckHandler = new DisablePubAckImpl();
+
+        private final Semaphore acknowledgements = new Semaphore(0);
+
+        private final PubAckHandler awaitingPubAckHandler = new PubAckHandler() {
+            @Override
+            public void ack(AndesMessageMetadata metadata) {
+                acknowledgements.release();
+            }
+
+            @Override
+            public void nack(AndesMessageMetadata metadata) {
+                acknowledgements.release();
+            }
+        };
+
+        @Setup
+        public void setUp(InboundEventManagerBenchmark benchmark) throws Exception {
+            // Flow control only signals the publisher, benchmark threads are throttled by the ring buffer instead
+            channel = benchmark.flowControlManager.createChannel(new FlowControlListener() {
+                @Override
+                public void block() {
+                }
+
+                @Override
+                public void unblock() {
+                }
+
+                @Override
+                public void disconnect() {
+                }
+            });
+        }
+
+        @TearDown
+        public void tearDown(InboundEventManagerBenchmark benchmark) {
+            benchmark.flowControlManager.deleteChannel(channel);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threadCount : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(InboundEventManagerBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.disruptor.compression.LZ4CompressionHelper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures content compression of {@link LZ4CompressionHelper} as done by the inbound content chunk handlers, and
+ * decompression as done before delivery. Content is split into chunks the same way it is stored.
+ * <p>
+ * Text content is a repeated JSON document and compresses well. Random content does not compress, which shows
+ * the cost paid for content that is compressed for no gain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LZ4CompressionBenchmark {
+
+    private static final long MESSAGE_ID = 1L;
+
+    private static final String TEXT_DOCUMENT = "{\"orderId\":%d,\"customer\":\"customer-%d\",\"items\":["
+            + "{\"sku\":\"SKU-%d\",\"quantity\":%d,\"price\":%d.99}],\"status\":\"CONFIRMED\"}\n";
+
+    @Param({"4096", "65536", "1048576"})
+    public int contentLength;
+
+    @Param({"text", "random"})
+    public String contentType;
+
+    private LZ4CompressionHelper compressionHelper;
+
+    private List<AndesMessagePart> contentChunks;
+
+    private List<AndesMessagePart> compressedChunks;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.initialize();
+        compressionHelper = new LZ4CompressionHelper();
+
+        byte[] content = "text".equals(contentType) ? createTextContent(contentLength) : createRandomContent(
+                contentLength);
+        contentChunks = split(content);
+
+        AndesMessagePart compressed = compressionHelper.getCompressedMessage(contentChunks, contentLength);
+        compressedChunks = split(compressed.getData());
+    }
+
+    @Benchmark
+    public AndesMessagePart compress() {
+        return compressionHelper.getCompressedMessage(contentChunks, contentLength);
+    }
+
+    @Benchmark
+    public Map<Integer, AndesMessagePart> decompress() {
+        return compressionHelper.getDecompressedMessage(compressedChunks, contentLength, MESSAGE_ID);
+    }
+
+    private static List<AndesMessagePart> split(byte[] content) {
+        List<AndesMessagePart> chunks = new ArrayList<>();
+        for (int offset = 0; offset < content.length; offset = offset + BenchmarkMessages.CONTENT_CHUNK_SIZE) {
+            int end = Math.min(content.length, offset + BenchmarkMessages.CONTENT_CHUNK_SIZE);
+            chunks.add(BenchmarkMessages.createMessagePart(MESSAGE_ID, offset,
+                    Arrays.copyOfRange(content, offset, end)));
+        }
+        return chunks;
+    }
+
+    private static byte[] createTextContent(int length) {
+        Random random = new Random(length);
+        StringBuilder builder = new StringBuilder(length + TEXT_DOCUMENT.length() * 2);
+        int orderId = 0;
+        while (builder.length() < length) {
+            builder.append(String.format(TEXT_DOCUMENT, orderId++, random.nextInt(1000), random.nextInt(100),
+                    random.nextInt(10), random.nextInt(500)));
+        }
+        return Arrays.copyOf(builder.toString().getBytes(StandardCharsets.UTF_8), length);
+    }
+
+    private static byte[] createRandomContent(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LZ4CompressionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
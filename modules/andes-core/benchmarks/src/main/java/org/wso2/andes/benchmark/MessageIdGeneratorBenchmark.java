@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.server.ClusterResourceHolder;
+import org.wso2.andes.server.cluster.ClusterManager;
+import org.wso2.andes.server.cluster.coordination.MessageIdGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares message ID generators under concurrent publishers. A single generator instance is shared by all
+ * benchmark threads, the same way MessagingEngine shares it between publisher threads.
+ * <p>
+ * Run {@link #main(String[])} to get results for 1 to 64 threads, or run through JMH with -t to pick a thread
+ * count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageIdGeneratorBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    @Param({"org.wso2.andes.server.cluster.coordination.TimeStampBasedMessageIdGenerator",
+            "org.wso2.andes.server.cluster.coordination.AtomicTimeStampBasedMessageIdGenerator"})
+    public String generatorClass;
+
+    private MessageIdGenerator generator;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Generators read the node ID through the cluster manager. It is 0 when clustering is disabled.
+        ClusterResourceHolder.getInstance().setClusterManager(new ClusterManager());
+        generator = (MessageIdGenerator) Class.forName(generatorClass).newInstance();
+    }
+
+    @Benchmark
+    public long getNextId() {
+        return generator.getNextId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threadCount : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(MessageIdGeneratorBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding of stored metadata into {@link AndesMessageMetadata}. Metadata is parsed for every message
+ * read from the store, once when it is published and again when a slot is read for delivery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataParsingBenchmark {
+
+    private static final String DESTINATION = "benchmark.destination";
+
+    /**
+     * AMQP metadata without application headers, AMQP metadata with ten application headers or MQTT metadata
+     */
+    @Param({"amqp", "amqpWithHeaders", "mqtt"})
+    public String metadataType;
+
+    private byte[] metadata;
+
+    private AndesMessageMetadata parsedMetadata;
+
+    private Slot slot;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.initialize();
+
+        switch (metadataType) {
+            case "amqpWithHeaders":
+                Object[] headers = new Object[20];
+                for (int i = 0; i < 10; i++) {
+                    headers[2 * i] = "property" + i;
+                    headers[2 * i + 1] = (0 == i % 2) ? (Object) ("value" + i) : (Object) i;
+                }
+                metadata = BenchmarkMessages.createAmqpMetadata(AMQPUtils.DIRECT_EXCHANGE_NAME, DESTINATION, 1024,
+                        headers);
+                break;
+            case "mqtt":
+                metadata = BenchmarkMessages.createMqttMetadata(DESTINATION, 1024, 1);
+                break;
+            default:
+                metadata = BenchmarkMessages.createAmqpMetadata(AMQPUtils.DIRECT_EXCHANGE_NAME, DESTINATION, 1024);
+                break;
+        }
+
+        parsedMetadata = new AndesMessageMetadata(1L, metadata, true);
+        slot = new Slot(0, Long.MAX_VALUE, DESTINATION);
+    }
+
+    /**
+     * Parse metadata of a published message
+     */
+    @Benchmark
+    public AndesMessageMetadata parse() {
+        return new AndesMessageMetadata(1L, metadata, true);
+    }
+
+    /**
+     * Parse metadata read for delivery, as the message stores do for each row of a slot
+     */
+    @Benchmark
+    public DeliverableAndesMetadata parseForDelivery() {
+        return new DeliverableAndesMetadata(slot, 1L, metadata, true);
+    }
+
+    /**
+     * Re-encode metadata with a new destination, as done when moving a message to another queue
+     */
+    @Benchmark
+    public byte[] rewriteDestination() {
+        AndesMessageMetadata copy = parsedMetadata.shallowCopy(2L);
+        copy.updateMetadata(DESTINATION + ".moved", AMQPUtils.DIRECT_EXCHANGE_NAME);
+        return copy.getMetadata();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MetadataParsingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
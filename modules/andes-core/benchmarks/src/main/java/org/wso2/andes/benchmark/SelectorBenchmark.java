@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.AMQInvalidArgumentException;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.server.filter.JMSSelectorFilter;
+import org.wso2.andes.server.message.AMQMessageHeader;
+import org.wso2.andes.server.message.MessageMetaData;
+import org.wso2.andes.server.queue.Filterable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JMS selector evaluation of {@link JMSSelectorFilter} against AMQP messages with application headers.
+ * <p>
+ * evaluate matches a message whose headers are already decoded. decodeAndEvaluate decodes the stored metadata
+ * first, as done for every message a selector subscription is offered. parse measures compiling the selector
+ * when a subscription is created.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectorBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8};
+
+    @Param({"region = 'EU'",
+            "region IN ('US', 'APAC', 'EU') AND quantity > 10",
+            "customer LIKE 'customer-1%' OR (price BETWEEN 10 AND 100 AND JMSPriority > 3)"})
+    public String selector;
+
+    private JMSSelectorFilter filter;
+
+    private AndesMessageMetadata metadata;
+
+    private Filterable decodedMessage;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.initialize();
+
+        byte[] encodedMetadata = BenchmarkMessages.createAmqpMetadata(AMQPUtils.TOPIC_EXCHANGE_NAME,
+                "orders.created", 1024,
+                "region", "EU",
+                "customer", "customer-42",
+                "quantity", 25,
+                "price", 49.99,
+                "express", Boolean.TRUE,
+                "channel", "web");
+        metadata = new AndesMessageMetadata(1L, encodedMetadata, true);
+
+        filter = new JMSSelectorFilter(selector);
+        decodedMessage = new StoredMessageFilterable(
+                (MessageMetaData) AMQPUtils.convertAndesMetadataToAMQMetadata(metadata));
+        // Decode headers up front, evaluate should only measure matching
+        filter.matches(decodedMessage);
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        return filter.matches(decodedMessage);
+    }
+
+    @Benchmark
+    public boolean decodeAndEvaluate() {
+        MessageMetaData messageMetaData = (MessageMetaData) AMQPUtils.convertAndesMetadataToAMQMetadata(metadata);
+        return filter.matches(new StoredMessageFilterable(messageMetaData));
+    }
+
+    @Benchmark
+    public JMSSelectorFilter parse() throws AMQInvalidArgumentException {
+        return new JMSSelectorFilter(selector);
+    }
+
+    /**
+     * Presents decoded AMQP metadata to selectors
+     */
+    private static class StoredMessageFilterable implements Filterable {
+
+        private final MessageMetaData messageMetaData;
+
+        private final AMQMessageHeader messageHeader;
+
+        StoredMessageFilterable(MessageMetaData messageMetaData) {
+            this.messageMetaData = messageMetaData;
+            this.messageHeader = messageMetaData.getMessageHeader();
+        }
+
+        @Override
+        public AMQMessageHeader getMessageHeader() {
+            return messageHeader;
+        }
+
+        @Override
+        public boolean isPersistent() {
+            return messageMetaData.isPersistent();
+        }
+
+        @Override
+        public boolean isRedelivered() {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threadCount : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(SelectorBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
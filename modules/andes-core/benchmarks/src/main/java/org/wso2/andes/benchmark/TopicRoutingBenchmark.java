@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.router.TopicMessageRouter;
+import org.wso2.andes.kernel.router.TopicRoutingMatcher;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures topic routing of {@link TopicRoutingMatcher} with large binding sets.
+ * <p>
+ * Binding keys have three levels (region.city.store) and are a mix of exact keys, single level wildcards and
+ * multi level wildcards. Routing keys are drawn from the same key space, so a routing key matches a few bindings
+ * on average while most of the trie is not visited. Each call routes a random key of a fixed table which is
+ * larger than the default routing result cache. Hence match measures the trie walk alone and route measures
+ * {@link TopicMessageRouter} with the mix of cache hits and misses it sees in the broker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicRoutingBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8};
+
+    /**
+     * Number of routing keys to pick from. A power of two.
+     */
+    private static final int ROUTING_KEY_COUNT = 1 << 14;
+
+    private static final int REGION_COUNT = 10;
+
+    private static final int CITY_COUNT = 100;
+
+    private static final int STORE_COUNT = 1000;
+
+    @Param({"100", "1000", "10000"})
+    public int bindingCount;
+
+    /**
+     * Matcher holding the same bindings as {@link #topicRouter}
+     */
+    private TopicRoutingMatcher topicMatcher;
+
+    private TopicMessageRouter topicRouter;
+
+    private String[] routingKeys;
+
+    /**
+     * Messages published with {@link #routingKeys}, in the same order
+     */
+    private AndesMessage[] messages;
+
+    /**
+     * Queue repeatedly bound to and unbound from {@link #topicMatcher}
+     */
+    private StorageQueue churnQueue;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.initialize();
+
+        Random random = new Random(bindingCount);
+        topicMatcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        topicRouter = new TopicMessageRouter(AMQPUtils.TOPIC_EXCHANGE_NAME, "topic", false);
+
+        for (int i = 0; i < bindingCount; i++) {
+            String bindingKey;
+            switch (i % 4) {
+                case 0:
+                    bindingKey = region(random) + "." + city(random) + "." + store(random);
+                    break;
+                case 1:
+                    bindingKey = region(random) + ".*." + store(random);
+                    break;
+                case 2:
+                    bindingKey = region(random) + "." + city(random) + ".#";
+                    break;
+                default:
+                    bindingKey = "#." + store(random);
+                    break;
+            }
+            StorageQueue queue = new StorageQueue("subscriber_" + i, false, false, null, false);
+            queue.bindQueueToMessageRouter(bindingKey, topicRouter);
+            topicMatcher.addStorageQueue(queue);
+        }
+
+        routingKeys = new String[ROUTING_KEY_COUNT];
+        messages = new AndesMessage[ROUTING_KEY_COUNT];
+        for (int i = 0; i < ROUTING_KEY_COUNT; i++) {
+            routingKeys[i] = region(random) + "." + city(random) + "." + store(random);
+            AndesMessageMetadata metadata = new AndesMessageMetadata();
+            metadata.setMessageRouterName(AMQPUtils.TOPIC_EXCHANGE_NAME);
+            metadata.setDestination(routingKeys[i]);
+            messages[i] = new AndesMessage(metadata);
+        }
+
+        // Bound to a separate router so that it is not part of the routing results of topicRouter
+        churnQueue = new StorageQueue("churn_subscriber", false, false, null, false);
+        churnQueue.bindQueueToMessageRouter(region(random) + ".*.#",
+                new TopicMessageRouter("benchmark.churn", "topic", false));
+    }
+
+    @Benchmark
+    public Set<StorageQueue> match(RoutingKeyCursor cursor) {
+        return topicMatcher.getMatchingStorageQueues(routingKeys[cursor.next()]);
+    }
+
+    @Benchmark
+    public Set<StorageQueue> route(RoutingKeyCursor cursor) {
+        return topicRouter.getMatchingStorageQueues(messages[cursor.next()]);
+    }
+
+    /**
+     * Cost of a binding change on a matcher of the given size. A binding change rebuilds the affected trie path.
+     */
+    @Benchmark
+    public void bindAndUnbind() throws AndesException {
+        topicMatcher.addStorageQueue(churnQueue);
+        topicMatcher.removeStorageQueue(churnQueue);
+    }
+
+    private static String region(Random random) {
+        return "region" + random.nextInt(REGION_COUNT);
+    }
+
+    private static String city(Random random) {
+        return "city" + random.nextInt(CITY_COUNT);
+    }
+
+    private static String store(Random random) {
+        return "store" + random.nextInt(STORE_COUNT);
+    }
+
+    /**
+     * Picks random routing keys for a benchmark thread. Keys are not cycled in order since a sequential scan larger
+     * than the routing result cache would never hit the cache.
+     */
+    @State(Scope.Thread)
+    public static class RoutingKeyCursor {
+
+        private int seed;
+
+        @Setup
+        public void setUp() {
+            seed = new Random().nextInt() | 1;
+        }
+
+        int next() {
+            // Xorshift, cheap compared to the routing being measured
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return seed & (ROUTING_KEY_COUNT - 1);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threadCount : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(TopicRoutingBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -11,7 +11,6 @@ import org.apache.commons.logging.LogFactory;
 import org.dna.mqtt.moquette.messaging.spi.IMessaging;
 import org.dna.mqtt.moquette.messaging.spi.IStorageService;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.DisconnectEvent;
-import org.dna.mqtt.moquette.messaging.spi.impl.events.InitEvent;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.LostConnectionEvent;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.MessagingEvent;
 import org.dna.mqtt.moquette.messaging.spi.impl.events.ProtocolEvent;
@@ -36,7 +35,11 @@ import org.dna.mqtt.wso2.MQTTPingRequest;
 import org.dna.mqtt.wso2.MQTTSubscriptionStore;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.disruptor.HandlerLagGauge;
+import org.wso2.andes.metrics.MetricsConstants;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -50,14 +53,18 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
 
     private SubscriptionsStore subscriptions;
 
-    private RingBuffer<ValueEvent> m_ringBuffer;
-
     private IStorageService m_storageService;
 
     /**
-     * Disruptor for inbound ValueEvent handling 
+     * Disruptors for inbound ValueEvent handling, one per partition. Events are partitioned by client ID so that
+     * events of a client are processed in order by a single processor.
+     */
+    private List<Disruptor<ValueEvent>> disruptors;
+
+    /**
+     * Ring buffers of the inbound disruptors, indexed by partition
      */
-    private Disruptor<ValueEvent> disruptor;
+    private List<RingBuffer<ValueEvent>> ringBuffers;
     
     private static SimpleMessaging INSTANCE;
 
@@ -80,57 +87,104 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         //Modified by WSO2 in-order to extend the capability of the existing subscriptions store
         //to be more suitable for the distribution architecture of Andes
         subscriptions = new MQTTSubscriptionStore();
+
+        // Initialized before the processors start, since every partition uses the store and the processor
+        processInit(configProps);
+
         ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
                 .setNameFormat("Disruptor MQTT Simple Messaging Thread %d").build();
         ExecutorService executor = Executors.newCachedThreadPool(namedThreadFactory);
         Integer ringBufferSize = AndesConfigurationManager.readValue(
                 AndesConfiguration.TRANSPORTS_MQTT_INBOUND_BUFFER_SIZE);
-
-        disruptor = new Disruptor<ValueEvent>( ValueEvent.EVENT_FACTORY, ringBufferSize, executor);
-        //Added by WSO2, we do not want to ignore the exception here
-        disruptor.handleExceptionsWith(new MQTTLogExceptionHandler());
-        SequenceBarrier barrier = disruptor.getRingBuffer().newBarrier();
-        BatchEventProcessor<ValueEvent> eventProcessor = new BatchEventProcessor<ValueEvent>(
-                disruptor.getRingBuffer(), barrier, this);
-        //Added by WSO2, we need to make sure the exceptions aren't ignored
-        eventProcessor.setExceptionHandler(new MQTTLogExceptionHandler());
-        disruptor.handleEventsWith(eventProcessor);
-        m_ringBuffer = disruptor.start();
-        
-        disruptorPublish(new InitEvent(configProps));
+        Integer partitionCount = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_INBOUND_PARALLEL_PROCESSORS);
+
+        disruptors = new ArrayList<>(partitionCount);
+        ringBuffers = new ArrayList<>(partitionCount);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            Disruptor<ValueEvent> disruptor = new Disruptor<ValueEvent>(ValueEvent.EVENT_FACTORY, ringBufferSize,
+                    executor);
+            //Added by WSO2, we do not want to ignore the exception here
+            disruptor.handleExceptionsWith(new MQTTLogExceptionHandler());
+            SequenceBarrier barrier = disruptor.getRingBuffer().newBarrier();
+            BatchEventProcessor<ValueEvent> eventProcessor = new BatchEventProcessor<ValueEvent>(
+                    disruptor.getRingBuffer(), barrier, this);
+            //Added by WSO2, we need to make sure the exceptions aren't ignored
+            eventProcessor.setExceptionHandler(new MQTTLogExceptionHandler());
+            disruptor.handleEventsWith(eventProcessor);
+            RingBuffer<ValueEvent> ringBuffer = disruptor.start();
+
+            HandlerLagGauge.register(MetricsConstants.MQTT_INBOUND_PARTITION_LAG, String.valueOf(partition),
+                    ringBuffer, eventProcessor);
+            disruptors.add(disruptor);
+            ringBuffers.add(ringBuffer);
+        }
     }
 
 
-    private void disruptorPublish(MessagingEvent msgEvent) {
+    private void disruptorPublish(int partition, MessagingEvent msgEvent) {
         if (log.isDebugEnabled()) {
-            log.debug("disruptorPublish publishing event " + msgEvent);
+            log.debug("disruptorPublish publishing event " + msgEvent + " to partition " + partition);
         }
-        long sequence = m_ringBuffer.next();
-        ValueEvent event = m_ringBuffer.get(sequence);
+        RingBuffer<ValueEvent> ringBuffer = ringBuffers.get(partition);
+        long sequence = ringBuffer.next();
+        ValueEvent event = ringBuffer.get(sequence);
 
         event.setEvent(msgEvent);
 
-        m_ringBuffer.publish(sequence);
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Get the partition processing the events of a client
+     *
+     * @param clientID id of the client, null if the client has not connected
+     * @return index of the partition
+     */
+    private int getPartition(String clientID) {
+        if (null == clientID) {
+            return 0;
+        }
+        return (clientID.hashCode() & Integer.MAX_VALUE) % ringBuffers.size();
     }
 
+    /**
+     * Get the partition processing the events of a connection. The partition is decided by the client ID of the
+     * connect message, since the client ID attribute is set later by the processor.
+     *
+     * @param session connection of the client
+     * @return index of the partition
+     */
+    private int getPartition(ServerChannel session) {
+        Integer partition = (Integer) session.getAttribute(Constants.ATTR_PARTITION);
+        if (null == partition) {
+            return 0;
+        }
+        return partition;
+    }
 
     public void disconnect(ServerChannel session) {
-        disruptorPublish(new DisconnectEvent(session));
+        disruptorPublish(getPartition(session), new DisconnectEvent(session));
     }
 
     public void lostConnection(String clientID) {
-        disruptorPublish(new LostConnectionEvent(clientID));
+        disruptorPublish(getPartition(clientID), new LostConnectionEvent(clientID));
     }
 
     public void handleProtocolMessage(ServerChannel session, AbstractMessage msg) {
-        disruptorPublish(new ProtocolEvent(session, msg));
+        if (msg instanceof ConnectMessage) {
+            session.setAttribute(Constants.ATTR_PARTITION, getPartition(((ConnectMessage) msg).getClientID()));
+        }
+        disruptorPublish(getPartition(session), new ProtocolEvent(session, msg));
     }
 
     public void stop() {
-        m_stopLatch = new CountDownLatch(1);
-        disruptorPublish(new StopEvent());
+        m_stopLatch = new CountDownLatch(ringBuffers.size());
+        for (int partition = 0; partition < ringBuffers.size(); partition++) {
+            disruptorPublish(partition, new StopEvent());
+        }
         try {
-            //wait the callback notification from the protocol processor thread
+            //wait the callback notification from the protocol processor threads
             boolean elapsed = !m_stopLatch.await(10, TimeUnit.SECONDS);
             if (elapsed) {
                 log.warn("Can't stop the server in 10 seconds");
@@ -138,6 +192,7 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         } catch (InterruptedException ex) {
             log.error(null, ex);
         }
+        processStop();
     }
 
     public void onEvent(ValueEvent t, long l, boolean bln) throws Exception {
@@ -148,7 +203,7 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         if (evt instanceof PublishEvent) {
             mqttProcessor.processPublish((PublishEvent) evt);
         } else if (evt instanceof StopEvent) {
-            processStop();
+            m_stopLatch.countDown();
         } else if (evt instanceof DisconnectEvent) {
             DisconnectEvent disEvt = (DisconnectEvent) evt;
             String clientID = (String) disEvt.getSession().getAttribute(Constants.ATTR_CLIENTID);
@@ -208,8 +263,6 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
                 throw new RuntimeException("Illegal message received " + message);
             }
 
-        } else if (evt instanceof InitEvent) {
-            processInit(((InitEvent) evt).getConfig());
         } else if (evt instanceof LostConnectionEvent) {
             LostConnectionEvent lostEvt = (LostConnectionEvent) evt;
             mqttProcessor.proccessConnectionLost(lostEvt.getClientID());
@@ -217,7 +270,8 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
     }
 
     private void processInit(Properties props) {
-        m_storageService = new HawtDBStorageService();
+        // Store is shared by all partitions and the threads delivering messages to subscribers
+        m_storageService = new SynchronizedStorageService(new HawtDBStorageService());
         m_storageService.initStore();
       /*  m_storageService = new MemoryStorageService();
         m_storageService.initStore();*/
@@ -247,12 +301,12 @@ public class SimpleMessaging implements IMessaging, EventHandler<ValueEvent> {
         if (log.isDebugEnabled()) {
             log.debug("processStop invoked");
         }
+        // Partitions have processed the events published before the stop event
+        for (Disruptor<ValueEvent> disruptor : disruptors) {
+            disruptor.halt();
+        }
         m_storageService.close();
 
-//        m_eventProcessor.halt();
-        disruptor.shutdown();
-
         subscriptions = null;
-        m_stopLatch.countDown();
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.dna.mqtt.moquette.messaging.spi.impl;
+
+import org.dna.mqtt.moquette.messaging.spi.IMatchingCondition;
+import org.dna.mqtt.moquette.messaging.spi.IStorageService;
+import org.dna.mqtt.moquette.messaging.spi.impl.events.PublishEvent;
+import org.dna.mqtt.moquette.messaging.spi.impl.subscriptions.Subscription;
+import org.dna.mqtt.moquette.proto.messages.AbstractMessage;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+
+import static org.dna.mqtt.moquette.messaging.spi.impl.HawtDBStorageService.StoredMessage;
+
+/**
+ * Serializes access to a storage service which is not thread safe. MQTT inbound events are processed by several
+ * processors and messages are published to subscribers from Andes delivery threads, all of which use the same store.
+ */
+class SynchronizedStorageService implements IStorageService {
+
+    private final IStorageService storageService;
+
+    SynchronizedStorageService(IStorageService storageService) {
+        this.storageService = storageService;
+    }
+
+    @Override
+    public synchronized void initStore() {
+        storageService.initStore();
+    }
+
+    @Override
+    public synchronized void storeRetained(String topic, ByteBuffer message, AbstractMessage.QOSType qos) {
+        storageService.storeRetained(topic, message, qos);
+    }
+
+    @Override
+    public synchronized Collection<StoredMessage> searchMatching(IMatchingCondition condition) {
+        return storageService.searchMatching(condition);
+    }
+
+    @Override
+    public synchronized void storePublishForFuture(PublishEvent evt) {
+        storageService.storePublishForFuture(evt);
+    }
+
+    @Override
+    public synchronized List<PublishEvent> retrivePersistedPublishes(String clientID) {
+        return storageService.retrivePersistedPublishes(clientID);
+    }
+
+    @Override
+    public synchronized void cleanPersistedPublishMessage(String clientID, int messageID) {
+        storageService.cleanPersistedPublishMessage(clientID, messageID);
+    }
+
+    @Override
+    public synchronized void cleanPersistedPublishes(String clientID) {
+        storageService.cleanPersistedPublishes(clientID);
+    }
+
+    @Override
+    public synchronized void cleanInFlight(String msgID) {
+        storageService.cleanInFlight(msgID);
+    }
+
+    @Override
+    public synchronized void addInFlight(PublishEvent evt, String publishKey) {
+        storageService.addInFlight(evt, publishKey);
+    }
+
+    @Override
+    public synchronized void close() {
+        storageService.close();
+    }
+
+    @Override
+    public synchronized void persistQoS2Message(String publishKey, PublishEvent evt) {
+        storageService.persistQoS2Message(publishKey, evt);
+    }
+
+    @Override
+    public synchronized void removeQoS2Message(String publishKey) {
+        storageService.removeQoS2Message(publishKey);
+    }
+
+    @Override
+    public synchronized PublishEvent retrieveQoS2Message(String publishKey) {
+        return storageService.retrieveQoS2Message(publishKey);
+    }
+
+    @Override
+    public synchronized void addNewSubscription(Subscription newSubscription, String clientID) {
+        storageService.addNewSubscription(newSubscription, clientID);
+    }
+
+    @Override
+    public synchronized void removeAllSubscriptions(String clientID) {
+        storageService.removeAllSubscriptions(clientID);
+    }
+
+    @Override
+    public synchronized List<Subscription> retrieveAllSubscriptions() {
+        return storageService.retrieveAllSubscriptions();
+    }
+}
@@ -10,7 +10,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingDeque;
-
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tree of topic subscriptions. The tree is shared by the inbound event processors, so it is guarded by a read write
+ * lock: lookups and matching run concurrently, while changes to the tree and to subscription states are exclusive.
+ * The persistent store is called outside the lock.
+ */
 public class SubscriptionsStore {
     
     public static interface IVisitor<T> {
@@ -51,6 +58,11 @@ public class SubscriptionsStore {
     }
 
     private TreeNode subscriptions = new TreeNode(null);
+
+    /**
+     * Guards the nodes of {@link #subscriptions} and their subscription lists
+     */
+    private final ReadWriteLock m_treeLock = new ReentrantReadWriteLock();
     private static final Logger LOG = LoggerFactory.getLogger(SubscriptionsStore.class);
 
     private IPersistentSubscriptionStore m_storageService;
@@ -79,10 +91,18 @@ public class SubscriptionsStore {
     }
     
     protected void addDirect(Subscription newSubscription) {
-        TreeNode current = findMatchingNode(newSubscription.topic);
-        current.addSubscription(newSubscription);
+        m_treeLock.writeLock().lock();
+        try {
+            TreeNode current = findMatchingNode(newSubscription.topic);
+            current.addSubscription(newSubscription);
+        } finally {
+            m_treeLock.writeLock().unlock();
+        }
     }
-    
+
+    /**
+     * Find the node of a topic, creating missing nodes. Should be called holding the write lock.
+     */
     private TreeNode findMatchingNode(String topic) {
         List<Token> tokens = new ArrayList<Token>();
         try {
@@ -111,6 +131,30 @@ public class SubscriptionsStore {
         return current;
     }
 
+    /**
+     * Find the node of a topic without changing the tree. Should be called holding the read lock.
+     *
+     * @return the node, or null if no subscription was made to the topic
+     */
+    private TreeNode findExistingNode(String topic) {
+        List<Token> tokens;
+        try {
+            tokens = splitTopic(topic);
+        } catch (ParseException ex) {
+            LOG.error(null, ex);
+            return null;
+        }
+
+        TreeNode current = subscriptions;
+        for (Token token : tokens) {
+            current = current.childWithToken(token);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
     public void add(Subscription newSubscription) {
         addDirect(newSubscription);
 
@@ -121,19 +165,27 @@ public class SubscriptionsStore {
 
 
     public void removeSubscription(String topic, String clientID) {
-        TreeNode matchNode = findMatchingNode(topic);
-        
-        //search for the subscription to remove
-        Subscription toBeRemoved = null;
-        for (Subscription sub : matchNode.subscriptions()) {
-            if (sub.topic.equals(topic) && sub.getClientId().equals(clientID)) {
-                toBeRemoved = sub;
-                break;
+        m_treeLock.writeLock().lock();
+        try {
+            TreeNode matchNode = findExistingNode(topic);
+            if (matchNode == null) {
+                return;
             }
-        }
-        
-        if (toBeRemoved != null) {
-            matchNode.subscriptions().remove(toBeRemoved);
+
+            //search for the subscription to remove
+            Subscription toBeRemoved = null;
+            for (Subscription sub : matchNode.subscriptions()) {
+                if (sub.topic.equals(topic) && sub.getClientId().equals(clientID)) {
+                    toBeRemoved = sub;
+                    break;
+                }
+            }
+
+            if (toBeRemoved != null) {
+                matchNode.subscriptions().remove(toBeRemoved);
+            }
+        } finally {
+            m_treeLock.writeLock().unlock();
         }
     }
 
@@ -143,13 +195,21 @@ public class SubscriptionsStore {
     public Subscription getSubscriptions(String topic,String clientID){
         Subscription subscription = null;
 
-        TreeNode matchNode = findMatchingNode(topic);
+        m_treeLock.readLock().lock();
+        try {
+            TreeNode matchNode = findExistingNode(topic);
+            if (matchNode == null) {
+                return null;
+            }
 
-        for (Subscription sub : matchNode.subscriptions()) {
-            if (sub.topic.equals(topic) && sub.getClientId().equals(clientID)) {
-                subscription = sub;
-                break;
+            for (Subscription sub : matchNode.subscriptions()) {
+                if (sub.topic.equals(topic) && sub.getClientId().equals(clientID)) {
+                    subscription = sub;
+                    break;
+                }
             }
+        } finally {
+            m_treeLock.readLock().unlock();
         }
 
         return subscription;
@@ -159,12 +219,17 @@ public class SubscriptionsStore {
      * TODO implement testing
      */
     public void clearAllSubscriptions() {
-        SubscriptionTreeCollector subsCollector = new SubscriptionTreeCollector();
-        bfsVisit(subscriptions, subsCollector);
-        
-        List<Subscription> allSubscriptions = subsCollector.getResult();
-        for (Subscription subscription : allSubscriptions) {
-            removeSubscription(subscription.getTopic(), subscription.getClientId());
+        m_treeLock.writeLock().lock();
+        try {
+            SubscriptionTreeCollector subsCollector = new SubscriptionTreeCollector();
+            bfsVisit(subscriptions, subsCollector);
+
+            List<Subscription> allSubscriptions = subsCollector.getResult();
+            for (Subscription subscription : allSubscriptions) {
+                removeSubscription(subscription.getTopic(), subscription.getClientId());
+            }
+        } finally {
+            m_treeLock.writeLock().unlock();
         }
     }
 
@@ -172,19 +237,34 @@ public class SubscriptionsStore {
      * Visit the topics tree to remove matching subscriptions with clientID
      */
     public void removeForClient(String clientID) {
-        subscriptions.removeClientSubscriptions(clientID);
+        m_treeLock.writeLock().lock();
+        try {
+            subscriptions.removeClientSubscriptions(clientID);
+        } finally {
+            m_treeLock.writeLock().unlock();
+        }
 
         //remove from log all subscriptions
         m_storageService.removeAllSubscriptions(clientID);
     }
 
     public void deactivate(String clientID) {
-        subscriptions.deactivate(clientID);
+        m_treeLock.writeLock().lock();
+        try {
+            subscriptions.deactivate(clientID);
+        } finally {
+            m_treeLock.writeLock().unlock();
+        }
     }
 
     public void activate(String clientID) {
         LOG.debug("Activating subscriptions for clientID <{}>", clientID);
-        subscriptions.activate(clientID);
+        m_treeLock.writeLock().lock();
+        try {
+            subscriptions.activate(clientID);
+        } finally {
+            m_treeLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -204,7 +284,12 @@ public class SubscriptionsStore {
 
         Queue<Token> tokenQueue = new LinkedBlockingDeque<Token>(tokens);
         List<Subscription> matchingSubs = new ArrayList<Subscription>();
-        subscriptions.matches(tokenQueue, matchingSubs);
+        m_treeLock.readLock().lock();
+        try {
+            subscriptions.matches(tokenQueue, matchingSubs);
+        } finally {
+            m_treeLock.readLock().unlock();
+        }
         return matchingSubs;
     }
 
@@ -213,12 +298,22 @@ public class SubscriptionsStore {
     }
 
     public int size() {
-        return subscriptions.size();
+        m_treeLock.readLock().lock();
+        try {
+            return subscriptions.size();
+        } finally {
+            m_treeLock.readLock().unlock();
+        }
     }
     
     public String dumpTree() {
         DumpTreeVisitor visitor = new DumpTreeVisitor();
-        bfsVisit(subscriptions, visitor);
+        m_treeLock.readLock().lock();
+        try {
+            bfsVisit(subscriptions, visitor);
+        } finally {
+            m_treeLock.readLock().unlock();
+        }
         return visitor.getResult();
     }
     
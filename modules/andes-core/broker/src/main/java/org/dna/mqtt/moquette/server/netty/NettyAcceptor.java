@@ -2,13 +2,20 @@ package org.dna.mqtt.moquette.server.netty;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -34,6 +41,8 @@ import org.dna.mqtt.moquette.server.netty.metrics.MessageMetricsHandler;
 import org.dna.mqtt.moquette.server.netty.metrics.SSLHandlerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 
 import java.io.IOException;
 import java.util.List;
@@ -60,11 +69,9 @@ public class NettyAcceptor implements ServerAcceptor {
 
         @Override
         protected void encode(ChannelHandlerContext chc, ByteBuf bb, List<Object> out) throws Exception {
-            //convert the ByteBuf to a WebSocketFrame
-            BinaryWebSocketFrame result = new BinaryWebSocketFrame();
+            //convert the ByteBuf to a WebSocketFrame, the frame takes over the encoded buffer instead of copying it
             //System.out.println("ByteBufToWebSocketFrameEncoder encode - " + ByteBufUtil.hexDump(bb));
-            result.content().writeBytes(bb);
-            out.add(result);
+            out.add(new BinaryWebSocketFrame(bb.retain()));
         }
     }
 
@@ -77,13 +84,28 @@ public class NettyAcceptor implements ServerAcceptor {
 
     EventLoopGroup m_bossGroup;
     EventLoopGroup m_workerGroup;
+
+    /**
+     * Server channel type matching the event loop groups, epoll or NIO
+     */
+    private Class<? extends ServerSocketChannel> m_serverChannelClass;
+
+    /**
+     * Allocator of connection buffers, null to use the Netty default
+     */
+    private ByteBufAllocator m_allocator;
+
+    private int m_soBacklog;
+    private int m_writeBufferHighWaterMark;
+    private int m_writeBufferLowWaterMark;
+
     BytesMetricsCollector m_bytesMetricsCollector = new BytesMetricsCollector();
     MessageMetricsCollector m_metricsCollector = new MessageMetricsCollector();
 
     @Override
     public void initialize(IMessaging messaging, Properties props) throws IOException {
-        m_bossGroup = new NioEventLoopGroup();
-        m_workerGroup = new NioEventLoopGroup();
+        initEventLoopGroups();
+        initChannelOptions();
 
         /**
          * We leave the websockets commented for now since we do not support end to end integration with it
@@ -129,13 +151,78 @@ public class NettyAcceptor implements ServerAcceptor {
         }
     }
 
+    /**
+     * Create the boss and worker event loop groups. Native epoll is used when configured and available.
+     */
+    private void initEventLoopGroups() {
+        boolean nativeTransport = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_NETTY_NATIVE_TRANSPORT);
+        int bossThreadCount = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_NETTY_BOSS_THREADS);
+        int workerThreadCount = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_NETTY_WORKER_THREADS);
+
+        if (nativeTransport && Epoll.isAvailable()) {
+            m_bossGroup = new EpollEventLoopGroup(bossThreadCount);
+            m_workerGroup = new EpollEventLoopGroup(workerThreadCount);
+            m_serverChannelClass = EpollServerSocketChannel.class;
+            log.info("MQTT transport uses the native epoll transport");
+        } else {
+            if (nativeTransport) {
+                log.warn("Native epoll transport is not available on this platform, MQTT transport uses NIO");
+            }
+            m_bossGroup = new NioEventLoopGroup(bossThreadCount);
+            m_workerGroup = new NioEventLoopGroup(workerThreadCount);
+            m_serverChannelClass = NioServerSocketChannel.class;
+        }
+    }
+
+    /**
+     * Read the socket and buffer options applied to the server channel and accepted connections
+     */
+    private void initChannelOptions() {
+        m_soBacklog = AndesConfigurationManager.readValue(AndesConfiguration.TRANSPORTS_MQTT_NETTY_SO_BACKLOG);
+        m_writeBufferHighWaterMark = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_NETTY_WRITE_BUFFER_HIGH_WATER_MARK);
+        m_writeBufferLowWaterMark = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_NETTY_WRITE_BUFFER_LOW_WATER_MARK);
+        if (m_writeBufferLowWaterMark > m_writeBufferHighWaterMark) {
+            log.warn(String.format("MQTT write buffer low water mark %d is above the high water mark %d, using %d",
+                    m_writeBufferLowWaterMark, m_writeBufferHighWaterMark, m_writeBufferHighWaterMark / 2));
+            m_writeBufferLowWaterMark = m_writeBufferHighWaterMark / 2;
+        }
+
+        boolean pooledDirectBuffers = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_NETTY_POOLED_DIRECT_BUFFERS);
+        if (pooledDirectBuffers) {
+            m_allocator = new PooledByteBufAllocator(true);
+        }
+    }
+
+    /**
+     * Set the write buffer water marks of an accepted connection. Netty rejects a high water mark below the current
+     * low water mark and a low water mark above the current high water mark, hence the order.
+     *
+     * @param config configuration of the connection
+     */
+    private void setWriteBufferWaterMarks(ChannelConfig config) {
+        if (m_writeBufferHighWaterMark >= config.getWriteBufferLowWaterMark()) {
+            config.setWriteBufferHighWaterMark(m_writeBufferHighWaterMark);
+            config.setWriteBufferLowWaterMark(m_writeBufferLowWaterMark);
+        } else {
+            config.setWriteBufferLowWaterMark(m_writeBufferLowWaterMark);
+            config.setWriteBufferHighWaterMark(m_writeBufferHighWaterMark);
+        }
+    }
+
     private void initFactory(String host, int port, final PipelineInitializer pipeliner) {
         ServerBootstrap b = new ServerBootstrap();
         b.group(m_bossGroup, m_workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(m_serverChannelClass)
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     public void initChannel(SocketChannel ch) throws Exception {
+                        setWriteBufferWaterMarks(ch.config());
                         ChannelPipeline pipeline = ch.pipeline();
                         try {
                             pipeliner.init(pipeline);
@@ -145,10 +232,14 @@ public class NettyAcceptor implements ServerAcceptor {
                         }
                     }
                 })
-                .option(ChannelOption.SO_BACKLOG, 128)
+                .option(ChannelOption.SO_BACKLOG, m_soBacklog)
                 .option(ChannelOption.SO_REUSEADDR, true)
-                .option(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.TCP_NODELAY, true)
                 .childOption(ChannelOption.SO_KEEPALIVE, true);
+        if (null != m_allocator) {
+            b.option(ChannelOption.ALLOCATOR, m_allocator)
+                    .childOption(ChannelOption.ALLOCATOR, m_allocator);
+        }
         try {
             // Bind and start to accept incoming connections.
             ChannelFuture f = b.bind(host, port);
@@ -10,6 +10,7 @@ import org.dna.mqtt.moquette.proto.Utils;
 import org.dna.mqtt.moquette.proto.messages.AbstractMessage;
 import org.dna.mqtt.moquette.proto.messages.PingRespMessage;
 import org.dna.mqtt.moquette.server.Constants;
+import org.dna.mqtt.wso2.AndesMQTTBridge;
 import org.dna.mqtt.wso2.MQTTPingRequest;
 
 import java.util.HashMap;
@@ -90,6 +91,10 @@ public class NettyMQTTHandler extends ChannelInboundHandlerAdapter {
         if(null != channel) {
             String clientID = (String) channel.getAttribute(Constants.ATTR_CLIENTID);
             m_messaging.lostConnection(clientID);
+            // Do not leave delivery paused for a client id which may connect again
+            if (null != clientID) {
+                AndesMQTTBridge.onClientWritabilityChanged(clientID, true);
+            }
             ctx.close(/*false*/);
         }
         synchronized (mqttChannelMapper) {
@@ -97,6 +102,27 @@ public class NettyMQTTHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * Pause delivery to a client while data waiting to be written to it is above the write buffer high water mark,
+     * so that a client which does not read its messages cannot make the broker buffer them without bound. Delivery
+     * resumes once the data falls below the low water mark. Reading from the client continues meanwhile, so its
+     * acknowledgements and ping requests are still processed.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        NettyChannel channel;
+        synchronized (mqttChannelMapper) {
+            channel = mqttChannelMapper.get(ctx);
+        }
+        if (null != channel) {
+            String clientID = (String) channel.getAttribute(Constants.ATTR_CLIENTID);
+            if (null != clientID) {
+                AndesMQTTBridge.onClientWritabilityChanged(clientID, ctx.channel().isWritable());
+            }
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause){
         // We log the error and close the connection at an event where and exception is caught
@@ -244,4 +244,18 @@ public final class AndesMQTTBridge {
         }
         MQTTopicManager.getInstance().processPingRequest(clientID);
     }
+
+    /**
+     * Triggers when the connection of a client crosses its write buffer water marks, delivery to the client is
+     * paused while the connection is not writable
+     *
+     * @param clientID the id of the client
+     * @param writable whether the connection of the client is writable
+     */
+    public static void onClientWritabilityChanged(String clientID, boolean writable) {
+        if (log.isDebugEnabled()) {
+            log.debug("Delivery to client id " + clientID + (writable ? " resumed" : " paused"));
+        }
+        MQTTopicManager.getInstance().onSubscriberWritabilityChanged(clientID, writable);
+    }
 }
@@ -20,8 +20,8 @@ package org.dna.mqtt.wso2;
 import org.dna.mqtt.moquette.messaging.spi.impl.subscriptions.Subscription;
 import org.dna.mqtt.moquette.messaging.spi.impl.subscriptions.SubscriptionsStore;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Will handle new subscriptions bound through andes cluster, we extent the subscription store since we need to
@@ -33,8 +33,9 @@ public class MQTTSubscriptionStore extends SubscriptionsStore {
     /**
      * Key = the name of the topic
      * Value = the subscription/s represented through the topic
+     * Clients subscribing to the same topic could be processed by different MQTT inbound processors
      */
-    private Map<String, Subscribers> localSubscriptions = new HashMap<String, Subscribers>();
+    private ConcurrentMap<String, Subscribers> localSubscriptions = new ConcurrentHashMap<String, Subscribers>();
 
     /**
      * Would include the subscription to the list so that this could be used when sending the message out
@@ -48,12 +49,13 @@ public class MQTTSubscriptionStore extends SubscriptionsStore {
         Subscribers subscribers = localSubscriptions.get(topic);
 
         if (null == subscribers) {
-            Subscribers subscriber = new Subscribers();
-            subscriber.addNewSubscriber(clientID, newSubscription);
-            localSubscriptions.put(topic, subscriber);
-        } else {
-            subscribers.addNewSubscriber(clientID, newSubscription);
+            Subscribers newSubscribers = new Subscribers();
+            subscribers = localSubscriptions.putIfAbsent(topic, newSubscribers);
+            if (null == subscribers) {
+                subscribers = newSubscribers;
+            }
         }
+        subscribers.addNewSubscriber(clientID, newSubscription);
 
     }
 
@@ -32,6 +32,7 @@ import org.wso2.andes.kernel.ProtocolDeliveryRulesFailureException;
 import org.wso2.andes.kernel.ProtocolMessage;
 import org.wso2.andes.server.AMQChannel;
 import org.wso2.andes.server.binding.Binding;
+import org.wso2.andes.server.filter.FilterManager;
 import org.wso2.andes.server.message.AMQMessage;
 import org.wso2.andes.server.message.MessageMetaData;
 import org.wso2.andes.server.queue.AMQQueue;
@@ -39,6 +40,7 @@ import org.wso2.andes.server.queue.QueueEntry;
 import org.wso2.andes.server.store.StoredMessage;
 import org.wso2.andes.server.subscription.Subscription;
 import org.wso2.andes.server.subscription.SubscriptionImpl;
+import org.wso2.andes.store.StoredAMQPMessage;
 import org.wso2.andes.kernel.subscription.OutboundSubscription;
 import org.wso2.andes.tools.utils.MessageTracer;
 import java.util.ArrayList;
@@ -81,6 +83,15 @@ public class AMQPLocalSubscription implements OutboundSubscription {
     //List of Delivery Rules to evaluate
     private List<AMQPDeliveryRule> amqpDeliveryRuleList = new ArrayList<>();
 
+    /*
+     * Selector of the subscription, evaluated directly on andes metadata. Null when the subscription has no
+     * selector or when selectors are evaluated on queue entries, see isMessageAcceptedBySelector
+     */
+    private FilterManager filterManager;
+
+    //true if selectors of the subscription are evaluated directly on andes metadata
+    private boolean isEvaluatedOnMetadata;
+
 
     public AMQPLocalSubscription(Subscription amqpSubscription) {
         this.subscribeTime = System.currentTimeMillis();
@@ -90,6 +101,8 @@ public class AMQPLocalSubscription implements OutboundSubscription {
 
         if (amqpSubscription != null && amqpSubscription instanceof SubscriptionImpl) {
             channel = ((SubscriptionImpl) amqpSubscription).getChannel();
+            filterManager = ((SubscriptionImpl) amqpSubscription).getFilterManager();
+            isEvaluatedOnMetadata = true;
             initializeDeliveryRules();
         }
 
@@ -127,6 +140,15 @@ public class AMQPLocalSubscription implements OutboundSubscription {
         return amqpSubscription.isActive();
     }
 
+    /**
+     * {@inheritDoc}
+     * AMQP consumers are flow controlled by the unacknowledged message limit and channel flow.
+     */
+    @Override
+    public boolean isOutboundConnectionWritable() {
+        return true;
+    }
+
     @Override
     public UUID getChannelID() {
         return channel.getId();
@@ -156,6 +178,24 @@ public class AMQPLocalSubscription implements OutboundSubscription {
     public boolean isMessageAcceptedBySelector(AndesMessageMetadata messageMetadata)
             throws AndesException {
 
+        if (isEvaluatedOnMetadata) {
+            if (null == filterManager) {
+                return true;
+            }
+
+            // Selectors read headers from the metadata directly. An AMQMessage is only built for a match and the
+            // decoded metadata is kept for delivery.
+            FilterableMetadata filterableMessage = FilterableMetadata.of(messageMetadata);
+            if (filterManager.allAllow(filterableMessage)) {
+                long messageId = messageMetadata.getMessageID();
+                storedMessageCache.put(messageId,
+                        new StoredAMQPMessage(messageId, filterableMessage.getMessageMetaData()));
+                return true;
+            } else {
+                return false;
+            }
+        }
+
         AMQMessage amqMessage = AMQPUtils.getAMQMessageFromAndesMetaData(messageMetadata);
         QueueEntry message = AMQPUtils.convertAMQMessageToQueueEntry(amqMessage, amqQueue);
 
@@ -238,8 +238,8 @@ public class AMQPUtils {
 
             // message content can be returned as null if a sudden queue purge occurs and clears all message content in store.
             // This has to be handled.
-            if (messagePart.getData() != null) {
-                dst.put(messagePart.getData(), positionToReadFromChunk, numOfBytesToRead);
+            if (messagePart.hasData()) {
+                dst.put(messagePart.getDataView(positionToReadFromChunk, numOfBytesToRead));
             }
 
             written += numOfBytesToRead;
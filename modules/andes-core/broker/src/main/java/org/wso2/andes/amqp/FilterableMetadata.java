@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.amqp;
+
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.server.filter.EvaluationCache;
+import org.wso2.andes.server.message.AMQMessageHeader;
+import org.wso2.andes.server.message.MessageMetaData;
+import org.wso2.andes.server.queue.Filterable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Presents {@link AndesMessageMetadata} to JMS selectors without building an AMQMessage and a queue entry for it.
+ * The AMQP metadata bytes are decoded when a selector first reads a header, so subscriptions whose selectors are
+ * decided by cached sub-expressions do not decode anything.
+ * <p>
+ * The same instance is offered to every subscription evaluated for a message on a delivery thread, see
+ * {@link #of(AndesMessageMetadata)}. Expression values cached in it are therefore shared by those subscriptions.
+ */
+class FilterableMetadata implements Filterable, EvaluationCache {
+
+    /**
+     * Message last offered to selectors on each thread
+     */
+    private static final ThreadLocal<FilterableMetadata> lastEvaluatedMessage = new ThreadLocal<>();
+
+    private final AndesMessageMetadata metadata;
+
+    /**
+     * Encoded metadata the instance was created for. Metadata re-encoded afterwards is not matched against cached
+     * values.
+     */
+    private final byte[] encodedMetadata;
+
+    private MessageMetaData messageMetaData;
+
+    /**
+     * Expression values keyed by interned expression text
+     */
+    private final Map<String, Object> evaluations = new IdentityHashMap<>();
+
+    private FilterableMetadata(AndesMessageMetadata metadata) {
+        this.metadata = metadata;
+        this.encodedMetadata = metadata.getMetadata();
+    }
+
+    /**
+     * Get the selector view of a message for the calling thread. Delivery offers a message to subscriptions one
+     * after the other on the same thread, hence the view created for the first subscription is reused by the rest.
+     *
+     * @param metadata message offered to selectors
+     * @return view of the message
+     */
+    static FilterableMetadata of(AndesMessageMetadata metadata) {
+        FilterableMetadata message = lastEvaluatedMessage.get();
+        if ((null == message) || (message.metadata != metadata) || (message.encodedMetadata != metadata.getMetadata())) {
+            message = new FilterableMetadata(metadata);
+            lastEvaluatedMessage.set(message);
+        }
+        return message;
+    }
+
+    /**
+     * Get decoded AMQP metadata of the message. Decoded on first call.
+     *
+     * @return AMQP metadata
+     */
+    MessageMetaData getMessageMetaData() {
+        if (null == messageMetaData) {
+            messageMetaData = (MessageMetaData) AMQPUtils.convertAndesMetadataToAMQMetadata(metadata);
+        }
+        return messageMetaData;
+    }
+
+    @Override
+    public AMQMessageHeader getMessageHeader() {
+        return getMessageMetaData().getMessageHeader();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return getMessageMetaData().isPersistent();
+    }
+
+    /**
+     * Selectors were evaluated against new queue entries, which are never redelivered
+     */
+    @Override
+    public boolean isRedelivered() {
+        return false;
+    }
+
+    @Override
+    public Object getEvaluation(String expression) {
+        return evaluations.get(expression);
+    }
+
+    @Override
+    public void putEvaluation(String expression, Object value) {
+        evaluations.put(expression, value);
+    }
+}
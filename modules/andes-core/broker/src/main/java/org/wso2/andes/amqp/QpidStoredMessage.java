@@ -61,4 +61,21 @@ public class QpidStoredMessage<T extends StorableMessageMetaData> extends Forwar
 
         return bytesWrittenToBuffer;
     }
+
+    /**
+     * Get a read-only view of the message content without copying it
+     *
+     * @param offsetInMessage starting byte position
+     * @param maxLength       maximum number of bytes in the view
+     * @return view of the content, or null if the content is not available
+     * @see AndesContent#getContentView(int, int)
+     */
+    public ByteBuffer getContentView(int offsetInMessage, int maxLength) {
+        try {
+            return content.getContentView(offsetInMessage, maxLength);
+        } catch (AndesException e) {
+            log.error("Error while getting message content view offset " + offsetInMessage, e);
+            return null;
+        }
+    }
 }
@@ -20,6 +20,7 @@ package org.wso2.andes.configuration.enums;
 
 import org.wso2.andes.configuration.modules.JKSStore;
 import org.wso2.andes.configuration.util.ConfigurationProperty;
+import org.wso2.andes.configuration.util.DisruptorWaitStrategy;
 import org.wso2.andes.configuration.util.ImmutableMetaProperties;
 import org.wso2.andes.configuration.util.MetaProperties;
 import org.wso2.andes.configuration.util.TopicMessageDeliveryStrategy;
@@ -48,6 +49,47 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     CLUSTER_EVENT_SYNC_INTERVAL("coordination/clusterEventSyncMode/RDBMS/eventSyncInterval", "1000", Integer.class),
 
+    /**
+     * Enabling this will make nodes send RDBMS synchronized cluster notifications directly to each other over TCP.
+     * A notification is only stored in the database for nodes that did not acknowledge it, and those are read when
+     * the node connects again. The database is then polled at {@link #CLUSTER_EVENT_SYNC_FALLBACK_INTERVAL}.
+     */
+    CLUSTER_EVENT_SYNC_DIRECT_ENABLED(
+            "coordination/RDBMSBasedClusterEventSynchronization/directNotification/@enabled", "false", Boolean.class),
+
+    /**
+     * Port of the direct cluster notification listener relative to the cluster agent (Hazelcast) port of the node.
+     * Nodes find each other's listener through the cluster agent address kept in the database.
+     */
+    CLUSTER_EVENT_SYNC_DIRECT_PORT_OFFSET(
+            "coordination/RDBMSBasedClusterEventSynchronization/directNotification/portOffset", "1000",
+            Integer.class),
+
+    /**
+     * Time to wait for a node to acknowledge a direct cluster notification before storing the notification in the
+     * database for it. Specified in milliseconds.
+     */
+    CLUSTER_EVENT_SYNC_DIRECT_ACK_TIMEOUT(
+            "coordination/RDBMSBasedClusterEventSynchronization/directNotification/ackTimeout", "2000",
+            Integer.class),
+
+    /**
+     * Secret shared by the nodes of the cluster. Nodes prove to each other they know the secret before exchanging
+     * direct cluster notifications. Direct notifications stay disabled until a secret is set.
+     */
+    CLUSTER_EVENT_SYNC_DIRECT_SHARED_SECRET(
+            "coordination/RDBMSBasedClusterEventSynchronization/directNotification/sharedSecret", "",
+            String.class),
+
+    /**
+     * The interval at which the cluster events are read from the database when direct cluster notifications are
+     * enabled. Events reach the database only for nodes which could not be notified directly. Specified in
+     * milliseconds.
+     */
+    CLUSTER_EVENT_SYNC_FALLBACK_INTERVAL(
+            "coordination/RDBMSBasedClusterEventSynchronization/directNotification/fallbackEventSyncInterval",
+            "30000", Integer.class),
+
     /**
      * The host IP to be used by the Thrift server. Thrift is used to coordinate message slots between MB nodes.
      */
@@ -132,6 +174,23 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     TRANSPORTS_AMQP_SSL_CONNECTION_TRUSTSTORE("transports/amqp/sslConnection/trustStore", "", JKSStore.class),
 
+    /**
+     * Network transport accepting AMQP connections. MINA or NETTY. The Netty transport processes the frames of a
+     * connection on its event loop without handing them over to another thread.
+     */
+    TRANSPORTS_AMQP_NETWORK_TRANSPORT("transports/amqp/networkTransport", "MINA", AMQPNetworkTransport.class),
+
+    /**
+     * Use the native epoll transport for AMQP connections when running on Linux with the Netty network transport.
+     * NIO is used if the native transport is not available.
+     */
+    TRANSPORTS_AMQP_NETTY_NATIVE_TRANSPORT("transports/amqp/netty/nativeTransport", "false", Boolean.class),
+
+    /**
+     * Maximum number of AMQP connections waiting to be accepted by the Netty network transport.
+     */
+    TRANSPORTS_AMQP_NETTY_SO_BACKLOG("transports/amqp/netty/soBacklog", "1024", Integer.class),
+
     /**
      * By default, expired messages are sent to the Dead Letter Channel for later revival/reference. But,
      * in cases where expired messages can pile up in the DLC, this behaviour can be disabled.
@@ -202,11 +261,57 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     TRANSPORTS_MQTT_INBOUND_BUFFER_SIZE("transports/mqtt/inboundBufferSize", "32768", Integer.class),
 
+    /**
+     * Number of MQTT inbound event processors. Events are partitioned across processors by client ID, so events of
+     * a client are processed in order. Each processor has its own ring buffer of the inbound buffer size.
+     */
+    TRANSPORTS_MQTT_INBOUND_PARALLEL_PROCESSORS("transports/mqtt/inboundParallelProcessors", "1", Integer.class),
+
     /**
      * Ring buffer size of MQTT delivery event Disruptor. Default is set to 32768 (1024 * 32)
      */
     TRANSPORTS_MQTT_DELIVERY_BUFFER_SIZE("transports/mqtt/deliveryBufferSize", "32768", Integer.class),
 
+    /**
+     * Use the native epoll transport for MQTT connections when running on Linux. NIO is used if the native transport
+     * is not available.
+     */
+    TRANSPORTS_MQTT_NETTY_NATIVE_TRANSPORT("transports/mqtt/netty/nativeTransport", "false", Boolean.class),
+
+    /**
+     * Number of threads accepting MQTT connections. 0 uses the Netty default of twice the number of processors.
+     */
+    TRANSPORTS_MQTT_NETTY_BOSS_THREADS("transports/mqtt/netty/bossThreadCount", "0", Integer.class),
+
+    /**
+     * Number of threads handling IO of MQTT connections. 0 uses the Netty default of twice the number of processors.
+     */
+    TRANSPORTS_MQTT_NETTY_WORKER_THREADS("transports/mqtt/netty/workerThreadCount", "0", Integer.class),
+
+    /**
+     * Maximum number of MQTT connections waiting to be accepted. Connections beyond this are refused while a large
+     * number of clients reconnect. The operating system limit (somaxconn on Linux) also applies.
+     */
+    TRANSPORTS_MQTT_NETTY_SO_BACKLOG("transports/mqtt/netty/soBacklog", "1024", Integer.class),
+
+    /**
+     * Allocate buffers of MQTT connections from a pool of direct buffers.
+     */
+    TRANSPORTS_MQTT_NETTY_POOLED_DIRECT_BUFFERS("transports/mqtt/netty/pooledDirectBuffers", "true", Boolean.class),
+
+    /**
+     * Size in bytes of data waiting to be written to an MQTT connection above which the connection is not writable.
+     * Messages are not delivered to the client until the data falls below the low water mark.
+     */
+    TRANSPORTS_MQTT_NETTY_WRITE_BUFFER_HIGH_WATER_MARK("transports/mqtt/netty/writeBufferHighWaterMark", "65536",
+            Integer.class),
+
+    /**
+     * Size in bytes of data waiting to be written to an MQTT connection below which the connection is writable again.
+     */
+    TRANSPORTS_MQTT_NETTY_WRITE_BUFFER_LOW_WATER_MARK("transports/mqtt/netty/writeBufferLowWaterMark", "32768",
+            Integer.class),
+
     /**
      * This is a temporary list of user elements to enable user-authentication for MQTT.
      */
@@ -299,6 +404,20 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERSISTENCE_CACHE_SIZE("persistence/cache/size", "256", Integer.class),
     
+    /**
+     * Implementation used to cache messages.
+     *
+     * <p>
+     * <ul>
+     *  <li>onHeap  - Guava cache keeping messages on java heap</li>
+     *  <li>offHeap - message content is kept in direct memory and only metadata is kept on heap. Requires
+     *                -XX:MaxDirectMemorySize to be at least the cache size.
+     *  </li>
+     * </ul>
+     * </p>
+     */
+    PERSISTENCE_CACHE_TYPE("persistence/cache/type", "onHeap", String.class),
+
     /**
      * Expected concurrency for the cache (4 is guava default)
      */
@@ -333,7 +452,7 @@ public enum AndesConfiguration implements ConfigurationProperty {
      * The ID generation class that is used to maintain unique IDs for each message that arrives at the server.
      */
     PERSISTENCE_ID_GENERATOR("persistence/idGenerator", "org.wso2.andes.server.cluster" +
-            ".coordination.TimeStampBasedMessageIdGenerator", String.class),
+            ".coordination.AtomicTimeStampBasedMessageIdGenerator", String.class),
 
     /**
      * This is the Task interval (in SECONDS) to check weather communication
@@ -378,6 +497,28 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_CONTENT_COMPRESSION_THRESHOLD
             ("performanceTuning/contentHandling/contentCompressionThreshold", "1000", Integer.class),
 
+    /**
+     * Boolean value to indicate if compression is skipped for destinations receiving incompressible content.
+     * Compression ratio is sampled per destination, and content which does not compress is stored as it is.
+     */
+    PERFORMANCE_TUNING_ADAPTIVE_COMPRESSION_ENABLED
+            ("performanceTuning/contentHandling/adaptiveCompression/enabled", "true", Boolean.class),
+
+    /**
+     * Maximum size of compressed content, as a percentage of the original content size. Content which does not
+     * compress below this size is stored uncompressed.
+     */
+    PERFORMANCE_TUNING_ADAPTIVE_COMPRESSION_MAX_COMPRESSED_SIZE_PERCENTAGE
+            ("performanceTuning/contentHandling/adaptiveCompression/maxCompressedSizePercentage", "90",
+                    Integer.class),
+
+    /**
+     * Once the content of a destination is found incompressible, only one in this many messages of the destination
+     * is compressed to check whether the content became compressible again.
+     */
+    PERFORMANCE_TUNING_ADAPTIVE_COMPRESSION_SAMPLE_INTERVAL
+            ("performanceTuning/contentHandling/adaptiveCompression/sampleInterval", "100", Integer.class),
+
     /**
      * Maximum time interval until which a slot can be retained in memory before updating to the cluster.
      * NOTE : specified in milliseconds.
@@ -407,6 +548,21 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_SLOTS_WORKER_THREAD_COUNT("performanceTuning/slots/workerThreadCount", "5",
             Integer.class),
 
+    /**
+     * Maximum time in milliseconds a delivery worker of a queue without work waits before checking for new slots.
+     * Workers are woken up earlier on new slots, acknowledgements and subscriptions of the local node. The wait
+     * starts at 100 milliseconds and doubles until this value while there is no work for the queue.
+     */
+    PERFORMANCE_TUNING_SLOTS_MAX_IDLE_WORKER_DELAY("performanceTuning/slots/maxIdleWorkerDelay", "1000",
+            Integer.class),
+
+    /**
+     * Maximum number of slots sent to the slot coordinator in a single request. Slots closed while a request is in
+     * progress are sent together in the next request.
+     */
+    PERFORMANCE_TUNING_SLOTS_MAX_SUBMIT_BATCH_SIZE("performanceTuning/slots/maxSubmitBatchSize", "500",
+            Integer.class),
+
     /**
      * Published message information is sent to slot coordinator by the node when it either reaches the slot window
      * size or the window creation timeout in milliseconds. This configures the timeout for slot window creation task.
@@ -442,6 +598,47 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERFORMANCE_TUNING_DELIVERY_RING_BUFFER_SIZE("performanceTuning/delivery/ringBufferSize", "4096", Integer.class),
 
+    /**
+     * How handlers of the delivery disruptor wait for events. BUSY_SPIN gives the lowest latency while keeping a
+     * core busy per handler. SLEEPING suits hosts shared by many brokers.
+     */
+    PERFORMANCE_TUNING_DELIVERY_WAIT_STRATEGY("performanceTuning/delivery/waitStrategy",
+            DisruptorWaitStrategy.BLOCKING.toString(), DisruptorWaitStrategy.class),
+
+    /**
+     * Number of messages read from the message store at once when a slot is loaded for delivery. Messages of the
+     * first page are delivered while the rest of the slot is being read.
+     */
+    PERFORMANCE_TUNING_DELIVERY_METADATA_READ_PAGE_SIZE("performanceTuning/delivery/metadataReadPageSize", "200",
+            Integer.class),
+
+    /**
+     * Number of parallel readers used to read the remaining pages of slots loaded for delivery. Increasing this
+     * value will speedup loading slots of many queues. But the load on the data store will increase.
+     */
+    PERFORMANCE_TUNING_DELIVERY_PARALLEL_METADATA_READERS("performanceTuning/delivery/parallelMetadataReaders", "5",
+            Integer.class),
+
+    /**
+     * Number of messages at the start of each slot of which content is loaded to the message cache as soon as the
+     * slot is read. Fewer messages are prefetched if the read-but-undelivered buffer of the queue is nearly full.
+     * Setting '0' or disabling the message cache disables prefetching.
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_MESSAGE_COUNT("performanceTuning/delivery/contentPrefetch" +
+            "/messageCount", "100", Integer.class),
+
+    /**
+     * Maximum size in MBs of content being prefetched at a time
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_MAX_IN_FLIGHT_SIZE("performanceTuning/delivery/contentPrefetch" +
+            "/maxInFlightSize", "64", Integer.class),
+
+    /**
+     * Number of parallel readers used to prefetch content
+     */
+    PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_PARALLEL_READERS("performanceTuning/delivery/contentPrefetch" +
+            "/parallelReaders", "2", Integer.class),
+
     /**
      * Number of parallel readers used to read content from message store. Increasing this value will speedup
      * the message sending mechanism. But the load on the data store will increase.
@@ -482,6 +679,13 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_DELIVERY_CONTENT_CACHE_EXPIRY_TIME("performanceTuning/delivery/contentCache/expiryTime", "120",
                                                           Integer.class),
 
+    /**
+     * Maximum number of routing keys for which matched storage queues are cached by each topic message router.
+     * Cached results are discarded when bindings of the router change. Set to 0 to disable the cache.
+     */
+    PERFORMANCE_TUNING_ROUTING_CACHE_MAXIMUM_SIZE("performanceTuning/inboundEvents/routingCacheMaximumSize",
+            "10000", Integer.class),
+
     /**
      * Number of parallel writers used to write content to message store. Increasing this value will speedup
      * the message receiving mechanism. But the load on the data store will increase.
@@ -504,6 +708,27 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERFORMANCE_TUNING_PUBLISHING_BUFFER_SIZE("performanceTuning/inboundEvents/bufferSize", "65536", Integer.class),
 
+    /**
+     * How handlers of the inbound disruptor wait for events. BUSY_SPIN gives the lowest latency while keeping a
+     * core busy per handler. SLEEPING suits hosts shared by many brokers.
+     */
+    PERFORMANCE_TUNING_PUBLISHING_WAIT_STRATEGY("performanceTuning/inboundEvents/waitStrategy",
+            DisruptorWaitStrategy.BLOCKING.toString(), DisruptorWaitStrategy.class),
+
+    /**
+     * Boolean value to indicate if the time messages take to reach each stage of the kernel pipeline is recorded
+     * per storage queue. Recorded latencies are available through JMX and metrics. Disabled by default since
+     * recording adds work to the message path.
+     */
+    PERFORMANCE_TUNING_LATENCY_TRACKING_ENABLED
+            ("performanceTuning/latencyTracking/enabled", "false", Boolean.class),
+
+    /**
+     * Latencies are recorded for one in this many messages.
+     */
+    PERFORMANCE_TUNING_LATENCY_TRACKING_SAMPLE_RATE
+            ("performanceTuning/latencyTracking/sampleRate", "100", Integer.class),
+
     /**
      * Maximum batch size of the batch write operation for inbound messages. Batch write of a message will vary around
      * this number.
@@ -532,6 +757,21 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_ACK_HANDLER_COUNT("performanceTuning/ackHandling/ackHandlerCount", "1",
             Integer.class ),
 
+    /**
+     * Maximum number of acknowledged messages deleted from the message store in a single delete. Acknowledged
+     * messages are collected across acknowledgement batches until this number is reached or the oldest of them
+     * waited for {@link #PERFORMANCE_TUNING_ACK_HANDLING_MAX_DELETE_DELAY}.
+     */
+    PERFORMANCE_TUNING_ACK_HANDLING_DELETE_BATCH_SIZE("performanceTuning/ackHandling/deleteBatchSize", "1000",
+            Integer.class),
+
+    /**
+     * Maximum time in milliseconds an acknowledged message waits for others before being deleted from the
+     * message store.
+     */
+    PERFORMANCE_TUNING_ACK_HANDLING_MAX_DELETE_DELAY("performanceTuning/ackHandling/maxDeleteDelay", "50",
+            Integer.class),
+
     /**
      * Message delivery from server to the client will be paused temporarily if number of delivered but
      * unacknowledged message count reaches this size. Should be set considering message consume rate.
@@ -587,6 +827,21 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     PERFORMANCE_TUNING_MESSAGE_EXPIRATION_BATCH_SIZE
             ("performanceTuning/messageExpiration/messageBatchSize", "1000", Integer.class),
+
+    /**
+     * Enable the in memory index of expiring messages. Expired messages are deleted as they expire instead of
+     * scanning the message store of each queue periodically. Used only when clustering is disabled.
+     */
+    PERFORMANCE_TUNING_EXPIRY_INDEX_ENABLED
+            ("performanceTuning/messageExpiration/expiryIndex/enabled", "true", Boolean.class),
+
+    /**
+     * Interval at which the expiry index deletes expired messages, and the precision of the index. specified in
+     * milliseconds.
+     */
+    PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL
+            ("performanceTuning/messageExpiration/expiryIndex/tickInterval", "1000", Integer.class),
+
     /**
      * The number of slots for one queue which may be be allocated for slot delivery worker in near future.
      * Because of that the deletion task should not execute on those slots. specified in slot counts.
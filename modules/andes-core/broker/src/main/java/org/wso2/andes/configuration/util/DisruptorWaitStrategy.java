@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.configuration.util;
+
+/**
+ * Enum to specify how disruptor handlers wait for events. This is configured at broker.xml under
+ * <inboundEvents>/<waitStrategy> and <delivery>/<waitStrategy>
+ */
+public enum DisruptorWaitStrategy {
+
+    /**
+     * handlers block on a lock until events are published. Lowest CPU usage, highest latency
+     */
+    BLOCKING,
+
+    /**
+     * handlers block on a lock and back off with a minimal park once woken
+     */
+    SLEEPING_BLOCKING,
+
+    /**
+     * handlers spin, then yield, then sleep. Suits hosts shared by many brokers
+     */
+    SLEEPING,
+
+    /**
+     * handlers spin, then yield the CPU. Low latency while leaving the CPU to other threads when needed
+     */
+    YIELDING,
+
+    /**
+     * handlers spin on the CPU. Lowest latency, but each handler thread keeps a core busy
+     */
+    BUSY_SPIN,
+
+    /**
+     * handlers spin, then yield, then block on a lock when the ring stays idle
+     */
+    PHASED_BACKOFF
+}
@@ -37,6 +37,20 @@ public interface AndesContent {
      */
     int putContent(int offset, ByteBuffer destinationBuffer) throws AndesException;
 
+    /**
+     * Get a read-only view of the content starting at the given offset, without copying the content. The view
+     * ends at the end of the content chunk holding the offset, or after maxLength bytes, whichever comes first.
+     * Views are shared by all subscribers of the message and must not be modified.
+     *
+     * @param offset
+     *         Starting byte position
+     * @param maxLength
+     *         Maximum number of bytes in the view
+     * @return Read-only buffer positioned at the start of the view
+     * @throws AndesException if the content is not available for the offset
+     */
+    ByteBuffer getContentView(int offset, int maxLength) throws AndesException;
+
     /**
      * Return the content length of the message
      *
@@ -32,6 +32,7 @@ import org.wso2.andes.kernel.router.MessageRouterFactory;
 import org.wso2.andes.kernel.router.QueueMessageRouter;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MessageLatencyRecorder;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
 import org.wso2.andes.server.cluster.coordination.CoordinationComponentFactory;
@@ -309,6 +310,7 @@ public class AndesContextInformationManager {
 
         // Remove queue mapping from cache after removing it from DB
         messageStore.removeLocalQueueData(storageQueueName);
+        MessageLatencyRecorder.removeStorageQueue(storageQueueName);
 
         //identify storage queue, unbind it from router and delete from queue registry
         AndesContext.getInstance().getStorageQueueRegistry().removeStorageQueue(storageQueueName);
@@ -340,6 +342,7 @@ public class AndesContextInformationManager {
 
         //remove queue mapping
         messageStore.removeLocalQueueData(storageQueueName);
+        MessageLatencyRecorder.removeStorageQueue(storageQueueName);
 
         //identify storage queue and delete from queue registry
         StorageQueue queueToDelete = AndesContext.getInstance().
@@ -416,6 +416,14 @@ public interface AndesContextStore extends HealthAwareStore {
      */
     void addMessageId(String queueName, long messageId) throws AndesException;
 
+    /**
+     * Add message ids of many queues to store in one transaction.
+     *
+     * @param queueToMessageIds message ids to add keyed by queue name
+     * @throws AndesException
+     */
+    void addMessageIds(Map<String, List<Long>> queueToMessageIds) throws AndesException;
+
     /**
      * Get message ids for a given queue.
      *
@@ -623,10 +631,12 @@ public interface AndesContextStore extends HealthAwareStore {
      * @param clusterNotificationType  type of the change addressed by the cluster notification. e.g. "QUEUUE_ADDED"
      * @param notification             notification encoded as a string
      * @param description              readable description of the notification
+     * @param notificationID           unique ID of the notification, or null if it has none
      * @throws AndesException
      */
     void storeClusterNotification(List<String> clusterNodes, String originatedNode, String artifactType, String
-            clusterNotificationType, String notification, String description) throws AndesException;
+            clusterNotificationType, String notification, String description, String notificationID)
+            throws AndesException;
 
     /**
      * Reads cluster notifications that are destined to a specific node.
@@ -42,6 +42,7 @@ import org.wso2.andes.server.cluster.ClusterManager;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationListenerManager;
 import org.wso2.andes.server.cluster.coordination.CoordinationComponentFactory;
 import org.wso2.andes.server.cluster.coordination.hazelcast.HazelcastAgent;
+import org.wso2.andes.server.information.management.MessageLatencyInformationMBean;
 import org.wso2.andes.server.information.management.MessageStatusInformationMBean;
 import org.wso2.andes.server.information.management.SubscriptionManagementInformationMBean;
 import org.wso2.andes.server.queue.DLCQueueUtils;
@@ -97,6 +98,11 @@ public class AndesKernelBoot {
      */
     private static ScheduledExecutorService expiryMessageDeletionTaskScheduler;
 
+    /**
+     * Index of expiring messages. Null if expired messages are found by scanning the message store.
+     */
+    private static MessageExpiryIndex messageExpiryIndex;
+
     /**
      * Used to get information from context store
      */
@@ -327,8 +333,19 @@ public class AndesKernelBoot {
         AndesContext.getInstance().setAndesSubscriptionManager(subscriptionManager);
         ClusterResourceHolder.getInstance().setSubscriptionManager(subscriptionManager);
 
+        // Slots are allocated by the coordinator in a cluster, hence the expiry index is used in standalone mode
+        boolean expiryIndexEnabled = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_ENABLED);
+        if (expiryIndexEnabled && !AndesContext.getInstance().isClusteringEnabled()) {
+            int tickInterval = AndesConfigurationManager.readValue(
+                    AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL);
+            messageExpiryIndex = new MessageExpiryIndex(messageStore, tickInterval);
+        } else {
+            messageExpiryIndex = null;
+        }
+
         MessagingEngine messagingEngine = MessagingEngine.getInstance();
-        messagingEngine.initialise(messageStore, new MessageExpiryManager(messageStore));
+        messagingEngine.initialise(messageStore, new MessageExpiryManager(messageStore, messageExpiryIndex));
 
         // initialise Andes context information related manager class
         AndesContextInformationManager contextInformationManager =
@@ -451,13 +468,21 @@ public class AndesKernelBoot {
         int safeDeleteRegionSlotCount = AndesConfigurationManager.readValue
                 (AndesConfiguration.PERFORMANCE_TUNING_SAFE_DELETE_REGION_SLOT_COUNT);
 
-        periodicExpiryMessageDeletionTask = new PeriodicExpiryMessageDeletionTask();
+        // Expired messages of queues are deleted through the expiry index if it is used
+        periodicExpiryMessageDeletionTask = new PeriodicExpiryMessageDeletionTask(null == messageExpiryIndex);
 
         andesRecoveryTaskScheduler.scheduleAtFixedRate(andesRecoveryTask, recoveryTaskScheduledPeriod,
                 recoveryTaskScheduledPeriod, TimeUnit.SECONDS);
         if (safeDeleteRegionSlotCount >= 1) {
             expiryMessageDeletionTaskScheduler.scheduleAtFixedRate(periodicExpiryMessageDeletionTask,
                     dbBasedDeletionTaskScheduledPeriod, dbBasedDeletionTaskScheduledPeriod, TimeUnit.SECONDS);
+            if (null != messageExpiryIndex) {
+                messageExpiryIndex.rebuild();
+                int tickInterval = AndesConfigurationManager.readValue(
+                        AndesConfiguration.PERFORMANCE_TUNING_EXPIRY_INDEX_TICK_INTERVAL);
+                expiryMessageDeletionTaskScheduler.scheduleAtFixedRate(messageExpiryIndex, tickInterval,
+                        tickInterval, TimeUnit.MILLISECONDS);
+            }
         } else {
             log.error("DB based expiry message deletion task is not scheduled due to not providing "
                     + "a valid safe delete region slot count is not given. Given slot count is "
@@ -476,6 +501,7 @@ public class AndesKernelBoot {
         try {
             andesRecoveryTaskScheduler.shutdown();
             expiryMessageDeletionTaskScheduler.shutdown();
+            MessageHandler.stopSharedReaders();
             expiryMessageDeletionTaskScheduler.awaitTermination(threadTerminationTimePerod, TimeUnit.SECONDS);
             andesRecoveryTaskScheduler.awaitTermination(threadTerminationTimePerod, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
@@ -505,6 +531,9 @@ public class AndesKernelBoot {
             MessageStatusInformationMBean messageStatusInformationMBean = new
                     MessageStatusInformationMBean();
             messageStatusInformationMBean.register();
+
+            MessageLatencyInformationMBean messageLatencyInformationMBean = new MessageLatencyInformationMBean();
+            messageLatencyInformationMBean.register();
         } catch (JMException ex) {
             throw new AndesException("Unable to register Andes MBeans", ex);
         }
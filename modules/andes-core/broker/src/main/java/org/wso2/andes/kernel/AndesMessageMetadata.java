@@ -118,6 +118,13 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
      */
     private boolean retain;
 
+    /**
+     * ID the content of the message is stored under, if it is not stored under the message ID. A topic message
+     * routed to more than one storage queue has its content stored once and shared by all the copies.
+     * Zero if the message owns its content.
+     */
+    private long contentID;
+
     public AndesMessageMetadata() {
         propertyMap = new HashMap<>();
         this.retain = false;
@@ -290,9 +297,49 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
         clone.propertyMap = propertyMap;
         clone.messageContentLength = messageContentLength;
         clone.isCompressed = isCompressed;
+        // Content ID is not copied. A copy owns its content unless it is explicitly set to share it.
         return clone;
     }
 
+    /**
+     * ID the content of the message is stored under. Same as the message ID unless the content is shared.
+     *
+     * @return content ID of the message
+     */
+    public long getContentID() {
+        return (0 == contentID) ? messageID : contentID;
+    }
+
+    /**
+     * Set the ID of the content this message refers to. Zero resets the message to own its content.
+     *
+     * @param contentID ID the content is stored under
+     */
+    public void setContentID(long contentID) {
+        this.contentID = contentID;
+    }
+
+    /**
+     * Check if the content of the message is shared with other messages, hence is stored under an ID other than the
+     * message ID.
+     *
+     * @return true if the content is shared
+     */
+    public boolean isContentShared() {
+        return 0 != contentID && contentID != messageID;
+    }
+
+    /**
+     * Check if the content of the message may be shared with other messages. Only topic messages share content.
+     * Content ID is not kept with the stored metadata, hence this is used to find the messages read from the store
+     * which may refer to shared content.
+     *
+     * @return true if the content is shared or the message is a topic message
+     */
+    public boolean mayShareContent() {
+        return isTopic || isContentShared();
+    }
+
 
     /**
      * Update metadata of message, after a change of the routing key and the exchange of a message. This will change
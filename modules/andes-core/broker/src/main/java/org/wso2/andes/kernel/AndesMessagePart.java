@@ -18,6 +18,8 @@
 
 package org.wso2.andes.kernel;
 
+import java.nio.ByteBuffer;
+
 /**
  * This class defines the content of an Andes message.
  */
@@ -27,6 +29,12 @@ public class AndesMessagePart {
     private byte[] data;
     private int dataLength;
 
+    /**
+     * Read only buffer holding the content, set when the content is kept outside the heap. Data is copied to a byte
+     * array only if {@link #getData()} is called.
+     */
+    private ByteBuffer dataBuffer;
+
     public int getOffset() {
         return offSet;
     }
@@ -44,11 +52,55 @@ public class AndesMessagePart {
     }
 
     public byte[] getData() {
+        if (null == data && null != dataBuffer) {
+            byte[] bufferData = new byte[dataBuffer.remaining()];
+            dataBuffer.duplicate().get(bufferData);
+            data = bufferData;
+        }
         return data;
     }
 
     public void setData(byte[] data) {
         this.data = data;
+        this.dataBuffer = null;
+    }
+
+    /**
+     * Check whether content is set, either as a byte array or as a buffer
+     *
+     * @return true if content is set
+     */
+    public boolean hasData() {
+        return null != data || null != dataBuffer;
+    }
+
+    /**
+     * Set content held in a buffer. Content between the position and the limit of the buffer is used and the data
+     * length is set accordingly.
+     *
+     * @param dataBuffer buffer holding the content. The buffer should not be modified afterwards
+     */
+    public void setDataBuffer(ByteBuffer dataBuffer) {
+        this.dataBuffer = dataBuffer.isReadOnly() ? dataBuffer : dataBuffer.asReadOnlyBuffer();
+        this.data = null;
+        this.dataLength = dataBuffer.remaining();
+    }
+
+    /**
+     * Get a read only view of a region of the content without copying it
+     *
+     * @param position position of the region within the part
+     * @param length   length of the region
+     * @return read only buffer positioned at the start of the region
+     */
+    public ByteBuffer getDataView(int position, int length) {
+        if (null == dataBuffer) {
+            return ByteBuffer.wrap(data, position, length).slice().asReadOnlyBuffer();
+        }
+        ByteBuffer view = dataBuffer.duplicate();
+        view.position(view.position() + position);
+        view.limit(view.position() + length);
+        return view.slice();
     }
 
     public int getDataLength() {
@@ -69,6 +121,7 @@ public class AndesMessagePart {
         clone.messageID = messageId;
         clone.offSet = offSet;
         clone.data = data;
+        clone.dataBuffer = dataBuffer;
         clone.dataLength = dataLength;
         return clone;
     }
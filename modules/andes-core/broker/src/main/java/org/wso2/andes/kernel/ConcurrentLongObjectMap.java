@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread safe map from primitive long keys to objects. Keys are split over a fixed number of segments, each being
+ * an open addressing table of a long array and an object array created on first insertion. Hence keys are never
+ * boxed and an entry costs a slot in each array instead of a map node and a {@link Long}.
+ * <p>
+ * Updates take the lock of the segment. Lookups take no lock. A slot is published by writing its key before its
+ * value and a key is never moved to another slot of the same table, removed keys leave a marker instead. A table
+ * is replaced as a whole when it is rehashed, so a lookup running on the old table sees a consistent snapshot.
+ * <p>
+ * Iteration is done over a snapshot taken by {@link #values()}.
+ *
+ * @param <V> Type of values
+ */
+public class ConcurrentLongObjectMap<V> {
+
+    /**
+     * Number of segments used if not specified
+     */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Segment<V>[] segments;
+
+    private final int segmentMask;
+
+    public ConcurrentLongObjectMap() {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Create a map with the given number of segments
+     *
+     * @param concurrencyLevel expected number of threads updating the map concurrently. Rounded up to a power of
+     *                         two.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongObjectMap(int concurrencyLevel) {
+        int segmentCount = (concurrencyLevel <= 1) ? 1 : Integer.highestOneBit((concurrencyLevel - 1) << 1);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>();
+        }
+        segmentMask = segmentCount - 1;
+    }
+
+    /**
+     * Get the value mapped to the key
+     *
+     * @param key key to look up
+     * @return value or null if the key is not mapped
+     */
+    public V get(long key) {
+        return segmentFor(key).get(key);
+    }
+
+    /**
+     * Check if the key is mapped
+     *
+     * @param key key to look up
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return null != segmentFor(key).get(key);
+    }
+
+    /**
+     * Map the key to the value replacing any existing mapping
+     *
+     * @param key   key
+     * @param value value, must not be null
+     * @return previous value or null
+     */
+    public V put(long key, V value) {
+        return segmentFor(key).put(key, value, false);
+    }
+
+    /**
+     * Map the key to the value only if the key is not mapped already
+     *
+     * @param key   key
+     * @param value value, must not be null
+     * @return existing value or null if the value is added
+     */
+    public V putIfAbsent(long key, V value) {
+        return segmentFor(key).put(key, value, true);
+    }
+
+    /**
+     * Remove the mapping of the key
+     *
+     * @param key key to remove
+     * @return removed value or null
+     */
+    public V remove(long key) {
+        return segmentFor(key).remove(key);
+    }
+
+    /**
+     * Get the number of mappings. Not atomic across segments.
+     *
+     * @return number of mappings
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size = size + segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return 0 == size();
+    }
+
+    /**
+     * Remove all mappings
+     */
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Get a snapshot of the values. Changes to the map are not reflected in the returned list.
+     *
+     * @return list of values
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        for (Segment<V> segment : segments) {
+            segment.addValuesTo(values);
+        }
+        return values;
+    }
+
+    private Segment<V> segmentFor(long key) {
+        // Message IDs carry the node ID and an offset in low order bits, hence mix in the timestamp bits
+        long hash = key ^ (key >>> 18) ^ (key >>> 32);
+        return segments[(int) hash & segmentMask];
+    }
+
+    /**
+     * Part of the map guarded by its own lock
+     */
+    private static class Segment<V> {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Value of a slot whose key is removed. The key stays in the slot until the table is rehashed, so that
+         * lookups probe past it.
+         */
+        private static final Object REMOVED = new Object();
+
+        /**
+         * Created on first insertion so that empty maps are cheap. Released again when the segment becomes empty.
+         */
+        private volatile Table table;
+
+        /**
+         * Size of the map, readable without taking the lock
+         */
+        private volatile int size;
+
+        /**
+         * Number of slots holding a key, including removed keys. Guarded by the segment lock.
+         */
+        private int usedSlots;
+
+        @SuppressWarnings("unchecked")
+        private V get(long key) {
+            Table current = table;
+            if (null == current) {
+                return null;
+            }
+            int mask = current.capacity - 1;
+            for (int i = indexFor(key, mask); ; i = (i + 1) & mask) {
+                Object value = current.values.get(i);
+                if (null == value) {
+                    return null;
+                }
+                // Key is written before the value, hence it is visible once the value is
+                if (current.keys.get(i) == key) {
+                    return (REMOVED == value) ? null : (V) value;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized V put(long key, V value, boolean onlyIfAbsent) {
+            Table current = table;
+            if (null == current) {
+                current = new Table(INITIAL_CAPACITY);
+                table = current;
+            }
+            int mask = current.capacity - 1;
+            int i = indexFor(key, mask);
+            for (Object existing = current.values.get(i); null != existing; existing = current.values.get(i)) {
+                if (current.keys.get(i) == key) {
+                    if (REMOVED == existing) {
+                        current.values.set(i, value);
+                        size = size + 1;
+                        return null;
+                    }
+                    if (!onlyIfAbsent) {
+                        current.values.set(i, value);
+                    }
+                    return (V) existing;
+                }
+                i = (i + 1) & mask;
+            }
+
+            // Keep at least half of the slots empty so that probes stay short and always end
+            if ((usedSlots + 1) * 2 > current.capacity) {
+                current = rehash(current, size + 1);
+                table = current;
+                usedSlots = size;
+            }
+            insert(current, key, value);
+            usedSlots = usedSlots + 1;
+            size = size + 1;
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized V remove(long key) {
+            Table current = table;
+            if (null == current) {
+                return null;
+            }
+            int mask = current.capacity - 1;
+            for (int i = indexFor(key, mask); ; i = (i + 1) & mask) {
+                Object existing = current.values.get(i);
+                if (null == existing) {
+                    return null;
+                }
+                if (current.keys.get(i) == key) {
+                    if (REMOVED == existing) {
+                        return null;
+                    }
+                    current.values.set(i, REMOVED);
+                    size = size - 1;
+                    if (0 == size) {
+                        // Release the table along with the removed keys it holds
+                        table = null;
+                        usedSlots = 0;
+                    }
+                    return (V) existing;
+                }
+            }
+        }
+
+        private synchronized void clear() {
+            // Release the table as well, a cleared map is usually not reused
+            table = null;
+            usedSlots = 0;
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized void addValuesTo(List<V> list) {
+            Table current = table;
+            if (null == current) {
+                return;
+            }
+            for (int i = 0; i < current.capacity; i++) {
+                Object value = current.values.get(i);
+                if (null != value && REMOVED != value) {
+                    list.add((V) value);
+                }
+            }
+        }
+
+        /**
+         * Copy the mapped keys to a new table which is at most a quarter full once the given number of keys are
+         * mapped. Removed keys are dropped.
+         */
+        private static Table rehash(Table current, int expectedSize) {
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < expectedSize * 4) {
+                capacity = capacity << 1;
+            }
+            Table rehashed = new Table(capacity);
+            for (int i = 0; i < current.capacity; i++) {
+                Object value = current.values.get(i);
+                if (null != value && REMOVED != value) {
+                    insert(rehashed, current.keys.get(i), value);
+                }
+            }
+            return rehashed;
+        }
+
+        /**
+         * Write the key and then the value to the first empty slot of the key
+         */
+        private static void insert(Table table, long key, Object value) {
+            int mask = table.capacity - 1;
+            int i = indexFor(key, mask);
+            while (null != table.values.get(i)) {
+                i = (i + 1) & mask;
+            }
+            table.keys.set(i, key);
+            table.values.set(i, value);
+        }
+
+        private static int indexFor(long key, int mask) {
+            // Use different bits than the segment selection
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+
+    /**
+     * Keys and values of a segment. A slot with a null value is empty.
+     */
+    private static class Table {
+
+        private final int capacity;
+
+        private final AtomicLongArray keys;
+
+        private final AtomicReferenceArray<Object> values;
+
+        private Table(int capacity) {
+            this.capacity = capacity;
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicReferenceArray<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads content of messages buffered for delivery into the message cache of the message store ahead of the
+ * delivery path. Content of a message is then served from memory when it reaches the content readers of the
+ * delivery disruptor.
+ * <p>
+ * Content being prefetched is limited to a memory budget. Messages which do not fit into the remaining budget are
+ * not prefetched and their content is read by the delivery path as usual.
+ */
+public class ContentPrefetcher {
+
+    private static Log log = LogFactory.getLog(ContentPrefetcher.class);
+
+    private final MessageStore messageStore;
+
+    private final ExecutorService prefetchExecutor;
+
+    /**
+     * Maximum number of content bytes being prefetched at a time
+     */
+    private final long maxInFlightBytes;
+
+    /**
+     * Content bytes of prefetch requests not yet completed
+     */
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    /**
+     * Create a content prefetcher
+     *
+     * @param messageStore     store to load content of
+     * @param readerCount      number of threads reading content
+     * @param maxInFlightBytes maximum number of content bytes being prefetched at a time
+     */
+    public ContentPrefetcher(MessageStore messageStore, int readerCount, long maxInFlightBytes) {
+        this.messageStore = messageStore;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.prefetchExecutor = Executors.newFixedThreadPool(readerCount,
+                new ThreadFactoryBuilder().setNameFormat("AndesContentPrefetcher-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Schedule content of the given messages to be loaded to the message cache. Messages are taken in the given
+     * order until the memory budget is exhausted.
+     *
+     * @param messages messages buffered for delivery
+     */
+    public void prefetch(List<? extends AndesMessageMetadata> messages) {
+        List<AndesMessageMetadata> messagesToPrefetch = new ArrayList<>(messages.size());
+        long reservedBytes = 0;
+
+        for (AndesMessageMetadata message : messages) {
+            int contentLength = message.getMessageContentLength();
+            if (contentLength <= 0) {
+                continue;
+            }
+            if (!reserve(contentLength)) {
+                break;
+            }
+            reservedBytes = reservedBytes + contentLength;
+            messagesToPrefetch.add(message);
+        }
+
+        if (messagesToPrefetch.isEmpty()) {
+            return;
+        }
+
+        try {
+            prefetchExecutor.execute(new PrefetchTask(messagesToPrefetch, reservedBytes));
+        } catch (RejectedExecutionException e) {
+            inFlightBytes.addAndGet(-reservedBytes);
+            log.warn("Content prefetch request rejected for " + messagesToPrefetch.size() + " messages", e);
+        }
+    }
+
+    /**
+     * Reserve budget for content of a message
+     *
+     * @param contentLength content length of the message
+     * @return true if the budget was reserved
+     */
+    private boolean reserve(int contentLength) {
+        while (true) {
+            long current = inFlightBytes.get();
+            if (current + contentLength > maxInFlightBytes) {
+                return false;
+            }
+            if (inFlightBytes.compareAndSet(current, current + contentLength)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Stop prefetching content. Prefetch requests not yet started are discarded.
+     */
+    public void stop() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Loads content of a batch of messages and releases the budget reserved for them
+     */
+    private class PrefetchTask implements Runnable {
+
+        private final List<AndesMessageMetadata> messages;
+
+        private final long reservedBytes;
+
+        PrefetchTask(List<AndesMessageMetadata> messages, long reservedBytes) {
+            this.messages = messages;
+            this.reservedBytes = reservedBytes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                messageStore.prefetchContent(messages);
+                if (log.isDebugEnabled()) {
+                    log.debug("Content prefetched for " + messages.size() + " messages");
+                }
+            } catch (AndesException e) {
+                // Delivery path reads the content from the store if it is not cached
+                log.warn("Error while prefetching content of " + messages.size() + " messages", e);
+            } finally {
+                inFlightBytes.addAndGet(-reservedBytes);
+            }
+        }
+    }
+}
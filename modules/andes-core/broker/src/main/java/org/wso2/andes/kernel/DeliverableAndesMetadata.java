@@ -18,7 +18,6 @@
 
 package org.wso2.andes.kernel;
 
-import com.gs.collections.impl.map.mutable.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.slot.Slot;
@@ -26,8 +25,11 @@ import org.wso2.andes.kernel.subscription.*;
 import org.wso2.andes.tools.utils.MessageTracer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,17 +38,72 @@ import java.util.UUID;
 /**
  * This class represents the message metadata and all the delivery aspects of it to the subscribers (outbound path).
  * The lifecycle of the message is maintained here itself.
+ * <p>
+ * Message status and per channel delivery status are encoded into ints so that the memory used per in-flight
+ * message does not grow with the number of state transitions. Complete status histories are only recorded when
+ * message tracing is enabled.
  */
 public class DeliverableAndesMetadata extends AndesMessageMetadata {
 
+    private static final MessageStatus[] MESSAGE_STATUSES = MessageStatus.values();
+
+    private static final ChannelMessageStatus[] CHANNEL_MESSAGE_STATUSES = ChannelMessageStatus.values();
+
+    /**
+     * Bits of the message state keeping the set of statuses the message has passed. A status is at the bit of its
+     * ordinal.
+     */
+    private static final int PASSED_STATUSES_MASK = 0xFFFF;
+
     /**
-     * Map to keep message status and delivery information of this message to vivid channels
+     * Shift of the bits keeping (ordinal + 1) of the latest status in the message state. 0 means no status.
      */
-    private Map<UUID, ChannelInformation> channelDeliveryInfo;
+    private static final int LATEST_STATUS_SHIFT = 16;
+
     /**
-     * State transition of the message
+     * Statuses after which the message can be removed from memory regardless of the latest status
      */
-    private List<MessageStatus> messageStatus;
+    private static final int DISPOSABLE_STATUSES = passedBit(MessageStatus.EXPIRED)
+            | passedBit(MessageStatus.DLC_MESSAGE) | passedBit(MessageStatus.PURGED)
+            | passedBit(MessageStatus.DELETED);
+
+    /**
+     * Bits of a channel state keeping (ordinal + 1) of the latest channel status. 0 means no status. Rest of the
+     * bits keep the delivery count.
+     */
+    private static final int CHANNEL_STATUS_BITS = 4;
+
+    private static final int CHANNEL_STATUS_MASK = (1 << CHANNEL_STATUS_BITS) - 1;
+
+    private static final UUID[] NO_CHANNELS = new UUID[0];
+
+    private static final int[] NO_CHANNEL_STATES = new int[0];
+
+    /**
+     * Channels this message is scheduled to deliver. Replaced with a copy when a channel is added.
+     * Guarded by this object.
+     */
+    private UUID[] deliveryChannels = NO_CHANNELS;
+
+    /**
+     * Encoded delivery count and latest status for each channel in deliveryChannels. Guarded by this object.
+     */
+    private int[] channelStates = NO_CHANNEL_STATES;
+
+    /**
+     * Encoded latest status and the set of statuses this message has passed
+     */
+    private volatile int messageState;
+
+    /**
+     * State transitions of the message. Null unless message tracing is enabled.
+     */
+    private List<MessageStatus> messageStatusHistory;
+
+    /**
+     * State transitions of the message for each channel. Null unless message tracing is enabled.
+     */
+    private Map<UUID, List<ChannelMessageStatus>> channelStatusHistory;
     /**
      * Parent slot of message.
      */
@@ -76,9 +133,11 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
         super(messageID, metadata, parse);
         this.slot = slot;
         this.timeMessageIsRead = System.currentTimeMillis();
-        this.channelDeliveryInfo = new ConcurrentHashMap<>();
-        this.messageStatus = Collections.synchronizedList(new ArrayList<MessageStatus>());
-        this.messageStatus.add(MessageStatus.READ);
+        if (MessageTracer.isEnabled()) {
+            this.messageStatusHistory = new ArrayList<>();
+            this.channelStatusHistory = new HashMap<>();
+        }
+        addMessageStatus(MessageStatus.READ);
     }
 
     /**
@@ -131,11 +190,11 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return encoded status history
      */
     public String getStatusHistoryAsString() {
-        String history = "";
-        for (MessageStatus status : messageStatus) {
-            history = history + status + ">>";
+        StringBuilder history = new StringBuilder();
+        for (MessageStatus status : getStatusHistory()) {
+            history.append(status).append(">>");
         }
-        return history;
+        return history.toString();
     }
 
     /**
@@ -145,24 +204,23 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      */
     public String getMessageStatusWithAllChannelStatus() {
         String messageStatusHistory = getStatusHistoryAsString();
-        String deliveries = "";
-        for (UUID channelID : getAllDeliveredChannels()) {
-            deliveries = deliveries + channelID + " : " + channelDeliveryInfo.get(channelID)
-                    .getMessageStatusHistoryForChannelAsString() + " | ";
-        }
-
-        String completeInfo = "[" + messageStatusHistory + "]" + deliveries;
+        String completeInfo = "[" + messageStatusHistory + "]" + getChannelStatusHistoriesAsString();
         return completeInfo;
 
     }
 
     /**
-     * Get message status this message went through as a list
+     * Get message status this message went through as a list. Unless message tracing is enabled only the latest
+     * status is known.
      *
      * @return list of MessageStatus
      */
-    public List<MessageStatus> getStatusHistory() {
-        return messageStatus;
+    public synchronized List<MessageStatus> getStatusHistory() {
+        if (null != messageStatusHistory) {
+            return new ArrayList<>(messageStatusHistory);
+        }
+        MessageStatus latest = getLatestState();
+        return (null == latest) ? Collections.<MessageStatus>emptyList() : Collections.singletonList(latest);
     }
 
     /**
@@ -171,11 +229,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return message status
      */
     public MessageStatus getLatestState() {
-        MessageStatus latest = null;
-        if (messageStatus.size() > 0) {
-            latest = messageStatus.get(messageStatus.size() - 1);
-        }
-        return latest;
+        int latest = messageState >>> LATEST_STATUS_SHIFT;
+        return (0 == latest) ? null : MESSAGE_STATUSES[latest - 1];
     }
 
     /**
@@ -186,8 +241,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return if message is a redelivery
      */
     public boolean isRedelivered(UUID channelID) {
-        Integer numOfDeliveries = channelDeliveryInfo.get(channelID).getDeliveryCount();
-        return numOfDeliveries > 0;
+        return getNumOfDeliveries4Channel(channelID) > 0;
     }
 
     /**
@@ -205,12 +259,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      */
     public void markAsScheduledToDeliver(Collection<AndesSubscription> localSubscriptions) {
         for (AndesSubscription subscription : localSubscriptions) {
-            UUID subscriptionChannelID = subscription.getSubscriberConnection().getProtocolChannelID();
-            ChannelInformation channelInformation = channelDeliveryInfo.get(subscriptionChannelID);
-            if (null == channelInformation) {
-                channelInformation = new ChannelInformation();
-                channelDeliveryInfo.put(subscriptionChannelID, channelInformation);
-            }
+            addDeliveryChannel(subscription.getSubscriberConnection().getProtocolChannelID());
         }
         addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
     }
@@ -221,12 +270,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param subscription subscription to deliver message
      */
     public void markAsScheduledToDeliver(AndesSubscription subscription) {
-        UUID subscriptionChannelID = subscription.getSubscriberConnection().getProtocolChannelID();
-        ChannelInformation channelInformation = channelDeliveryInfo.get(subscriptionChannelID);
-        if (null == channelInformation) {
-            channelInformation = new ChannelInformation();
-            channelDeliveryInfo.put(subscriptionChannelID, channelInformation);
-        }
+        addDeliveryChannel(subscription.getSubscriberConnection().getProtocolChannelID());
         addMessageStatus(MessageStatus.SCHEDULED_TO_SEND);
     }
 
@@ -236,12 +280,12 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param channelID ID of the channel
      */
-    public void markAsDispatchedToDeliver(UUID channelID) {
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.DISPATCHED);
+    public synchronized void markAsDispatchedToDeliver(UUID channelID) {
+        int channelIndex = indexOfChannel(channelID);
+        addChannelStatus(channelIndex, ChannelMessageStatus.DISPATCHED);
 
         if (!this.isBeyondLastRollbackedMessage) {
-            channelInformation.incrementDeliveryCount();
+            addToDeliveryCount(channelIndex, 1);
         } else {
             // No need to increase deliveryCount if this message is beyond the last rollback.
             MessageTracer.trace(getMessageID(), getDestination(), MessageTracer.MESSAGE_BEYOND_LAST_ROLLBACK);
@@ -254,11 +298,9 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID Id of the channel
      * @return if acknowledges by all the channels are received
      */
-    public boolean markAsAcknowledgedByChannel(UUID channelID) {
+    public synchronized boolean markAsAcknowledgedByChannel(UUID channelID) {
         boolean isAcknowledgedByAll = false;
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.ACKED);
-        channelDeliveryInfo.put(channelID, channelInformation);
+        addChannelStatus(indexOfChannel(channelID), ChannelMessageStatus.ACKED);
 
         if (isMarkAsAcked()) {
             addMessageStatus(MessageStatus.ACKED_BY_ALL);
@@ -272,9 +314,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param channelID ID of the channel
      */
-    public void markAsNackedByClient(UUID channelID) {
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.NACKED);
+    public synchronized void markAsNackedByClient(UUID channelID) {
+        addChannelStatus(indexOfChannel(channelID), ChannelMessageStatus.NACKED);
     }
 
     /**
@@ -283,9 +324,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param channelID ID of the channel
      */
-    public void markAsRejectedByClient(UUID channelID) {
-        ChannelInformation channelInformation = channelDeliveryInfo.get(channelID);
-        channelInformation.addChannelStatus(ChannelMessageStatus.CLIENT_REJECTED);
+    public synchronized void markAsRejectedByClient(UUID channelID) {
+        addChannelStatus(indexOfChannel(channelID), ChannelMessageStatus.CLIENT_REJECTED);
     }
 
     /**
@@ -330,7 +370,11 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @return true if conditions are met
      */
     public boolean isOKToDispose() {
-        return MessageStatus.isOKToRemove(messageStatus);
+        int state = messageState;
+        MessageStatus latest = getLatestState();
+        return (0 != (state & DISPOSABLE_STATUSES))
+                || MessageStatus.SLOT_REMOVED == latest
+                || MessageStatus.SLOT_RETURNED == latest;
     }
 
     /**
@@ -384,10 +428,10 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID id of the channel
      * @return current number of times this message is delivered to the given channel
      */
-    public int markDeliveryFailureOfASentMessage(UUID channelID) {
-        channelDeliveryInfo.get(channelID).
-                addChannelStatus(ChannelMessageStatus.SEND_FAILED);
-        return channelDeliveryInfo.get(channelID).decrementDeliveryCount();
+    public synchronized int markDeliveryFailureOfASentMessage(UUID channelID) {
+        int channelIndex = indexOfChannel(channelID);
+        addChannelStatus(channelIndex, ChannelMessageStatus.SEND_FAILED);
+        return addToDeliveryCount(channelIndex, -1);
     }
 
     /**
@@ -399,9 +443,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param channelID id of the channel message is sent
      */
-    public void markDeliveryFailureByProtocol(UUID channelID) {
-        channelDeliveryInfo.get(channelID).
-                addChannelStatus(ChannelMessageStatus.SEND_FAILED);
+    public synchronized void markDeliveryFailureByProtocol(UUID channelID) {
+        addChannelStatus(indexOfChannel(channelID), ChannelMessageStatus.SEND_FAILED);
     }
 
     /**
@@ -409,7 +452,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * this evaluation should be performed and subsequently try to delete the message
      * if ACKED_BY_ALL evaluation returned success
      */
-    public void evaluateMessageAcknowledgement() {
+    public synchronized void evaluateMessageAcknowledgement() {
         if (isMarkAsAcked()) {
             addMessageStatus(MessageStatus.ACKED_BY_ALL);
         }
@@ -421,9 +464,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param channelID ID of the channel
      */
-    public void markDeliveredChannelAsClosed(UUID channelID) {
-        channelDeliveryInfo.get(channelID).
-                addChannelStatus(ChannelMessageStatus.CLOSED);
+    public synchronized void markDeliveredChannelAsClosed(UUID channelID) {
+        addChannelStatus(indexOfChannel(channelID), ChannelMessageStatus.CLOSED);
     }
 
     /**
@@ -431,8 +473,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @return Set of channel IDs
      */
-    public Set<UUID> getAllDeliveredChannels() {
-        return channelDeliveryInfo.keySet();
+    public synchronized Set<UUID> getAllDeliveredChannels() {
+        return new HashSet<>(Arrays.asList(deliveryChannels));
     }
 
     /**
@@ -442,8 +484,8 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      */
     private boolean isMarkAsAcked() {
         boolean isAcked = true;
-        for (Map.Entry<UUID, ChannelInformation> channelInfoEntry : channelDeliveryInfo.entrySet()) {
-            ChannelMessageStatus messageStatus = channelInfoEntry.getValue().getLatestMessageStatus();
+        for (int channelState : channelStates) {
+            ChannelMessageStatus messageStatus = latestChannelStatusOf(channelState);
 
             //if channel is closed ignore it from considering
             if (null != messageStatus && messageStatus.equals(ChannelMessageStatus.CLOSED)) {
@@ -458,7 +500,7 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
                 break;
             }
         }
-        if (channelDeliveryInfo.isEmpty()) {
+        if (0 == channelStates.length) {
             isAcked = false;
         }
         return isAcked;
@@ -470,13 +512,14 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      * @param channelID Id of the channel
      * @return number of deliveries
      */
-    public int getNumOfDeliveries4Channel(UUID channelID) {
+    public synchronized int getNumOfDeliveries4Channel(UUID channelID) {
          /* Since sometimes Broker tries to send stored messages when it initialised a subscription
             so then it returns null value for that subscription's channel's amount of deliveries,
             Since we need to the evaluate the rules before we send message, therefore we have to ignore the null value,
             then we have to check the number of deliveries for the particular channel */
-        if (null != channelDeliveryInfo.get(channelID)) {
-            return channelDeliveryInfo.get(channelID).getDeliveryCount();
+        int channelIndex = indexOfChannel(channelID);
+        if (channelIndex >= 0) {
+            return deliveryCountOf(channelStates[channelIndex]);
         } else {
             return 0;
         }
@@ -488,33 +531,46 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      *
      * @param state state to be transferred
      */
-    public boolean addMessageStatus(MessageStatus state) {
+    public synchronized boolean addMessageStatus(MessageStatus state) {
 
         boolean isValidTransition = false;
+        MessageStatus latest = getLatestState();
 
-        if (messageStatus.isEmpty()) {
+        if (null == latest) {
             if (MessageStatus.READ.equals(state)) {
                 isValidTransition = true;
-                messageStatus.add(state);
+                recordMessageStatus(state);
             } else {
                 log.warn(
                         "Invalid message state transition suggested: " + state + " Message ID: " + messageID + "slot = "
                                 + slot.getId());
             }
         } else {
-            isValidTransition = messageStatus.get(messageStatus.size() - 1).isValidNextTransition(state);
+            isValidTransition = latest.isValidNextTransition(state);
             if (isValidTransition) {
-                messageStatus.add(state);
+                recordMessageStatus(state);
             } else {
-                log.warn("Invalid message state transition from " + messageStatus.get(messageStatus.size() - 1)
+                log.warn("Invalid message state transition from " + latest
                         + " suggested: " + state + " Message ID: " + messageID + " slot = " + slot.getId()
-                        + " Message Status History >> " + messageStatus);
+                        + " Message Status History >> " + getStatusHistory());
             }
         }
 
         return isValidTransition;
     }
 
+    private void recordMessageStatus(MessageStatus state) {
+        messageState = (messageState & PASSED_STATUSES_MASK) | passedBit(state)
+                | ((state.ordinal() + 1) << LATEST_STATUS_SHIFT);
+        if (null != messageStatusHistory) {
+            messageStatusHistory.add(state);
+        }
+    }
+
+    private static int passedBit(MessageStatus state) {
+        return 1 << state.ordinal();
+    }
+
     /**
      * Check if state going to be added is valid considering it as the next transition compared
      * to current latest state. This status is for individual delivery channels
@@ -556,91 +612,143 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
         information.append(Long.toString(expirationTime));
         information.append(',');
         information.append("Channels sent ");
-        String deliveries = "";
-        for (UUID channelID : getAllDeliveredChannels()) {
-            deliveries = deliveries + channelID + " : " + channelDeliveryInfo.get(channelID)
-                    .getMessageStatusHistoryForChannelAsString() + " | ";
-        }
-        information.append(deliveries);
+        information.append(getChannelStatusHistoriesAsString());
         information.append('\n');
 
         return information.toString();
     }
 
     /**
-     * Inner class to hold Message status channel-wise
+     * Add a channel to the channels this message is scheduled to deliver, if it is not already added
+     *
+     * @param channelID ID of the channel
      */
-    private class ChannelInformation {
-
-        private Integer channelToNumOfDeliveries = 0;
-        private List<ChannelMessageStatus> messageStatusesForChannel = new ArrayList<>(5);
-
-        private int incrementDeliveryCount() {
-            channelToNumOfDeliveries = channelToNumOfDeliveries + 1;
-            return channelToNumOfDeliveries;
+    private synchronized void addDeliveryChannel(UUID channelID) {
+        if (indexOfChannel(channelID) < 0) {
+            int channelCount = deliveryChannels.length;
+            UUID[] newDeliveryChannels = Arrays.copyOf(deliveryChannels, channelCount + 1);
+            int[] newChannelStates = Arrays.copyOf(channelStates, channelCount + 1);
+            newDeliveryChannels[channelCount] = channelID;
+            deliveryChannels = newDeliveryChannels;
+            channelStates = newChannelStates;
+            if (null != channelStatusHistory) {
+                channelStatusHistory.put(channelID, new ArrayList<ChannelMessageStatus>(5));
+            }
         }
+    }
 
-        private int decrementDeliveryCount() {
-            channelToNumOfDeliveries = channelToNumOfDeliveries - 1;
-            return channelToNumOfDeliveries;
+    /**
+     * Find the position of a channel in delivery channels. Number of channels of a message is small, hence a
+     * linear search is used.
+     *
+     * @param channelID ID of the channel
+     * @return index of the channel or -1 if the message is not scheduled to the channel
+     */
+    private int indexOfChannel(UUID channelID) {
+        for (int i = 0; i < deliveryChannels.length; i++) {
+            if (deliveryChannels[i].equals(channelID)) {
+                return i;
+            }
         }
+        return -1;
+    }
+
+    /**
+     * Check if state going to be added is valid considering it as the next transition compared
+     * to current latest state. This status is for individual delivery channels
+     *
+     * @param channelIndex index of the channel in delivery channels
+     * @param state        state to be transferred
+     */
+    private boolean addChannelStatus(int channelIndex, ChannelMessageStatus state) {
+
+        boolean isValidTransition = false;
 
-        private int getDeliveryCount() {
-            return channelToNumOfDeliveries;
+        if (channelIndex < 0) {
+            log.warn("Channel message state " + state + " suggested for a channel message is not scheduled to. "
+                    + "Message ID: " + messageID + " Slot = " + slot.getId());
+            return false;
         }
 
-        /**
-         * Check if state going to be added is valid considering it as the next transition compared
-         * to current latest state. This status is for individual delivery channels
-         *
-         * @param state state to be transferred
-         */
-        private boolean addChannelStatus(ChannelMessageStatus state) {
-
-            boolean isValidTransition = false;
-
-            if (messageStatusesForChannel.isEmpty()) {
-                if (ChannelMessageStatus.DISPATCHED.equals(state)) {
-                    isValidTransition = true;
-                    messageStatusesForChannel.add(state);
-                } else {
-                    log.warn(
-                            "Invalid channel message state transition suggested: " + state + " Message ID: " + messageID
-                                    + " Slot = " + slot.getId() + " Message Status History >> " + messageStatus);
-                }
+        ChannelMessageStatus latest = latestChannelStatusOf(channelStates[channelIndex]);
+
+        if (null == latest) {
+            if (ChannelMessageStatus.DISPATCHED.equals(state)) {
+                isValidTransition = true;
+                recordChannelStatus(channelIndex, state);
             } else {
-                isValidTransition = messageStatusesForChannel.
-                        get(messageStatusesForChannel.size() - 1).isValidNextTransition(state);
-
-                if (isValidTransition) {
-                    messageStatusesForChannel.add(state);
-                } else {
-                    log.warn("Invalid channel message state transition from " + messageStatusesForChannel
-                            .get(messageStatusesForChannel.size() - 1) + " suggested: " + state + " Message ID: "
-                            + messageID + " Slot = " + slot.getId() + " Channel Status History >> "
-                            + messageStatusesForChannel);
-                }
+                log.warn(
+                        "Invalid channel message state transition suggested: " + state + " Message ID: " + messageID
+                                + " Slot = " + slot.getId() + " Message Status History >> " + getStatusHistory());
             }
+        } else {
+            isValidTransition = latest.isValidNextTransition(state);
 
-            return isValidTransition;
-        }
-
-        private ChannelMessageStatus getLatestMessageStatus() {
-            if (!messageStatusesForChannel.isEmpty()) {
-                return messageStatusesForChannel.get(messageStatusesForChannel.size() - 1);
+            if (isValidTransition) {
+                recordChannelStatus(channelIndex, state);
             } else {
-                return null;
+                log.warn("Invalid channel message state transition from " + latest + " suggested: " + state
+                        + " Message ID: " + messageID + " Slot = " + slot.getId() + " Channel Status History >> "
+                        + getChannelStatusHistoryAsString(channelIndex));
             }
         }
 
-        private String getMessageStatusHistoryForChannelAsString() {
-            StringBuilder channelInfo = new StringBuilder();
-            for (ChannelMessageStatus channelMessageStatus : messageStatusesForChannel) {
+        return isValidTransition;
+    }
+
+    private void recordChannelStatus(int channelIndex, ChannelMessageStatus state) {
+        channelStates[channelIndex] = (channelStates[channelIndex] & ~CHANNEL_STATUS_MASK) | (state.ordinal() + 1);
+        if (null != channelStatusHistory) {
+            channelStatusHistory.get(deliveryChannels[channelIndex]).add(state);
+        }
+    }
+
+    /**
+     * Add to the delivery count of a channel
+     *
+     * @param channelIndex index of the channel in delivery channels
+     * @param delta        value to add
+     * @return new delivery count
+     */
+    private int addToDeliveryCount(int channelIndex, int delta) {
+        if (channelIndex < 0) {
+            return 0;
+        }
+        channelStates[channelIndex] = channelStates[channelIndex] + (delta << CHANNEL_STATUS_BITS);
+        return deliveryCountOf(channelStates[channelIndex]);
+    }
+
+    private static int deliveryCountOf(int channelState) {
+        return channelState >> CHANNEL_STATUS_BITS;
+    }
+
+    private static ChannelMessageStatus latestChannelStatusOf(int channelState) {
+        int latest = channelState & CHANNEL_STATUS_MASK;
+        return (0 == latest) ? null : CHANNEL_MESSAGE_STATUSES[latest - 1];
+    }
+
+    private String getChannelStatusHistoryAsString(int channelIndex) {
+        StringBuilder channelInfo = new StringBuilder();
+        if (null != channelStatusHistory) {
+            for (ChannelMessageStatus channelMessageStatus : channelStatusHistory.get(deliveryChannels[channelIndex])) {
                 channelInfo.append(channelMessageStatus).append(">>");
             }
-            return channelInfo.toString();
+        } else {
+            ChannelMessageStatus latest = latestChannelStatusOf(channelStates[channelIndex]);
+            if (null != latest) {
+                channelInfo.append(latest).append(">>");
+            }
         }
+        return channelInfo.toString();
+    }
 
+    private synchronized String getChannelStatusHistoriesAsString() {
+        StringBuilder deliveries = new StringBuilder();
+        for (int i = 0; i < deliveryChannels.length; i++) {
+            deliveries.append(deliveryChannels[i]).append(" : ").append(getChannelStatusHistoryAsString(i))
+                    .append(" | ");
+        }
+        return deliveries.toString();
     }
 
     /**
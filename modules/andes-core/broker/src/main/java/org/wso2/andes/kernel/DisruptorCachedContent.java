@@ -40,6 +40,12 @@ public class DisruptorCachedContent implements AndesContent {
      */
     private final int maxChunkSize;
 
+    /**
+     * Decompressed form of this content. Compressed content is decompressed once and shared by all subscribers
+     * the message is delivered to.
+     */
+    private volatile DisruptorCachedContent decompressedContent;
+
     /**
      * Create a {@link org.wso2.andes.kernel.DisruptorCachedContent} object
      * @param contentList message part list
@@ -83,7 +89,7 @@ public class DisruptorCachedContent implements AndesContent {
                 numOfBytesToRead = remaining;
             }
 
-            destinationBuffer.put(messagePart.getData(), positionToReadFromChunk, numOfBytesToRead);
+            destinationBuffer.put(messagePart.getDataView(positionToReadFromChunk, numOfBytesToRead));
 
             written = written + numOfBytesToRead;
             currentBytePosition = currentBytePosition + numOfBytesToRead;
@@ -92,6 +98,25 @@ public class DisruptorCachedContent implements AndesContent {
         return written;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteBuffer getContentView(int offset, int maxLength) throws AndesException {
+        // This is an integer division
+        int chunkNumber = offset / maxChunkSize;
+        int chunkStartByteIndex = chunkNumber * maxChunkSize;
+        AndesMessagePart messagePart = getMessagePart(chunkStartByteIndex);
+
+        int positionToReadFromChunk = offset - chunkStartByteIndex;
+        // Chunks could be longer than the content they hold
+        int remainingContent = Math.min(messagePart.getDataLength() - positionToReadFromChunk,
+                contentLength - offset);
+        int length = Math.min(remainingContent, maxLength);
+
+        return messagePart.getDataView(positionToReadFromChunk, length);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -124,4 +149,22 @@ public class DisruptorCachedContent implements AndesContent {
     public Map<Integer, AndesMessagePart> getContentList() {
         return contentList;
     }
+
+    /**
+     * Get the decompressed form of this content
+     *
+     * @return Decompressed content, or null if the content is not decompressed yet
+     */
+    public DisruptorCachedContent getDecompressedContent() {
+        return decompressedContent;
+    }
+
+    /**
+     * Set the decompressed form of this content, to be reused by later deliveries of the message
+     *
+     * @param decompressedContent Decompressed content
+     */
+    public void setDecompressedContent(DisruptorCachedContent decompressedContent) {
+        this.decompressedContent = decompressedContent;
+    }
 }
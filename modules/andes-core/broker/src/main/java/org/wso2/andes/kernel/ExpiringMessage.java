@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+/**
+ * Expiry data of a stored message. Used to index messages by expiration time so that they are deleted once
+ * expired without scanning the message store.
+ */
+public class ExpiringMessage {
+
+    private final long messageID;
+
+    /**
+     * Time the message expires at, in milliseconds
+     */
+    private final long expirationTime;
+
+    /**
+     * Name of the storage queue the message is stored in
+     */
+    private final String storageQueueName;
+
+    public ExpiringMessage(long messageID, long expirationTime, String storageQueueName) {
+        this.messageID = messageID;
+        this.expirationTime = expirationTime;
+        this.storageQueueName = storageQueueName;
+    }
+
+    public long getMessageID() {
+        return messageID;
+    }
+
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public String getStorageQueueName() {
+        return storageQueueName;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel holding entries until their expiration time. Each level of the wheel has
+ * {@link #WHEEL_SIZE} buckets. A bucket of the first level spans one tick, and a bucket of every other level spans
+ * a full turn of the level below it. An entry is kept in the lowest level which reaches its expiration time and is
+ * moved down a level each time the wheel turns to its bucket, so adding, removing and expiring an entry take
+ * constant time regardless of the number of entries.
+ * <p>
+ * Entries are identified by a key. Adding an entry with the key of an entry in the wheel replaces it. Entries are
+ * returned by {@link #advance(long)} once the tick they expire in has passed. Levels are added as entries expiring
+ * further in the future are added.
+ *
+ * @param <E> type of the entries
+ */
+class ExpiryTimingWheel<E> {
+
+    /**
+     * Number of buckets in a level
+     */
+    static final int WHEEL_SIZE = 512;
+
+    /**
+     * Time spanned by a bucket of the first level, in milliseconds
+     */
+    private final long tickDuration;
+
+    /**
+     * Buckets of each level. A bucket is created when an entry is first added to it.
+     */
+    private final List<Set<TimedEntry<E>>[]> levels = new ArrayList<>();
+
+    /**
+     * Entries in the wheel keyed by their keys
+     */
+    private final Map<Long, TimedEntry<E>> entries = new HashMap<>();
+
+    /**
+     * Tick of the first level bucket which is expired next
+     */
+    private long currentTick;
+
+    /**
+     * Create a timing wheel starting at the given time
+     *
+     * @param tickDuration time spanned by a bucket of the first level, in milliseconds
+     * @param startTime    current time in milliseconds
+     */
+    ExpiryTimingWheel(long tickDuration, long startTime) {
+        this.tickDuration = tickDuration;
+        this.currentTick = startTime / tickDuration;
+        addLevel();
+    }
+
+    /**
+     * Add an entry to the wheel, replacing any entry with the same key. An entry which already expired is returned
+     * by the next {@link #advance(long)}.
+     *
+     * @param key            key of the entry
+     * @param entry          entry to add
+     * @param expirationTime time the entry expires at, in milliseconds
+     */
+    synchronized void add(long key, E entry, long expirationTime) {
+        TimedEntry<E> timedEntry = new TimedEntry<>(key, entry, expirationTime);
+        TimedEntry<E> replacedEntry = entries.put(key, timedEntry);
+        if (null != replacedEntry) {
+            replacedEntry.bucket.remove(replacedEntry);
+        }
+        addEntry(timedEntry);
+    }
+
+    /**
+     * Remove an entry from the wheel
+     *
+     * @param key key of the entry
+     * @return true if the entry was in the wheel
+     */
+    synchronized boolean remove(long key) {
+        TimedEntry<E> timedEntry = entries.remove(key);
+        if (null == timedEntry) {
+            return false;
+        }
+        timedEntry.bucket.remove(timedEntry);
+        return true;
+    }
+
+    /**
+     * Turn the wheel up to the given time
+     *
+     * @param time current time in milliseconds
+     * @return entries which expired before the tick of the given time
+     */
+    synchronized List<E> advance(long time) {
+        List<E> expiredEntries = new ArrayList<>();
+        long targetTick = time / tickDuration;
+
+        while (currentTick < targetTick) {
+            Set<TimedEntry<E>> expiredBucket = removeBucket(0, currentTick);
+            if (null != expiredBucket) {
+                for (TimedEntry<E> timedEntry : expiredBucket) {
+                    entries.remove(timedEntry.key);
+                    expiredEntries.add(timedEntry.entry);
+                }
+            }
+            currentTick++;
+
+            // Move entries of each upper level bucket the wheel turned to, down to the levels below
+            long levelTick = currentTick;
+            for (int level = 1; level < levels.size() && levelTick % WHEEL_SIZE == 0; level++) {
+                levelTick = levelTick / WHEEL_SIZE;
+                Set<TimedEntry<E>> cascadedBucket = removeBucket(level, levelTick);
+                if (null != cascadedBucket) {
+                    for (TimedEntry<E> timedEntry : cascadedBucket) {
+                        addEntry(timedEntry);
+                    }
+                }
+            }
+        }
+        return expiredEntries;
+    }
+
+    /**
+     * Get the number of entries in the wheel
+     *
+     * @return number of entries not yet expired
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void addEntry(TimedEntry<E> timedEntry) {
+        // Entries expiring in a passed tick are expired with the current tick
+        long entryTick = Math.max(timedEntry.expirationTime / tickDuration, currentTick);
+        long levelCurrentTick = currentTick;
+
+        for (int level = 0; ; level++) {
+            if (entryTick - levelCurrentTick < WHEEL_SIZE) {
+                int bucketIndex = (int) (entryTick % WHEEL_SIZE);
+                Set<TimedEntry<E>>[] buckets = getLevel(level);
+                if (null == buckets[bucketIndex]) {
+                    buckets[bucketIndex] = new HashSet<>();
+                }
+                buckets[bucketIndex].add(timedEntry);
+                timedEntry.bucket = buckets[bucketIndex];
+                return;
+            }
+            entryTick = entryTick / WHEEL_SIZE;
+            levelCurrentTick = levelCurrentTick / WHEEL_SIZE;
+        }
+    }
+
+    private Set<TimedEntry<E>> removeBucket(int level, long levelTick) {
+        Set<TimedEntry<E>>[] buckets = levels.get(level);
+        int bucketIndex = (int) (levelTick % WHEEL_SIZE);
+        Set<TimedEntry<E>> bucket = buckets[bucketIndex];
+        buckets[bucketIndex] = null;
+        return bucket;
+    }
+
+    private Set<TimedEntry<E>>[] getLevel(int level) {
+        while (levels.size() <= level) {
+            addLevel();
+        }
+        return levels.get(level);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addLevel() {
+        levels.add(new Set[WHEEL_SIZE]);
+    }
+
+    /**
+     * Entry of the wheel along with its expiration time and the bucket holding it
+     */
+    private static class TimedEntry<E> {
+
+        private final long key;
+
+        private final E entry;
+
+        private final long expirationTime;
+
+        private Set<TimedEntry<E>> bucket;
+
+        TimedEntry(long key, E entry, long expirationTime) {
+            this.key = key;
+            this.entry = entry;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
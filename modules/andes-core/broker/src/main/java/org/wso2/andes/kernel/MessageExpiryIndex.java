@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.slot.AbstractSlotManager;
+import org.wso2.andes.kernel.slot.SlotManagerStandalone;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.andes.store.FailureObservingStoreManager;
+import org.wso2.andes.store.HealthAwareStore;
+import org.wso2.andes.store.StoreHealthListener;
+import org.wso2.andes.tools.utils.MessageTracer;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In memory index of stored messages which have an expiration time. Messages are added as they are written to the
+ * message store, and the index is rebuilt from the message store on startup. Each run of the index deletes the
+ * messages expired since the last run, queue by queue, in batches of
+ * {@link AndesConfiguration#PERFORMANCE_TUNING_MESSAGE_EXPIRATION_BATCH_SIZE}. This replaces scanning the message
+ * store of each queue for expired messages.
+ * <p>
+ * As with {@link PeriodicExpiryMessageDeletionTask}, only messages in the safe deletion zone of a queue are deleted.
+ * Expired messages outside the safe deletion zone, such as messages already allocated to slots, are kept in the index
+ * and tried again after {@link #RETRY_TICKS} ticks, until they are deleted. Messages acknowledged, deleted at delivery
+ * or moved to the DLC are removed from the index.
+ * <p>
+ * Slots are allocated by this node only when clustering is disabled, hence the index is used in standalone mode.
+ */
+public class MessageExpiryIndex implements Runnable, StoreHealthListener {
+
+    private static Log log = LogFactory.getLog(MessageExpiryIndex.class);
+
+    /**
+     * Number of ticks after which expired messages which could not be deleted are tried again
+     */
+    private static final int RETRY_TICKS = 10;
+
+    /**
+     * Indexed messages keyed by expiration time
+     */
+    private final ExpiryTimingWheel<ExpiringMessage> timingWheel;
+
+    /**
+     * Used to read the expiry data of stored messages
+     */
+    private final MessageStore messageStore;
+
+    private final AbstractSlotManager slotManager;
+
+    /**
+     * Maximum number of messages deleted in one store operation
+     */
+    private final int deletionBatchSize;
+
+    /**
+     * Time after which expired messages which could not be deleted are tried again, in milliseconds
+     */
+    private final long retryDelay;
+
+    /**
+     * Indicates if message stores became offline. Expired messages are kept in the index until the stores are
+     * operational.
+     */
+    private volatile boolean messageStoresUnavailable;
+
+    /**
+     * Create an expiry index
+     *
+     * @param messageStore store the index is rebuilt from
+     * @param tickDuration time between two runs of the index, in milliseconds
+     */
+    public MessageExpiryIndex(MessageStore messageStore, long tickDuration) {
+        this.messageStore = messageStore;
+        this.timingWheel = new ExpiryTimingWheel<>(tickDuration, System.currentTimeMillis());
+        this.retryDelay = tickDuration * RETRY_TICKS;
+        this.slotManager = SlotManagerStandalone.getInstance();
+        this.deletionBatchSize = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_EXPIRATION_BATCH_SIZE);
+        this.messageStoresUnavailable = false;
+        FailureObservingStoreManager.registerStoreHealthListener(this);
+    }
+
+    /**
+     * Add the expiry data of all messages in the message store. Messages moved to the DLC are not indexed.
+     *
+     * @throws AndesException if the expiry data could not be read
+     */
+    public void rebuild() throws AndesException {
+        List<ExpiringMessage> expiringMessages = messageStore.getExpiringMessages();
+        for (ExpiringMessage message : expiringMessages) {
+            timingWheel.add(message.getMessageID(), message, message.getExpirationTime());
+        }
+        log.info("Message expiry index rebuilt with " + expiringMessages.size() + " messages");
+    }
+
+    /**
+     * Add stored messages which have an expiration time to the index
+     *
+     * @param messages messages written to the message store
+     */
+    public void addMessages(List<AndesMessage> messages) {
+        for (AndesMessage message : messages) {
+            AndesMessageMetadata metadata = message.getMetadata();
+            if (metadata.isExpirationDefined()) {
+                timingWheel.add(metadata.getMessageID(), new ExpiringMessage(metadata.getMessageID(),
+                        metadata.getExpirationTime(), metadata.getStorageQueueName()), metadata.getExpirationTime());
+            }
+        }
+    }
+
+    /**
+     * Remove a message which is no longer in its storage queue, since it was acknowledged, deleted or moved to the DLC
+     *
+     * @param messageID id of the message
+     */
+    public void removeMessage(long messageID) {
+        timingWheel.remove(messageID);
+    }
+
+    /**
+     * Delete messages expired since the last run
+     */
+    @Override
+    public void run() {
+        if (messageStoresUnavailable) {
+            // The wheel is not turned, hence expired messages are deleted once the stores are back
+            return;
+        }
+
+        try {
+            List<ExpiringMessage> expiredMessages = timingWheel.advance(System.currentTimeMillis());
+            if (expiredMessages.isEmpty()) {
+                return;
+            }
+
+            Map<String, List<ExpiringMessage>> queueSeparatedMessages = new HashMap<>();
+            for (ExpiringMessage message : expiredMessages) {
+                List<ExpiringMessage> messagesOfQueue = queueSeparatedMessages.get(message.getStorageQueueName());
+                if (null == messagesOfQueue) {
+                    messagesOfQueue = new ArrayList<>();
+                    queueSeparatedMessages.put(message.getStorageQueueName(), messagesOfQueue);
+                }
+                messagesOfQueue.add(message);
+            }
+
+            for (Map.Entry<String, List<ExpiringMessage>> entry : queueSeparatedMessages.entrySet()) {
+                deleteExpiredMessages(entry.getKey(), entry.getValue());
+            }
+        } catch (Throwable e) {
+            log.error("Error occurred while deleting messages expired in the message expiry index", e);
+        }
+    }
+
+    /**
+     * Get the number of indexed messages
+     *
+     * @return number of messages waiting to expire
+     */
+    public int size() {
+        return timingWheel.size();
+    }
+
+    /**
+     * Delete expired messages of a queue which are in the safe deletion zone of the queue
+     *
+     * @param queueName       storage queue of the messages
+     * @param expiredMessages messages of the queue which expired
+     */
+    private void deleteExpiredMessages(String queueName, List<ExpiringMessage> expiredMessages) {
+        List<Long> messagesToDelete = new ArrayList<>(deletionBatchSize);
+        int deletedMessageCount = 0;
+        int batchStart = 0;
+
+        if (null == AndesContext.getInstance().getStorageQueueRegistry().getStorageQueue(queueName)) {
+            // Messages were removed along with the queue
+            if (log.isDebugEnabled()) {
+                log.debug("Dropping " + expiredMessages.size() + " expired messages of deleted queue " + queueName);
+            }
+            return;
+        }
+
+        try {
+            // Lower bound id -1 represents that there is no valid region to perform the delete
+            long deletionRangeLowerBoundId = slotManager.getSafeZoneLowerBoundId(queueName);
+            if (-1 == deletionRangeLowerBoundId) {
+                retryLater(expiredMessages);
+                return;
+            }
+
+            for (int i = 0; i < expiredMessages.size(); i++) {
+                ExpiringMessage message = expiredMessages.get(i);
+                long messageID = message.getMessageID();
+                if (messageID >= deletionRangeLowerBoundId) {
+                    messagesToDelete.add(messageID);
+                    MessageTracer.trace(messageID, queueName, MessageTracer.EXPIRED_MESSAGE_DETECTED_FROM_INDEX);
+                } else {
+                    // Allocated to a slot. Removed from the index if delivered, else deleted once the slot is freed.
+                    retryLater(message);
+                }
+                if (messagesToDelete.size() == deletionBatchSize || i == expiredMessages.size() - 1) {
+                    if (!messagesToDelete.isEmpty()) {
+                        MessagingEngine.getInstance().deleteMessagesById(messagesToDelete);
+                        deletedMessageCount = deletedMessageCount + messagesToDelete.size();
+                        messagesToDelete.clear();
+                    }
+                    batchStart = i + 1;
+                }
+            }
+        } catch (AndesException e) {
+            log.error("Error occurred while deleting expired messages of queue " + queueName
+                    + ". Messages will be deleted again in " + retryDelay + " ms.", e);
+            // Messages of the failed batch onwards are tried again
+            retryLater(expiredMessages.subList(batchStart, expiredMessages.size()));
+        } finally {
+            //clear the safe deletion state in the slot manager after deletion completes
+            slotManager.clearDeletionTaskState();
+        }
+
+        if (deletedMessageCount > 0) {
+            MetricManager.counter(MetricsConstants.EXPIRED_MESSAGES + MetricsConstants.METRICS_NAME_SEPARATOR
+                    + queueName, Level.INFO).inc(deletedMessageCount);
+            if (log.isDebugEnabled()) {
+                log.debug("Expired message count for queue : " + queueName + " is " + deletedMessageCount);
+            }
+        }
+    }
+
+    private void retryLater(List<ExpiringMessage> messages) {
+        for (ExpiringMessage message : messages) {
+            retryLater(message);
+        }
+    }
+
+    /**
+     * Keep an expired message which could not be deleted in the index, to be tried again after {@link #retryDelay}
+     */
+    private void retryLater(ExpiringMessage message) {
+        timingWheel.add(message.getMessageID(), message, System.currentTimeMillis() + retryDelay);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeNonOperational(HealthAwareStore store, Exception ex) {
+        log.warn("Message store became not operational. Expired messages are kept in the message expiry index.");
+        messageStoresUnavailable = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeOperational(HealthAwareStore store) {
+        log.info("Message store became operational. Resuming deletion of expired messages.");
+        messageStoresUnavailable = false;
+    }
+}
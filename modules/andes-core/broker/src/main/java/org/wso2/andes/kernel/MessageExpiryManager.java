@@ -16,6 +16,7 @@
 
 package org.wso2.andes.kernel;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -28,10 +29,46 @@ public class MessageExpiryManager {
      */
     private MessageStore messageStore;
 
+    /**
+     * Index of expiring messages. Null if expired messages are found by scanning the message store.
+     */
+    private MessageExpiryIndex messageExpiryIndex;
+
     public MessageExpiryManager(MessageStore messageStore){
         this.messageStore = messageStore;
     }
 
+    public MessageExpiryManager(MessageStore messageStore, MessageExpiryIndex messageExpiryIndex) {
+        this.messageStore = messageStore;
+        this.messageExpiryIndex = messageExpiryIndex;
+    }
+
+    /**
+     * Add messages written to the message store to the expiry index, if the index is used.
+     *
+     * @param messages stored messages
+     */
+    public void messagesStored(List<AndesMessage> messages) {
+        if (null != messageExpiryIndex) {
+            messageExpiryIndex.addMessages(messages);
+        }
+    }
+
+    /**
+     * Remove deleted messages from the expiry index, if the index is used. Messages in the DLC are not indexed.
+     *
+     * @param messages messages deleted from their storage queues
+     */
+    public void messagesDeleted(Collection<? extends AndesMessageMetadata> messages) {
+        if (null != messageExpiryIndex) {
+            for (AndesMessageMetadata message : messages) {
+                if (message.isExpirationDefined()) {
+                    messageExpiryIndex.removeMessage(message.getMessageID());
+                }
+            }
+        }
+    }
+
     /**
      * Move the meta data to DLC and update the status of messages.
      *
@@ -41,6 +78,7 @@ public class MessageExpiryManager {
     public void moveMetadataToDLC(List<AndesMessageMetadata> messages, String dlcQueueName)
             throws AndesException {
         messageStore.moveMetadataToDLC(messages, dlcQueueName);
+        messagesDeleted(messages);
     }
 
     /**
@@ -52,5 +90,8 @@ public class MessageExpiryManager {
      */
     public void moveMetadataToDLC(long messageId, String dlcQueueName) throws AndesException {
         messageStore.moveMetadataToDLC(messageId, dlcQueueName);
+        if (null != messageExpiryIndex) {
+            messageExpiryIndex.removeMessage(messageId);
+        }
     }
 }
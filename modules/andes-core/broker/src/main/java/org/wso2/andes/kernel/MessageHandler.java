@@ -25,6 +25,7 @@ import org.wso2.andes.kernel.slot.SlotDeletionExecutor;
 import org.wso2.andes.kernel.slot.SlotDeliveryWorkerManager;
 import org.wso2.andes.kernel.slot.SlotReAssignTask;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MessageLatencyRecorder;
 import org.wso2.andes.server.queue.DLCQueueUtils;
 import org.wso2.andes.tools.utils.MessageTracer;
 
@@ -90,7 +91,7 @@ public class MessageHandler {
      * In case of a purge, we must store the timestamp when the purge was called.
      * This way we can identify messages received before that timestamp that fail and ignore them.
      */
-    private long lastPurgedTimestamp;
+    private volatile long lastPurgedTimestamp;
 
     /**
      * Max number of messages to keep in buffer
@@ -102,6 +103,16 @@ public class MessageHandler {
      */
     private final ExecutorService executor;
 
+    /**
+     * Number of messages read from the store at once when loading a slot
+     */
+    private final int metadataReadPageSize;
+
+    /**
+     * Number of messages at the start of a slot to prefetch content of. 0 if prefetching is disabled.
+     */
+    private final int contentPrefetchMessageCount;
+
 
     public MessageHandler(String queueName) {
         this.queueName = queueName;
@@ -110,6 +121,15 @@ public class MessageHandler {
         this.executor = Executors.newSingleThreadExecutor(namedThreadFactory);
         this.maxNumberOfReadButUndeliveredMessages = AndesConfigurationManager.
                 readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_MAX_READ_BUT_UNDELIVERED_MESSAGES);
+        this.metadataReadPageSize = AndesConfigurationManager.
+                readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_METADATA_READ_PAGE_SIZE);
+        int cacheSize = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE);
+        if (cacheSize > 0) {
+            this.contentPrefetchMessageCount = AndesConfigurationManager.
+                    readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_MESSAGE_COUNT);
+        } else {
+            this.contentPrefetchMessageCount = 0;
+        }
         this.messageDeliveryManager = SlotDeliveryWorkerManager.getInstance();
         this.lastPurgedTimestamp = 0L;
         this.messageStore = AndesContext.getInstance().getMessageStore();
@@ -147,13 +167,19 @@ public class MessageHandler {
      * Read messages from persistent store and buffer indicated
      * by the slot. This will filter messages for overlapped slots
      * as well.
+     * <p>
+     * Only the first page of the slot is read by the caller. If the slot has more messages, the rest of the pages
+     * are read and buffered by a metadata reader thread, so that messages of the first page can be delivered
+     * meanwhile. Content of the first messages of the slot is prefetched to the message cache as the pages are
+     * read.
      *
      * @param currentSlot slot of which messages to load
-     * @return number of messages loaded to memory
+     * @return number of messages loaded to memory by the caller
      */
     public int bufferMessages(Slot currentSlot) throws AndesException {
 
-        List<DeliverableAndesMetadata> messagesReadFromStore = readMessagesFromMessageStore(currentSlot);
+        MetadataPageCursor cursor = new MetadataPageCursor(currentSlot, metadataReadPageSize);
+        List<DeliverableAndesMetadata> messagesReadFromStore = readMessagesFromMessageStore(cursor);
 
         //if no messages are in the slot range, delete the slot from coordinator. No use of it
         if (messagesReadFromStore.isEmpty()) {
@@ -170,66 +196,110 @@ public class MessageHandler {
             }
         }
 
+        if (cursor.hasMorePages()) {
+            // Hold the slot until all pages are buffered. Otherwise acknowledging the first page could make the
+            // slot look fully delivered.
+            trackedSlot.incrementPendingMessageCount(1);
+            int prefetchedCount = bufferMessages(trackedSlot, messagesReadFromStore, contentPrefetchMessageCount);
+            MetadataReaderHolder.METADATA_READERS.execute(new RemainingPagesReadTask(trackedSlot, cursor,
+                    lastPurgedTimestamp, contentPrefetchMessageCount - prefetchedCount));
+        } else {
+            bufferMessages(trackedSlot, messagesReadFromStore, contentPrefetchMessageCount);
+        }
+
+        return messagesReadFromStore.size();
+    }
+
+    /**
+     * Filter and buffer a page of messages read for a slot
+     *
+     * @param trackedSlot   slot tracking the messages
+     * @param messages      messages read from the store
+     * @param prefetchLimit maximum number of messages to prefetch content of
+     * @return number of messages content prefetch was requested for
+     */
+    private int bufferMessages(Slot trackedSlot, List<DeliverableAndesMetadata> messages, int prefetchLimit) {
         //filter and removed already buffered messages
-        filterOverlappedMessages(trackedSlot, messagesReadFromStore);
+        filterOverlappedMessages(trackedSlot, messages);
+
+        int prefetchedCount = prefetchContent(messages, prefetchLimit);
 
-        trackedSlot.incrementPendingMessageCount(messagesReadFromStore.size());
+        trackedSlot.incrementPendingMessageCount(messages.size());
 
-        for (DeliverableAndesMetadata message : messagesReadFromStore) {
+        for (DeliverableAndesMetadata message : messages) {
             bufferMessage(message);
+            MessageLatencyRecorder.record(MessageLatencyRecorder.Stage.BUFFERED, message);
         }
 
-        return messagesReadFromStore.size();
+        return prefetchedCount;
     }
 
     /**
-     * Read messages from persistent store indicated by the message slot
+     * Request content of the first messages to be loaded to the message cache. Number of messages is limited to
+     * the room left in the read-but-undelivered buffer, since content of messages beyond that would not be
+     * needed soon.
      *
-     * @param slot message slot to load messages
+     * @param messages      messages about to be buffered
+     * @param prefetchLimit maximum number of messages to prefetch content of
+     * @return number of messages content prefetch was requested for
+     */
+    private int prefetchContent(List<DeliverableAndesMetadata> messages, int prefetchLimit) {
+        if (prefetchLimit <= 0 || messages.isEmpty()) {
+            return 0;
+        }
+        int room = maxNumberOfReadButUndeliveredMessages - readButUndeliveredMessages.size();
+        int prefetchCount = Math.min(Math.min(prefetchLimit, room), messages.size());
+        if (prefetchCount <= 0) {
+            return 0;
+        }
+        ContentPrefetcherHolder.CONTENT_PREFETCHER.prefetch(messages.subList(0, prefetchCount));
+        return prefetchCount;
+    }
+
+    /**
+     * Read the next page of messages of a slot from persistent store
+     *
+     * @param cursor position of the read within the slot
      * @return list of messages
      * @throws AndesException
      */
-    private List<DeliverableAndesMetadata> readMessagesFromMessageStore(Slot slot) throws AndesException {
-        List<DeliverableAndesMetadata> messagesRead;
+    private List<DeliverableAndesMetadata> readMessagesFromMessageStore(MetadataPageCursor cursor)
+            throws AndesException {
+        List<DeliverableAndesMetadata> messagesRead = null;
+        Slot slot = cursor.getSlot();
         int numberOfRetries = 0;
-        try {
 
-            //Read messages in the slot
-            messagesRead = messageStore.getMetadataList(slot,
-                    slot.getStorageQueueName(),
-                    slot.getStartMessageId(),
-                    slot.getEndMessageId());
+        while (null == messagesRead) {
+            try {
+                //Read messages in the slot
+                messagesRead = messageStore.getNextMetadataPage(cursor);
 
-            if (log.isDebugEnabled()) {
-                StringBuilder messageIDString = new StringBuilder();
-                for (DeliverableAndesMetadata metadata : messagesRead) {
-                    messageIDString.append(metadata.getMessageID()).append(" , ");
+                if (log.isDebugEnabled()) {
+                    StringBuilder messageIDString = new StringBuilder();
+                    for (DeliverableAndesMetadata metadata : messagesRead) {
+                        messageIDString.append(metadata.getMessageID()).append(" , ");
+                    }
+                    log.debug("Messages Read: " + messageIDString);
                 }
-                log.debug("Messages Read: " + messageIDString);
-            }
 
-        } catch (AndesException aex) {
+            } catch (AndesException aex) {
 
-            numberOfRetries = numberOfRetries + 1;
+                numberOfRetries = numberOfRetries + 1;
 
-            if (numberOfRetries <= MAX_META_DATA_RETRIEVAL_COUNT) {
+                if (numberOfRetries <= MAX_META_DATA_RETRIEVAL_COUNT) {
 
-                String errorMsg = String.format("error occurred retrieving metadata" +
-                        " list for slot :" + " %s, retry count = %d", slot.toString(), numberOfRetries);
+                    String errorMsg = String.format("error occurred retrieving metadata" +
+                            " list for slot :" + " %s, retry count = %d", slot.toString(), numberOfRetries);
 
-                log.error(errorMsg, aex);
-                messagesRead = messageStore.getMetadataList(slot,
-                        slot.getStorageQueueName(),
-                        slot.getStartMessageId(),
-                        slot.getEndMessageId());
-            } else {
-                String errorMsg = String.format("error occurred retrieving metadata list for slot "
-                        + ": %s, in final attempt = %d. " + "this slot will not be delivered " +
-                        "and become stale in message store", slot.toString(), numberOfRetries);
+                    log.error(errorMsg, aex);
+                } else {
+                    String errorMsg = String.format("error occurred retrieving metadata list for slot "
+                            + ": %s, in final attempt = %d. " + "this slot will not be delivered " +
+                            "and become stale in message store", slot.toString(), numberOfRetries);
 
-                throw new AndesException(errorMsg, aex);
+                    throw new AndesException(errorMsg, aex);
+                }
             }
-
         }
 
         if (log.isDebugEnabled()) {
@@ -252,16 +322,15 @@ public class MessageHandler {
         Iterator<DeliverableAndesMetadata> readMessageIterator = messages.iterator();
         while (readMessageIterator.hasNext()) {
             DeliverableAndesMetadata currentMessage = readMessageIterator.next();
-            if (slot.checkIfMessageIsAlreadyAdded(currentMessage.getMessageID())) {
+            // Slot is set before the message becomes visible through the slot. A rejected message is discarded.
+            currentMessage.changeSlot(slot);
+            if (!slot.addMessageToSlotIfAbsent(currentMessage)) {
                 if (log.isDebugEnabled()) {
                     log.debug("Tracker rejected message id= " + currentMessage.getMessageID()
                             + " from buffering "
                             + "to deliver. This is an already buffered message");
                 }
                 readMessageIterator.remove();
-            } else {
-                currentMessage.changeSlot(slot);
-                slot.addMessageToSlotIfAbsent(currentMessage);
             }
         }
     }
@@ -440,4 +509,125 @@ public class MessageHandler {
         }
     }
 
+    /**
+     * Reads and buffers the pages of a slot following the first page. Reading stops if buffered messages of the
+     * queue are cleared meanwhile (purge or delivery stop), as the slot is returned in that case.
+     */
+    private class RemainingPagesReadTask implements Runnable {
+
+        private final Slot trackedSlot;
+
+        private final MetadataPageCursor cursor;
+
+        /**
+         * Last purged timestamp of the queue when the slot was assigned
+         */
+        private final long purgedTimestampAtStart;
+
+        /**
+         * Number of messages of the slot content can still be prefetched for
+         */
+        private int remainingPrefetchCount;
+
+        RemainingPagesReadTask(Slot trackedSlot, MetadataPageCursor cursor, long purgedTimestampAtStart,
+                int remainingPrefetchCount) {
+            this.trackedSlot = trackedSlot;
+            this.cursor = cursor;
+            this.purgedTimestampAtStart = purgedTimestampAtStart;
+            this.remainingPrefetchCount = remainingPrefetchCount;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (cursor.hasMorePages()) {
+                    List<DeliverableAndesMetadata> messages = readMessagesFromMessageStore(cursor);
+                    if (purgedTimestampAtStart != lastPurgedTimestamp) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Buffered messages of queue " + queueName + " were cleared. Stop reading "
+                                    + "slot " + trackedSlot.getId());
+                        }
+                        return;
+                    }
+                    remainingPrefetchCount = remainingPrefetchCount
+                            - bufferMessages(trackedSlot, messages, remainingPrefetchCount);
+                    messageDeliveryManager.wakeUpDelivery(queueName);
+                }
+            } catch (AndesException e) {
+                log.error("Error while reading messages of slot " + trackedSlot.getId() + " of queue " + queueName,
+                        e);
+            } catch (Throwable e) {
+                log.error("Unexpected error while reading messages of slot " + trackedSlot.getId() + " of queue "
+                        + queueName, e);
+            } finally {
+                // Release the hold taken when the first page was buffered, whether or not reading completed
+                try {
+                    trackedSlot.decrementPendingMessageCount();
+                } catch (AndesException e) {
+                    log.error("Error while releasing slot " + trackedSlot.getId() + " of queue " + queueName, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set once the shared metadata page readers are created. Kept outside the holder so that reading it does not
+     * create them.
+     */
+    private static volatile boolean metadataReadersCreated = false;
+
+    /**
+     * Set once the shared content prefetcher is created
+     */
+    private static volatile boolean contentPrefetcherCreated = false;
+
+    /**
+     * Stop the shared content prefetcher and metadata page readers of all queues. Nothing is done for the ones
+     * not created yet, so that shutdown does not read configuration or create threads.
+     */
+    public static void stopSharedReaders() {
+        if (contentPrefetcherCreated) {
+            ContentPrefetcherHolder.CONTENT_PREFETCHER.stop();
+        }
+        if (metadataReadersCreated) {
+            MetadataReaderHolder.METADATA_READERS.shutdownNow();
+        }
+    }
+
+    /**
+     * Holds the thread pool reading remaining pages of slots of all queues. Created on first use since the
+     * pool size is read from configuration.
+     */
+    private static class MetadataReaderHolder {
+
+        private static final ExecutorService METADATA_READERS = createMetadataReaders();
+
+        private static ExecutorService createMetadataReaders() {
+            ExecutorService metadataReaders = Executors.newFixedThreadPool(
+                    (Integer) AndesConfigurationManager
+                            .readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_PARALLEL_METADATA_READERS),
+                    new ThreadFactoryBuilder().setNameFormat("AndesMetadataPageReader-%d").setDaemon(true).build());
+            metadataReadersCreated = true;
+            return metadataReaders;
+        }
+    }
+
+    /**
+     * Holds the content prefetcher shared by all queues. Created on first use.
+     */
+    private static class ContentPrefetcherHolder {
+
+        private static final ContentPrefetcher CONTENT_PREFETCHER = createContentPrefetcher();
+
+        private static ContentPrefetcher createContentPrefetcher() {
+            int readerCount = AndesConfigurationManager
+                    .readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_PARALLEL_READERS);
+            int maxInFlightSizeInMegaBytes = AndesConfigurationManager
+                    .readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_PREFETCH_MAX_IN_FLIGHT_SIZE);
+            ContentPrefetcher contentPrefetcher = new ContentPrefetcher(AndesContext.getInstance().getMessageStore(),
+                    readerCount, 1024L * 1024L * maxInFlightSizeInMegaBytes);
+            contentPrefetcherCreated = true;
+            return contentPrefetcher;
+        }
+    }
 }
@@ -72,7 +72,8 @@ public interface MessageStore extends HealthAwareStore {
     LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIDList) throws AndesException;
 
     /**
-     * Store messages into database.
+     * Store messages into database. Messages sharing content (see {@link AndesMessageMetadata#isContentShared()})
+     * carry the same content parts. Content should still be retrievable and removable by message ID for each of them.
      *
      * @param messageList messages to be stored
      */
@@ -138,6 +139,27 @@ public interface MessageStore extends HealthAwareStore {
     List<DeliverableAndesMetadata> getMetadataList(Slot slot, final String storageQueueName, long firstMsgId,
             long lastMsgID) throws AndesException;
 
+    /**
+     * Read the next page of metadata of a slot. At most the page size of the cursor number of messages are read
+     * in ascending message ID order, starting from the position of the cursor. The cursor is moved past the
+     * returned messages.
+     *
+     * @param cursor position of the read within the slot
+     * @return list of metadata. Empty if there are no more messages in the slot
+     * @throws AndesException
+     */
+    List<DeliverableAndesMetadata> getNextMetadataPage(MetadataPageCursor cursor) throws AndesException;
+
+    /**
+     * Load content of the given messages to the message cache of the store ahead of delivery, so that content
+     * reads of the delivery path are served from memory. Messages already in the cache are skipped. Stores
+     * without a message cache ignore this call.
+     *
+     * @param metadataList metadata of messages to load content of
+     * @throws AndesException
+     */
+    void prefetchContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException;
+
     /**
      * Get number of messages in the queue within the message id range
      *
@@ -257,6 +279,14 @@ public interface MessageStore extends HealthAwareStore {
      */
     List<Long> getExpiredMessagesFromDLC(long messageCount) throws AndesException;
 
+    /**
+     * Get expiry data of all messages which have an expiration time, except the messages in the DLC
+     *
+     * @return expiry data of the messages
+     * @throws AndesException
+     */
+    List<ExpiringMessage> getExpiringMessages() throws AndesException;
+
     /**
      * add messages to expiry queue
      *
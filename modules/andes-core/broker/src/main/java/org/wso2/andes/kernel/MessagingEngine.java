@@ -32,8 +32,8 @@ import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
 import org.wso2.andes.kernel.slot.SlotManagerStandalone;
 import org.wso2.andes.kernel.slot.SlotMessageCounter;
 import org.wso2.andes.server.ClusterResourceHolder;
+import org.wso2.andes.server.cluster.coordination.AtomicTimeStampBasedMessageIdGenerator;
 import org.wso2.andes.server.cluster.coordination.MessageIdGenerator;
-import org.wso2.andes.server.cluster.coordination.TimeStampBasedMessageIdGenerator;
 import org.wso2.andes.server.queue.DLCQueueUtils;
 import org.wso2.andes.thrift.MBThriftClient;
 import org.wso2.andes.tools.utils.MessageTracer;
@@ -154,13 +154,14 @@ public class MessagingEngine {
 
     /**
      * Persist received messages. Implemented {@link org.wso2.andes.kernel.MessageStore} will be used to
-     * persist the messages
+     * persist the messages. Stored messages which have an expiration time are added to the expiry index.
      *
      * @param messageList List of {@link org.wso2.andes.kernel.AndesMessage} to persist
      * @throws AndesException
      */
     public void messagesReceived(List<AndesMessage> messageList) throws AndesException {
         messageStore.storeMessages(messageList);
+        messageExpiryManager.messagesStored(messageList);
     }
 
     /**
@@ -220,6 +221,7 @@ public class MessagingEngine {
         for (Map.Entry<String, List<AndesMessageMetadata>> entry : storageSeparatedMessages.entrySet()) {
             messageStore.deleteMessages(entry.getKey(), entry.getValue());
         }
+        messageExpiryManager.messagesDeleted(messagesToRemove);
 
         //TODO:message can be in delivery path. If so we need to decrement slot message count
     }
@@ -260,6 +262,7 @@ public class MessagingEngine {
         for (Map.Entry<String, List<AndesMessageMetadata>> entry : storageSeparatedMessages.entrySet()) {
             messageStore.deleteMessages(entry.getKey(), entry.getValue());
         }
+        messageExpiryManager.messagesDeleted(messagesToRemove);
         for (DeliverableAndesMetadata message : messagesToRemove) {
             //mark messages as deleted
             message.markAsDeletedMessage();
@@ -515,11 +518,11 @@ public class MessagingEngine {
             } catch (Exception e) {
                 log.error("Error while loading Message id generator implementation : " +
                         idGeneratorImpl +
-                        " adding TimeStamp based implementation as the default", e);
-                messageIdGenerator = new TimeStampBasedMessageIdGenerator();
+                        " adding atomic TimeStamp based implementation as the default", e);
+                messageIdGenerator = new AtomicTimeStampBasedMessageIdGenerator();
             }
         } else {
-            messageIdGenerator = new TimeStampBasedMessageIdGenerator();
+            messageIdGenerator = new AtomicTimeStampBasedMessageIdGenerator();
         }
     }
 
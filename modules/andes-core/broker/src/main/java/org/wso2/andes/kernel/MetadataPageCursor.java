@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.util.List;
+
+/**
+ * Position of a paged metadata read over the message ID range of a slot. Each call to
+ * {@link MessageStore#getNextMetadataPage(MetadataPageCursor)} returns at most {@link #getPageSize()} messages
+ * starting from {@link #getNextMessageId()} and moves the cursor past the last message returned.
+ * <p>
+ * A cursor is not thread safe. It can be reused for another slot through {@link #reset(Slot)}.
+ */
+public class MetadataPageCursor {
+
+    /**
+     * Maximum number of messages read in a single page
+     */
+    private final int pageSize;
+
+    /**
+     * Slot messages are read for
+     */
+    private Slot slot;
+
+    /**
+     * First message ID of the next page
+     */
+    private long nextMessageId;
+
+    /**
+     * Whether all messages of the slot have been read
+     */
+    private boolean exhausted;
+
+    /**
+     * Create a cursor positioned at the start of the slot
+     *
+     * @param slot     slot to read messages of
+     * @param pageSize maximum number of messages to read in a single page
+     */
+    public MetadataPageCursor(Slot slot, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be positive. Given " + pageSize);
+        }
+        this.pageSize = pageSize;
+        reset(slot);
+    }
+
+    /**
+     * Position the cursor at the start of the given slot
+     *
+     * @param slot slot to read messages of
+     */
+    public void reset(Slot slot) {
+        this.slot = slot;
+        this.nextMessageId = slot.getStartMessageId();
+        this.exhausted = false;
+    }
+
+    /**
+     * Move the cursor past a page read by the message store
+     *
+     * @param page messages read in ascending message ID order
+     */
+    public void advance(List<? extends AndesMessageMetadata> page) {
+        if (page.size() < pageSize) {
+            exhausted = true;
+        } else {
+            long lastReadId = page.get(page.size() - 1).getMessageID();
+            if (lastReadId >= slot.getEndMessageId()) {
+                exhausted = true;
+            } else {
+                nextMessageId = lastReadId + 1;
+            }
+        }
+    }
+
+    /**
+     * Check if there can be more messages to read in the slot
+     *
+     * @return true if another page should be read
+     */
+    public boolean hasMorePages() {
+        return !exhausted;
+    }
+
+    public Slot getSlot() {
+        return slot;
+    }
+
+    public String getStorageQueueName() {
+        return slot.getStorageQueueName();
+    }
+
+    public long getNextMessageId() {
+        return nextMessageId;
+    }
+
+    public long getLastMessageId() {
+        return slot.getEndMessageId();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+}
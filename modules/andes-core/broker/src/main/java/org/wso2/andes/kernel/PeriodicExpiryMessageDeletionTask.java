@@ -67,7 +67,24 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
      */
     protected boolean isClusteringEnabled;
 
+    /**
+     * Indicate whether queues are scanned for expired messages. Queues are not scanned when expired messages of
+     * queues are deleted through the {@link MessageExpiryIndex}.
+     */
+    private final boolean queueScanEnabled;
+
     public PeriodicExpiryMessageDeletionTask() {
+        this(true);
+    }
+
+    /**
+     * Create a deletion task
+     *
+     * @param queueScanEnabled true if queues are scanned for expired messages, false if only the DLC is scanned
+     */
+    public PeriodicExpiryMessageDeletionTask(boolean queueScanEnabled) {
+
+        this.queueScanEnabled = queueScanEnabled;
 
         this.messageStoresUnavailable = null;
         // Register AndesRecoveryTask class as a StoreHealthListener
@@ -94,6 +111,10 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
                 //First delete the expired messages from DLC
                 deleteExpiredMessagesFromDLC();
 
+                if (!queueScanEnabled) {
+                    return;
+                }
+
                 Set<String> queues = abstractSlotManagerSlotManager.getAllQueues();
                 for (String queueName : queues) {
                     long currentDeletionRangeLowerBoundId = abstractSlotManagerSlotManager
@@ -84,7 +84,7 @@ public class RetainedContent implements AndesContent {
                 numOfBytesToRead = remaining;
             }
 
-            destinationBuffer.put(messagePart.getData(), positionToReadFromChunk, numOfBytesToRead);
+            destinationBuffer.put(messagePart.getDataView(positionToReadFromChunk, numOfBytesToRead));
 
             written = written + numOfBytesToRead;
             currentBytePosition = currentBytePosition + numOfBytesToRead;
@@ -93,6 +93,25 @@ public class RetainedContent implements AndesContent {
         return written;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteBuffer getContentView(int offset, int maxLength) throws AndesException {
+        // This is an integer division
+        int chunkNumber = offset / AMQPUtils.DEFAULT_CONTENT_CHUNK_SIZE;
+        int chunkStartByteIndex = chunkNumber * AMQPUtils.DEFAULT_CONTENT_CHUNK_SIZE;
+        AndesMessagePart messagePart = getMessagePart(chunkStartByteIndex);
+
+        int positionToReadFromChunk = offset - chunkStartByteIndex;
+        // Chunks could be longer than the content they hold
+        int remainingContent = Math.min(messagePart.getDataLength() - positionToReadFromChunk,
+                contentLength - offset);
+        int length = Math.min(remainingContent, maxLength);
+
+        return messagePart.getDataView(positionToReadFromChunk, length);
+    }
+
     /**
      * Get Message part for byte index
      *
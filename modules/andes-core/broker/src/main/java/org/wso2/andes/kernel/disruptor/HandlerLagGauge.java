@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventProcessor;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+/**
+ * Gauge of the number of events published to a ring buffer but not yet processed by a handler. A handler which
+ * keeps lagging is the bottleneck of the disruptor.
+ */
+public abstract class HandlerLagGauge implements Gauge<Long> {
+
+    private final RingBuffer<?> ringBuffer;
+
+    private HandlerLagGauge(RingBuffer<?> ringBuffer) {
+        this.ringBuffer = ringBuffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getValue() {
+        return ringBuffer.getCursor() - getHandlerSequence();
+    }
+
+    /**
+     * Get the sequence of the last event processed by the handler
+     *
+     * @return sequence of the handler
+     */
+    abstract long getHandlerSequence();
+
+    /**
+     * Register a gauge for an event handler added to a disruptor
+     *
+     * @param metricName  name of the lag metric of the disruptor
+     * @param handlerName name of the handler, appended to the metric name
+     * @param disruptor   disruptor the handler is added to
+     * @param handler     event handler
+     * @param <T>         event type of the disruptor
+     */
+    public static <T> void register(String metricName, String handlerName, final Disruptor<T> disruptor,
+                                    final EventHandler<T> handler) {
+        MetricManager.gauge(metricName + MetricsConstants.METRICS_NAME_SEPARATOR + handlerName, Level.DEBUG,
+                new HandlerLagGauge(disruptor.getRingBuffer()) {
+                    @Override
+                    long getHandlerSequence() {
+                        return disruptor.getSequenceValueFor(handler);
+                    }
+                });
+    }
+
+    /**
+     * Register a gauge for an event processor of a ring buffer
+     *
+     * @param metricName    name of the lag metric of the disruptor
+     * @param processorName name of the processor, appended to the metric name
+     * @param ringBuffer    ring buffer the processor consumes
+     * @param processor     event processor
+     */
+    public static void register(String metricName, String processorName, RingBuffer<?> ringBuffer,
+                                final EventProcessor processor) {
+        MetricManager.gauge(metricName + MetricsConstants.METRICS_NAME_SEPARATOR + processorName, Level.DEBUG,
+                new HandlerLagGauge(ringBuffer) {
+                    @Override
+                    long getHandlerSequence() {
+                        return processor.getSequence().get();
+                    }
+                });
+    }
+}
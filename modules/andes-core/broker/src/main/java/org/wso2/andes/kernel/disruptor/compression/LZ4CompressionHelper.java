@@ -80,7 +80,7 @@ public class LZ4CompressionHelper {
      */
     public AndesMessagePart getCompressedMessage(List<AndesMessagePart> partList, int originalContentLength) {
 
-        byte[] messageData = getByteArrayFromPartListForCompression(partList, originalContentLength);
+        byte[] messageData = getContentArray(partList, originalContentLength);
 
         // Compress message content
         int maxCompressedLength = compressor.maxCompressedLength(originalContentLength);
@@ -105,7 +105,13 @@ public class LZ4CompressionHelper {
      */
     public Map<Integer, AndesMessagePart> getDecompressedMessage(Collection<AndesMessagePart> messagePartList, int
             originalContentLength, long messageID) {
-        byte[] compressedMessageContent = getByteArrayFromPartListForDecompression(messagePartList);
+        byte[] compressedMessageContent;
+        if (1 == messagePartList.size()) {
+            // Compressed content is stored as a single chunk unless it is larger than the maximum chunk size
+            compressedMessageContent = messagePartList.iterator().next().getData();
+        } else {
+            compressedMessageContent = getByteArrayFromPartListForDecompression(messagePartList);
+        }
 
         // Decompress message content
         byte[] decompressedMessage = new byte[originalContentLength];
@@ -137,6 +143,24 @@ public class LZ4CompressionHelper {
         return andesMessagePart;
     }
 
+    /**
+     * Get the message content as one byte array. Content received as a single part is used as it is, without
+     * copying it.
+     *
+     * @param partList              Message content as an AndesMessagePart list
+     * @param originalContentLength Original message content length
+     * @return Message content as a byte array
+     */
+    private byte[] getContentArray(List<AndesMessagePart> partList, int originalContentLength) {
+        if (1 == partList.size()) {
+            AndesMessagePart messagePart = partList.get(0);
+            if (0 == messagePart.getOffset() && messagePart.getData().length == originalContentLength) {
+                return messagePart.getData();
+            }
+        }
+        return getByteArrayFromPartListForCompression(partList, originalContentLength);
+    }
+
     /**
      * Make one byte array from data of andes message parts, when compress messages
      *
@@ -213,6 +237,19 @@ public class LZ4CompressionHelper {
         // Here, decompressedMessageLength = original message size
         int decompressedMessageLength = decompressedMessage.length;
 
+        // Content that fits in a chunk is delivered from the decompressed array
+        if (decompressedMessageLength <= maxChunkSize) {
+            AndesMessagePart messagePart = new AndesMessagePart();
+            messagePart.setMessageID(messageID);
+            messagePart.setDataLength(decompressedMessageLength);
+            messagePart.setOffSet(0);
+            messagePart.setData(decompressedMessage);
+
+            Map<Integer, AndesMessagePart> messagePartMapToDeliver = new HashMap<>(1);
+            messagePartMapToDeliver.put(0, messagePart);
+            return messagePartMapToDeliver;
+        }
+
         // Size of this map is equals to the minimum number of andes message parts that are needed
         Map<Integer, AndesMessagePart> messagePartMapToDeliver =
                 new HashMap<>((int) (Math.ceil(decompressedMessageLength / ((float) maxChunkSize))));
@@ -94,16 +94,7 @@ public class ContentDecompressionHandler implements EventHandler<DeliveryEventDa
              * AndesContent of the delivery event data
              */
             if (isCompressed) {
-
-                Map<Integer, AndesMessagePart> messagePartMapFromContentReader = content.getContentList();
-                Collection<AndesMessagePart> contentList = messagePartMapFromContentReader.values();
-
-                // Get the decompressed message, as a message part map
-                Map<Integer, AndesMessagePart> messagePartMapToDeliver = lz4CompressionHelper.getDecompressedMessage
-                        (contentList, originalMessageSize, messageID);
-
-                // Creating the DisruptorCachedContent  to deliver
-                content = new DisruptorCachedContent(messagePartMapToDeliver, originalMessageSize, maxChunkSize);
+                content = getDecompressedContent(content, originalMessageSize, messageID);
 
                 //Tracing Message
                 MessageTracer.trace(messageID, metadata.getMessage().getDestination(),
@@ -119,4 +110,43 @@ public class ContentDecompressionHandler implements EventHandler<DeliveryEventDa
                     "Empty message received while retrieving message content for message id " + messageID);
         }
     }
+
+    /**
+     * Get the decompressed content of a message. The content cache shares the compressed content among deliveries
+     * of the same message, therefore the content is decompressed by the first delivery and reused by the rest.
+     *
+     * @param content             Compressed content read from the content cache
+     * @param originalMessageSize Size of the message before compression
+     * @param messageID           Id of the message
+     * @return Decompressed content
+     */
+    private DisruptorCachedContent getDecompressedContent(DisruptorCachedContent content, int originalMessageSize,
+                                                          long messageID) {
+        DisruptorCachedContent decompressedContent = content.getDecompressedContent();
+
+        if (null == decompressedContent) {
+            // Parallel handlers could be delivering the same message
+            synchronized (content) {
+                decompressedContent = content.getDecompressedContent();
+
+                if (null == decompressedContent) {
+                    Map<Integer, AndesMessagePart> messagePartMapFromContentReader = content.getContentList();
+                    Collection<AndesMessagePart> contentList = messagePartMapFromContentReader.values();
+
+                    // Get the decompressed message, as a message part map
+                    Map<Integer, AndesMessagePart> messagePartMapToDeliver = lz4CompressionHelper
+                            .getDecompressedMessage(contentList, originalMessageSize, messageID);
+
+                    // Creating the DisruptorCachedContent  to deliver
+                    decompressedContent = new DisruptorCachedContent(messagePartMapToDeliver, originalMessageSize,
+                            maxChunkSize);
+                    content.setDecompressedContent(decompressedContent);
+                }
+            }
+        } else if (log.isTraceEnabled()) {
+            log.trace("Decompressed content reused for message " + messageID);
+        }
+
+        return decompressedContent;
+    }
 }
@@ -31,6 +31,7 @@ import org.wso2.andes.kernel.ProtocolMessage;
 import org.wso2.andes.kernel.SubscriptionAlreadyClosedException;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MessageLatencyRecorder;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.tools.utils.MessageTracer;
 import org.wso2.carbon.metrics.manager.Counter;
@@ -113,6 +114,7 @@ public class DeliveryEventHandler implements EventHandler<DeliveryEventData> {
 
                         subscription.getSubscriberConnection().writeMessageToConnection(protocolMessage,
                                 deliveryEventData.getAndesContent());
+                        MessageLatencyRecorder.record(MessageLatencyRecorder.Stage.DELIVERED, message);
 
                     } else {
                         onSendError(message, subscription);
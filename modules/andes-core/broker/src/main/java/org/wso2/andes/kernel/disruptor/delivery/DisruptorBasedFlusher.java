@@ -19,7 +19,6 @@
 package org.wso2.andes.kernel.disruptor.delivery;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.TimeoutException;
@@ -29,7 +28,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.configuration.util.DisruptorWaitStrategy;
 import org.wso2.andes.kernel.ProtocolMessage;
+import org.wso2.andes.kernel.disruptor.HandlerLagGauge;
+import org.wso2.andes.kernel.disruptor.waitStrategy.WaitStrategyFactory;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.tools.utils.MessageTracer;
@@ -77,6 +79,8 @@ public class DisruptorBasedFlusher {
                 AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_CONTENT_READ_BATCH_SIZE);
         int maxContentChunkSize = AndesConfigurationManager.readValue(
                 AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
+        DisruptorWaitStrategy waitStrategy = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_WAIT_STRATEGY);
 
         ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("DisruptorBasedFlusher-%d").build();
         Executor threadPoolExecutor = Executors.newCachedThreadPool(namedThreadFactory);
@@ -84,7 +88,7 @@ public class DisruptorBasedFlusher {
         disruptor = new Disruptor<>(new DeliveryEventData.DeliveryEventDataFactory(), ringBufferSize,
                                                      threadPoolExecutor,
                                                      ProducerType.MULTI,
-                                                     new BlockingWaitStrategy());
+                                                     WaitStrategyFactory.createWaitStrategy(waitStrategy));
 
         disruptor.handleExceptionsWith(new DeliveryExceptionHandler());
 
@@ -127,6 +131,27 @@ public class DisruptorBasedFlusher {
 
         //Will add the gauge listener to periodically calculate the outbound messages in the ring
         MetricManager.gauge(MetricsConstants.DISRUPTOR_OUTBOUND_RING, Level.INFO, new OutBoundRingGauge());
+        registerHandlerLagGauges(contentReadTaskBatchProcessor, decompressionEventHandlers, deliveryEventHandlers);
+    }
+
+    /**
+     * Register a lag gauge per handler of the delivery disruptor
+     */
+    private void registerHandlerLagGauges(ConcurrentContentReadTaskBatchProcessor[] contentReadTaskBatchProcessor,
+                                          ContentDecompressionHandler[] decompressionEventHandlers,
+                                          DeliveryEventHandler[] deliveryEventHandlers) {
+        String metricName = MetricsConstants.DISRUPTOR_OUTBOUND_HANDLER_LAG;
+
+        for (int i = 0; i < contentReadTaskBatchProcessor.length; i++) {
+            HandlerLagGauge.register(metricName, "ContentReader-" + i, ringBuffer, contentReadTaskBatchProcessor[i]);
+        }
+        for (int i = 0; i < decompressionEventHandlers.length; i++) {
+            HandlerLagGauge.register(metricName, "ContentDecompressionHandler-" + i, disruptor,
+                    decompressionEventHandlers[i]);
+        }
+        for (int i = 0; i < deliveryEventHandlers.length; i++) {
+            HandlerLagGauge.register(metricName, "DeliveryEventHandler-" + i, disruptor, deliveryEventHandlers[i]);
+        }
     }
 
     /**
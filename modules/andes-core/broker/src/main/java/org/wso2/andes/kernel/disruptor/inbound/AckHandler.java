@@ -18,60 +18,44 @@
 
 package org.wso2.andes.kernel.disruptor.inbound;
 
-import com.google.common.util.concurrent.SettableFuture;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesAckData;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
-import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.disruptor.BatchEventHandler;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
-import org.wso2.andes.store.AndesTransactionRollbackException;
-import org.wso2.andes.store.FailureObservingStoreManager;
-import org.wso2.andes.store.HealthAwareStore;
-import org.wso2.andes.store.StoreHealthListener;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Acknowledgement Handler for the Disruptor based inbound event handling.
- * This handler processes acknowledgements received from clients and updates Andes.
+ * This handler processes acknowledgements received from clients and updates Andes. Messages acknowledged by all
+ * their receivers are handed over to the {@link AckedMessageDeleter} to be deleted from the message store.
  */
-public class AckHandler implements BatchEventHandler, StoreHealthListener {
+public class AckHandler implements BatchEventHandler {
 
     private static Log log = LogFactory.getLog(AckHandler.class);
-    
-    private final MessagingEngine messagingEngine;
 
     private final AndesSubscriptionManager subscriptionManager;
 
     /**
-     * Maximum number to retries to delete messages from message store
-     */
-    private static final int MAX_MESSAGE_DELETION_COUNT = 5;
-
-    /**
-     * Indicates and provides a barrier if messages stores become offline.
-     * marked as volatile since this value could be set from a different thread
-     * (other than those of disrupter)
+     * Deletes acknowledged messages from the message store
      */
-    private volatile boolean messageStoresUnavailable;
+    private final AckedMessageDeleter messageDeleter;
     
     /**
      * Keeps message meta-data that needs to be removed from the message store.
      */
     List<DeliverableAndesMetadata> messagesToRemove;
     
-    AckHandler(MessagingEngine messagingEngine) {
-        this.messagingEngine = messagingEngine;
+    AckHandler(AckedMessageDeleter messageDeleter) {
+        this.messageDeleter = messageDeleter;
         this.subscriptionManager = AndesContext.getInstance().getAndesSubscriptionManager();
-        this.messageStoresUnavailable = false;
         this.messagesToRemove = new ArrayList<>();
-        FailureObservingStoreManager.registerStoreHealthListener(this);
     }
 
     @Override
@@ -127,75 +111,9 @@ public class AckHandler implements BatchEventHandler, StoreHealthListener {
             
         }
 
-        /*
-         * Checks for the message store availability. Messages will be deleted only if the store is available.
-         */
-        if (!messageStoresUnavailable) {
-            deleteMessagesFromStore(0);
-        }
-    }
-
-    /**
-     * Delete acknowledged messages from message store. Deletion is retried if it failed due to a
-     * AndesTransactionRollbackException.
-     *
-     * @param numberOfRetriesBefore
-     *         number of recursive calls
-     * @throws AndesException
-     */
-    private void deleteMessagesFromStore(int numberOfRetriesBefore) throws AndesException {
-        try {
-            messagingEngine.deleteMessages(messagesToRemove);
-
-            if (log.isTraceEnabled()) {
-                StringBuilder messageIDsString = new StringBuilder();
-                for (DeliverableAndesMetadata metadata : messagesToRemove) {
-                    messageIDsString.append(metadata.getMessageID()).append(" , ");
-                }
-                log.trace(messagesToRemove.size() + " message ok to remove : " + messageIDsString);
-            }
+        if (!messagesToRemove.isEmpty()) {
+            messageDeleter.delete(messagesToRemove);
             messagesToRemove.clear();
-        } catch (AndesTransactionRollbackException txRollback) {
-            if (numberOfRetriesBefore <= MAX_MESSAGE_DELETION_COUNT) {
-
-                log.warn("unable to delete messages (" + messagesToRemove.size()
-                         + "), due to transaction roll back. Operation will be attempted again", txRollback);
-                deleteMessagesFromStore(numberOfRetriesBefore + 1);
-            } else {
-                throw new AndesException("Unable to delete acked messages, in final attempt " + numberOfRetriesBefore
-                                         + ". This might lead to message duplication.");
-            }
-        } catch (AndesException ex) {
-            log.warn(String.format(
-                    "unable to delete messages, probably due to errors in message stores.messages count : %d, "
-                    + "operation will be attempted again",
-                    messagesToRemove.size()));
-            throw ex;
         }
     }
-
-    /**
-     * {@inheritDoc}
-     * <p>
-     * Creates a {@link SettableFuture} indicating message store became offline.
-     */
-    @Override
-    public void storeNonOperational(HealthAwareStore store, Exception ex) {
-        log.info(String.format("Message store became not operational. messages to delete : %d",
-                messagesToRemove.size()));
-        messageStoresUnavailable = true;
-    }
-
-    /**
-     * {@inheritDoc}
-     * <p>
-     * Sets a value for {@link SettableFuture} indicating message store became
-     * online.
-     */
-    @Override
-    public void storeOperational(HealthAwareStore store) {
-        log.info(String.format("Message store became operational. messages to delete : %d",
-                messagesToRemove.size()));
-        messageStoresUnavailable = false;
-    }
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.store.AndesTransactionRollbackException;
+import org.wso2.andes.store.FailureObservingStoreManager;
+import org.wso2.andes.store.HealthAwareStore;
+import org.wso2.andes.store.StoreHealthListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes acknowledged messages from the message store on its own thread, so that {@link AckHandler}s do not wait
+ * on the store. Messages acknowledged across several acknowledgement batches are deleted together, once
+ * {@link AndesConfiguration#PERFORMANCE_TUNING_ACK_HANDLING_DELETE_BATCH_SIZE} messages are collected or the first
+ * of them waited for {@link AndesConfiguration#PERFORMANCE_TUNING_ACK_HANDLING_MAX_DELETE_DELAY}.
+ * <p>
+ * Acknowledged messages waiting to be deleted are bounded. Ack handlers wait when the store falls behind by more
+ * than {@link #PENDING_BATCH_COUNT} batches.
+ */
+class AckedMessageDeleter implements StoreHealthListener {
+
+    private static Log log = LogFactory.getLog(AckedMessageDeleter.class);
+
+    /**
+     * Maximum number to retries to delete messages from message store
+     */
+    private static final int MAX_MESSAGE_DELETION_COUNT = 5;
+
+    /**
+     * Number of delete batches that can wait to be deleted
+     */
+    private static final int PENDING_BATCH_COUNT = 10;
+
+    /**
+     * Time to wait before deleting again after a failure, in milliseconds
+     */
+    private static final long RETRY_INTERVAL = 1000;
+
+    private final MessagingEngine messagingEngine;
+
+    private final int maxBatchSize;
+
+    /**
+     * Maximum time in nanoseconds the first message of a batch waits for the rest
+     */
+    private final long maxBatchDelay;
+
+    /**
+     * Acknowledged messages waiting to be deleted
+     */
+    private final LinkedBlockingQueue<DeliverableAndesMetadata> pendingMessages;
+
+    private final ExecutorService deletionExecutor;
+
+    private volatile boolean running;
+
+    /**
+     * Indicates if messages stores become offline. Messages are kept until the stores become operational.
+     */
+    private volatile boolean messageStoresUnavailable;
+
+    AckedMessageDeleter(MessagingEngine messagingEngine) {
+        this(messagingEngine,
+                (Integer) AndesConfigurationManager
+                        .readValue(AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLING_DELETE_BATCH_SIZE),
+                (Integer) AndesConfigurationManager
+                        .readValue(AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLING_MAX_DELETE_DELAY));
+    }
+
+    /**
+     * Create a deleter with the given batch limits
+     *
+     * @param messagingEngine messaging engine used to delete messages
+     * @param maxBatchSize    maximum number of messages deleted together
+     * @param maxDelay        maximum time in milliseconds the first message of a batch waits for the rest
+     */
+    AckedMessageDeleter(MessagingEngine messagingEngine, int maxBatchSize, int maxDelay) {
+        this.messagingEngine = messagingEngine;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+        this.pendingMessages = new LinkedBlockingQueue<>(maxBatchSize * PENDING_BATCH_COUNT);
+        this.messageStoresUnavailable = false;
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("AckedMessageDeleter").build();
+        deletionExecutor = Executors.newSingleThreadExecutor(namedThreadFactory);
+        FailureObservingStoreManager.registerStoreHealthListener(this);
+    }
+
+    /**
+     * Start deleting acknowledged messages
+     */
+    void start() {
+        running = true;
+        deletionExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                deleteMessages();
+            }
+        });
+    }
+
+    /**
+     * Stop after deleting the messages already acknowledged
+     */
+    void stop() {
+        running = false;
+        deletionExecutor.shutdown();
+        try {
+            if (!deletionExecutor.awaitTermination(RETRY_INTERVAL * MAX_MESSAGE_DELETION_COUNT,
+                    TimeUnit.MILLISECONDS)) {
+                log.warn("Acknowledged messages were not deleted before shutdown. Messages count : "
+                        + pendingMessages.size());
+                deletionExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            deletionExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue acknowledged messages to be deleted. Waits if too many messages are waiting to be deleted.
+     *
+     * @param messages messages that are acknowledged by all their receivers
+     * @throws AndesException if interrupted while waiting
+     */
+    void delete(List<DeliverableAndesMetadata> messages) throws AndesException {
+        try {
+            for (DeliverableAndesMetadata message : messages) {
+                pendingMessages.put(message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AndesException("Interrupted while queueing acknowledged messages for deletion", e);
+        }
+    }
+
+    private void deleteMessages() {
+        List<DeliverableAndesMetadata> batch = new ArrayList<>(maxBatchSize);
+        while (running || !pendingMessages.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    collectBatch(batch);
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+
+                if (messageStoresUnavailable) {
+                    // Messages are kept until the stores are back
+                    TimeUnit.MILLISECONDS.sleep(RETRY_INTERVAL);
+                    continue;
+                }
+
+                deleteMessagesFromStore(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (AndesException e) {
+                log.warn(String.format("unable to delete messages, probably due to errors in message stores. "
+                        + "messages count : %d, operation will be attempted again", batch.size()), e);
+                waitBeforeRetry();
+            } catch (Throwable e) {
+                // This is to avoid the deleter from stopping
+                log.error("Error occurred while deleting acknowledged messages. messages count : " + batch.size(), e);
+                waitBeforeRetry();
+            }
+        }
+    }
+
+    /**
+     * Wait for the first acknowledged message, then collect more until the batch is full or the first message
+     * waited for the maximum delay.
+     *
+     * @param batch list to collect messages into
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void collectBatch(List<DeliverableAndesMetadata> batch) throws InterruptedException {
+        DeliverableAndesMetadata message = pendingMessages.poll(maxBatchDelay, TimeUnit.NANOSECONDS);
+        if (null == message) {
+            return;
+        }
+        batch.add(message);
+
+        long deadline = System.nanoTime() + maxBatchDelay;
+        while (batch.size() < maxBatchSize) {
+            pendingMessages.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0 || !running) {
+                break;
+            }
+            message = pendingMessages.poll(remaining, TimeUnit.NANOSECONDS);
+            if (null == message) {
+                break;
+            }
+            batch.add(message);
+        }
+    }
+
+    /**
+     * Delete acknowledged messages from message store. Deletion is retried if it failed due to a
+     * AndesTransactionRollbackException.
+     *
+     * @param messagesToRemove messages to delete
+     * @throws AndesException if messages could not be deleted
+     */
+    private void deleteMessagesFromStore(List<DeliverableAndesMetadata> messagesToRemove) throws AndesException {
+        for (int numberOfRetriesBefore = 0; ; numberOfRetriesBefore++) {
+            try {
+                removeMessages(messagesToRemove);
+
+                if (log.isTraceEnabled()) {
+                    StringBuilder messageIDsString = new StringBuilder();
+                    for (DeliverableAndesMetadata metadata : messagesToRemove) {
+                        messageIDsString.append(metadata.getMessageID()).append(" , ");
+                    }
+                    log.trace(messagesToRemove.size() + " message ok to remove : " + messageIDsString);
+                }
+                return;
+            } catch (AndesTransactionRollbackException txRollback) {
+                if (numberOfRetriesBefore >= MAX_MESSAGE_DELETION_COUNT) {
+                    throw new AndesException("Unable to delete acked messages, in final attempt "
+                            + numberOfRetriesBefore + ". This might lead to message duplication.", txRollback);
+                }
+                log.warn("unable to delete messages (" + messagesToRemove.size()
+                        + "), due to transaction roll back. Operation will be attempted again", txRollback);
+            }
+        }
+    }
+
+    /**
+     * Delete messages from the message store through the messaging engine
+     *
+     * @param messagesToRemove messages to delete
+     * @throws AndesException if messages could not be deleted
+     */
+    void removeMessages(List<DeliverableAndesMetadata> messagesToRemove) throws AndesException {
+        messagingEngine.deleteMessages(messagesToRemove);
+    }
+
+    private void waitBeforeRetry() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(RETRY_INTERVAL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Deletion is paused until the message store becomes operational.
+     */
+    @Override
+    public void storeNonOperational(HealthAwareStore store, Exception ex) {
+        log.info(String.format("Message store became not operational. messages to delete : %d",
+                pendingMessages.size()));
+        messageStoresUnavailable = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Deletion is resumed.
+     */
+    @Override
+    public void storeOperational(HealthAwareStore store) {
+        log.info(String.format("Message store became operational. messages to delete : %d",
+                pendingMessages.size()));
+        messageStoresUnavailable = false;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.disruptor.compression.LZ4CompressionHelper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compress the content of the message when compression reduces the content size. The compression ratio is sampled
+ * per destination. Destinations receiving content which does not compress, such as content already compressed by
+ * the publisher, skip compression apart from a periodic sample.
+ * <p>
+ * A single instance is shared by all {@link ContentChunkHandler}s so that samples of a destination are combined.
+ */
+public class AdaptiveContentCompressionStrategy implements ContentCompressionStrategy {
+
+    private static Log log = LogFactory.getLog(AdaptiveContentCompressionStrategy.class);
+
+    /**
+     * Weight of the latest sample in the compression ratio of a destination
+     */
+    private static final double SAMPLE_WEIGHT = 0.2;
+
+    /**
+     * Time after which compression statistics of an idle destination are discarded, in minutes
+     */
+    private static final int IDLE_DESTINATION_EXPIRY_TIME = 10;
+
+    /**
+     * Used to get configuration values related to compression and used to compress message content
+     */
+    private final LZ4CompressionHelper lz4CompressionHelper;
+
+    /**
+     * Maximum size of compressed content as a ratio of the original size
+     */
+    private final double maxCompressedSizeRatio;
+
+    /**
+     * Number of messages of an incompressible destination per compression sample
+     */
+    private final int sampleInterval;
+
+    /**
+     * Compression statistics keyed by destination
+     */
+    private final LoadingCache<String, CompressionStatistics> destinationStatistics;
+
+    public AdaptiveContentCompressionStrategy(LZ4CompressionHelper lz4CompressionHelper) {
+        this.lz4CompressionHelper = lz4CompressionHelper;
+
+        int maxCompressedSizePercentage = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_ADAPTIVE_COMPRESSION_MAX_COMPRESSED_SIZE_PERCENTAGE);
+        this.maxCompressedSizeRatio = maxCompressedSizePercentage / 100.0;
+        this.sampleInterval = AndesConfigurationManager.readValue(
+                AndesConfiguration.PERFORMANCE_TUNING_ADAPTIVE_COMPRESSION_SAMPLE_INTERVAL);
+
+        destinationStatistics = CacheBuilder.newBuilder()
+                .expireAfterAccess(IDLE_DESTINATION_EXPIRY_TIME, TimeUnit.MINUTES)
+                .build(new CacheLoader<String, CompressionStatistics>() {
+                    @Override
+                    public CompressionStatistics load(String destination) {
+                        return new CompressionStatistics();
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ContentPartHolder ContentChunkStrategy(AndesMessage message) {
+        List<AndesMessagePart> partList = message.getContentChunkList();
+        AndesMessageMetadata metadata = message.getMetadata();
+        int originalContentLength = metadata.getMessageContentLength();
+
+        if (originalContentLength <= lz4CompressionHelper.getContentCompressionThreshold()) {
+            return new ContentPartHolder(partList, originalContentLength);
+        }
+
+        CompressionStatistics statistics = destinationStatistics.getUnchecked(metadata.getDestination());
+        if (!statistics.shouldCompress()) {
+            return new ContentPartHolder(partList, originalContentLength);
+        }
+
+        AndesMessagePart compressedMessagePart =
+                lz4CompressionHelper.getCompressedMessage(partList, originalContentLength);
+        int compressedContentLength = compressedMessagePart.getDataLength();
+        double compressedSizeRatio = compressedContentLength / (double) originalContentLength;
+
+        statistics.addSample(compressedSizeRatio);
+
+        if (compressedSizeRatio > maxCompressedSizeRatio) {
+            if (log.isDebugEnabled()) {
+                log.debug("Content of message " + metadata.getMessageID() + " is stored uncompressed. Compressed "
+                        + "size " + compressedContentLength + " of " + originalContentLength + " bytes");
+            }
+            return new ContentPartHolder(partList, originalContentLength);
+        }
+
+        // Update metadata to indicate the message is a compressed one
+        metadata.updateMetadata(true);
+        message.setMetadata(metadata);
+
+        partList.clear();
+        partList.add(compressedMessagePart);
+
+        return new ContentPartHolder(partList, compressedContentLength);
+    }
+
+    /**
+     * Compression ratio sampled for a destination. Updates from parallel content chunk handlers are not
+     * synchronised since an occasional lost sample does not change the decision.
+     */
+    private class CompressionStatistics {
+
+        /**
+         * Weighted average of compressed size as a ratio of the original size
+         */
+        private volatile double compressedSizeRatio = 0;
+
+        /**
+         * Messages not compressed since the last sample
+         */
+        private final AtomicLong skippedMessageCount = new AtomicLong();
+
+        /**
+         * Check whether the content of the next message should be compressed
+         *
+         * @return true if the destination content is compressible or the message is a sample
+         */
+        boolean shouldCompress() {
+            if (compressedSizeRatio <= maxCompressedSizeRatio) {
+                return true;
+            }
+            if (skippedMessageCount.incrementAndGet() >= sampleInterval) {
+                skippedMessageCount.set(0);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Add the compression ratio of a message
+         *
+         * @param sampleRatio compressed size as a ratio of the original size
+         */
+        void addSample(double sampleRatio) {
+            double previousRatio = compressedSizeRatio;
+            if (0 == previousRatio) {
+                compressedSizeRatio = sampleRatio;
+            } else {
+                compressedSizeRatio = (1 - SAMPLE_WEIGHT) * previousRatio + SAMPLE_WEIGHT * sampleRatio;
+            }
+        }
+    }
+}
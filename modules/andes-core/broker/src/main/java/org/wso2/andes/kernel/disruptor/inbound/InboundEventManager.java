@@ -19,21 +19,23 @@
 package org.wso2.andes.kernel.disruptor.inbound;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.util.DisruptorWaitStrategy;
 import org.wso2.andes.kernel.AndesAckData;
 import org.wso2.andes.kernel.AndesChannel;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.DisablePubAckImpl;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.disruptor.ConcurrentBatchEventHandler;
+import org.wso2.andes.kernel.disruptor.HandlerLagGauge;
 import org.wso2.andes.kernel.disruptor.LogExceptionHandler;
 import org.wso2.andes.kernel.disruptor.compression.LZ4CompressionHelper;
+import org.wso2.andes.kernel.disruptor.waitStrategy.WaitStrategyFactory;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.tools.utils.MessageTracer;
@@ -47,6 +49,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.wso2.andes.configuration.enums.AndesConfiguration.MAX_TRANSACTION_BATCH_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ADAPTIVE_COMPRESSION_ENABLED;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACKNOWLEDGEMENT_HANDLER_BATCH_SIZE;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLER_COUNT;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_CONTENT_CHUNK_HANDLER_COUNT;
@@ -55,6 +58,7 @@ import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_MESSAGE_WRITERS;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_TRANSACTION_MESSAGE_WRITERS;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PUBLISHING_BUFFER_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PUBLISHING_WAIT_STRATEGY;
 import static org.wso2.andes.kernel.disruptor.inbound.InboundEventContainer.Type.ACKNOWLEDGEMENT_EVENT;
 import static org.wso2.andes.kernel.disruptor.inbound.InboundEventContainer.Type.MESSAGE_EVENT;
 import static org.wso2.andes.kernel.disruptor.inbound.InboundEventContainer.Type.PUBLISHER_RECOVERY_EVENT;
@@ -79,6 +83,11 @@ public class InboundEventManager {
     private final DisablePubAckImpl disablePubAck;
     private LZ4CompressionHelper lz4CompressionHelper;
 
+    /**
+     * Deletes messages acknowledged through ack handlers
+     */
+    private final AckedMessageDeleter ackedMessageDeleter;
+
     public InboundEventManager(AndesSubscriptionManager subscriptionManager,
                                MessagingEngine messagingEngine) {
 
@@ -102,6 +111,8 @@ public class InboundEventManager {
                 PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
         int contentChunkHandlerCount = AndesConfigurationManager.readValue(
                 PERFORMANCE_TUNING_CONTENT_CHUNK_HANDLER_COUNT);
+        DisruptorWaitStrategy waitStrategy = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_PUBLISHING_WAIT_STRATEGY);
 
         ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
                 .setNameFormat("DisruptorInboundEventThread-%d").build();
@@ -112,7 +123,7 @@ public class InboundEventManager {
                 bufferSize,
                 executorPool,
                 ProducerType.MULTI,
-                new BlockingWaitStrategy());
+                WaitStrategyFactory.createWaitStrategy(waitStrategy));
 
         disruptor.handleExceptionsWith(new LogExceptionHandler());
 
@@ -121,9 +132,19 @@ public class InboundEventManager {
 
         lz4CompressionHelper = new LZ4CompressionHelper();
 
+        Boolean adaptiveCompressionEnabled = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_ADAPTIVE_COMPRESSION_ENABLED);
+        // Shared by chunk handlers to combine compression samples of a destination
+        AdaptiveContentCompressionStrategy adaptiveCompressionStrategy = null;
+        if (lz4CompressionHelper.isCompressionEnabled() && adaptiveCompressionEnabled) {
+            adaptiveCompressionStrategy = new AdaptiveContentCompressionStrategy(lz4CompressionHelper);
+        }
+
         ContentChunkHandler[] chunkHandlers = new ContentChunkHandler[contentChunkHandlerCount];
         for (int i = 0; i < contentChunkHandlerCount; i++) {
-            if(lz4CompressionHelper.isCompressionEnabled()) {
+            if (null != adaptiveCompressionStrategy) {
+                chunkHandlers[i] = new ContentChunkHandler(maxContentChunkSize, adaptiveCompressionStrategy);
+            } else if(lz4CompressionHelper.isCompressionEnabled()) {
                 chunkHandlers[i] = new ContentChunkHandler(maxContentChunkSize,
                             new LZ4ContentCompressionStrategy(lz4CompressionHelper));
             } else {
@@ -146,12 +167,14 @@ public class InboundEventManager {
                             new MessageWriter(messagingEngine, transactionBatchSize));
         }
 
+        ackedMessageDeleter = new AckedMessageDeleter(messagingEngine);
+        ackedMessageDeleter.start();
         for (int turn = 0; turn < ackHandlerCount; turn++) {
             concurrentBatchEventHandlers[writeHandlerCount + transactionHandlerCount + turn] =
                     new ConcurrentBatchEventHandler(turn, ackHandlerCount,
                             ackHandlerBatchSize,
                             ACKNOWLEDGEMENT_EVENT,
-                            new AckHandler(messagingEngine));
+                            new AckHandler(ackedMessageDeleter));
         }
 
         MessagePreProcessor preProcessor = new MessagePreProcessor();
@@ -174,6 +197,36 @@ public class InboundEventManager {
         //Will add the gauge to metrics manager
         MetricManager.gauge(MetricsConstants.DISRUPTOR_INBOUND_RING, Level.INFO, new InBoundRingGauge());
         MetricManager.gauge(MetricsConstants.DISRUPTOR_MESSAGE_ACK, Level.INFO, new AckedMessageCountGauge());
+        registerHandlerLagGauges(chunkHandlers, preProcessor, concurrentBatchEventHandlers, stateEventHandler,
+                writeHandlerCount, transactionHandlerCount);
+    }
+
+    /**
+     * Register a lag gauge per handler of the inbound disruptor
+     */
+    private void registerHandlerLagGauges(ContentChunkHandler[] chunkHandlers, MessagePreProcessor preProcessor,
+                                          ConcurrentBatchEventHandler[] concurrentBatchEventHandlers,
+                                          StateEventHandler stateEventHandler, int writeHandlerCount,
+                                          int transactionHandlerCount) {
+        String metricName = MetricsConstants.DISRUPTOR_INBOUND_HANDLER_LAG;
+
+        for (int i = 0; i < chunkHandlers.length; i++) {
+            HandlerLagGauge.register(metricName, "ContentChunkHandler-" + i, disruptor, chunkHandlers[i]);
+        }
+        HandlerLagGauge.register(metricName, "MessagePreProcessor", disruptor, preProcessor);
+
+        for (int i = 0; i < concurrentBatchEventHandlers.length; i++) {
+            String handlerName;
+            if (i < writeHandlerCount) {
+                handlerName = "MessageWriter-" + i;
+            } else if (i < writeHandlerCount + transactionHandlerCount) {
+                handlerName = "TransactionMessageWriter-" + (i - writeHandlerCount);
+            } else {
+                handlerName = "AckHandler-" + (i - writeHandlerCount - transactionHandlerCount);
+            }
+            HandlerLagGauge.register(metricName, handlerName, disruptor, concurrentBatchEventHandlers[i]);
+        }
+        HandlerLagGauge.register(metricName, "StateEventHandler", disruptor, stateEventHandler);
     }
 
     /**
@@ -376,10 +429,22 @@ public class InboundEventManager {
     }
 
     /**
-     * Stop disruptor. This wait until disruptor process pending events in ring buffer.
+     * Check if the ring buffer has spare capacity, so that events can be published without waiting for free slots.
+     * Transports processing frames on a network event loop use this to decide if publishing can be done inline.
+     *
+     * @return true if at least a quarter of the ring buffer is free
+     */
+    public boolean hasSpareCapacity() {
+        return ringBuffer.remainingCapacity() > ringBuffer.getBufferSize() / 4;
+    }
+
+    /**
+     * Stop disruptor. This wait until disruptor process pending events in ring buffer and acknowledged messages are
+     * deleted.
      */
     public void stop() {
         disruptor.shutdown();
+        ackedMessageDeleter.stop();
     }
 
     /**
@@ -157,6 +157,13 @@ public class MessagePreProcessor implements EventHandler<InboundEventContainer>
 
         boolean originalMessageConsumed = false;
 
+        // Only topic messages share content, so that the store can tell the messages which may refer to shared
+        // content from the metadata
+        if (message.getMetadata().isTopic() && matchingQueues.size() > 1
+                && !message.getContentChunkList().isEmpty()) {
+            shareContent(message);
+        }
+
         for (StorageQueue matchingQueue : matchingQueues) {
 
             if (!originalMessageConsumed) {
@@ -223,7 +230,23 @@ public class MessagePreProcessor implements EventHandler<InboundEventContainer>
     }
 
     /**
-     * Create a clone of the message
+     * Store content of the message under a content ID of its own so that the content can be stored once and
+     * shared by all the copies of the message routed to different storage queues.
+     *
+     * @param message topic message which is routed to more than one storage queue
+     */
+    private void shareContent(AndesMessage message) {
+        long contentID = idGenerator.getNextId();
+        message.getMetadata().setContentID(contentID);
+
+        for (AndesMessagePart messagePart : message.getContentChunkList()) {
+            messagePart.setMessageID(contentID);
+        }
+    }
+
+    /**
+     * Create a clone of the message. If the content of the message is shared the clone refers to the same
+     * content, otherwise content is duplicated.
      *
      * @param message message to be cloned
      * @return Cloned reference of AndesMessage
@@ -233,10 +256,15 @@ public class MessagePreProcessor implements EventHandler<InboundEventContainer>
         AndesMessageMetadata clonedMetadata = message.getMetadata().shallowCopy(newMessageId);
         AndesMessage clonedMessage = new AndesMessage(clonedMetadata);
 
-        //Duplicate message content
-        List<AndesMessagePart> messageParts = message.getContentChunkList();
-        for (AndesMessagePart messagePart : messageParts) {
-            clonedMessage.addMessagePart(messagePart.shallowCopy(newMessageId));
+        if (message.getMetadata().isContentShared()) {
+            clonedMetadata.setContentID(message.getMetadata().getContentID());
+            clonedMessage.setChunkList(message.getContentChunkList());
+        } else {
+            //Duplicate message content
+            List<AndesMessagePart> messageParts = message.getContentChunkList();
+            for (AndesMessagePart messagePart : messageParts) {
+                clonedMessage.addMessagePart(messagePart.shallowCopy(newMessageId));
+            }
         }
 
         return clonedMessage;
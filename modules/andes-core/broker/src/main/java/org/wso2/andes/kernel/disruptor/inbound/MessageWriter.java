@@ -26,6 +26,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.disruptor.BatchEventHandler;
+import org.wso2.andes.metrics.MessageLatencyRecorder;
 import org.wso2.andes.store.AndesBatchUpdateException;
 import org.wso2.andes.store.AndesStoreUnavailableException;
 import org.wso2.andes.store.AndesTransactionRollbackException;
@@ -138,6 +139,12 @@ public class MessageWriter implements BatchEventHandler, StoreHealthListener {
                     }
                 }
 
+                if (MessageLatencyRecorder.isEnabled()) {
+                    for (AndesMessage message : currentMessageList) {
+                        MessageLatencyRecorder.record(MessageLatencyRecorder.Stage.STORED, message.getMetadata());
+                    }
+                }
+
                 if (log.isTraceEnabled()) {
                     StringBuilder messageIDsString = new StringBuilder();
                     for (AndesMessage message : currentMessageList) {
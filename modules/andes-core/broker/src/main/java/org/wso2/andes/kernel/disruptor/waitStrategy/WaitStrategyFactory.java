@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.waitStrategy;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import org.wso2.andes.configuration.util.DisruptorWaitStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates disruptor wait strategies for the configured {@link DisruptorWaitStrategy}
+ */
+public class WaitStrategyFactory {
+
+    /**
+     * Time a phased backoff handler spins before it starts yielding, in microseconds
+     */
+    private static final long PHASED_BACKOFF_SPIN_TIMEOUT = 100;
+
+    /**
+     * Time a phased backoff handler yields before it blocks, in microseconds
+     */
+    private static final long PHASED_BACKOFF_YIELD_TIMEOUT = 1000;
+
+    private WaitStrategyFactory() {
+    }
+
+    /**
+     * Create a wait strategy. A new instance is needed for each disruptor.
+     *
+     * @param waitStrategy configured wait strategy
+     * @return wait strategy for a disruptor
+     */
+    public static WaitStrategy createWaitStrategy(DisruptorWaitStrategy waitStrategy) {
+        switch (waitStrategy) {
+            case SLEEPING_BLOCKING:
+                return new SleepingBlockingWaitStrategy();
+            case SLEEPING:
+                return new SleepingWaitStrategy();
+            case YIELDING:
+                return new YieldingWaitStrategy();
+            case BUSY_SPIN:
+                return new BusySpinWaitStrategy();
+            case PHASED_BACKOFF:
+                return PhasedBackoffWaitStrategy.withLock(PHASED_BACKOFF_SPIN_TIMEOUT, PHASED_BACKOFF_YIELD_TIMEOUT,
+                        TimeUnit.MICROSECONDS);
+            case BLOCKING:
+            default:
+                return new BlockingWaitStrategy();
+        }
+    }
+}
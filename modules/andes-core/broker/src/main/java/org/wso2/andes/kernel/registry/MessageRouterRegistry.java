@@ -17,6 +17,7 @@ package org.wso2.andes.kernel.registry;
 
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.router.RoutingResultCache;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,6 +37,7 @@ public class MessageRouterRegistry {
      */
     public MessageRouterRegistry() {
         messageRouterMap = new HashMap<>();
+        RoutingResultCache.registerMetrics();
     }
 
     /**
@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel.router;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable hash array mapped trie. Each level of the trie consumes five bits of the key hash and only keeps slots
+ * for the bits in use, so {@link #put(Object, Object)} and {@link #remove(Object)} copy a handful of small arrays on
+ * the path to the key and share everything else with the previous map.
+ * <p/>
+ * Used by {@link TopicRoutingMatcher} to keep the children and the bound queues of trie nodes, so that a binding
+ * change costs the depth of the hash trie instead of the number of siblings or queues bound to the same key.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+final class HashTrieMap<K, V> {
+
+    private static final int BITS_PER_LEVEL = 5;
+
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    /**
+     * Maximum number of nodes from the root to a key
+     */
+    private static final int MAX_DEPTH = 8;
+
+    @SuppressWarnings("rawtypes")
+    private static final HashTrieMap EMPTY = new HashTrieMap(null, 0);
+
+    private final Node root;
+
+    private final int size;
+
+    /**
+     * Read only view of the keys. Created once per map since maps are never modified.
+     */
+    private final Set<K> keySet = new KeySet();
+
+    private HashTrieMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> HashTrieMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return 0 == size;
+    }
+
+    /**
+     * Get the value mapped to a key
+     *
+     * @param key key to look up
+     * @return mapped value or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        if (null == root) {
+            return null;
+        }
+        return (V) root.find(0, hash(key.hashCode()), key, 0, -1);
+    }
+
+    /**
+     * Get the value mapped to the string key equal to a region of the given string. Lets the matcher look up
+     * constituents of a routing key without creating substrings.
+     *
+     * @param key   string holding the key
+     * @param start index of the first character of the key
+     * @param end   index after the last character of the key
+     * @return mapped value or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    V get(String key, int start, int end) {
+        if (null == root) {
+            return null;
+        }
+        return (V) root.find(0, regionHash(key, start, end), key, start, end);
+    }
+
+    boolean containsKey(Object key) {
+        return null != get(key);
+    }
+
+    /**
+     * Map a key to a value. If an equal key is present both the key and the value are replaced.
+     *
+     * @param key   key to add, must not be null
+     * @param value value to map, must not be null
+     * @return new map with the mapping
+     */
+    HashTrieMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node newRoot = (null == root ? BitmapNode.EMPTY : root).put(0, hash(key.hashCode()), key, value, added);
+        return new HashTrieMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Remove the mapping of a key
+     *
+     * @param key key to remove
+     * @return new map without the key, or this map if the key is not present
+     */
+    HashTrieMap<K, V> remove(Object key) {
+        if (null == root) {
+            return this;
+        }
+        Node newRoot = root.remove(0, hash(key.hashCode()), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return (null == newRoot) ? HashTrieMap.<K, V>empty() : new HashTrieMap<K, V>(newRoot, size - 1);
+    }
+
+    /**
+     * Get a read only view of the keys of this map
+     *
+     * @return set of keys
+     */
+    Set<K> keySet() {
+        return keySet;
+    }
+
+    /**
+     * Same as {@link String#hashCode()} for the given region, spread to use the higher bits as well
+     */
+    private static int regionHash(String key, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        return hash(hash);
+    }
+
+    private static int hash(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    /**
+     * Compare a stored key with the key being looked up. A negative end means the whole lookup key is compared,
+     * otherwise the stored key is compared with the given region of the lookup string.
+     */
+    private static boolean matches(Object storedKey, Object key, int start, int end) {
+        if (end < 0) {
+            return storedKey.equals(key);
+        }
+        if (!(storedKey instanceof String)) {
+            return false;
+        }
+        String storedString = (String) storedKey;
+        int length = end - start;
+        return storedString.length() == length && storedString.regionMatches(0, (String) key, start, length);
+    }
+
+    /**
+     * Node of the hash trie. Entries are kept as key and value pairs in a flat array. A null key marks a slot whose
+     * value is a child node.
+     */
+    private abstract static class Node {
+
+        abstract Object find(int shift, int hash, Object key, int start, int end);
+
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return node without the key, the same node if the key is not present or null if the node becomes empty
+         */
+        abstract Node remove(int shift, int hash, Object key);
+
+        abstract Object[] entries();
+    }
+
+    /**
+     * Node keeping a slot for each five bit hash fragment in use at its level
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private final Object[] entries;
+
+        BitmapNode(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, int start, int end) {
+            int bit = bit(hash, shift);
+            if (0 == (bitmap & bit)) {
+                return null;
+            }
+            int index = index(bit);
+            Object storedKey = entries[index];
+            Object value = entries[index + 1];
+            if (null == storedKey) {
+                return ((Node) value).find(shift + BITS_PER_LEVEL, hash, key, start, end);
+            }
+            return matches(storedKey, key, start, end) ? value : null;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+
+            if (0 == (bitmap & bit)) {
+                added[0] = true;
+                Object[] newEntries = new Object[entries.length + 2];
+                System.arraycopy(entries, 0, newEntries, 0, index);
+                newEntries[index] = key;
+                newEntries[index + 1] = value;
+                System.arraycopy(entries, index, newEntries, index + 2, entries.length - index);
+                return new BitmapNode(bitmap | bit, newEntries);
+            }
+
+            Object storedKey = entries[index];
+            Object storedValue = entries[index + 1];
+            if (null == storedKey) {
+                Node child = (Node) storedValue;
+                return withEntry(index, null, child.put(shift + BITS_PER_LEVEL, hash, key, value, added));
+            }
+            if (storedKey.equals(key)) {
+                return withEntry(index, key, value);
+            }
+
+            added[0] = true;
+            return withEntry(index, null, createNode(shift + BITS_PER_LEVEL, storedKey, storedValue, hash, key,
+                    value));
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if (0 == (bitmap & bit)) {
+                return this;
+            }
+            int index = index(bit);
+            Object storedKey = entries[index];
+            if (null == storedKey) {
+                Node child = (Node) entries[index + 1];
+                Node newChild = child.remove(shift + BITS_PER_LEVEL, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                if (null != newChild) {
+                    return withEntry(index, null, newChild);
+                }
+            } else if (!storedKey.equals(key)) {
+                return this;
+            }
+
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newEntries = new Object[entries.length - 2];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 2, newEntries, index, entries.length - index - 2);
+            return new BitmapNode(bitmap ^ bit, newEntries);
+        }
+
+        @Override
+        Object[] entries() {
+            return entries;
+        }
+
+        private BitmapNode withEntry(int index, Object key, Object value) {
+            Object[] newEntries = entries.clone();
+            newEntries[index] = key;
+            newEntries[index + 1] = value;
+            return new BitmapNode(bitmap, newEntries);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1)) * 2;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & LEVEL_MASK);
+        }
+
+        /**
+         * Create a node holding two keys which fall into the same slot of the parent. Keys with different hashes
+         * are always split by the last level, since the levels together cover all 32 bits of the hash.
+         */
+        private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2,
+                                       Object value2) {
+            int hash1 = hash(key1.hashCode());
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * Node keeping keys that have the same hash
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private final Object[] entries;
+
+        CollisionNode(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, int start, int end) {
+            if (hash != this.hash) {
+                return null;
+            }
+            for (int i = 0; i < entries.length; i += 2) {
+                if (matches(entries[i], key, start, end)) {
+                    return entries[i + 1];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Push this node one level down so that the new key can take its own slot
+                Node parent = new BitmapNode(BitmapNode.bit(this.hash, shift), new Object[]{null, this});
+                return parent.put(shift, hash, key, value, added);
+            }
+            int index = indexOf(key);
+            Object[] newEntries;
+            if (index < 0) {
+                added[0] = true;
+                newEntries = new Object[entries.length + 2];
+                System.arraycopy(entries, 0, newEntries, 0, entries.length);
+                index = entries.length;
+            } else {
+                newEntries = entries.clone();
+            }
+            newEntries[index] = key;
+            newEntries[index + 1] = value;
+            return new CollisionNode(hash, newEntries);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int index = (hash == this.hash) ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (2 == entries.length) {
+                return null;
+            }
+            Object[] newEntries = new Object[entries.length - 2];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 2, newEntries, index, entries.length - index - 2);
+            return new CollisionNode(hash, newEntries);
+        }
+
+        @Override
+        Object[] entries() {
+            return entries;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Read only set of the keys of the enclosing map
+     */
+    private final class KeySet extends AbstractSet<K> {
+
+        @Override
+        public Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return null != key && containsKey(key);
+        }
+    }
+
+    /**
+     * Depth first iterator over the keys of the enclosing map
+     */
+    private final class KeyIterator implements Iterator<K> {
+
+        /**
+         * Entry arrays of the nodes being walked. Seven bitmap levels cover the 32 bits of the hash and a collision
+         * node may hang off the last one.
+         */
+        private final Object[][] nodeStack = new Object[MAX_DEPTH][];
+
+        /**
+         * Index of the next entry of each node being walked
+         */
+        private final int[] indexStack = new int[MAX_DEPTH];
+
+        private int depth = -1;
+
+        private K nextKey;
+
+        KeyIterator() {
+            if (null != root) {
+                depth = 0;
+                nodeStack[0] = root.entries();
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != nextKey;
+        }
+
+        @Override
+        public K next() {
+            if (null == nextKey) {
+                throw new NoSuchElementException();
+            }
+            K key = nextKey;
+            advance();
+            return key;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Keys of an immutable map cannot be removed");
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            nextKey = null;
+            while (depth >= 0) {
+                Object[] entries = nodeStack[depth];
+                int index = indexStack[depth];
+                if (index >= entries.length) {
+                    nodeStack[depth] = null;
+                    depth--;
+                    continue;
+                }
+                indexStack[depth] = index + 2;
+                Object key = entries[index];
+                if (null == key) {
+                    depth++;
+                    nodeStack[depth] = ((Node) entries[index + 1]).entries();
+                    indexStack[depth] = 0;
+                } else {
+                    nextKey = (K) key;
+                    return;
+                }
+            }
+        }
+    }
+}
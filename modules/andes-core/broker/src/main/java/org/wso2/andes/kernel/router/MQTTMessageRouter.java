@@ -22,7 +22,7 @@ import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.ProtocolType;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -38,6 +38,11 @@ public class MQTTMessageRouter extends AndesMessageRouter {
      */
     private TopicRoutingMatcher topicMatcher;
 
+    /**
+     * Cache of matched storage queues for recently routed routing keys
+     */
+    private RoutingResultCache routingCache;
+
     /**
      * Create a MQTTMessageRouter. This has specific message routing for
      * MQTT messages, matching of topic subscriptions based on wildcards.
@@ -49,6 +54,7 @@ public class MQTTMessageRouter extends AndesMessageRouter {
     public MQTTMessageRouter(String name, String type, boolean autoDelete) {
         super(name, type, autoDelete);
         this.topicMatcher = new TopicRoutingMatcher(ProtocolType.MQTT);
+        this.routingCache = new RoutingResultCache(topicMatcher);
     }
 
     /**
@@ -59,6 +65,7 @@ public class MQTTMessageRouter extends AndesMessageRouter {
     public MQTTMessageRouter(String encodedRouterInfo) {
         super(encodedRouterInfo);
         this.topicMatcher = new TopicRoutingMatcher(ProtocolType.MQTT);
+        this.routingCache = new RoutingResultCache(topicMatcher);
     }
 
     /**
@@ -97,19 +104,25 @@ public class MQTTMessageRouter extends AndesMessageRouter {
     public Set<StorageQueue> getMatchingStorageQueues(AndesMessage incomingMessage) {
         String messageRoutingKey = incomingMessage.getMetadata().getDestination();
         int qosLevel = incomingMessage.getMetadata().getQosLevel();
-        Set<StorageQueue> matchingQueues = topicMatcher.getMatchingStorageQueues(messageRoutingKey);
+        Set<StorageQueue> matchingQueues = routingCache.getMatchingStorageQueues(messageRoutingKey);
         /*
          * QOS level 0 messages should not be persisted for subscribers with clean session = false who are inactive
          * at the moment
          */
         if(0 == qosLevel) {
-            Iterator<StorageQueue> queueIterator = matchingQueues.iterator();
-            while (queueIterator.hasNext()) {
-                StorageQueue matchingQueue = queueIterator.next();
+            // Matched set is shared with the matcher, hence filter into a new set only if a queue is dropped
+            Set<StorageQueue> filteredQueues = null;
+            for (StorageQueue matchingQueue : matchingQueues) {
                 if (matchingQueue.isDurable() && matchingQueue.getBoundSubscriptions().isEmpty()) {
-                    queueIterator.remove();
+                    if (null == filteredQueues) {
+                        filteredQueues = new HashSet<>(matchingQueues);
+                    }
+                    filteredQueues.remove(matchingQueue);
                 }
             }
+            if (null != filteredQueues) {
+                matchingQueues = filteredQueues;
+            }
         }
         return matchingQueues;
     }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel.router;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang.StringUtils;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Bounded cache of routing results placed in front of a {@link TopicRoutingMatcher}. Each result is tagged with
+ * the binding version of the matcher it was computed from, and results with an older version are treated as
+ * misses. Hence a binding change invalidates the whole cache without walking it.
+ */
+public class RoutingResultCache {
+
+    /**
+     * Routing caches in use, to aggregate their counts. Caches of removed routers are dropped once garbage
+     * collected.
+     */
+    private static final Set<RoutingResultCache> routingCaches =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<RoutingResultCache, Boolean>()));
+
+    /**
+     * Cache hits of the router. Counters are striped since every publish of every thread updates them.
+     */
+    private final StripedCounter hitCount = new StripedCounter();
+
+    /**
+     * Cache misses of the router
+     */
+    private final StripedCounter missCount = new StripedCounter();
+
+    private final TopicRoutingMatcher topicMatcher;
+
+    /**
+     * Routing key to matched storage queues. Null if the cache is disabled.
+     */
+    private final Cache<String, RoutingResult> routingResults;
+
+    /**
+     * Create a routing cache for the given matcher. Size of the cache is read from configuration.
+     *
+     * @param topicMatcher matcher used when a routing key is not cached
+     */
+    public RoutingResultCache(TopicRoutingMatcher topicMatcher) {
+        this(topicMatcher, (Integer) AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_ROUTING_CACHE_MAXIMUM_SIZE));
+    }
+
+    /**
+     * Create a routing cache for the given matcher
+     *
+     * @param topicMatcher matcher used when a routing key is not cached
+     * @param maximumSize  maximum number of routing keys to cache. Caching is disabled if this is not positive.
+     */
+    public RoutingResultCache(TopicRoutingMatcher topicMatcher, int maximumSize) {
+        this.topicMatcher = topicMatcher;
+        if (maximumSize > 0) {
+            routingResults = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        } else {
+            routingResults = null;
+        }
+        routingCaches.add(this);
+    }
+
+    /**
+     * Get storage queues matching to the routing key, from the cache if the bindings did not change since the
+     * result was cached. The returned set must not be modified.
+     *
+     * @param routingKey routing key to match queues
+     * @return set of storage queues
+     */
+    public Set<StorageQueue> getMatchingStorageQueues(String routingKey) {
+        if (null == routingResults || StringUtils.isEmpty(routingKey)) {
+            return topicMatcher.getMatchingStorageQueues(routingKey);
+        }
+
+        // Version is read before matching. A concurrent binding change makes the stored result stale at once.
+        long bindingVersion = topicMatcher.getBindingVersion();
+        RoutingResult routingResult = routingResults.getIfPresent(routingKey);
+
+        if (null != routingResult && routingResult.bindingVersion == bindingVersion) {
+            hitCount.increment();
+            return routingResult.matchingQueues;
+        }
+
+        missCount.increment();
+        Set<StorageQueue> matchingQueues = topicMatcher.getMatchingStorageQueues(routingKey);
+        routingResults.put(routingKey, new RoutingResult(bindingVersion, matchingQueues));
+        return matchingQueues;
+    }
+
+    /**
+     * Register hit and miss gauges of routing caches. Counts are aggregated over the topic message routers in use.
+     */
+    public static void registerMetrics() {
+        MetricManager.gauge(MetricsConstants.ROUTING_CACHE_HITS, Level.INFO, new RoutingCacheHitGauge());
+        MetricManager.gauge(MetricsConstants.ROUTING_CACHE_MISSES, Level.INFO, new RoutingCacheMissGauge());
+    }
+
+    /**
+     * Matched storage queues of a routing key along with the binding version they were matched against
+     */
+    private static class RoutingResult {
+
+        private final long bindingVersion;
+
+        private final Set<StorageQueue> matchingQueues;
+
+        RoutingResult(long bindingVersion, Set<StorageQueue> matchingQueues) {
+            this.bindingVersion = bindingVersion;
+            this.matchingQueues = matchingQueues;
+        }
+    }
+
+    /**
+     * This will get the number of routing lookups served from cache.
+     */
+    private static class RoutingCacheHitGauge implements Gauge<Long> {
+        @Override
+        public Long getValue() {
+            long hits = 0;
+            synchronized (routingCaches) {
+                for (RoutingResultCache routingCache : routingCaches) {
+                    hits = hits + routingCache.hitCount.sum();
+                }
+            }
+            return hits;
+        }
+    }
+
+    /**
+     * This will get the number of routing lookups not served from cache.
+     */
+    private static class RoutingCacheMissGauge implements Gauge<Long> {
+        @Override
+        public Long getValue() {
+            long misses = 0;
+            synchronized (routingCaches) {
+                for (RoutingResultCache routingCache : routingCaches) {
+                    misses = misses + routingCache.missCount.sum();
+                }
+            }
+            return misses;
+        }
+    }
+}
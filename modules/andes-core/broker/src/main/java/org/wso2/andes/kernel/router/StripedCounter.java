@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.kernel.router;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spread over several cells so that threads incrementing it concurrently do not contend on a single
+ * value. A thread always increments the same cell, chosen by its ID, and the count is the sum of all cells. Cells
+ * are kept a cache line apart to avoid false sharing.
+ */
+class StripedCounter {
+
+    /**
+     * Number of longs between two cells. 8 longs make up a 64 byte cache line.
+     */
+    private static final int CELL_SPACING = 8;
+
+    private final AtomicLongArray cells;
+
+    /**
+     * Mask applied to a thread ID to select a cell. Number of cells is a power of two.
+     */
+    private final int cellMask;
+
+    StripedCounter() {
+        int cellCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        cellMask = cellCount - 1;
+        cells = new AtomicLongArray(cellCount * CELL_SPACING);
+    }
+
+    void increment() {
+        int cell = (int) Thread.currentThread().getId() & cellMask;
+        cells.getAndIncrement(cell * CELL_SPACING);
+    }
+
+    /**
+     * Get the count. Increments made while summing may or may not be included.
+     *
+     * @return sum of all cells
+     */
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i = i + CELL_SPACING) {
+            sum = sum + cells.get(i);
+        }
+        return sum;
+    }
+}
@@ -36,6 +36,11 @@ public class TopicMessageRouter extends AndesMessageRouter {
      */
     private TopicRoutingMatcher topicMatcher;
 
+    /**
+     * Cache of matched storage queues for recently routed routing keys
+     */
+    private RoutingResultCache routingCache;
+
     /**
      * Create a TopicMessageRouter. This has specific message routing for
      * AMQP topic messages, matching of topic subscriptions based on wildcards etc.
@@ -47,6 +52,7 @@ public class TopicMessageRouter extends AndesMessageRouter {
     public TopicMessageRouter(String name, String type, boolean autoDelete) {
         super(name, type, autoDelete);
         this.topicMatcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        this.routingCache = new RoutingResultCache(topicMatcher);
     }
 
     /**
@@ -57,6 +63,7 @@ public class TopicMessageRouter extends AndesMessageRouter {
     public TopicMessageRouter(String encodedRouterInfo) {
         super(encodedRouterInfo);
         this.topicMatcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        this.routingCache = new RoutingResultCache(topicMatcher);
     }
 
     /**
@@ -90,7 +97,7 @@ public class TopicMessageRouter extends AndesMessageRouter {
     @Override
     public Set<StorageQueue> getMatchingStorageQueues(AndesMessage incomingMessage) {
         String messageRoutingKey = incomingMessage.getMetadata().getDestination();
-        return topicMatcher.getMatchingStorageQueues(messageRoutingKey);
+        return routingCache.getMatchingStorageQueues(messageRoutingKey);
     }
 
     /**
@@ -26,16 +26,27 @@ import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.mqtt.utils.MQTTUtils;
 
 import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Bitmap based topic matcher
+ * Trie based topic matcher.
+ * <p/>
+ * Binding keys of storage queues are kept in an immutable trie of constituents. Each node has exact match
+ * children, a single level wildcard child and a multi level wildcard child. Binding changes build a new copy of
+ * the affected path and publish the new root through a volatile reference, so routing never takes a lock and
+ * never observes a half updated index. Children and bound queues of a node are kept in hash array mapped tries,
+ * hence copying the path does not copy the siblings or the other queues bound to the same key.
+ * <p/>
+ * Routing keys are walked in place without splitting them, and if the matched queues come from a single trie node
+ * the set held by that node is returned as is. A new set is only created when matches from several nodes have to
+ * be merged.
  */
 public class TopicRoutingMatcher {
 
@@ -44,7 +55,7 @@ public class TopicRoutingMatcher {
     /**
      * The topic delimiter to differentiate each constituent according to the current protocol type.
      */
-    private String constituentsDelimiter;
+    private char constituentsDelimiter;
 
     /**
      * The multi level matching wildcard according to the current protocol type.
@@ -56,92 +67,68 @@ public class TopicRoutingMatcher {
      */
     private String singleLevelWildCard;
 
-    private ProtocolType protocolType;
-
-    // 'Null' and 'Other' constituents are picked from restricted topic characters
-
-    /**
-     * Constituent name to represent that a constituent is not available at this location.
-     */
-    private static final String NULL_CONSTITUENT = "%null%";
-
     /**
-     * Constituent name to represent any constituent except a wildcard.
+     * Keeps all the storage queues mapped to the stored instance. Concurrent since it is read by management
+     * operations and routers while bindings change.
      */
-    private static final String OTHER_CONSTITUENT = "%other%";
+    private final ConcurrentMap<StorageQueue, StorageQueue> storageQueues = new ConcurrentHashMap<>();
 
     /**
-     * Keeps all the storage queues.
+     * Keeps all the binding keys of storage queues broken into their constituents. Guarded by this matcher.
      */
-    private List<StorageQueue> storageQueueList = new ArrayList<>();
+    private final Map<StorageQueue, String[]> queueConstituents = new HashMap<>();
 
     /**
-     * Keeps all the binding keys of storage queues broken into their constituents.
+     * Root of the current routing trie. Replaced as a whole on every binding change.
      */
-    private Map<Integer, String[]> queueConstituents = new HashMap<>();
+    private volatile TrieNode root = TrieNode.EMPTY;
 
     /**
-     * Keeps all the constituent tables as ListOfConstituentTables <ConstituentPart, BitSet>.
+     * Incremented after every change to the routing trie. Routing results computed under an older version are
+     * stale.
      */
-    private List<Map<String, BitSet>> constituentTables = new ArrayList<>();
+    private volatile long bindingVersion;
 
     /**
-     * Initialize BitMapHandler with the protocol type.
+     * Initialize the matcher with the protocol type.
      *
      * @param protocolType The protocol type to handle
      */
     public TopicRoutingMatcher(ProtocolType protocolType) {
         if (ProtocolType.AMQP == protocolType) {
-            constituentsDelimiter = ".";
+            constituentsDelimiter = '.';
             // AMQPUtils keep wildcard concatenated with constituent delimiter, hence removing them get wildcard only
-            multiLevelWildCard = AMQPUtils.TOPIC_AND_CHILDREN_WILDCARD.replace(constituentsDelimiter, "");
-            singleLevelWildCard = AMQPUtils.IMMEDIATE_CHILDREN_WILDCARD.replace(constituentsDelimiter, "");
+            multiLevelWildCard = AMQPUtils.TOPIC_AND_CHILDREN_WILDCARD.replace(
+                    String.valueOf(constituentsDelimiter), "");
+            singleLevelWildCard = AMQPUtils.IMMEDIATE_CHILDREN_WILDCARD.replace(
+                    String.valueOf(constituentsDelimiter), "");
         } else if (ProtocolType.MQTT == protocolType) {
-            constituentsDelimiter = "/";
+            constituentsDelimiter = '/';
             multiLevelWildCard = MQTTUtils.MULTI_LEVEL_WILDCARD;
             singleLevelWildCard = MQTTUtils.SINGLE_LEVEL_WILDCARD;
         } else {
             throw new RuntimeException("Protocol type " + protocolType + " is not recognized.");
         }
-
-        this.protocolType = protocolType;
     }
 
-
-    public void addStorageQueue(StorageQueue storageQueue) throws AndesException {
+    /**
+     * Add a storage queue to the routing index using its message router binding key. If the queue is already
+     * added, the stored instance is replaced.
+     *
+     * @param storageQueue The storage queue to add
+     * @throws AndesException if the binding key of the queue is empty
+     */
+    public synchronized void addStorageQueue(StorageQueue storageQueue) throws AndesException {
         String bindingKey = storageQueue.getMessageRouterBindingKey();
 
         if (StringUtils.isNotEmpty(bindingKey)) {
             if (!isStorageQueueAvailable(storageQueue)) {
-                int newQueueIndex = storageQueueList.size();
-
-                // The index is added to make it clear to which index this is being inserted
-                storageQueueList.add(newQueueIndex, storageQueue);
-
-                String constituents[] = bindingKey.split(Pattern.quote(constituentsDelimiter));
+                String[] constituents = splitBindingKey(bindingKey);
 
-                queueConstituents.put(newQueueIndex, constituents);
-
-
-                for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
-                    String constituent = constituents[constituentIndex];
-
-                    Map<String, BitSet> constituentTable;
-
-                    if ((constituentIndex + 1) > constituentTables.size()) {
-                        // No tables exist for this constituent index need to create
-                        constituentTable = addConstituentTable(constituentIndex);
-                    } else {
-                        constituentTable = constituentTables.get(constituentIndex);
-                    }
-
-                    if (!constituentTable.keySet().contains(constituent)) {
-                        // This constituent is not available in this table. Need to add a new row
-                        addConstituentRow(constituent, constituentIndex);
-                    }
-                }
-
-                addStorageQueueColumn(bindingKey, newQueueIndex);
+                queueConstituents.put(storageQueue, constituents);
+                root = root.add(constituents, 0, storageQueue, this);
+                storageQueues.put(storageQueue, storageQueue);
+                bindingVersion++;
             } else {
                 updateStorageQueue(storageQueue);
             }
@@ -151,364 +138,76 @@ public class TopicRoutingMatcher {
         }
     }
 
-
-
-    public void updateStorageQueue(StorageQueue storageQueue) {
-        if (isStorageQueueAvailable(storageQueue)) {
-            // Need to add the new entry to the same index since bitmap logic is dependent on this index
-            int index = storageQueueList.indexOf(storageQueue);
-
-            // Should not allow to modify this list until the update is complete
-            // Otherwise the storageQueue indexes will be invalid
-            synchronized (storageQueueList) {
-                storageQueueList.remove(index);
-                storageQueueList.add(index, storageQueue);
-            }
-        }
-    }
-
-    /**
-     * @param constituentIndex The index to create the constituent for
-     * @return The created constituent table
-     */
-    private Map<String, BitSet> addConstituentTable(int constituentIndex) {
-        Map<String, BitSet> constituentTable = new HashMap<>();
-
-        BitSet nullBitSet = new BitSet(storageQueueList.size());
-        BitSet otherBitSet = new BitSet(storageQueueList.size());
-
-        // Fill null and other constituent values for all available queues
-        for (int queueIndex = 0; queueIndex < storageQueueList.size(); queueIndex++) {
-            String[] constituentsOfQueue = queueConstituents.get(queueIndex);
-
-            if (constituentsOfQueue.length < constituentIndex + 1) {
-                // There is no constituent in this queue for this constituent index
-                nullBitSet.set(queueIndex);
-
-                // If last constituent of the queue is multiLevelWildCard, then any other is a match
-                if (multiLevelWildCard.equals(constituentsOfQueue[constituentsOfQueue.length - 1])) {
-                    otherBitSet.set(queueIndex);
-                }
-            } else {
-                String queueConstituent = constituentsOfQueue[constituentIndex];
-
-                // Check if this is a wildcard
-                if (multiLevelWildCard.equals(queueConstituent) ||
-                        singleLevelWildCard.equals(queueConstituent)) {
-                    otherBitSet.set(queueIndex);
-                }
-            }
-        }
-
-        // Add 'null' and 'other' constituent
-        constituentTable.put(NULL_CONSTITUENT, nullBitSet);
-        constituentTable.put(OTHER_CONSTITUENT, otherBitSet);
-
-        constituentTables.add(constituentIndex, constituentTable);
-
-        return constituentTable;
-    }
-
-
     /**
-     * Run through each constituentTable and insert a new column for a new storage queue filling it's values
-     * by comparing constituents.
-     * <p/>
-     * This will only fill values for the already available constituents. Will not add new constituents.
+     * Replace the stored instance of a storage queue with the given one. Matching queues are compared by name.
      *
-     * @param bindingKey The newly subscribed destination
+     * @param storageQueue The storage queue to update
      */
-    private void addStorageQueueColumn(String bindingKey, int queueIndex) throws AndesException {
-
-        String[] bindingKeyConstituents = queueConstituents.get(queueIndex);
-
-        // Create a mock destination with two constituents for 'other' wildcard matching
-        String matchDestinationForOther = OTHER_CONSTITUENT + constituentsDelimiter + OTHER_CONSTITUENT;
-
-        // Create a mock destination with three constituents for 'null' wildcard matching
-        String matchDestinationForNull = NULL_CONSTITUENT + constituentsDelimiter + NULL_CONSTITUENT +
-                constituentsDelimiter + NULL_CONSTITUENT;
-
-        // Loop through each constituent table for the new constituents
-        for (int constituentIndex = 0; constituentIndex < bindingKeyConstituents.length;
-             constituentIndex++) {
-            String currentConstituent = bindingKeyConstituents[constituentIndex];
-            Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-
-            // Loop through each constituent row in the table and fill values
-            for (Map.Entry<String, BitSet> constituentRow : constituentTable.entrySet()) {
-                String constituentOfCurrentRow = constituentRow.getKey();
-                BitSet bitSet = constituentRow.getValue();
-
-                if (constituentOfCurrentRow.equals(currentConstituent)) {
-                    bitSet.set(queueIndex);
-                } else if (NULL_CONSTITUENT.equals(constituentOfCurrentRow)) {
-                    // Check if this constituent being null matches the destination if we match it with
-                    // a null constituent
-                    String wildcardDestination = NULL_CONSTITUENT + constituentsDelimiter +
-                            currentConstituent;
-                    bitSet.set(queueIndex, isMatchForProtocolType(wildcardDestination,
-                            matchDestinationForNull));
-//                    }
-                } else if (OTHER_CONSTITUENT.equals(constituentOfCurrentRow)) {
-                    // Check if other is matched by comparing wildcard through specific wildcard matching
-                    // Create a mock destinations with current constituent added last and check if it match with a
-                    // non-wildcard destination match with the corresponding matching method
-                    String wildCardDestination = OTHER_CONSTITUENT + constituentsDelimiter + currentConstituent;
-
-                    bitSet.set(queueIndex, isMatchForProtocolType(wildCardDestination,
-                            matchDestinationForOther));
-                } else if (singleLevelWildCard.equals(currentConstituent) ||
-                        multiLevelWildCard.equals(currentConstituent)) {
-                    // If there is any wildcard at this position, then this should match.
-                    bitSet.set(queueIndex);
-                } else {
-                    bitSet.set(queueIndex, false);
-                }
-
-            }
+    public synchronized void updateStorageQueue(StorageQueue storageQueue) {
+        if (isStorageQueueAvailable(storageQueue)) {
+            String[] constituents = queueConstituents.remove(storageQueue);
+            queueConstituents.put(storageQueue, constituents);
 
-        }
+            // Queues are matched by name and adding an equal queue replaces the stored instance
+            root = root.add(constituents, 0, storageQueue, this);
 
-        int noOfMaxConstituents = constituentTables.size();
-
-        if (noOfMaxConstituents > bindingKeyConstituents.length) {
-            // There are more constituent tables to be filled. Wildcard matching is essential here.
-
-            boolean matchingOthers = true;
-            // The OTHER_CONSTITUENT is added here to represent any constituent
-            if (!multiLevelWildCard.equals(bindingKeyConstituents[bindingKeyConstituents.length
-                    - 1])) {
-                String otherConstituentComparer = bindingKey + constituentsDelimiter + OTHER_CONSTITUENT;
-                matchingOthers = isMatchForProtocolType(bindingKey, otherConstituentComparer);
-            } // Else matchingOthers will be true
-
-            for (int constituentIndex = bindingKeyConstituents.length; constituentIndex <
-                    noOfMaxConstituents; constituentIndex++) {
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-
-                // Loop through each constituent row in the table and fill values
-                for (Map.Entry<String, BitSet> constituentRow : constituentTable.entrySet()) {
-                    String constituentOfCurrentRow = constituentRow.getKey();
-                    BitSet bitSet = constituentRow.getValue();
-
-                    if (NULL_CONSTITUENT.equals(constituentOfCurrentRow)) {
-                        // Null constituent is always true here
-                        bitSet.set(queueIndex);
-                    } else {
-                        bitSet.set(queueIndex, matchingOthers);
-                    }
-                }
-            }
+            // Queues are equal by name, hence the map keeps the old key and only the value is replaced
+            storageQueues.put(storageQueue, storageQueue);
+            bindingVersion++;
         }
-
     }
 
     /**
-     * Add a new constituent row for the given constituent index table and fill values for already available
-     * queues.
+     * Removing a storageQueue from the structure.
      *
-     * @param constituent      The constituent to add
-     * @param constituentIndex The index of the constituent
+     * @param storageQueue The storageQueue to remove
      */
-    private void addConstituentRow(String constituent, int constituentIndex) {
-        Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-        BitSet bitSet = new BitSet();
-
-        for (int i = 0; i < queueConstituents.size(); i++) {
-            String[] constituentsOfQueue = queueConstituents.get(i);
-
-            if (constituentIndex < constituentsOfQueue.length) {
-                // Get the i'th queue's [constituentIndex]'th constituent
-                String queueConstituent = constituentsOfQueue[constituentIndex];
-                if (queueConstituent.equals(constituent) || multiLevelWildCard.equals(queueConstituent)
-                        || singleLevelWildCard.equals(queueConstituent)) {
-                    // The new constituent matches the queues i'th constituent
-                    bitSet.set(i);
-                } else {
-                    // The new constituent does not match the i'th queues [constituentIndex] constituent
-                    bitSet.set(i, false);
-                }
-            } else {
-                // The queue does not have a constituent for this index
-                // If the last constituent of the queue is multiLevelWildCard we match else false
-                if (multiLevelWildCard.equals(constituentsOfQueue[constituentsOfQueue.length - 1])) {
-                    bitSet.set(i);
-                } else {
-                    bitSet.set(i, false);
-                }
-            }
-        }
-
-        constituentTable.put(constituent, bitSet);
-    }
+    public synchronized void removeStorageQueue(StorageQueue storageQueue) {
+        String[] constituents = queueConstituents.remove(storageQueue);
 
-    /**
-     * Return the match between the given two parameters with respect to the protocol.
-     *
-     * @param wildCardDestination    The destination with/without wildcard
-     * @param nonWildCardDestination The direct destination without wildcards
-     * @return Match status
-     * @throws AndesException
-     */
-    private boolean isMatchForProtocolType(String wildCardDestination, String nonWildCardDestination) throws
-            AndesException {
-        boolean matching = false;
+        if (null != constituents) {
+            root = root.remove(constituents, 0, storageQueue, this);
 
-        if (ProtocolType.AMQP == protocolType) {
-            matching = AMQPUtils.isTargetQueueBoundByMatchingToRoutingKey(wildCardDestination, nonWildCardDestination);
-        } else if (ProtocolType.MQTT == protocolType) {
-            matching = MQTTUtils.isTargetQueueBoundByMatchingToRoutingKey(wildCardDestination, nonWildCardDestination);
+            // Remove the storageQueue from the storage queues
+            storageQueues.remove(storageQueue);
+            bindingVersion++;
         } else {
-            throw new AndesException("Protocol type " + protocolType + " is not recognized.");
+            log.warn("Storage queue for with name : " + storageQueue.getName() + " is not found to " +
+                    "remove");
         }
-
-        return matching;
     }
 
-    /**
-     * This methods adds a constituent table with only null and other constituents.
-     * This is required when a message comes with more than the available number of constituents. If wildcard
-     * queues are available for those, they should match. Hence need to create these empty constituent tables.
-     */
-    private void addEmptyConstituentTable() {
-        int noOfqueues = storageQueueList.size();
-        Map<String, BitSet> constituentTable = new HashMap<>();
-
-        BitSet nullBitSet = new BitSet(noOfqueues);
-        BitSet otherBitSet = new BitSet(noOfqueues);
-
-        if (noOfqueues > 0) {
-
-            // Null constituent will always be true for empty constituents, hence need to flip
-            nullBitSet.flip(0, noOfqueues - 1);
-
-            for (int queueIndex = 0; queueIndex < noOfqueues; queueIndex++) {
-                // For 'other', if subscribers last constituent is multi level wild card then matching
-                String[] allConstituent = queueConstituents.get(queueIndex);
-                String lastConstituent = allConstituent[allConstituent.length - 1];
-
-                if (multiLevelWildCard.equals(lastConstituent)) {
-                    otherBitSet.set(queueIndex);
-                } else {
-                    otherBitSet.set(queueIndex, false);
-                }
-            }
-        }
-
-        constituentTable.put(NULL_CONSTITUENT, nullBitSet);
-        constituentTable.put(OTHER_CONSTITUENT, otherBitSet);
-
-        constituentTables.add(constituentTable);
-    }
 
     /**
-     * Removing a storageQueue from the structure.
+     * Get the version of the current bindings. It changes whenever a storage queue is added, updated or removed.
+     * The version must be read before matching so that a result is never tagged with a newer version than the
+     * bindings it was computed from.
      *
-     * @param storageQueue The storageQueue to remove
+     * @return current binding version
      */
-    public void removeStorageQueue(StorageQueue storageQueue) {
-        int queueIndex = storageQueueList.indexOf(storageQueue);
-
-        if (queueIndex > -1) {
-            for (Map<String, BitSet> constituentTable : constituentTables) {
-                for (Map.Entry<String, BitSet> constituentRow : constituentTable.entrySet()) {
-                    // For every row create a new BitSet with the values for the removed storageQueue removed
-                    String constituent = constituentRow.getKey();
-                    BitSet bitSet = constituentRow.getValue();
-                    BitSet newBitSet = new BitSet();
-
-                    int bitIndex = 0;
-
-                    for (int i = 0; i < bitSet.size(); i++) {
-                        if (bitIndex == queueIndex) {
-                            // If the this is the index to remove then skip this round
-                            bitIndex++;
-                        }
-                        newBitSet.set(i, bitSet.get(bitIndex));
-                        bitIndex++;
-                    }
-
-                    constituentTable.put(constituent, newBitSet);
-
-                }
-            }
-
-            // Remove the storageQueue from storageQueue list
-            storageQueueList.remove(queueIndex);
-        } else {
-            log.warn("Storage queue for with name : " + storageQueue.getName() + " is not found to " +
-                    "remove");
-        }
+    public long getBindingVersion() {
+        return bindingVersion;
     }
 
-
     public boolean isStorageQueueAvailable(StorageQueue storageQueue) {
-        return storageQueueList.contains(storageQueue);
+        return storageQueues.containsKey(storageQueue);
     }
 
 
     /**
-     * Get storage queues matching to routing key
+     * Get storage queues matching to routing key. The returned set may be shared with the routing index and
+     * therefore must not be modified.
+     *
      * @param routingKey routing key to match queues
      * @return set of storage queues
      */
     public Set<StorageQueue> getMatchingStorageQueues(String routingKey) {
-        Set<StorageQueue> matchingQueues = new HashSet<>();
+        Set<StorageQueue> matchingQueues = Collections.emptySet();
 
         if (StringUtils.isNotEmpty(routingKey)) {
-
-            // constituentDelimiter is quoted to avoid making the delimiter a regex symbol
-            String[] constituents = routingKey.split(Pattern.quote(constituentsDelimiter),-1);
-
-            int noOfCurrentMaxConstituents = constituentTables.size();
-
-            // If given routingKey has more constituents than any subscriber has, then create constituent tables
-            // for those before collecting matching subscribers
-            if (constituents.length > noOfCurrentMaxConstituents) {
-                for (int i = noOfCurrentMaxConstituents; i < constituents.length; i++) {
-                    addEmptyConstituentTable();
-                }
-            }
-
-            // Keeps the results of 'AND' operations between each bit sets
-            BitSet andBitSet = new BitSet(storageQueueList.size());
-
-            // Since BitSet is initialized with false for each element we need to flip
-            andBitSet.flip(0, storageQueueList.size());
-
-            // Get corresponding bit set for each constituent in the routingKey and operate bitwise AND operation
-            for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
-                String constituent = constituents[constituentIndex];
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-
-                BitSet bitSetForAnd = constituentTable.get(constituent);
-
-                if (null == bitSetForAnd) {
-                    // The constituent is not found in the table, hence matching with 'other' constituent
-                    bitSetForAnd = constituentTable.get(OTHER_CONSTITUENT);
-                }
-
-                andBitSet.and(bitSetForAnd);
-            }
-
-            // If there are more constituent tables, get the null constituent in each of them and operate bitwise AND
-            for (int constituentIndex = constituents.length; constituentIndex < constituentTables.size();
-                 constituentIndex++) {
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-                andBitSet.and(constituentTable.get(NULL_CONSTITUENT));
-            }
-
-
-            // Valid queues are filtered, need to pick from queue pool
-            int nextSetBitIndex = andBitSet.nextSetBit(0);
-            while (nextSetBitIndex > -1) {
-                matchingQueues.add(storageQueueList.get(nextSetBitIndex));
-                nextSetBitIndex = andBitSet.nextSetBit(nextSetBitIndex + 1);
-            }
-
+            matchingQueues = collectMatchingQueues(root, routingKey, 0, matchingQueues);
         } else {
-            log.warn("Cannot retrieve storage queues via bitmap handler since routingKey to match is empty");
+            log.warn("Cannot retrieve storage queues via topic matcher since routingKey to match is empty");
         }
 
         return matchingQueues;
@@ -520,7 +219,7 @@ public class TopicRoutingMatcher {
      * @return List of all storage queues
      */
     public List<StorageQueue> getAllStorageQueues() {
-        return storageQueueList;
+        return new ArrayList<>(storageQueues.values());
     }
 
 
@@ -529,14 +228,13 @@ public class TopicRoutingMatcher {
      *
      * @return set of different binding keys
      */
-    public Set<String> getAllBindingKeys() {
+    public synchronized Set<String> getAllBindingKeys() {
         Set<String> topics = new HashSet<>();
 
 
-        for (Map.Entry<Integer, String[]> subcriberConstituent : queueConstituents.entrySet()) {
+        for (String[] constituents : queueConstituents.values()) {
 
             StringBuilder topic = new StringBuilder();
-            String[] constituents =  subcriberConstituent.getValue();
 
             for (int i = 0; i < constituents.length; i++) {
                 String constituent = constituents[i];
@@ -560,4 +258,229 @@ public class TopicRoutingMatcher {
         return topics;
     }
 
+    /**
+     * Collect queues of the given node and its descendants that match the routing key from the given
+     * constituent onwards.
+     *
+     * @param node             trie node reached so far
+     * @param routingKey       routing key of the message
+     * @param constituentStart index of the next constituent in the routing key. A value greater than the length
+     *                         of the routing key means all constituents are consumed.
+     * @param matchingQueues   queues matched so far
+     * @return queues matched so far including the ones matched under this node
+     */
+    private Set<StorageQueue> collectMatchingQueues(TrieNode node, String routingKey, int constituentStart,
+                                                    Set<StorageQueue> matchingQueues) {
+        if (constituentStart > routingKey.length()) {
+            matchingQueues = union(matchingQueues, node.boundQueues);
+
+            // Multi level wildcard matches zero constituents as well
+            if (null != node.multiLevelChild) {
+                matchingQueues = collectMatchingQueues(node.multiLevelChild, routingKey, constituentStart,
+                        matchingQueues);
+            }
+            return matchingQueues;
+        }
+
+        int constituentEnd = routingKey.indexOf(constituentsDelimiter, constituentStart);
+        if (constituentEnd < 0) {
+            constituentEnd = routingKey.length();
+        }
+        int nextConstituentStart = constituentEnd + 1;
+
+        TrieNode exactChild = node.getChild(routingKey, constituentStart, constituentEnd);
+        if (null != exactChild) {
+            matchingQueues = collectMatchingQueues(exactChild, routingKey, nextConstituentStart, matchingQueues);
+        }
+
+        if (null != node.singleLevelChild) {
+            matchingQueues = collectMatchingQueues(node.singleLevelChild, routingKey, nextConstituentStart,
+                    matchingQueues);
+        }
+
+        TrieNode multiLevelChild = node.multiLevelChild;
+        if (null != multiLevelChild) {
+            if (multiLevelChild.isLeaf()) {
+                // Nothing follows the wildcard, hence it matches the rest of the routing key
+                matchingQueues = union(matchingQueues, multiLevelChild.boundQueues);
+            } else {
+                // Let the wildcard consume zero or more constituents and match the rest after it
+                int start = constituentStart;
+                while (start <= routingKey.length()) {
+                    matchingQueues = collectMatchingQueues(multiLevelChild, routingKey, start, matchingQueues);
+                    int end = routingKey.indexOf(constituentsDelimiter, start);
+                    start = (end < 0) ? routingKey.length() + 1 : end + 1;
+                }
+                matchingQueues = collectMatchingQueues(multiLevelChild, routingKey, start, matchingQueues);
+            }
+        }
+
+        return matchingQueues;
+    }
+
+    /**
+     * Merge two sets of matched queues. Sets held by trie nodes are never modified, a new set is created only when
+     * both sets are non empty.
+     */
+    private static Set<StorageQueue> union(Set<StorageQueue> matchingQueues, Set<StorageQueue> queues) {
+        if (queues.isEmpty()) {
+            return matchingQueues;
+        }
+        if (matchingQueues.isEmpty()) {
+            return queues;
+        }
+        if (matchingQueues instanceof MergedQueueSet) {
+            matchingQueues.addAll(queues);
+            return matchingQueues;
+        }
+        MergedQueueSet mergedQueues = new MergedQueueSet(matchingQueues);
+        mergedQueues.addAll(queues);
+        return mergedQueues;
+    }
+
+    /**
+     * Split a binding key into constituents. Trailing empty constituents are dropped as done by
+     * {@link String#split(String)}.
+     */
+    private String[] splitBindingKey(String bindingKey) {
+        List<String> constituents = new ArrayList<>();
+        int start = 0;
+        while (start <= bindingKey.length()) {
+            int end = bindingKey.indexOf(constituentsDelimiter, start);
+            if (end < 0) {
+                end = bindingKey.length();
+            }
+            constituents.add(bindingKey.substring(start, end));
+            start = end + 1;
+        }
+
+        int size = constituents.size();
+        while (size > 1 && constituents.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return constituents.subList(0, size).toArray(new String[size]);
+    }
+
+    /**
+     * Set created by the matcher when queues from several trie nodes are merged. Only these sets are modified
+     * while collecting matches.
+     */
+    private static class MergedQueueSet extends HashSet<StorageQueue> {
+
+        private static final long serialVersionUID = 1L;
+
+        MergedQueueSet(Set<StorageQueue> queues) {
+            super(queues);
+        }
+    }
+
+    /**
+     * Immutable node of the routing trie. Modifications return a new node sharing the unchanged children.
+     */
+    private static final class TrieNode {
+
+        static final TrieNode EMPTY = new TrieNode(HashTrieMap.<StorageQueue, StorageQueue>empty(),
+                HashTrieMap.<String, TrieNode>empty(), null, null);
+
+        /**
+         * Queues whose binding key ends at this node, mapped to themselves so that an update replaces the stored
+         * instance
+         */
+        final HashTrieMap<StorageQueue, StorageQueue> boundQueueMap;
+
+        /**
+         * Read only view of the bound queues handed out to routers
+         */
+        final Set<StorageQueue> boundQueues;
+
+        /**
+         * Children for non wildcard constituents keyed by constituent
+         */
+        final HashTrieMap<String, TrieNode> children;
+
+        final TrieNode singleLevelChild;
+
+        final TrieNode multiLevelChild;
+
+        TrieNode(HashTrieMap<StorageQueue, StorageQueue> boundQueueMap, HashTrieMap<String, TrieNode> children,
+                 TrieNode singleLevelChild, TrieNode multiLevelChild) {
+            this.boundQueueMap = boundQueueMap;
+            this.boundQueues = boundQueueMap.keySet();
+            this.children = children;
+            this.singleLevelChild = singleLevelChild;
+            this.multiLevelChild = multiLevelChild;
+        }
+
+        TrieNode getChild(String routingKey, int start, int end) {
+            return children.get(routingKey, start, end);
+        }
+
+        boolean isLeaf() {
+            return children.isEmpty() && null == singleLevelChild && null == multiLevelChild;
+        }
+
+        boolean isEmpty() {
+            return boundQueueMap.isEmpty() && isLeaf();
+        }
+
+        TrieNode add(String[] constituents, int index, StorageQueue queue, TopicRoutingMatcher matcher) {
+            if (index == constituents.length) {
+                return new TrieNode(boundQueueMap.put(queue, queue), children, singleLevelChild, multiLevelChild);
+            }
+
+            String constituent = constituents[index];
+            if (matcher.singleLevelWildCard.equals(constituent)) {
+                return new TrieNode(boundQueueMap, children,
+                        orEmpty(singleLevelChild).add(constituents, index + 1, queue, matcher), multiLevelChild);
+            } else if (matcher.multiLevelWildCard.equals(constituent)) {
+                return new TrieNode(boundQueueMap, children, singleLevelChild,
+                        orEmpty(multiLevelChild).add(constituents, index + 1, queue, matcher));
+            } else {
+                TrieNode child = orEmpty(children.get(constituent));
+                return new TrieNode(boundQueueMap,
+                        children.put(constituent, child.add(constituents, index + 1, queue, matcher)),
+                        singleLevelChild, multiLevelChild);
+            }
+        }
+
+        TrieNode remove(String[] constituents, int index, StorageQueue queue, TopicRoutingMatcher matcher) {
+            if (index == constituents.length) {
+                return new TrieNode(boundQueueMap.remove(queue), children, singleLevelChild, multiLevelChild);
+            }
+
+            String constituent = constituents[index];
+            if (matcher.singleLevelWildCard.equals(constituent)) {
+                if (null == singleLevelChild) {
+                    return this;
+                }
+                return new TrieNode(boundQueueMap, children,
+                        nullIfEmpty(singleLevelChild.remove(constituents, index + 1, queue, matcher)),
+                        multiLevelChild);
+            } else if (matcher.multiLevelWildCard.equals(constituent)) {
+                if (null == multiLevelChild) {
+                    return this;
+                }
+                return new TrieNode(boundQueueMap, children, singleLevelChild,
+                        nullIfEmpty(multiLevelChild.remove(constituents, index + 1, queue, matcher)));
+            } else {
+                TrieNode child = children.get(constituent);
+                if (null == child) {
+                    return this;
+                }
+                TrieNode newChild = child.remove(constituents, index + 1, queue, matcher);
+                HashTrieMap<String, TrieNode> newChildren = newChild.isEmpty() ? children.remove(constituent)
+                        : children.put(constituent, newChild);
+                return new TrieNode(boundQueueMap, newChildren, singleLevelChild, multiLevelChild);
+            }
+        }
+
+        private static TrieNode orEmpty(TrieNode node) {
+            return (null == node) ? EMPTY : node;
+        }
+
+        private static TrieNode nullIfEmpty(TrieNode node) {
+            return node.isEmpty() ? null : node;
+        }
+    }
+
 }
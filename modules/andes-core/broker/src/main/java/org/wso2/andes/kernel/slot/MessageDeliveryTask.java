@@ -24,7 +24,13 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.MessageFlusher;
 
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.task.Task;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handle message delivery {@link Task} implementation for a given queue
@@ -33,6 +39,11 @@ final class MessageDeliveryTask extends Task {
 
     private static Log log = LogFactory.getLog(MessageDeliveryTask.class);
 
+    /**
+     * Upper bound of the weight of a task. Limits the share a queue with many subscribers gets over other queues.
+     */
+    private static final int MAX_WEIGHT = 16;
+
     /**
      * The storage queue handled by this task.
      */
@@ -48,6 +59,11 @@ final class MessageDeliveryTask extends Task {
      */
     private SlotCoordinator slotCoordinator;
 
+    /**
+     * Time the task waited to be processed after it had work to do
+     */
+    private final Timer deliveryLagTimer;
+
 
     MessageDeliveryTask(StorageQueue storageQueue,
                         SlotCoordinator slotCoordinator,
@@ -56,6 +72,8 @@ final class MessageDeliveryTask extends Task {
         this.storageQueue = storageQueue;
         this.slotCoordinator = slotCoordinator;
         this.messageFlusher = messageFlusher;
+        this.deliveryLagTimer = MetricManager.timer(MetricsConstants.QUEUE_DELIVERY_LAG
+                + MetricsConstants.METRICS_NAME_SEPARATOR + storageQueue.getName(), Level.INFO);
     }
 
     /**
@@ -135,6 +153,23 @@ final class MessageDeliveryTask extends Task {
         onStopDelivery();
     }
 
+    /**
+     * Queues with more subscribers get a larger share of delivery threads
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWeight() {
+        return Math.max(1, Math.min(storageQueue.getBoundSubscriptions().size(), MAX_WEIGHT));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onExecutionDelay(long delayNanos) {
+        deliveryLagTimer.update(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
     /**
      * unque id of the {@link Task}
      * @return name of storage queue handle by this {@link MessageDeliveryTask}
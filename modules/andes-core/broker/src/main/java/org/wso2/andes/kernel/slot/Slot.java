@@ -18,11 +18,11 @@
 
 package org.wso2.andes.kernel.slot;
 
-import com.gs.collections.impl.map.mutable.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ConcurrentLongObjectMap;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 
@@ -38,6 +38,12 @@ public class Slot implements Serializable, Comparable<Slot> {
 
     private static Log log = LogFactory.getLog(Slot.class);
 
+    /**
+     * Messages of a slot are added by the slot delivery worker and removed when the slot is deleted, hence a few
+     * segments are enough for the message map
+     */
+    private static final int SLOT_MAP_CONCURRENCY_LEVEL = 4;
+
     /**
      * Number of messages in the slot
      */
@@ -57,7 +63,7 @@ public class Slot implements Serializable, Comparable<Slot> {
      * Keep messages read from the message ranges of the slot. Messages are unique and
      * kept until slot is deleted
      */
-    private ConcurrentHashMap<Long, DeliverableAndesMetadata> messagesOfSlot;
+    private ConcurrentLongObjectMap<DeliverableAndesMetadata> messagesOfSlot;
 
     /**
      * QueueName which the slot belongs to. This is set when the slot is assigned to a subscriber
@@ -104,7 +110,7 @@ public class Slot implements Serializable, Comparable<Slot> {
         this.slotStates = new ArrayList<>();
         slotStates.add(slotState);
         pendingMessageCount = new AtomicInteger();
-        messagesOfSlot = new ConcurrentHashMap<>();
+        messagesOfSlot = new ConcurrentLongObjectMap<>(SLOT_MAP_CONCURRENCY_LEVEL);
     }
 
     public Slot(long start, long end, String destinationOfMessagesInSlot) {
@@ -187,9 +193,10 @@ public class Slot implements Serializable, Comparable<Slot> {
      * Add a message to messages read by slot if it is not already there
      *
      * @param metadata metadata of the message to add
+     * @return true if the message was added, false if a message with the same ID was already there
      */
-    public void addMessageToSlotIfAbsent(DeliverableAndesMetadata metadata) {
-        messagesOfSlot.putIfAbsent(metadata.getMessageID(), metadata);
+    public boolean addMessageToSlotIfAbsent(DeliverableAndesMetadata metadata) {
+        return null == messagesOfSlot.putIfAbsent(metadata.getMessageID(), metadata);
     }
 
     /**
@@ -198,7 +205,7 @@ public class Slot implements Serializable, Comparable<Slot> {
      * @return list of metadata of messages
      */
     public List<DeliverableAndesMetadata> getAllMessagesOfSlot() {
-        return new ArrayList<>(messagesOfSlot.values());
+        return messagesOfSlot.values();
     }
 
     /**
@@ -18,6 +18,8 @@
 
 package org.wso2.andes.kernel.slot;
 
+import java.util.List;
+
 /**
  * This interface is responsible for coordinating with the SlotManagerClusterMode
  */
@@ -41,6 +43,15 @@ public interface SlotCoordinator {
      */
     public void updateMessageId(String queueName,long startMessageId, long endMessageId, long localSafeZone) throws ConnectionException;
 
+    /**
+     * Record a batch of slots in a single request. Slots are recorded in the given order and the local safe zone
+     * is recorded once for the batch.
+     * @param slots Slots to record. Each slot carries the name of its storage queue
+     * @param localSafeZone Local safe zone of the node after the last slot
+     * @throws ConnectionException
+     */
+    public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException;
+
     /**
      *  Record safe zone to delete slots by node. This ping comes from nodes as messages are not
      *  published by them so that safe zone value keeps moving ahead.
@@ -24,6 +24,8 @@ import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.server.cluster.error.detection.NetworkPartitionListener;
 import org.wso2.andes.thrift.MBThriftClient;
 
+import java.util.List;
+
 /**
  * This class is responsible of coordinating with the cluster mode Slot Manager
  */
@@ -58,6 +60,14 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
         instance.updateMessageId(queueName,startMessageId,endMessageId, localSafeZone);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+        instance.updateMessageIds(slots, localSafeZone);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -139,6 +149,11 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
             MBThriftClient.updateMessageId(queueName,nodeId,startMessageId,endMessageId, localSafeZone); 
         }
 
+        @Override
+        public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+            MBThriftClient.updateMessageIds(nodeId, slots, localSafeZone);
+        }
+
         @Override
         public void updateSlotDeletionSafeZone(long currentSlotDeleteSafeZone) throws ConnectionException {
             MBThriftClient.updateSlotDeletionSafeZone(currentSlotDeleteSafeZone, nodeId);
@@ -182,6 +197,11 @@ public class SlotCoordinatorCluster implements SlotCoordinator, NetworkPartition
             throw new ConnectionException("cluster error detected, not connectng to cooridnator");            
         }
 
+        @Override
+        public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+            throw new ConnectionException("cluster error detected, not connectng to cooridnator");
+        }
+
         @Override
         public void updateSlotDeletionSafeZone(long currentSlotDeleteSafeZone) throws ConnectionException {
             throw new ConnectionException("cluster error detected, not connectng to cooridnator");
@@ -18,6 +18,8 @@
 
 package org.wso2.andes.kernel.slot;
 
+import java.util.List;
+
 /**
  * This class is responsible of coordinating with the Standalone Slot Manager
  */
@@ -49,6 +51,16 @@ public class SlotCoordinatorStandalone implements SlotCoordinator {
         slotManagerStandalone.updateMessageID(queueName,endMessageId);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMessageIds(List<Slot> slots, long localSafeZone) throws ConnectionException {
+        for (Slot slot : slots) {
+            slotManagerStandalone.updateMessageID(slot.getStorageQueueName(), slot.getEndMessageId());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -46,7 +46,8 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
     private static Log log = LogFactory.getLog(SlotDeliveryWorkerManager.class);
 
     /**
-     * Delay for waiting for an idle task
+     * Delay for waiting for an idle task after its first idle run. Delay doubles on each idle run until the
+     * configured maximum.
      */
     private static final long IDLE_TASK_DELAY_MILLIS = 100;
 
@@ -64,7 +65,11 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
         ThreadFactory threadFactory = new ThreadFactoryBuilder()
                 .setNameFormat("MessageDeliveryTaskThreadPool-%d").build();
 
-        taskManager = new TaskExecutorService<>(numberOfThreads, IDLE_TASK_DELAY_MILLIS, threadFactory);
+        int maxIdleTaskDelay = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_MAX_IDLE_WORKER_DELAY);
+
+        taskManager = new TaskExecutorService<>(numberOfThreads, IDLE_TASK_DELAY_MILLIS, maxIdleTaskDelay,
+                threadFactory);
         taskManager.setExceptionHandler(new DeliveryTaskExceptionHandler());
         AndesContext andesContext = AndesContext.getInstance();
 
@@ -96,6 +101,19 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
                                     MessagingEngine.getInstance().getSlotCoordinator(),
                                         MessageFlusher.getInstance());
         taskManager.add(messageDeliveryTask);
+        // Delivery task is already there if this is not the first subscriber
+        taskManager.wakeUp(storageQueue.getName());
+    }
+
+    /**
+     * Notify that there is new work for the delivery task of the given storage queue, such as a new slot, buffered
+     * messages or room for subscribers to accept messages. The task is scheduled without waiting for its idle
+     * delay.
+     *
+     * @param storageQueueName name of the storage queue
+     */
+    public void wakeUpDelivery(String storageQueueName) {
+        taskManager.wakeUp(storageQueueName);
     }
 
     /**
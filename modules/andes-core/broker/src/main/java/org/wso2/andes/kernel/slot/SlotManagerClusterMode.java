@@ -29,8 +29,13 @@ import org.wso2.andes.server.cluster.coordination.SlotAgent;
 import org.wso2.andes.server.cluster.coordination.hazelcast.HazelcastAgent;
 import org.wso2.andes.server.cluster.coordination.rdbms.DatabaseSlotAgent;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -279,6 +284,86 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
     public void updateMessageID(String queueName, String nodeId, long startMessageIdInTheSlot,
                                 long lastMessageIdInTheSlot, long localSafeZone) throws AndesException {
 
+        String lockKey = queueName + SlotManagerClusterMode.class;
+        synchronized (lockKey.intern()) {
+            Map<String, List<Long>> messageIdsToAdd = new HashMap<>(1);
+            recordSubmittedSlot(queueName, nodeId, startMessageIdInTheSlot, lastMessageIdInTheSlot,
+                    messageIdsToAdd);
+            if (!messageIdsToAdd.isEmpty()) {
+                slotAgent.addMessageIds(messageIdsToAdd);
+            }
+            //record local safe zone
+            slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
+        }
+    }
+
+    /**
+     * Record slots submitted by a node in one go. Slots are recorded as with
+     * {@link #updateMessageID(String, String, long, long, long)} in the given order, but the resulting message ids
+     * are written to the store in one batch and the local safe zone of the node is recorded once.
+     *
+     * @param nodeId        Node ID of the node that is sending the request.
+     * @param slots         submitted slots, in the order they were closed by the node
+     * @param localSafeZone Local safe zone of the requesting node after the last slot.
+     */
+    public void updateMessageIDs(String nodeId, List<Slot> slots, long localSafeZone) throws AndesException {
+
+        // Locks of all queues in the batch are held until message ids are written, as with a single slot. Sorted
+        // to lock in the same order as other batches.
+        TreeMap<String, List<Slot>> queueToSlots = new TreeMap<>();
+        for (Slot slot : slots) {
+            List<Slot> queueSlots = queueToSlots.get(slot.getStorageQueueName());
+            if (null == queueSlots) {
+                queueSlots = new ArrayList<>();
+                queueToSlots.put(slot.getStorageQueueName(), queueSlots);
+            }
+            queueSlots.add(slot);
+        }
+
+        recordSubmittedSlots(nodeId, new ArrayList<>(queueToSlots.entrySet()), 0,
+                new HashMap<String, List<Long>>(queueToSlots.size()), localSafeZone);
+    }
+
+    /**
+     * Lock the queue at the given index and record its slots, then continue with the next queue. Message ids are
+     * written once all queues are locked.
+     */
+    private void recordSubmittedSlots(String nodeId, List<Map.Entry<String, List<Slot>>> queueToSlots, int index,
+                                      Map<String, List<Long>> messageIdsToAdd, long localSafeZone)
+            throws AndesException {
+
+        if (index == queueToSlots.size()) {
+            if (!messageIdsToAdd.isEmpty()) {
+                slotAgent.addMessageIds(messageIdsToAdd);
+            }
+            slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
+            return;
+        }
+
+        String queueName = queueToSlots.get(index).getKey();
+        String lockKey = queueName + SlotManagerClusterMode.class;
+        synchronized (lockKey.intern()) {
+            for (Slot slot : queueToSlots.get(index).getValue()) {
+                recordSubmittedSlot(queueName, nodeId, slot.getStartMessageId(), slot.getEndMessageId(),
+                        messageIdsToAdd);
+            }
+            recordSubmittedSlots(nodeId, queueToSlots, index + 1, messageIdsToAdd, localSafeZone);
+        }
+    }
+
+    /**
+     * Decide the message id to record for a submitted slot. Must be called holding the lock of the queue.
+     *
+     * @param queueName               name of the queue which this message ID belongs to
+     * @param nodeId                  Node ID of the node that is sending the request.
+     * @param startMessageIdInTheSlot start message ID of the slot
+     * @param lastMessageIdInTheSlot  last message ID of the slot
+     * @param messageIdsToAdd         message ids to be added to the store, keyed by queue name
+     */
+    private void recordSubmittedSlot(String queueName, String nodeId, long startMessageIdInTheSlot,
+                                     long lastMessageIdInTheSlot, Map<String, List<Long>> messageIdsToAdd)
+            throws AndesException {
+
         //setting up first message id of the slot
         if (firstMessageId > startMessageIdInTheSlot || firstMessageId == -1) {
             firstMessageId = startMessageIdInTheSlot;
@@ -288,84 +373,85 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
             queuesToRecover.remove(queueName);
         }
 
-        // Read message Id set for slots from store
-        TreeSet<Long> messageIdSet;
-        messageIdSet = slotAgent.getSlotBasedMessageIds(queueName);
+        //Get last assigned message id from database
+        long lastAssignedMessageId = slotAgent.getQueueToLastAssignedId(queueName);
 
-        String lockKey = queueName + SlotManagerClusterMode.class;
-        synchronized (lockKey.intern()) {
-            //Get last assigned message id from database
-            long lastAssignedMessageId = slotAgent.getQueueToLastAssignedId(queueName);
+        // Check if input slot's start message ID is less than last assigned message ID
+        if (startMessageIdInTheSlot < lastAssignedMessageId) {
+            if (log.isDebugEnabled()) {
+                log.debug("Found overlapping slots during slot submit: " +
+                        startMessageIdInTheSlot + " to : " + lastMessageIdInTheSlot +
+                        ". Comparing to lastAssignedID : " + lastAssignedMessageId);
+            }
+            // Find overlapping slots
+            TreeSet<Slot> overlappingSlots = getOverlappedAssignedSlots(queueName, startMessageIdInTheSlot,
+                    lastMessageIdInTheSlot);
+
+            if (!(overlappingSlots.isEmpty())) {
 
-            // Check if input slot's start message ID is less than last assigned message ID
-            if (startMessageIdInTheSlot < lastAssignedMessageId) {
                 if (log.isDebugEnabled()) {
-                    log.debug("Found overlapping slots during slot submit: " +
-                            startMessageIdInTheSlot + " to : " + lastMessageIdInTheSlot +
-                            ". Comparing to lastAssignedID : " + lastAssignedMessageId);
+                    log.debug("Found " + overlappingSlots.size() + " overlapping slots.");
                 }
-                // Find overlapping slots
-                TreeSet<Slot> overlappingSlots = getOverlappedAssignedSlots(queueName, startMessageIdInTheSlot,
-                        lastMessageIdInTheSlot);
-
-                if (!(overlappingSlots.isEmpty())) {
-
+                // Following means that we have a piece of the slot exceeding the earliest
+                // assigned slot. breaking that piece and adding it as a new,unassigned slot.
+                if (startMessageIdInTheSlot < overlappingSlots.first().getStartMessageId()) {
+                    Slot leftExtraSlot = new Slot(startMessageIdInTheSlot, overlappingSlots.first().
+                            getStartMessageId() - 1, queueName);
                     if (log.isDebugEnabled()) {
-                        log.debug("Found " + overlappingSlots.size() + " overlapping slots.");
-                    }
-                    // Following means that we have a piece of the slot exceeding the earliest
-                    // assigned slot. breaking that piece and adding it as a new,unassigned slot.
-                    if (startMessageIdInTheSlot < overlappingSlots.first().getStartMessageId()) {
-                        Slot leftExtraSlot = new Slot(startMessageIdInTheSlot, overlappingSlots.first().
-                                getStartMessageId() - 1, queueName);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Left Extra Slot in overlapping slots : " + leftExtraSlot);
-                        }
+                        log.debug("Left Extra Slot in overlapping slots : " + leftExtraSlot);
                     }
-                    // This means that we have a piece of the slot exceeding the latest assigned slot.
-                    // breaking that piece and adding it as a new,unassigned slot.
-                    if (lastMessageIdInTheSlot > overlappingSlots.last().getEndMessageId()) {
-                        Slot rightExtraSlot = new Slot(overlappingSlots.last().getEndMessageId() + 1,
-                                lastMessageIdInTheSlot, queueName);
-
-                        if (log.isDebugEnabled()) {
-                            log.debug("RightExtra in overlapping slot : " + rightExtraSlot);
-                        }
-                        //Update last message ID - expand ongoing slot to cater this leftover part.
-                        slotAgent.addMessageId(queueName, lastMessageIdInTheSlot);
+                }
+                // This means that we have a piece of the slot exceeding the latest assigned slot.
+                // breaking that piece and adding it as a new,unassigned slot.
+                if (lastMessageIdInTheSlot > overlappingSlots.last().getEndMessageId()) {
+                    Slot rightExtraSlot = new Slot(overlappingSlots.last().getEndMessageId() + 1,
+                            lastMessageIdInTheSlot, queueName);
 
-                        if (log.isDebugEnabled()) {
-                            log.debug(lastMessageIdInTheSlot + " added to store " +
-                                    "(RightExtraSlot). Current values in " +
-                                    "store " + messageIdSet);
-                        }
-                    }
-                } else {
-                    /*
-                     * The fact that the slot ended up in this condition means that, all previous slots within this
-					 * range have been already processed and deleted. This is a very rare scenario.
-					 */
                     if (log.isDebugEnabled()) {
-                        log.debug("A submit slot request has come from the past after deletion of any " +
-                                "possible overlapping slots. nodeId : " + nodeId + " StartMessageID : " +
-                                startMessageIdInTheSlot + " EndMessageID : " + lastMessageIdInTheSlot);
+                        log.debug("RightExtra in overlapping slot : " + rightExtraSlot);
                     }
+                    //Update last message ID - expand ongoing slot to cater this leftover part.
+                    addMessageIdToRecord(messageIdsToAdd, queueName, lastMessageIdInTheSlot);
 
-                    slotAgent.addMessageId(queueName, lastMessageIdInTheSlot);
+                    if (log.isDebugEnabled()) {
+                        log.debug(lastMessageIdInTheSlot + " added to store " +
+                                "(RightExtraSlot). Current values in " +
+                                "store " + slotAgent.getSlotBasedMessageIds(queueName));
+                    }
                 }
             } else {
-                //Update the store only if the last assigned message ID is less than the new start message ID
-                slotAgent.addMessageId(queueName, lastMessageIdInTheSlot);
-
+                /*
+                 * The fact that the slot ended up in this condition means that, all previous slots within this
+                 * range have been already processed and deleted. This is a very rare scenario.
+                 */
                 if (log.isDebugEnabled()) {
-                    log.debug("No overlapping slots found during slot submit " + startMessageIdInTheSlot + " to : " +
-                            lastMessageIdInTheSlot + ". Added msgID " +
-                            lastMessageIdInTheSlot + " to store");
+                    log.debug("A submit slot request has come from the past after deletion of any " +
+                            "possible overlapping slots. nodeId : " + nodeId + " StartMessageID : " +
+                            startMessageIdInTheSlot + " EndMessageID : " + lastMessageIdInTheSlot);
                 }
+
+                addMessageIdToRecord(messageIdsToAdd, queueName, lastMessageIdInTheSlot);
             }
-            //record local safe zone
-            slotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
+        } else {
+            //Update the store only if the last assigned message ID is less than the new start message ID
+            addMessageIdToRecord(messageIdsToAdd, queueName, lastMessageIdInTheSlot);
+
+            if (log.isDebugEnabled()) {
+                log.debug("No overlapping slots found during slot submit " + startMessageIdInTheSlot + " to : " +
+                        lastMessageIdInTheSlot + ". Added msgID " +
+                        lastMessageIdInTheSlot + " to store");
+            }
+        }
+    }
+
+    private static void addMessageIdToRecord(Map<String, List<Long>> messageIdsToAdd, String queueName,
+                                             long messageId) {
+        List<Long> messageIds = messageIdsToAdd.get(queueName);
+        if (null == messageIds) {
+            messageIds = new ArrayList<>(1);
+            messageIdsToAdd.put(queueName, messageIds);
         }
+        messageIds.add(messageId);
     }
 
     /**
@@ -312,7 +312,7 @@ public class SlotManagerStandalone extends AbstractSlotManager {
         synchronized (lockKey.intern()) {
             TreeSet<Long> messageIDSet = slotIDMap.get(queueName);
             //set the lower bound Id for safety delete region as the safety slot count interval upper bound id + 1
-            if (messageIDSet.size() >= safetySlotCount) {
+            if (null != messageIDSet && messageIDSet.size() >= safetySlotCount) {
                 lowerBoundId = messageIDSet.toArray(new Long[messageIDSet.size()])[safetySlotCount - 1] + 1;
                 // Inform the slot manager regarding the current expiry deletion range and queue.
                 setDeletionTaskState(queueName, lowerBoundId);
@@ -32,21 +32,28 @@ import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.AndesMessageMetadata;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MessageLatencyRecorder;
 import org.wso2.andes.store.FailureObservingStoreManager;
 import org.wso2.andes.store.HealthAwareStore;
 import org.wso2.andes.store.StoreHealthListener;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This class is responsible of counting messages in a slot for each queue
+ * This class is responsible of counting messages in a slot for each queue. Closed slots are queued and sent to the
+ * coordinator in batches by a single submitter thread, so that publishing never waits on the coordinator.
  */
 public class SlotMessageCounter implements StoreHealthListener {
 
@@ -63,6 +70,26 @@ public class SlotMessageCounter implements StoreHealthListener {
      */
     private final ScheduledExecutorService submitSlotToCoordinatorExecutor;
 
+    /**
+     * Executor running the {@link SlotSubmitter}
+     */
+    private final ExecutorService slotSubmitterExecutor;
+
+    /**
+     * Slots closed and waiting to be sent to the coordinator, in the order they were closed
+     */
+    private final LinkedBlockingQueue<SlotSubmission> pendingSubmissions = new LinkedBlockingQueue<>();
+
+    /**
+     * Number of closed slots not yet recorded by the coordinator, including the batch being sent
+     */
+    private final AtomicInteger unsubmittedSlotCount = new AtomicInteger(0);
+
+    /**
+     * Maximum number of slots sent to the coordinator in a single request
+     */
+    private final int maxSubmitBatchSize;
+
     private Log log = LogFactory.getLog(SlotMessageCounter.class);
     private static SlotMessageCounter slotMessageCounter = new SlotMessageCounter();
     private final int slotWindowSize;
@@ -77,6 +104,11 @@ public class SlotMessageCounter implements StoreHealthListener {
 
     private static final int SLOT_SUBMIT_LOOP_SKIP_COUNT_THRESHOLD = 10;
 
+    /**
+     * Time to wait for the slot timeout task and the {@link SlotSubmitter} to stop, in seconds
+     */
+    private static final int SHUTDOWN_TIMEOUT = 30;
+
     /**
      * Time between successive slot submit scheduled tasks.
      * <p>
@@ -100,6 +132,9 @@ public class SlotMessageCounter implements StoreHealthListener {
         slotWindowSize = AndesConfigurationManager
                 .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_SLOT_WINDOW_SIZE);
 
+        maxSubmitBatchSize = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_MAX_SUBMIT_BATCH_SIZE);
+
         timeOutForMessagesInQueue = AndesConfigurationManager
                 .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_MESSAGE_ACCUMULATION_TIMEOUT);
 
@@ -113,6 +148,11 @@ public class SlotMessageCounter implements StoreHealthListener {
                 .build();
         submitSlotToCoordinatorExecutor = Executors.newScheduledThreadPool(2, namedThreadFactory);
         scheduleSubmitSlotToCoordinatorTimer();
+
+        ThreadFactory submitterThreadFactory = new ThreadFactoryBuilder().setNameFormat("SlotSubmitterTask")
+                .build();
+        slotSubmitterExecutor = Executors.newSingleThreadExecutor(submitterThreadFactory);
+        slotSubmitterExecutor.submit(new SlotSubmitter());
     }
 
     /**
@@ -188,7 +228,8 @@ public class SlotMessageCounter implements StoreHealthListener {
     }
 
     /**
-     * Submit last message ID in the slot to SlotManager.
+     * Close the current slot of the queue and queue it to be sent to SlotManager. The slot is sent by the
+     * {@link SlotSubmitter} along with other closed slots.
      *
      * @param storageQueueName name of the queue which this slot belongs to
      */
@@ -200,16 +241,12 @@ public class SlotMessageCounter implements StoreHealthListener {
             // Check if the number of messages in slot is greater than or equal to slot window size or slot timeout
             // has reached. This is to avoid timer task or disruptor creating smaller/overlapping slots.
             if (checkMessageLimitReached(slot) || checkTimeOutReached(lastSlotUpdateTime)) {
-                try {
-                    long localSafeZone = inferLocalSafeZone(storageQueueName);
-                    slotTimeOutMap.remove(storageQueueName);
-                    queueToSlotMap.remove(storageQueueName);
-                    slotCoordinator.updateMessageId(storageQueueName, slot.getStartMessageId(),
-                            slot.getEndMessageId(), localSafeZone);
-                } catch (ConnectionException e) {
-                    // we only log here since this is called again from timer task if previous attempt failed
-                    log.error("Error occurred while connecting to the thrift coordinator.", e);
-                }
+                long localSafeZone = inferLocalSafeZone(storageQueueName);
+                unsubmittedSlotCount.incrementAndGet();
+                slotTimeOutMap.remove(storageQueueName);
+                queueToSlotMap.remove(storageQueueName);
+                Slot closedSlot = new Slot(slot.getStartMessageId(), slot.getEndMessageId(), storageQueueName);
+                pendingSubmissions.add(new SlotSubmission(closedSlot, localSafeZone, lastSlotUpdateTime));
             }
         }
     }
@@ -276,11 +313,26 @@ public class SlotMessageCounter implements StoreHealthListener {
 
     /**
      * Shut down worker threads, submitSlotToCoordinatorExecutor so that server can shut down properly without
-     * unexpected behaviour.
+     * unexpected behaviour. Slots closed before stopping are sent to the coordinator by the {@link SlotSubmitter}
+     * before it stops.
      */
     public void stop() {
         log.info("Stopping slot timeout task executor");
         submitSlotToCoordinatorExecutor.shutdown();
+        try {
+            // A running timeout task may still close slots
+            if (!submitSlotToCoordinatorExecutor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                log.warn("Slot timeout task did not stop within " + SHUTDOWN_TIMEOUT + " seconds");
+            }
+            slotSubmitterExecutor.shutdownNow();
+            if (!slotSubmitterExecutor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                log.warn("Slot submitter did not stop within " + SHUTDOWN_TIMEOUT + " seconds. "
+                        + pendingSubmissions.size() + " slots were not submitted.");
+            }
+        } catch (InterruptedException e) {
+            slotSubmitterExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -365,6 +417,11 @@ public class SlotMessageCounter implements StoreHealthListener {
          * there are no publishers in the local node.
          */
         private void updateCoordinatorWithCurrentSafezone() {
+            // Slots waiting to be sent carry the safe zone of the node. Hence the safe zone is sent on its own
+            // only when there are none.
+            if (unsubmittedSlotCount.get() > 0) {
+                return;
+            }
             slotSubmitLoopSkipCount++;
             if (slotSubmitLoopSkipCount == SLOT_SUBMIT_LOOP_SKIP_COUNT_THRESHOLD) {
                 //update current slot Deletion Safe Zone
@@ -397,6 +454,132 @@ public class SlotMessageCounter implements StoreHealthListener {
         }
     }
 
+    /**
+     * Sends closed slots to the coordinator. Slots closed while a request is in progress are sent together in the
+     * next request. A batch that could not be sent is retried, before any slot closed after it.
+     */
+    private class SlotSubmitter implements Runnable {
+
+        @Override
+        public void run() {
+            List<SlotSubmission> batch = new ArrayList<>(maxSubmitBatchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (batch.isEmpty()) {
+                        batch.add(pendingSubmissions.take());
+                    }
+                    pendingSubmissions.drainTo(batch, maxSubmitBatchSize - batch.size());
+                    submitBatch(batch);
+                    batch.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ConnectionException e) {
+                    log.error("Error occurred while connecting to the thrift coordinator. Submitting " + batch.size()
+                            + " slots again.", e);
+                    waitBeforeRetry();
+                } catch (Throwable e) {
+                    // This is to avoid the submitter from stopping
+                    log.error("Error occurred while submitting " + batch.size() + " slots.", e);
+                    waitBeforeRetry();
+                }
+            }
+
+            // Interrupted by stop(). Clear the interrupt so that the remaining slots can still be sent.
+            Thread.interrupted();
+            submitRemaining(batch);
+        }
+
+        /**
+         * Send the given batch and all slots pending submission, without retrying. Slots which could not be sent
+         * are left to slot recovery.
+         *
+         * @param batch slots taken for submission but not sent yet
+         */
+        private void submitRemaining(List<SlotSubmission> batch) {
+            pendingSubmissions.drainTo(batch);
+            for (int start = 0; start < batch.size(); start += maxSubmitBatchSize) {
+                List<SlotSubmission> chunk = batch.subList(start, Math.min(start + maxSubmitBatchSize, batch.size()));
+                try {
+                    submitBatch(chunk);
+                } catch (Throwable e) {
+                    log.error("Error occurred while submitting " + (batch.size() - start) + " slots before "
+                            + "stopping.", e);
+                    return;
+                }
+            }
+            if (!batch.isEmpty()) {
+                log.info("Submitted " + batch.size() + " pending slots before stopping");
+            }
+        }
+
+        /**
+         * Send slots to the coordinator in a single request and wake up delivery of their queues
+         *
+         * @param batch slots to send, in the order they were closed
+         * @throws ConnectionException if the coordinator could not be reached
+         */
+        private void submitBatch(List<SlotSubmission> batch) throws ConnectionException {
+            List<Slot> slots = new ArrayList<>(batch.size());
+            Set<String> storageQueueNames = new LinkedHashSet<>();
+            for (SlotSubmission submission : batch) {
+                slots.add(submission.slot);
+                storageQueueNames.add(submission.slot.getStorageQueueName());
+            }
+
+            // Safe zone of the last slot covers the slots before it
+            long localSafeZone = batch.get(batch.size() - 1).localSafeZone;
+            slotCoordinator.updateMessageIds(slots, localSafeZone);
+            unsubmittedSlotCount.addAndGet(-batch.size());
+
+            if (MessageLatencyRecorder.isEnabled()) {
+                long submittedTime = System.currentTimeMillis();
+                for (SlotSubmission submission : batch) {
+                    if (null != submission.slotOpenTime) {
+                        MessageLatencyRecorder.record(MessageLatencyRecorder.Stage.SLOT_SUBMITTED,
+                                submission.slot.getStorageQueueName(), submittedTime - submission.slotOpenTime);
+                    }
+                }
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Submitted " + slots.size() + " slots of " + storageQueueNames.size()
+                        + " queues with local safe zone " + localSafeZone);
+            }
+            for (String storageQueueName : storageQueueNames) {
+                SlotDeliveryWorkerManager.getInstance().wakeUpDelivery(storageQueueName);
+            }
+        }
+
+        private void waitBeforeRetry() {
+            try {
+                TimeUnit.MILLISECONDS.sleep(SLOT_SUBMIT_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A closed slot along with the local safe zone of the node when the slot was closed
+     */
+    private static final class SlotSubmission {
+
+        private final Slot slot;
+
+        private final long localSafeZone;
+
+        /**
+         * Time the first message of the slot was counted, in milliseconds
+         */
+        private final Long slotOpenTime;
+
+        private SlotSubmission(Slot slot, long localSafeZone, Long slotOpenTime) {
+            this.slot = slot;
+            this.localSafeZone = localSafeZone;
+            this.slotOpenTime = slotOpenTime;
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p/>
@@ -26,6 +26,7 @@ import org.wso2.andes.kernel.MessageFlusher;
 import org.wso2.andes.kernel.MessageStatus;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.slot.SlotDeliveryWorkerManager;
 import com.googlecode.cqengine.attribute.Attribute;
 import com.googlecode.cqengine.attribute.SimpleAttribute;
 import com.googlecode.cqengine.query.option.QueryOptions;
@@ -207,7 +208,13 @@ public class AndesSubscription {
      * @throws AndesException on an issue when handling ack
      */
     public void onMessageAck(long messageID) throws AndesException {
+        boolean hadRoom = subscriberConnection.hasRoomToAcceptMessages();
         subscriberConnection.onMessageAck(messageID);
+        // Wake up delivery only if the acknowledgement made room for a subscriber which could not accept messages.
+        // Otherwise delivery was not held back by this subscriber.
+        if (!hadRoom && subscriberConnection.hasRoomToAcceptMessages()) {
+            SlotDeliveryWorkerManager.getInstance().wakeUpDelivery(storageQueue.getName());
+        }
     }
 
     /**
@@ -57,6 +57,12 @@ public class NullSubscription implements OutboundSubscription {
         return false;
     }
 
+    @Override
+    public boolean isOutboundConnectionWritable() {
+        log.warn("NullSubscription  isOutboundConnectionWritable() method invoked");
+        return false;
+    }
+
     @Override
     public UUID getChannelID() {
         log.warn("NullSubscription  getChannelID() method invoked");
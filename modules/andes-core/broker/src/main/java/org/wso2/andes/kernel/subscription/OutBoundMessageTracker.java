@@ -15,13 +15,12 @@
 
 package org.wso2.andes.kernel.subscription;
 
-import com.gs.collections.impl.map.mutable.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.ConcurrentLongObjectMap;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.ProtocolMessage;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -35,7 +34,7 @@ public class OutBoundMessageTracker {
      * Map to track messages being sent <message id, MsgData reference>. This map bares message
      * reference at kernel side
      */
-    private final ConcurrentHashMap<Long, DeliverableAndesMetadata> messageSendingTracker;
+    private final ConcurrentLongObjectMap<DeliverableAndesMetadata> messageSendingTracker;
 
     /**
      * Max number of un-acknowledged messages to keep
@@ -49,7 +48,7 @@ public class OutBoundMessageTracker {
      * Create a message tracker
      */
     public OutBoundMessageTracker(int maxNumberOfMessagesToKeep) {
-        this.messageSendingTracker = new ConcurrentHashMap<>();
+        this.messageSendingTracker = new ConcurrentLongObjectMap<>();
         this.maxNumberOfUnAcknowledgedMessages = maxNumberOfMessagesToKeep;
     }
 
@@ -109,7 +108,7 @@ public class OutBoundMessageTracker {
      * @return List of DeliverableAndesMetadata messages
      */
     public List<DeliverableAndesMetadata> getUnackedMessages() {
-        return new ArrayList<>(messageSendingTracker.values());
+        return messageSendingTracker.values();
     }
 
 
@@ -119,11 +118,8 @@ public class OutBoundMessageTracker {
      * @param messageData message to add
      */
     public void addMessageToSendingTracker(ProtocolMessage messageData) {
-        DeliverableAndesMetadata messageDataToAdd = messageSendingTracker.get(messageData.getMessageID());
-        if (null == messageDataToAdd) {
-            //we need to put message reference to the sending tracker
-            messageSendingTracker.put(messageData.getMessageID(), messageData.getMessage());
-        }
+        //we need to put message reference to the sending tracker
+        messageSendingTracker.putIfAbsent(messageData.getMessageID(), messageData.getMessage());
     }
 
 }
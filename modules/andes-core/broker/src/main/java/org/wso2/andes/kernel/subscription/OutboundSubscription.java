@@ -64,6 +64,15 @@ public interface OutboundSubscription {
      */
     boolean isOutboundConnectionLive();
 
+    /**
+     * Check if the underlying connection can take more messages right now. A connection which is not
+     * writable already holds as much outbound data as it is allowed to buffer, hence delivery to it
+     * should be held back until it drains.
+     *
+     * @return true if messages can be written to the connection
+     */
+    boolean isOutboundConnectionWritable();
+
     /**
      * Get ID of the subscription channel
      *
@@ -29,6 +29,7 @@ import org.wso2.andes.kernel.MessageHandler;
 import org.wso2.andes.kernel.SubscriptionAlreadyExistsException;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotDeliveryWorkerManager;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -352,6 +353,7 @@ public class StorageQueue {
      */
     public void bufferMessageForDelivery(DeliverableAndesMetadata message) {
         messageHandler.bufferMessage(message);
+        SlotDeliveryWorkerManager.getInstance().wakeUpDelivery(name);
     }
 
     /**
@@ -189,13 +189,14 @@ public class SubscriberConnection {
     /**
      * Check if subscriber has room to accept messages. This indicates
      * consumer side flow control. If there is a lot of sent but
-     * unacknowledged messages it is not ready to accept messages.
+     * unacknowledged messages, or the underlying connection cannot take
+     * more writes, it is not ready to accept messages.
      *
      * @return true if subscriber is ready to accept the messages to send to
      * client side.
      */
     public boolean hasRoomToAcceptMessages() {
-        return outBoundMessageTracker.hasRoomToAcceptMessages();
+        return outBoundMessageTracker.hasRoomToAcceptMessages() && outboundSubscription.isOutboundConnectionWritable();
     }
 
     /**
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latency values with bounded relative error, in the style of HdrHistogram. Values below
+ * {@link #LINEAR_BUCKET_COUNT} are counted exactly. Larger values are counted in {@link #SUB_BUCKET_COUNT} buckets
+ * per power of two, so a recorded value is reported within 12.5% of its actual value.
+ * <p>
+ * Recording is a couple of atomic increments, therefore histograms can be updated from the message path.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of sub buckets per power of two, as a power of two
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below this are counted in a bucket of their own
+     */
+    private static final int LINEAR_BUCKET_COUNT = SUB_BUCKET_COUNT * 2;
+
+    /**
+     * Power of two of the first logarithmic bucket
+     */
+    private static final int FIRST_EXPONENT = Long.numberOfTrailingZeros(LINEAR_BUCKET_COUNT);
+
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT + (63 - FIRST_EXPONENT) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Record a value. Negative values, which could be caused by clock differences between nodes, are recorded as 0.
+     *
+     * @param value value to record
+     */
+    public void record(long value) {
+        long boundedValue = Math.max(0, value);
+        buckets.incrementAndGet(getBucketIndex(boundedValue));
+        totalCount.incrementAndGet();
+
+        long currentMax = maxValue.get();
+        while (boundedValue > currentMax && !maxValue.compareAndSet(currentMax, boundedValue)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    /**
+     * Get the number of recorded values
+     *
+     * @return number of recorded values
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Get the largest recorded value
+     *
+     * @return largest recorded value, 0 if nothing is recorded
+     */
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * Get the value below which the given percentage of recorded values fall
+     *
+     * @param percentile percentage between 0 and 100
+     * @return highest value equivalent to the percentile, 0 if nothing is recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (0 == count) {
+            return 0;
+        }
+
+        long countAtPercentile = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+        long runningCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            runningCount += buckets.get(i);
+            if (runningCount >= countAtPercentile) {
+                return Math.min(getHighestValueOfBucket(i), getMaxValue());
+            }
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * Clear recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        totalCount.set(0);
+        maxValue.set(0);
+    }
+
+    private static int getBucketIndex(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+        return LINEAR_BUCKET_COUNT + (exponent - FIRST_EXPONENT) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long getHighestValueOfBucket(int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + FIRST_EXPONENT;
+        int subBucket = (index - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
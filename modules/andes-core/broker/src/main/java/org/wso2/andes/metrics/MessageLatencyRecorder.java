@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.metrics;
+
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long messages take to reach each stage of the kernel pipeline, per storage queue. Message stages are
+ * measured from the arrival time of the message at the broker. Only one in
+ * {@link AndesConfiguration#PERFORMANCE_TUNING_LATENCY_TRACKING_SAMPLE_RATE} messages is recorded. Messages are
+ * sampled by a hash of the message id, so a sampled message is recorded at every stage and sampling does not follow
+ * patterns in how ids are generated.
+ * <p>
+ * Latencies are kept in a {@link LatencyHistogram} per stage, exposed through JMX, and reported to a carbon metrics
+ * timer.
+ */
+public class MessageLatencyRecorder {
+
+    /**
+     * Pipeline stages latencies are recorded for
+     */
+    public enum Stage {
+
+        /**
+         * Message is persisted by a message writer
+         */
+        STORED,
+
+        /**
+         * Slot holding the message is submitted to the slot coordinator. Measured from the time the first message
+         * of the slot was recorded, once per slot.
+         */
+        SLOT_SUBMITTED,
+
+        /**
+         * Message is read from the store and buffered for delivery
+         */
+        BUFFERED,
+
+        /**
+         * Message is handed over to the protocol for delivery to a subscriber
+         */
+        DELIVERED
+    }
+
+    private static final boolean enabled = AndesConfigurationManager.readValue(
+            AndesConfiguration.PERFORMANCE_TUNING_LATENCY_TRACKING_ENABLED);
+
+    /**
+     * Multiplier spreading sequential message ids over the hash space (golden ratio of 2^64)
+     */
+    private static final long SAMPLING_HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final int sampleRate = Math.max(1, (Integer) AndesConfigurationManager.readValue(
+            AndesConfiguration.PERFORMANCE_TUNING_LATENCY_TRACKING_SAMPLE_RATE));
+
+    /**
+     * Latencies keyed by storage queue name
+     */
+    private static final ConcurrentMap<String, QueueLatencies> queueLatencies = new ConcurrentHashMap<>();
+
+    private MessageLatencyRecorder() {
+    }
+
+    /**
+     * Check if latencies are recorded
+     *
+     * @return true if latency tracking is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record the latency of a message at a stage, if the message is sampled
+     *
+     * @param stage    stage the message reached
+     * @param metadata metadata of the message
+     */
+    public static void record(Stage stage, AndesMessageMetadata metadata) {
+        if (enabled && isSampled(metadata.getMessageID())) {
+            record(stage, metadata.getStorageQueueName(), System.currentTimeMillis() - metadata.getArrivalTime());
+        }
+    }
+
+    /**
+     * Record a latency of a storage queue at a stage, without sampling
+     *
+     * @param stage            stage reached
+     * @param storageQueueName storage queue name
+     * @param latency          latency in milliseconds
+     */
+    public static void record(Stage stage, String storageQueueName, long latency) {
+        if (enabled) {
+            getQueueLatencies(storageQueueName).record(stage, latency);
+        }
+    }
+
+    /**
+     * Remove the latencies and metric timers of a deleted storage queue
+     *
+     * @param storageQueueName storage queue name
+     */
+    public static void removeStorageQueue(String storageQueueName) {
+        QueueLatencies latencies = queueLatencies.remove(storageQueueName);
+        if (null != latencies) {
+            for (Stage stage : Stage.values()) {
+                MetricManager.remove(getTimerName(storageQueueName, stage));
+            }
+        }
+    }
+
+    /**
+     * Get names of storage queues with recorded latencies
+     *
+     * @return storage queue names
+     */
+    public static Set<String> getStorageQueueNames() {
+        return queueLatencies.keySet();
+    }
+
+    /**
+     * Get the latency histogram of a storage queue at a stage
+     *
+     * @param storageQueueName storage queue name
+     * @param stage            pipeline stage
+     * @return latency histogram in milliseconds, or null if nothing is recorded for the queue
+     */
+    public static LatencyHistogram getHistogram(String storageQueueName, Stage stage) {
+        QueueLatencies latencies = queueLatencies.get(storageQueueName);
+        if (null == latencies) {
+            return null;
+        }
+        return latencies.histograms[stage.ordinal()];
+    }
+
+    /**
+     * Clear latencies recorded so far
+     */
+    public static void reset() {
+        for (QueueLatencies latencies : queueLatencies.values()) {
+            for (LatencyHistogram histogram : latencies.histograms) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * Check if a message is sampled. Message ids are not uniformly distributed modulo the sample rate, since they
+     * embed a timestamp and a node id, so the id is hashed first.
+     *
+     * @param messageID message id
+     * @return true if latencies of the message are recorded
+     */
+    static boolean isSampled(long messageID) {
+        return 0 == ((messageID * SAMPLING_HASH_MULTIPLIER) >>> 32) % sampleRate;
+    }
+
+    private static String getTimerName(String storageQueueName, Stage stage) {
+        return MetricsConstants.MESSAGE_STAGE_LATENCY + MetricsConstants.METRICS_NAME_SEPARATOR + storageQueueName
+                + MetricsConstants.METRICS_NAME_SEPARATOR + stage.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static QueueLatencies getQueueLatencies(String storageQueueName) {
+        QueueLatencies latencies = queueLatencies.get(storageQueueName);
+        if (null == latencies) {
+            latencies = new QueueLatencies(storageQueueName);
+            QueueLatencies existing = queueLatencies.putIfAbsent(storageQueueName, latencies);
+            if (null != existing) {
+                latencies = existing;
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * Histograms and metric timers of a storage queue, indexed by stage
+     */
+    private static class QueueLatencies {
+
+        private final LatencyHistogram[] histograms;
+
+        private final Timer[] timers;
+
+        QueueLatencies(String storageQueueName) {
+            Stage[] stages = Stage.values();
+            histograms = new LatencyHistogram[stages.length];
+            timers = new Timer[stages.length];
+            for (Stage stage : stages) {
+                histograms[stage.ordinal()] = new LatencyHistogram();
+                timers[stage.ordinal()] = MetricManager.timer(getTimerName(storageQueueName, stage), Level.INFO);
+            }
+        }
+
+        void record(Stage stage, long latency) {
+            histograms[stage.ordinal()].record(latency);
+            timers[stage.ordinal()].update(Math.max(0, latency), TimeUnit.MILLISECONDS);
+        }
+    }
+}
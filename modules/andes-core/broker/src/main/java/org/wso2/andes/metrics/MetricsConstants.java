@@ -155,6 +155,24 @@ public class MetricsConstants {
      */
     public static final String DISRUPTOR_OUTBOUND_RING = PREFIX + "outbound.disruptor.message.count";
 
+    /**
+     * At a given time the number of events in the inbound ring not yet processed by a handler. Suffixed with the
+     * handler name
+     */
+    public static final String DISRUPTOR_INBOUND_HANDLER_LAG = PREFIX + "inbound.disruptor.handler.lag";
+
+    /**
+     * At a given time the number of events in the outbound ring not yet processed by a handler. Suffixed with the
+     * handler name
+     */
+    public static final String DISRUPTOR_OUTBOUND_HANDLER_LAG = PREFIX + "outbound.disruptor.handler.lag";
+
+    /**
+     * At a given time the number of events in an MQTT inbound partition not yet processed. Suffixed with the
+     * partition index
+     */
+    public static final String MQTT_INBOUND_PARTITION_LAG = PREFIX + "mqtt.inbound.partition.lag";
+
     /**
      * At a given time number of queue subscribers
      */
@@ -170,6 +188,27 @@ public class MetricsConstants {
      */
     public static final String ACTIVE_CHANNELS = PREFIX + "channels.active.count";
 
+    /**
+     * Number of routing lookups served from the routing result cache
+     */
+    public static final String ROUTING_CACHE_HITS = PREFIX + "routing.cache.hit.count";
+
+    /**
+     * Number of routing lookups that had to match the routing key against bindings
+     */
+    public static final String ROUTING_CACHE_MISSES = PREFIX + "routing.cache.miss.count";
+
+    /**
+     * Time a delivery worker of a queue waited to be processed after it had work to do
+     */
+    public static final String QUEUE_DELIVERY_LAG = PREFIX + "queue.delivery.lag";
+
+    /**
+     * Time messages of a storage queue take from arrival to a pipeline stage. Suffixed with the storage queue
+     * name and the stage
+     */
+    public static final String MESSAGE_STAGE_LATENCY = PREFIX + "message.stage.latency";
+
     /**
      * Number of messages received per second. This metric is calculated when a message reaches server.
      */
@@ -215,6 +254,11 @@ public class MetricsConstants {
      */
     public static final String REJECT_MESSAGES = PREFIX + "reject.count";
 
+    /**
+     * Number of expired messages deleted from a queue
+     */
+    public static final String EXPIRED_MESSAGES = PREFIX + "expired.count";
+
     public static final String METRICS_NAME_SEPARATOR = "|";
 
 }
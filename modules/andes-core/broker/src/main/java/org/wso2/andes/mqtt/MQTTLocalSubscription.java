@@ -225,6 +225,15 @@ public class MQTTLocalSubscription implements OutboundSubscription {
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     * Delivery is paused while the client connection is above its write buffer high water mark.
+     */
+    @Override
+    public boolean isOutboundConnectionWritable() {
+        return null == mqqtServerChannel || mqqtServerChannel.isSubscriberWritable(mqttSubscriptionID);
+    }
+
     @Override
     public UUID getChannelID() {
         return channelID != null ? channelID : null;
@@ -22,8 +22,10 @@ import org.apache.commons.logging.LogFactory;
 import org.dna.mqtt.wso2.AndesMQTTBridge;
 import org.dna.mqtt.wso2.QOSLevel;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesUtils;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.SubscriptionAlreadyExistsException;
+import org.wso2.andes.kernel.slot.SlotDeliveryWorkerManager;
 import org.wso2.andes.mqtt.connectors.MQTTConnector;
 import org.wso2.andes.mqtt.connectors.PersistenceStoreConnector;
 import org.wso2.andes.mqtt.utils.MQTTUtils;
@@ -31,11 +33,12 @@ import org.wso2.andes.mqtt.utils.MQTTUtils;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.dna.mqtt.wso2.AndesMQTTBridge.SubscriptionEvent;
 import static org.dna.mqtt.wso2.AndesMQTTBridge.getBridgeInstance;
@@ -53,11 +56,16 @@ public class MQTTopicManager {
     private static Log log = LogFactory.getLog(MQTTopicManager.class);
     /**
      * Channel id will be defined as the key and the value will hold the topic<->subscription information
-     * We could go with the hash map since we don't need immediate reflection of values being added during the runtime
-     * i.e subscription getting bound when a message is given out for distribution, for topicSubscriptions we only need
-     * to deliver messages to subscribers who were bound before the message was published to the broker
+     * Events of a client are processed in order by a single MQTT inbound processor, but clients are spread across
+     * several processors and messages are delivered from Andes delivery threads, hence the map is accessed concurrently
      */
-    private Map<String, MQTTopics> topicSubscriptions = new HashMap<>();
+    private Map<String, MQTTopics> topicSubscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of the clients whose connection is above its write buffer high water mark. Delivery to their
+     * subscriptions is held back until the connection drains
+     */
+    private final Set<String> unwritableClients = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     /**
      * The instance which will be referred
      */
@@ -462,4 +470,40 @@ public class MQTTopicManager {
 
     }
 
+    /**
+     * Check whether messages can be written to the connection of the given client
+     *
+     * @param clientID the channel id of the subscriber
+     * @return true unless the connection of the client is above its write buffer high water mark
+     */
+    public boolean isSubscriberWritable(String clientID) {
+        return !unwritableClients.contains(clientID);
+    }
+
+    /**
+     * Triggers when the connection of a client crosses its write buffer water marks. Delivery to the subscriptions
+     * of the client is held back while the connection is not writable, and is woken up once it drains.
+     *
+     * @param clientID the channel id of the client
+     * @param writable whether the connection of the client is writable
+     */
+    public void onSubscriberWritabilityChanged(String clientID, boolean writable) {
+        if (!writable) {
+            unwritableClients.add(clientID);
+        } else if (unwritableClients.remove(clientID)) {
+            MQTTopics mqtTopics = topicSubscriptions.get(clientID);
+
+            if (null != mqtTopics) {
+                for (MQTTSubscription subscription : mqtTopics.getAllSubscriptionsForChannel()) {
+                    String topic = subscription.getTopicName();
+                    boolean isDurable = MQTTUtils.isDurable(subscription.isCleanSession(),
+                            subscription.getQOSLevel().getValue());
+                    String storageQueueName = AndesUtils.getStorageQueueForDestination(topic,
+                            MQTTUtils.MQTT_EXCHANGE_NAME, topic, isDurable);
+                    SlotDeliveryWorkerManager.getInstance().wakeUpDelivery(storageQueueName);
+                }
+            }
+        }
+    }
+
 }
@@ -23,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.wso2.andes.AMQException;
 import org.wso2.andes.amqp.AMQPUtils;
 import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AMQPNetworkTransport;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.configuration.modules.JKSStore;
 import org.wso2.andes.configuration.qpid.ServerConfiguration;
@@ -43,6 +44,7 @@ import org.wso2.andes.server.protocol.MultiVersionProtocolEngineFactory;
 import org.wso2.andes.server.registry.ApplicationRegistry;
 import org.wso2.andes.server.registry.ConfigurationFileApplicationRegistry;
 import org.wso2.andes.server.transport.QpidAcceptor;
+import org.wso2.andes.server.transport.netty.NettyNetworkTransport;
 import org.wso2.andes.ssl.SSLContextFactory;
 import org.wso2.andes.transport.NetworkTransportConfiguration;
 import org.wso2.andes.transport.network.IncomingNetworkTransport;
@@ -171,6 +173,8 @@ public class Broker
                     bindAddressForHostname = InetAddress.getByName(bindAddressFromBrokerOptions);
                 }
                 String hostName = bindAddressForHostname.getCanonicalHostName();
+                AMQPNetworkTransport networkTransport =
+                        AndesConfigurationManager.readValue(AndesConfiguration.TRANSPORTS_AMQP_NETWORK_TRANSPORT);
 
                 if (!serverConfig.getSSLOnly()) {
                     for (int port : ports) {
@@ -194,7 +198,8 @@ public class Broker
                                 new ServerNetworkTransportConfiguration(serverConfig, port,
                                                                         bindAddressFromBrokerOptions, Transport.TCP);
 
-                        IncomingNetworkTransport transport = Transport.getIncomingTransportInstance();
+                        IncomingNetworkTransport transport = (AMQPNetworkTransport.NETTY == networkTransport) ?
+                                new NettyNetworkTransport() : Transport.getIncomingTransportInstance();
                         MultiVersionProtocolEngineFactory protocolEngineFactory =
                                 new MultiVersionProtocolEngineFactory(hostName, supported);
 
@@ -222,7 +227,8 @@ public class Broker
                                 new ServerNetworkTransportConfiguration(serverConfig, sslPort,
                                                                         bindAddressFromBrokerOptions, Transport.TCP);
 
-                        IncomingNetworkTransport transport = new MinaNetworkTransport();
+                        IncomingNetworkTransport transport = (AMQPNetworkTransport.NETTY == networkTransport) ?
+                                new NettyNetworkTransport() : new MinaNetworkTransport();
 
                         transport.accept(settings, new AMQProtocolEngineFactory(), sslFactory);
 
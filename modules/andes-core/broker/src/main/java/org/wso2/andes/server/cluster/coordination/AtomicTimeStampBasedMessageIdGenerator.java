@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.server.cluster.coordination;
+
+import org.wso2.andes.server.ClusterResourceHolder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free variant of {@link TimeStampBasedMessageIdGenerator}. Generated IDs have the same layout
+ * <p/>
+ * [1 sign bit][45bits for time spent from reference time in milliseconds][8bit node id][10 bit offset]
+ * <p/>
+ * The last generated ID is kept in a single atomic word and the next ID is claimed with a compare and set, so
+ * publisher threads never block on a monitor. IDs generated within a node are strictly increasing, which slot
+ * ranges depend on.
+ * <p/>
+ * If more than 1024 IDs are requested within a millisecond, or if the system clock moves backwards, the generator
+ * keeps counting from the last used timestamp (borrowing the next millisecond when the offset is exhausted)
+ * instead of failing. It catches up with the clock once the clock passes the last used timestamp.
+ * <p/>
+ * A refreshed node ID is only applied when the timestamp advances. Within the last used millisecond the node ID of
+ * the last generated ID is kept, so that a node ID change cannot make the next ID smaller or equal to a used one.
+ */
+public class AtomicTimeStampBasedMessageIdGenerator implements MessageIdGenerator {
+
+    private static final long REFERENCE_START = 41L * 365L * 24L * 60L * 60L * 1000L; //this is 2011
+
+    private static final int OFFSET_BITS = 10;
+
+    private static final int NODE_ID_BITS = 8;
+
+    private static final int TIMESTAMP_SHIFT = OFFSET_BITS + NODE_ID_BITS;
+
+    private static final long MAX_OFFSET = 1L << OFFSET_BITS;
+
+    private static final long OFFSET_MASK = MAX_OFFSET - 1;
+
+    private static final long NODE_ID_MASK = (1L << NODE_ID_BITS) - 1;
+
+    private static final long TIMESTAMP_MASK = ~((1L << TIMESTAMP_SHIFT) - 1);
+
+    /**
+     * Node ID can change at runtime if the node rejoins the cluster. Therefore the cached value is refreshed
+     * after this interval.
+     */
+    private static final long NODE_ID_REFRESH_INTERVAL = 1000;
+
+    /**
+     * Last generated ID
+     */
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Node ID shifted to its position in the message ID
+     */
+    private volatile long nodeIdPart;
+
+    private volatile long nodeIdRefreshTime;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNextId() {
+        long currentTime = currentTimeMillis();
+        long nodeId = getNodeIdPart(currentTime);
+        long timestampPart = (currentTime - REFERENCE_START) << TIMESTAMP_SHIFT;
+
+        while (true) {
+            long last = lastId.get();
+            long lastTimestampPart = last & TIMESTAMP_MASK;
+            long next;
+
+            if (timestampPart > lastTimestampPart) {
+                next = timestampPart | nodeId;
+            } else {
+                // Same millisecond or the clock moved backwards. Continue from the last used timestamp and node ID.
+                long offset = (last & OFFSET_MASK) + 1;
+                if (offset < MAX_OFFSET) {
+                    next = (last & ~OFFSET_MASK) | offset;
+                } else {
+                    next = (lastTimestampPart + (1L << TIMESTAMP_SHIFT)) | nodeId;
+                }
+            }
+
+            if (lastId.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long getNodeIdPart(long currentTime) {
+        if (currentTime - nodeIdRefreshTime >= NODE_ID_REFRESH_INTERVAL || currentTime < nodeIdRefreshTime) {
+            int uniqueIdForNode = getUniqueIdForLocalNode();
+            nodeIdPart = (uniqueIdForNode & NODE_ID_MASK) << OFFSET_BITS;
+            nodeIdRefreshTime = currentTime;
+        }
+        return nodeIdPart;
+    }
+
+    /**
+     * @return current time in milliseconds. Overridden in tests to simulate clock movements.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return unique ID of the local node within the cluster
+     */
+    int getUniqueIdForLocalNode() {
+        return ClusterResourceHolder.getInstance().getClusterManager().getUniqueIdForLocalNode();
+    }
+}
@@ -50,6 +50,12 @@ public class ClusterNotification implements Serializable {
      */
     private String description;
 
+    /**
+     * Unique ID of the notification, used to discard a notification received more than once. Null if the
+     * notification is delivered only once.
+     */
+    private String notificationID;
+
 
     /**
      * Create an instance of cluster notification given the notification, the change type and the node from which the
@@ -70,6 +76,22 @@ public class ClusterNotification implements Serializable {
         this.originatedNode = originatedNode;
     }
 
+    /**
+     * Create an instance of cluster notification which may be received more than once, hence carries a unique ID.
+     *
+     * @param encodedAsString  encoded string to transfer thro
+     * @param notifiedArtifact artifact that is notified by this notification
+     * @param changeType       change happened (added/deleted etc)
+     * @param description      human readable description of the notification
+     * @param originatedNode   ID of the node notification originated from
+     * @param notificationID   unique ID of the notification
+     */
+    public ClusterNotification(String encodedAsString, String notifiedArtifact, String changeType, String
+            description, String originatedNode, String notificationID) {
+        this(encodedAsString, notifiedArtifact, changeType, description, originatedNode);
+        this.notificationID = notificationID;
+    }
+
 
     /**
      * Get encoded string notification carries
@@ -117,4 +139,13 @@ public class ClusterNotification implements Serializable {
     public String getDescription() {
         return description;
     }
+
+    /**
+     * Get the unique ID of the notification
+     *
+     * @return notification ID or null if the notification does not have one
+     */
+    public String getNotificationID() {
+        return notificationID;
+    }
 }
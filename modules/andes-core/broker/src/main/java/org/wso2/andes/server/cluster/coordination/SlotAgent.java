@@ -24,6 +24,8 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.SlotState;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -171,6 +173,13 @@ public interface SlotAgent {
 	 */
 	void addMessageId(String queueName, long messageId) throws AndesException;
 
+	/**
+	 * Add message ids of many queues to database
+	 * @param queueToMessageIds message ids to add keyed by queue name
+	 * @throws org.wso2.andes.kernel.AndesException
+	 */
+	void addMessageIds(Map<String, List<Long>> queueToMessageIds) throws AndesException;
+
 	/**
 	 * Get message ids from database
 	 */
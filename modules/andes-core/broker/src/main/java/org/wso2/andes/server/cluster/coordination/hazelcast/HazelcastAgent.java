@@ -531,6 +531,18 @@ public class HazelcastAgent implements SlotAgent {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addMessageIds(Map<String, List<Long>> queueToMessageIds) throws AndesException {
+        for (Map.Entry<String, List<Long>> entry : queueToMessageIds.entrySet()) {
+            for (Long messageId : entry.getValue()) {
+                addMessageId(entry.getKey(), messageId);
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -35,6 +35,8 @@ import org.wso2.andes.store.StoreHealthListener;
 import org.wso2.andes.store.FailureObservingStoreManager;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -375,6 +377,34 @@ public class DatabaseSlotAgent implements SlotAgent, StoreHealthListener {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addMessageIds(Map<String, List<Long>> queueToMessageIds) throws AndesException {
+
+        String task = "add message ids for " + queueToMessageIds.size() + " queues";
+
+        for (int attemptCount = 1; attemptCount <= MAX_STORE_FAILURE_TOLERANCE_COUNT; attemptCount++) {
+            waitUntilStoresBecomeAvailable(task);
+            try {
+                andesContextStore.addMessageIds(queueToMessageIds);
+                break;
+            } catch (AndesDataIntegrityViolationException e) {
+                //A message id of an overlapped slot may already be in the store, which fails the whole batch.
+                //Add ids one by one, where duplicates are ignored.
+                for (Map.Entry<String, List<Long>> entry : queueToMessageIds.entrySet()) {
+                    for (Long messageId : entry.getValue()) {
+                        addMessageId(entry.getKey(), messageId);
+                    }
+                }
+                break;
+            } catch (AndesStoreUnavailableException e) {
+                handleFailure(attemptCount, task, e);
+            }
+        }
+    }
+
 
     /**
      * {@inheritDoc}
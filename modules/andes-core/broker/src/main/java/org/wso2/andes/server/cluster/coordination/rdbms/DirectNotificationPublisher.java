@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.server.cluster.coordination.ClusterNotification;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends cluster notifications directly to the {@link DirectNotificationServer} of other nodes. A connection is kept
+ * per node and opened again after a failure.
+ * <p>
+ * A notification is sent to all nodes in parallel on a dedicated executor, and the publisher waits for the
+ * acknowledgements of all of them at once. Each node gets one notification at a time over its connection.
+ * <p>
+ * A node which failed is marked down for {@link #PEER_DOWN_INTERVAL} and notifications for it go to the database
+ * right away, so a dead node does not delay every notification by the acknowledgement timeout. A node which did not
+ * acknowledge in time gets the notification through the database as well, and dispatches it once by its ID.
+ */
+class DirectNotificationPublisher {
+
+    private static final Logger log = Logger.getLogger(DirectNotificationPublisher.class);
+
+    /**
+     * Time a node is not contacted directly after a failure, in milliseconds
+     */
+    private static final long PEER_DOWN_INTERVAL = 10000;
+
+    private final String localNodeID;
+
+    /**
+     * Time to wait for a connection and an acknowledgement, in milliseconds
+     */
+    private final int ackTimeout;
+
+    /**
+     * Secret shared by the nodes of the cluster, used to authenticate to peers
+     */
+    private final String sharedSecret;
+
+    /**
+     * Nodes notifications are sent to, keyed by node id
+     */
+    private final ConcurrentMap<String, Peer> peers = new ConcurrentHashMap<>();
+
+    /**
+     * Sends notifications to the nodes
+     */
+    private final ExecutorService sendExecutor;
+
+    /**
+     * Addresses of the nodes, read again when a node without a known address is contacted
+     */
+    private Map<String, InetSocketAddress> addresses = new HashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Create a publisher for the local node
+     *
+     * @param localNodeID  id of this node, sent to peers when connecting
+     * @param ackTimeout   time to wait for a connection and an acknowledgement, in milliseconds
+     * @param sharedSecret secret shared by the nodes of the cluster
+     */
+    DirectNotificationPublisher(String localNodeID, int ackTimeout, String sharedSecret) {
+        this.localNodeID = localNodeID;
+        this.ackTimeout = ackTimeout;
+        this.sharedSecret = sharedSecret;
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("DirectClusterNotificationSender-%d").setDaemon(true).build();
+        sendExecutor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    /**
+     * Send a notification to the given nodes and wait for them to acknowledge
+     *
+     * @param notification notification to send
+     * @param nodeIDs      nodes to send to
+     * @return nodes that did not acknowledge the notification
+     */
+    List<String> publish(final ClusterNotification notification, List<String> nodeIDs) {
+        List<String> failedNodes = new ArrayList<>();
+        Map<String, Future<Boolean>> sends = new LinkedHashMap<>();
+        long currentTime = System.currentTimeMillis();
+
+        for (String nodeID : nodeIDs) {
+            if (localNodeID.equals(nodeID)) {
+                continue;
+            }
+            if (closed) {
+                failedNodes.add(nodeID);
+                continue;
+            }
+            Peer peer = peers.get(nodeID);
+            if (null == peer) {
+                Peer newPeer = new Peer(nodeID);
+                peer = peers.putIfAbsent(nodeID, newPeer);
+                if (null == peer) {
+                    peer = newPeer;
+                }
+            }
+            if (peer.isDown(currentTime)) {
+                failedNodes.add(nodeID);
+                continue;
+            }
+
+            final Peer receiver = peer;
+            try {
+                sends.put(nodeID, sendExecutor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return receiver.send(notification);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                // Publisher is closed
+                failedNodes.add(nodeID);
+            }
+        }
+
+        // Connecting, authenticating and acknowledging are each bounded by the acknowledgement timeout. A send
+        // waiting for an earlier notification to the same node may take longer, in which case the node gets the
+        // notification through the database as well.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(3L * ackTimeout);
+        for (Map.Entry<String, Future<Boolean>> entry : sends.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!entry.getValue().get(remaining, TimeUnit.NANOSECONDS)) {
+                    failedNodes.add(entry.getKey());
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Cluster notification was not acknowledged in time by node " + entry.getKey(), e);
+                }
+                failedNodes.add(entry.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedNodes.add(entry.getKey());
+            }
+        }
+
+        // Drop state of nodes that left the cluster
+        Iterator<Map.Entry<String, Peer>> iterator = peers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Peer> entry = iterator.next();
+            if (!nodeIDs.contains(entry.getKey())) {
+                entry.getValue().close();
+                iterator.remove();
+            }
+        }
+        return failedNodes;
+    }
+
+    /**
+     * Close all connections. Notifications published afterwards are left to the database.
+     */
+    void close() {
+        closed = true;
+        sendExecutor.shutdownNow();
+        for (Peer peer : peers.values()) {
+            peer.close();
+        }
+        peers.clear();
+    }
+
+    /**
+     * Get the address of a node, reading the addresses of all nodes if it is not known
+     *
+     * @param nodeID id of the node
+     * @return address of the node or null if the node has not published one
+     * @throws AndesException if node addresses could not be read
+     */
+    private synchronized InetSocketAddress getAddress(String nodeID) throws AndesException {
+        InetSocketAddress address = addresses.get(nodeID);
+        if (null == address) {
+            addresses = DirectNotificationTransport.getNodeAddresses();
+            address = addresses.get(nodeID);
+        }
+        return address;
+    }
+
+    /**
+     * Forget the address of a node, since the node may have moved to another address
+     *
+     * @param nodeID id of the node
+     */
+    private synchronized void removeAddress(String nodeID) {
+        addresses.remove(nodeID);
+    }
+
+    /**
+     * A node notifications are sent to, along with its connection. Notifications are sent to a node one at a time.
+     */
+    private class Peer {
+
+        private final String nodeID;
+
+        /**
+         * Connection to the node. Null if not connected.
+         */
+        private volatile PeerConnection connection;
+
+        /**
+         * Time until which the node is not contacted directly, in milliseconds
+         */
+        private volatile long downUntil;
+
+        private volatile boolean closed;
+
+        Peer(String nodeID) {
+            this.nodeID = nodeID;
+        }
+
+        boolean isDown(long currentTime) {
+            return downUntil > currentTime;
+        }
+
+        /**
+         * Send a notification to the node and wait for the acknowledgement, connecting first if needed
+         *
+         * @param notification notification to send
+         * @return true if the node acknowledged the notification
+         */
+        synchronized boolean send(ClusterNotification notification) {
+            if (closed || isDown(System.currentTimeMillis())) {
+                return false;
+            }
+            try {
+                if (null == connection) {
+                    InetSocketAddress address = getAddress(nodeID);
+                    if (null == address) {
+                        return false;
+                    }
+                    connection = new PeerConnection(address);
+                }
+                connection.write(notification);
+                connection.readAck();
+                return true;
+            } catch (IOException | AndesException e) {
+                markDown(e);
+                return false;
+            }
+        }
+
+        private void markDown(Exception cause) {
+            if (log.isDebugEnabled()) {
+                log.debug("Could not send cluster notification directly to node " + nodeID + ". Node is marked down "
+                        + "for " + PEER_DOWN_INTERVAL + " ms", cause);
+            }
+            if (null != connection) {
+                connection.close();
+                connection = null;
+            }
+            removeAddress(nodeID);
+            downUntil = System.currentTimeMillis() + PEER_DOWN_INTERVAL;
+        }
+
+        /**
+         * Close the connection to the node. Not synchronized so that a send blocked on the connection fails
+         * right away.
+         */
+        void close() {
+            closed = true;
+            PeerConnection currentConnection = connection;
+            if (null != currentConnection) {
+                currentConnection.close();
+            }
+        }
+    }
+
+    /**
+     * Connection to the notification server of a node
+     */
+    private class PeerConnection {
+
+        private final Socket socket;
+
+        private final DataInputStream input;
+
+        private final DataOutputStream output;
+
+        private final DirectNotificationTransport.Session session;
+
+        PeerConnection(InetSocketAddress address) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(address, ackTimeout);
+                socket.setSoTimeout(ackTimeout);
+                socket.setTcpNoDelay(true);
+                input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                session = DirectNotificationTransport.initiateHandshake(input, output, localNodeID, sharedSecret);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void write(ClusterNotification notification) throws IOException {
+            DirectNotificationTransport.writeNotification(output, session, notification);
+        }
+
+        void readAck() throws IOException {
+            DirectNotificationTransport.readAck(input, session);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+                // Connection is discarded
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+import org.wso2.andes.server.cluster.coordination.ClusterNotification;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Accepts cluster notifications sent directly by other nodes through {@link DirectNotificationPublisher}. Each
+ * peer connection is read by its own thread and notifications are handed to a {@link NotificationReceiver}.
+ */
+class DirectNotificationServer {
+
+    private static final Logger log = Logger.getLogger(DirectNotificationServer.class);
+
+    /**
+     * Receives notifications read from peer connections
+     */
+    interface NotificationReceiver {
+
+        /**
+         * Called when a peer connects, before any notification of the connection is received. Notifications
+         * stored in the database while the peer could not reach this node must be read before the ones that follow.
+         *
+         * @param nodeId id of the connected node
+         */
+        void peerConnected(String nodeId);
+
+        /**
+         * Queue a notification for dispatching. The notification is acknowledged to the sender on return.
+         *
+         * @param notification notification received
+         */
+        void notificationReceived(ClusterNotification notification);
+    }
+
+    private final InetSocketAddress address;
+
+    private final NotificationReceiver receiver;
+
+    /**
+     * Secret shared by the nodes of the cluster, used to authenticate peers
+     */
+    private final String sharedSecret;
+
+    /**
+     * Time a peer is given to complete the handshake, in milliseconds
+     */
+    private final int handshakeTimeout;
+
+    private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+
+    private ServerSocket serverSocket;
+
+    private ExecutorService connectionExecutor;
+
+    private volatile boolean running;
+
+    /**
+     * Create a server listening on the given address
+     *
+     * @param address          address to bind to
+     * @param receiver         receiver of notifications
+     * @param sharedSecret     secret shared by the nodes of the cluster
+     * @param handshakeTimeout time a peer is given to complete the handshake, in milliseconds
+     */
+    DirectNotificationServer(InetSocketAddress address, NotificationReceiver receiver, String sharedSecret,
+            int handshakeTimeout) {
+        this.address = address;
+        this.receiver = receiver;
+        this.sharedSecret = sharedSecret;
+        this.handshakeTimeout = handshakeTimeout;
+    }
+
+    /**
+     * Bind to the address and start accepting peer connections
+     *
+     * @throws IOException if the address could not be bound
+     */
+    void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address);
+        running = true;
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("DirectClusterNotificationReader-%d").setDaemon(true).build();
+        connectionExecutor = Executors.newCachedThreadPool(threadFactory);
+        connectionExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+        log.info("Direct cluster notification listener started on " + address);
+    }
+
+    /**
+     * Stop accepting connections and close the connections of peers
+     */
+    void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Error while closing direct cluster notification listener", e);
+        }
+        for (Socket connection : connections) {
+            closeQuietly(connection);
+        }
+        connectionExecutor.shutdownNow();
+        log.info("Direct cluster notification listener stopped.");
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                final Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+                connectionExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        readNotifications(connection);
+                    }
+                });
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Error while accepting direct cluster notification connection", e);
+                }
+            }
+        }
+    }
+
+    private void readNotifications(Socket connection) {
+        String nodeId = null;
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+
+            // Peers which connect but do not authenticate must not hold a reader thread
+            connection.setSoTimeout(handshakeTimeout);
+            DirectNotificationTransport.Session session =
+                    DirectNotificationTransport.acceptHandshake(input, output, sharedSecret);
+            nodeId = session.getNodeId();
+            connection.setSoTimeout(0);
+
+            receiver.peerConnected(nodeId);
+            if (log.isDebugEnabled()) {
+                log.debug("Node " + nodeId + " connected to send cluster notifications");
+            }
+
+            while (running) {
+                ClusterNotification notification = DirectNotificationTransport.readNotification(input, session);
+                receiver.notificationReceived(notification);
+                DirectNotificationTransport.writeAck(output, session);
+            }
+        } catch (IOException e) {
+            if (running && null == nodeId) {
+                log.warn("Rejected direct cluster notification connection from "
+                        + connection.getRemoteSocketAddress() + ". " + e.getMessage());
+            } else if (running && log.isDebugEnabled()) {
+                log.debug("Direct cluster notification connection of node " + nodeId + " closed", e);
+            }
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Socket connection) {
+        try {
+            connection.close();
+        } catch (IOException ignore) {
+            // Connection is discarded
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.server.cluster.coordination.ClusterNotification;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Wire format and addressing of direct cluster notifications, shared by {@link DirectNotificationServer} and
+ * {@link DirectNotificationPublisher}.
+ * <p>
+ * A connection starts with a handshake in which both nodes prove they know the shared secret of the cluster. The
+ * server sends a random challenge. The sender replies with its node id, a challenge of its own and a MAC over both
+ * challenges and the node id. The server replies with its own MAC. The handshake is followed by notifications, each
+ * acknowledged by the receiver with {@link #ACK} once it is queued for dispatching.
+ * <p>
+ * Both sides derive a session key from the handshake. Each notification and acknowledgement carries a MAC computed
+ * with the session key over the frame and its sequence number within the connection, so that frames cannot be
+ * altered, replayed or reordered by a party which does not know the shared secret. Sequence numbers are counted by
+ * both sides and are not written to the connection.
+ */
+public final class DirectNotificationTransport {
+
+    private static final Logger log = Logger.getLogger(DirectNotificationTransport.class);
+
+    /**
+     * Written by the receiver for each notification it accepted
+     */
+    private static final int ACK = 1;
+
+    /**
+     * Maximum length of a string field of a notification, in bytes. A longer frame is rejected and the connection is
+     * closed.
+     */
+    static final int MAX_STRING_LENGTH = 4 * 1024 * 1024;
+
+    /**
+     * Maximum length of a notification frame, holding six length prefixed string fields
+     */
+    private static final int MAX_FRAME_LENGTH = 6 * (4 + MAX_STRING_LENGTH);
+
+    /**
+     * Maximum length of the node id read before the peer is authenticated, in bytes
+     */
+    private static final int MAX_NODE_ID_LENGTH = 1024;
+
+    private static final int CHALLENGE_LENGTH = 16;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Length of a MAC computed with {@link #MAC_ALGORITHM}
+     */
+    private static final int MAC_LENGTH = 32;
+
+    /**
+     * Role of the node computing a MAC in the handshake, so that a MAC of one side cannot be replayed as the other
+     */
+    private static final byte SENDER_ROLE = 1;
+
+    private static final byte RECEIVER_ROLE = 2;
+
+    /**
+     * Role used to derive the session key of a connection from the handshake
+     */
+    private static final byte SESSION_KEY_ROLE = 3;
+
+    /**
+     * Separator of the node address fields returned by the cluster agent
+     */
+    private static final String NODE_ADDRESS_SEPARATOR = ",";
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private DirectNotificationTransport() {
+    }
+
+    /**
+     * Check if direct notifications are enabled. They are enabled only if a shared secret is configured.
+     *
+     * @return true if direct notifications are enabled
+     */
+    public static boolean isEnabled() {
+        Boolean isDirectNotificationEnabled = AndesConfigurationManager.readValue(
+                AndesConfiguration.CLUSTER_EVENT_SYNC_DIRECT_ENABLED);
+        if (!isDirectNotificationEnabled) {
+            return false;
+        }
+        if (getSharedSecret().isEmpty()) {
+            log.warn("Direct cluster notifications are enabled but no shared secret is configured. Cluster "
+                    + "notifications will be exchanged through the database only.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the secret shared by the nodes of the cluster
+     *
+     * @return shared secret, empty if not configured
+     */
+    static String getSharedSecret() {
+        String sharedSecret = AndesConfigurationManager.readValue(
+                AndesConfiguration.CLUSTER_EVENT_SYNC_DIRECT_SHARED_SECRET);
+        return (null == sharedSecret) ? "" : sharedSecret;
+    }
+
+    /**
+     * Get the direct notification addresses of all nodes in the cluster, including the local node. The address of a
+     * node is its cluster agent address with the port shifted by the configured offset.
+     *
+     * @return addresses keyed by node id
+     * @throws AndesException if node details could not be read
+     */
+    static Map<String, InetSocketAddress> getNodeAddresses() throws AndesException {
+        int portOffset = AndesConfigurationManager.readValue(AndesConfiguration.CLUSTER_EVENT_SYNC_DIRECT_PORT_OFFSET);
+        List<String> nodeAddresses = AndesContext.getInstance().getClusterAgent().getAllClusterNodeAddresses();
+        Map<String, InetSocketAddress> addresses = new HashMap<>(nodeAddresses.size());
+
+        // Each entry is nodeId,host,port,isCoordinator
+        for (String nodeAddress : nodeAddresses) {
+            String[] fields = nodeAddress.split(NODE_ADDRESS_SEPARATOR);
+            if (fields.length < 4) {
+                continue;
+            }
+            int hostIndex = fields.length - 3;
+            StringBuilder nodeId = new StringBuilder(fields[0]);
+            for (int i = 1; i < hostIndex; i++) {
+                nodeId.append(NODE_ADDRESS_SEPARATOR).append(fields[i]);
+            }
+            int port = Integer.parseInt(fields[hostIndex + 1]) + portOffset;
+            addresses.put(nodeId.toString(), new InetSocketAddress(fields[hostIndex], port));
+        }
+        return addresses;
+    }
+
+    /**
+     * Authenticate a connected sender on the receiving side of a connection
+     *
+     * @param input        stream of the connection
+     * @param output       stream of the connection
+     * @param sharedSecret secret shared by the nodes of the cluster
+     * @return session of the connection, holding the node id of the sender
+     * @throws IOException on connection errors or if the sender does not know the secret
+     */
+    static Session acceptHandshake(DataInputStream input, DataOutputStream output, String sharedSecret)
+            throws IOException {
+        byte[] receiverChallenge = newChallenge();
+        output.write(receiverChallenge);
+        output.flush();
+
+        String nodeId = readString(input, MAX_NODE_ID_LENGTH);
+        byte[] senderChallenge = new byte[CHALLENGE_LENGTH];
+        input.readFully(senderChallenge);
+        byte[] senderMac = new byte[MAC_LENGTH];
+        input.readFully(senderMac);
+
+        byte[] expectedMac = computeMac(sharedSecret, SENDER_ROLE, receiverChallenge, senderChallenge, nodeId);
+        if (!MessageDigest.isEqual(expectedMac, senderMac)) {
+            throw new IOException("Node " + nodeId + " failed to authenticate for direct cluster notifications");
+        }
+
+        output.write(computeMac(sharedSecret, RECEIVER_ROLE, receiverChallenge, senderChallenge, nodeId));
+        output.flush();
+        return new Session(nodeId,
+                computeMac(sharedSecret, SESSION_KEY_ROLE, receiverChallenge, senderChallenge, nodeId));
+    }
+
+    /**
+     * Authenticate on the sending side of a connection, and check that the receiver knows the secret as well
+     *
+     * @param input        stream of the connection
+     * @param output       stream of the connection
+     * @param localNodeID  id of the sending node
+     * @param sharedSecret secret shared by the nodes of the cluster
+     * @return session of the connection
+     * @throws IOException on connection errors or if the receiver does not know the secret
+     */
+    static Session initiateHandshake(DataInputStream input, DataOutputStream output, String localNodeID,
+            String sharedSecret) throws IOException {
+        byte[] receiverChallenge = new byte[CHALLENGE_LENGTH];
+        input.readFully(receiverChallenge);
+
+        byte[] senderChallenge = newChallenge();
+        writeString(output, localNodeID);
+        output.write(senderChallenge);
+        output.write(computeMac(sharedSecret, SENDER_ROLE, receiverChallenge, senderChallenge, localNodeID));
+        output.flush();
+
+        byte[] receiverMac = new byte[MAC_LENGTH];
+        input.readFully(receiverMac);
+        byte[] expectedMac = computeMac(sharedSecret, RECEIVER_ROLE, receiverChallenge, senderChallenge,
+                localNodeID);
+        if (!MessageDigest.isEqual(expectedMac, receiverMac)) {
+            throw new IOException("Receiver failed to authenticate for direct cluster notifications");
+        }
+        return new Session(localNodeID,
+                computeMac(sharedSecret, SESSION_KEY_ROLE, receiverChallenge, senderChallenge, localNodeID));
+    }
+
+    /**
+     * Write a notification to a peer
+     *
+     * @param output       stream of the connection
+     * @param session      session of the connection
+     * @param notification notification to write
+     * @throws IOException on connection errors
+     */
+    static void writeNotification(DataOutputStream output, Session session, ClusterNotification notification)
+            throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        DataOutputStream frameOutput = new DataOutputStream(frame);
+        writeString(frameOutput, notification.getEncodedObjectAsString());
+        writeString(frameOutput, notification.getNotifiedArtifact());
+        writeString(frameOutput, notification.getChangeType());
+        writeString(frameOutput, notification.getDescription());
+        writeString(frameOutput, notification.getOriginatedNode());
+        String notificationID = notification.getNotificationID();
+        writeString(frameOutput, (null == notificationID) ? "" : notificationID);
+
+        byte[] payload = frame.toByteArray();
+        output.writeInt(payload.length);
+        output.write(payload);
+        output.write(session.computeMac(SENDER_ROLE, payload));
+        output.flush();
+    }
+
+    /**
+     * Read a notification written by {@link #writeNotification(DataOutputStream, Session, ClusterNotification)}
+     *
+     * @param input   stream of the connection
+     * @param session session of the connection
+     * @return notification read
+     * @throws IOException on connection errors, if a field exceeds {@link #MAX_STRING_LENGTH} or if the MAC of the
+     *                     frame does not match
+     */
+    static ClusterNotification readNotification(DataInputStream input, Session session) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid length " + length + " of a direct cluster notification. Maximum allowed is "
+                    + MAX_FRAME_LENGTH);
+        }
+        byte[] payload = new byte[length];
+        input.readFully(payload);
+        byte[] frameMac = new byte[MAC_LENGTH];
+        input.readFully(frameMac);
+        if (!MessageDigest.isEqual(session.computeMac(SENDER_ROLE, payload), frameMac)) {
+            throw new IOException("Direct cluster notification from node " + session.getNodeId()
+                    + " failed authentication");
+        }
+
+        DataInputStream frameInput = new DataInputStream(new ByteArrayInputStream(payload));
+        String encodedObject = readString(frameInput, MAX_STRING_LENGTH);
+        String notifiedArtifact = readString(frameInput, MAX_STRING_LENGTH);
+        String changeType = readString(frameInput, MAX_STRING_LENGTH);
+        String description = readString(frameInput, MAX_STRING_LENGTH);
+        String originatedNode = readString(frameInput, MAX_STRING_LENGTH);
+        String notificationID = readString(frameInput, MAX_STRING_LENGTH);
+        return new ClusterNotification(encodedObject, notifiedArtifact, changeType, description, originatedNode,
+                notificationID.isEmpty() ? null : notificationID);
+    }
+
+    /**
+     * Acknowledge the last notification read from a peer
+     *
+     * @param output  stream of the connection
+     * @param session session of the connection
+     * @throws IOException on connection errors
+     */
+    static void writeAck(DataOutputStream output, Session session) throws IOException {
+        output.write(ACK);
+        output.write(session.computeMac(RECEIVER_ROLE, new byte[] { ACK }));
+        output.flush();
+        session.nextSequence();
+    }
+
+    /**
+     * Read the acknowledgement of the last notification written to a peer
+     *
+     * @param input   stream of the connection
+     * @param session session of the connection
+     * @throws IOException on connection errors or if the acknowledgement is missing or does not match
+     */
+    static void readAck(DataInputStream input, Session session) throws IOException {
+        if (ACK != input.read()) {
+            throw new IOException("Cluster notification was not acknowledged");
+        }
+        byte[] ackMac = new byte[MAC_LENGTH];
+        input.readFully(ackMac);
+        if (!MessageDigest.isEqual(session.computeMac(RECEIVER_ROLE, new byte[] { ACK }), ackMac)) {
+            throw new IOException("Acknowledgement of cluster notification failed authentication");
+        }
+        session.nextSequence();
+    }
+
+    /**
+     * Strings are length prefixed, since encoded artifacts may exceed the limit of {@link DataOutputStream#writeUTF}
+     */
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutputStream, String)}
+     *
+     * @param input     stream of the connection
+     * @param maxLength maximum length of the string in bytes
+     * @return string read
+     * @throws IOException on connection errors or if the length is out of bounds
+     */
+    static String readString(DataInputStream input, int maxLength) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid length " + length + " of a direct cluster notification field. Maximum "
+                    + "allowed is " + maxLength);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] newChallenge() {
+        byte[] challenge = new byte[CHALLENGE_LENGTH];
+        random.nextBytes(challenge);
+        return challenge;
+    }
+
+    private static byte[] computeMac(String sharedSecret, byte role, byte[] receiverChallenge,
+            byte[] senderChallenge, String nodeId) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(sharedSecret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+            mac.update(role);
+            mac.update(receiverChallenge);
+            mac.update(senderChallenge);
+            mac.update(nodeId.getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            // Every Java platform supports HmacSHA256
+            throw new IllegalStateException("Could not compute " + MAC_ALGORITHM, e);
+        }
+    }
+
+    /**
+     * State of an authenticated connection, used to compute the MAC of each frame. A session is used by one thread
+     * at a time.
+     */
+    static final class Session {
+
+        private final String nodeId;
+
+        private final SecretKeySpec key;
+
+        /**
+         * Sequence number of the current notification and its acknowledgement within the connection
+         */
+        private long sequence;
+
+        private Session(String nodeId, byte[] key) {
+            this.nodeId = nodeId;
+            this.key = new SecretKeySpec(key, MAC_ALGORITHM);
+        }
+
+        /**
+         * Get the id of the sending node of the connection
+         *
+         * @return node id
+         */
+        String getNodeId() {
+            return nodeId;
+        }
+
+        private void nextSequence() {
+            sequence++;
+        }
+
+        private byte[] computeMac(byte role, byte[] payload) {
+            try {
+                Mac mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(key);
+                mac.update(role);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    mac.update((byte) (sequence >>> shift));
+                }
+                mac.update(payload);
+                return mac.doFinal();
+            } catch (GeneralSecurityException e) {
+                // Every Java platform supports HmacSHA256
+                throw new IllegalStateException("Could not compute " + MAC_ALGORITHM, e);
+            }
+        }
+    }
+}
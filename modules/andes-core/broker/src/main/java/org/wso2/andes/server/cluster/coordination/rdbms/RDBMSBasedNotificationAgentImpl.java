@@ -17,6 +17,8 @@ package org.wso2.andes.server.cluster.coordination.rdbms;
 
 
 import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesBinding;
 import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesContextStore;
@@ -30,6 +32,7 @@ import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
 
 import java.util.List;
+import java.util.UUID;
 
 /**
  * This class represents a ClusterNotificationAgent implementation which uses
@@ -53,6 +56,17 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
      */
     private String localNodeID;
 
+    /**
+     * Sends notifications directly to other nodes, shared by all agents of the node so that each peer gets a single
+     * connection. Created on first use and null while direct notifications are disabled or the listener is stopped.
+     */
+    private static DirectNotificationPublisher directNotificationPublisher;
+
+    /**
+     * True if notifications are sent directly to other nodes
+     */
+    private final boolean isDirectNotificationEnabled;
+
     /**
      * Create a RDBMS based ClusterNotificationAgent
      *
@@ -61,6 +75,33 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     public RDBMSBasedNotificationAgentImpl(AndesContextStore contextStore) {
         this.contextStore = contextStore;
         this.localNodeID = ClusterResourceHolder.getInstance().getClusterManager().getMyNodeID();
+        this.isDirectNotificationEnabled = DirectNotificationTransport.isEnabled();
+    }
+
+    /**
+     * Get the publisher shared by the agents of this node, creating it if needed
+     *
+     * @param localNodeID id of this node
+     * @return direct notification publisher
+     */
+    private static synchronized DirectNotificationPublisher getDirectNotificationPublisher(String localNodeID) {
+        if (null == directNotificationPublisher) {
+            int ackTimeout = AndesConfigurationManager.readValue(
+                    AndesConfiguration.CLUSTER_EVENT_SYNC_DIRECT_ACK_TIMEOUT);
+            directNotificationPublisher = new DirectNotificationPublisher(localNodeID, ackTimeout,
+                    DirectNotificationTransport.getSharedSecret());
+        }
+        return directNotificationPublisher;
+    }
+
+    /**
+     * Close the connections of the shared publisher. Called when the cluster notification listener stops.
+     */
+    static synchronized void closeDirectNotificationPublisher() {
+        if (null != directNotificationPublisher) {
+            directNotificationPublisher.close();
+            directNotificationPublisher = null;
+        }
     }
 
     /**
@@ -152,14 +193,28 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     /**
      * Store notification in the DB. Duplicate the cluster notification for all nodes in
      * the cluster and store them destined to the respective  to each node.
+     * <p>
+     * If direct notifications are enabled, the notification is first sent to the other nodes directly and only
+     * stored for the nodes which did not acknowledge it. Such notifications carry an id so that a node which got a
+     * notification both ways, since its acknowledgement timed out, dispatches it once.
      *
      * @param event notification to store
      * @throws AndesException
      */
     private void publishNotificationToDB(ClusterNotification event) throws AndesException {
         List<String> clusterNodes = AndesContext.getInstance().getClusterAgent().getAllNodeIdentifiers();
+        if (isDirectNotificationEnabled) {
+            event = new ClusterNotification(event.getEncodedObjectAsString(), event.getNotifiedArtifact(),
+                    event.getChangeType(), event.getDescription(), event.getOriginatedNode(),
+                    UUID.randomUUID().toString());
+            clusterNodes = getDirectNotificationPublisher(localNodeID).publish(event, clusterNodes);
+            if (clusterNodes.isEmpty()) {
+                return;
+            }
+        }
         contextStore.storeClusterNotification(clusterNodes, localNodeID, event.getNotifiedArtifact(), event
-                .getChangeType(), event.getEncodedObjectAsString(), event.getDescription());
+                .getChangeType(), event.getEncodedObjectAsString(), event.getDescription(),
+                event.getNotificationID());
         if (log.isDebugEnabled()) {
             log.debug("Cluster notification " + event.getEncodedObjectAsString() + " stored in Database");
         }
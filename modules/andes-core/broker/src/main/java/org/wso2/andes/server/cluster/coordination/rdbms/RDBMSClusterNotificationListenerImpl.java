@@ -35,7 +35,10 @@ import org.wso2.andes.server.cluster.coordination.ExchangeNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.QueueNotificationHandler;
 import org.wso2.andes.server.cluster.coordination.SubscriptionNotificationHandler;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
@@ -47,8 +50,13 @@ import java.util.concurrent.TimeUnit;
  * This is the ClusterNotificationListenerManager implementation for RDBMS. It periodically polls
  * events from DB and trigger necessary handlers. Changes related to Message routers, queues, bindings
  * and subscriptions are listened and handled.
+ * <p>
+ * If direct notifications are enabled, other nodes send events to this node over TCP and the DB only holds
+ * events this node could not be reached for. The DB is then read when a node connects and polled at a longer
+ * interval. Direct and DB events are dispatched by the same single thread, in the order they are received.
  */
-public class RDBMSClusterNotificationListenerImpl implements ClusterNotificationListenerManager {
+public class RDBMSClusterNotificationListenerImpl implements ClusterNotificationListenerManager,
+        DirectNotificationServer.NotificationReceiver {
 
 
     /**
@@ -76,6 +84,26 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
      */
     private String nodeID;
 
+    /**
+     * Receives events sent directly by other nodes. Null if direct notifications are disabled.
+     */
+    private DirectNotificationServer directNotificationServer;
+
+    /**
+     * Number of notification ids remembered to drop duplicates. A notification may arrive both directly and through
+     * the DB if the sender timed out waiting for the acknowledgement.
+     */
+    private static final int RECEIVED_NOTIFICATION_ID_LIMIT = 10000;
+
+    /**
+     * Ids of the most recently dispatched notifications. Only accessed by the dispatching thread.
+     */
+    private final Map<String, Boolean> receivedNotificationIDs = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RECEIVED_NOTIFICATION_ID_LIMIT;
+        }
+    };
 
     /**
      * Create a RDBMS based cluster notification listener. This listens for events published to DB.
@@ -108,6 +136,14 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
      * @param notification notification to dispatch
      */
     private void dispatchClusterNotification(ClusterNotification notification) {
+        String notificationID = notification.getNotificationID();
+        if (null != notificationID && null != receivedNotificationIDs.put(notificationID, Boolean.TRUE)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping duplicate cluster event " + notificationID + " from "
+                        + notification.getOriginatedNode());
+            }
+            return;
+        }
         //We need to skip processing a cluster notification which was sent by this node since it has
         // already been processed.
         if (!nodeID.equals(notification.getOriginatedNode())) {
@@ -119,6 +155,34 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Events stored in the DB while the node could not reach this node are read before its direct events.
+     */
+    @Override
+    public void peerConnected(String nodeId) {
+        scheduledExecutorService.execute(new ClusterEventReaderTask());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notificationReceived(final ClusterNotification notification) {
+        scheduledExecutorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dispatchClusterNotification(notification);
+                } catch (Throwable e) {
+                    log.warn("Could not dispatch cluster event " + notification.getDescription() + " received from "
+                            + notification.getOriginatedNode(), e);
+                }
+            }
+        });
+    }
+
     /**
      * Task for reading all the unread cluster event from the store and dispatch to correct cluster notification
      * handlers
@@ -171,14 +235,43 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
         //and schedule a periodic task to read cluster events
         // from the store if cluster event sync mode is set to RDBMS.
         ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("ClusterEventReaderTask-%d").build();
-        int clusterEventReaderInterval = AndesConfigurationManager.readValue(AndesConfiguration
+        boolean isDirectNotificationEnabled = DirectNotificationTransport.isEnabled();
+        int clusterEventReaderInterval = AndesConfigurationManager.readValue(isDirectNotificationEnabled ?
+                AndesConfiguration.CLUSTER_EVENT_SYNC_FALLBACK_INTERVAL : AndesConfiguration
                 .CLUSTER_EVENT_SYNC_INTERVAL);
         scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (isDirectNotificationEnabled && (null == directNotificationServer)) {
+            startDirectNotificationServer();
+        }
         scheduledExecutorService.scheduleWithFixedDelay(new ClusterEventReaderTask(),
                 clusterEventReaderInterval, clusterEventReaderInterval, TimeUnit.MILLISECONDS);
         log.info("RDBMS cluster event listener started with an interval of: " + clusterEventReaderInterval + "ms.");
     }
 
+    /**
+     * Start accepting events sent directly by other nodes, on the cluster agent address of this node shifted by the
+     * configured port offset
+     *
+     * @throws AndesException if the address could not be resolved or bound
+     */
+    private void startDirectNotificationServer() throws AndesException {
+        InetSocketAddress address = DirectNotificationTransport.getNodeAddresses().get(nodeID);
+        if (null == address) {
+            throw new AndesException("Could not find the cluster agent address of node " + nodeID + " to start the "
+                    + "direct cluster notification listener");
+        }
+        int handshakeTimeout = AndesConfigurationManager.readValue(
+                AndesConfiguration.CLUSTER_EVENT_SYNC_DIRECT_ACK_TIMEOUT);
+        directNotificationServer = new DirectNotificationServer(address, this,
+                DirectNotificationTransport.getSharedSecret(), handshakeTimeout);
+        try {
+            directNotificationServer.start();
+        } catch (IOException e) {
+            directNotificationServer = null;
+            throw new AndesException("Could not start the direct cluster notification listener on " + address, e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -204,6 +297,11 @@ public class RDBMSClusterNotificationListenerImpl implements ClusterNotification
      */
     @Override
     public void stopListener() throws AndesException {
+        if (null != directNotificationServer) {
+            directNotificationServer.stop();
+            directNotificationServer = null;
+        }
+        RDBMSBasedNotificationAgentImpl.closeDirectNotificationPublisher();
         scheduledExecutorService.shutdown();
         log.info("RDBMS cluster event listener stopped.");
     }
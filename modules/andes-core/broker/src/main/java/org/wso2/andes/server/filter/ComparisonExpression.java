@@ -130,6 +130,16 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
             return "LIKE";
         }
 
+        /**
+         * Includes the pattern, as expressions with the same text are treated as equal
+         *
+         * @see java.lang.Object#toString()
+         */
+        public String toString()
+        {
+            return "(" + right.toString() + " LIKE " + ConstantExpression.encodeString(likePattern.pattern()) + ")";
+        }
+
         /**
          *  org.apache.activemq.filter.Expression#evaluate(MessageEvaluationContext)
          */
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.server.filter;
+
+/**
+ * Implemented by {@link org.wso2.andes.server.queue.Filterable} messages which remember the values of the
+ * expressions evaluated against them. A message offered to many selector subscriptions then evaluates each distinct
+ * sub-expression once, see {@link SharedExpression}.
+ * <p>
+ * Implementations are used by a single thread and are not thread safe.
+ */
+public interface EvaluationCache
+{
+    /**
+     * @param expression interned canonical text of the expression
+     * @return value cached for the expression or null if it was not evaluated against this message
+     */
+    Object getEvaluation(String expression);
+
+    /**
+     * @param expression interned canonical text of the expression
+     * @param value      value of the expression, never null
+     */
+    void putEvaluation(String expression, Object value);
+}
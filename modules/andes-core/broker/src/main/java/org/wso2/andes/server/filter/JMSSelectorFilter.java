@@ -34,7 +34,7 @@ public class JMSSelectorFilter implements MessageFilter
     public JMSSelectorFilter(String selector) throws AMQInvalidArgumentException
     {
         _selector = selector;
-        _matcher = new SelectorParser().parse(selector);
+        _matcher = (BooleanExpression) SharedExpression.share(new SelectorParser().parse(selector));
     }
 
     public boolean matches(Filterable message)
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.server.filter;
+
+import org.wso2.andes.server.queue.Filterable;
+
+/**
+ * Wraps a compound expression of a parsed selector so that its value is computed once per message. Values are kept
+ * in the message when it is an {@link EvaluationCache}, keyed by the canonical text of the expression. Selectors of
+ * different subscriptions that contain the same sub-expression, for example "region = 'EU'", therefore share its
+ * evaluation when a message is offered to each of them in turn.
+ * <p>
+ * Messages which do not cache evaluations are passed straight to the wrapped expression.
+ */
+public class SharedExpression implements BooleanExpression
+{
+    /**
+     * Cached in place of a null value, which would read as "not evaluated"
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    private final Expression expression;
+
+    /**
+     * Interned, so that caches may compare keys by identity
+     */
+    private final String key;
+
+    private SharedExpression(Expression expression)
+    {
+        this.expression = expression;
+        this.key = expression.toString().intern();
+    }
+
+    /**
+     * Rewrites a parsed expression tree so that every compound node is a {@link SharedExpression}. Properties and
+     * constants are cheaper to read than to look up and are left as they are.
+     *
+     * @param expression root of the parsed expression
+     * @return root of the rewritten expression
+     */
+    public static Expression share(Expression expression)
+    {
+        if (expression instanceof ConstantExpression || expression instanceof PropertyExpression
+            || expression instanceof SharedExpression)
+        {
+            return expression;
+        }
+
+        if (expression instanceof BinaryExpression)
+        {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            binaryExpression.setLeft(share(binaryExpression.getLeft()));
+            binaryExpression.setRight(share(binaryExpression.getRight()));
+        }
+        else if (expression instanceof UnaryExpression)
+        {
+            UnaryExpression unaryExpression = (UnaryExpression) expression;
+            unaryExpression.setRight(share(unaryExpression.getRight()));
+        }
+
+        return new SharedExpression(expression);
+    }
+
+    public Object evaluate(Filterable message)
+    {
+        if (!(message instanceof EvaluationCache))
+        {
+            return expression.evaluate(message);
+        }
+
+        EvaluationCache cache = (EvaluationCache) message;
+        Object value = cache.getEvaluation(key);
+        if (null == value)
+        {
+            value = expression.evaluate(message);
+            cache.putEvaluation(key, (null == value) ? NULL_VALUE : value);
+            return value;
+        }
+        return (NULL_VALUE == value) ? null : value;
+    }
+
+    public boolean matches(Filterable message)
+    {
+        Object object = evaluate(message);
+
+        return (object != null) && (object == Boolean.TRUE);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        return key;
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode()
+    {
+        return key.hashCode();
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object o)
+    {
+        if ((o == null) || !this.getClass().equals(o.getClass()))
+        {
+            return false;
+        }
+
+        return expression.equals(((SharedExpression) o).expression);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.information.management;
+
+import org.wso2.andes.management.common.mbeans.MessageLatencyInformation;
+import org.wso2.andes.management.common.mbeans.annotations.MBeanConstructor;
+import org.wso2.andes.management.common.mbeans.annotations.MBeanOperationParameter;
+import org.wso2.andes.metrics.LatencyHistogram;
+import org.wso2.andes.metrics.MessageLatencyRecorder;
+import org.wso2.andes.server.management.AMQManagedObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.management.JMException;
+
+/**
+ * MBean exposing latencies recorded by the {@link MessageLatencyRecorder}
+ */
+public class MessageLatencyInformationMBean extends AMQManagedObject implements MessageLatencyInformation {
+
+    @MBeanConstructor("Creates an MBean exposing message latencies")
+    public MessageLatencyInformationMBean() throws JMException {
+        super(MessageLatencyInformation.class, MessageLatencyInformation.TYPE);
+    }
+
+    @Override
+    public String getObjectInstanceName() {
+        return MessageLatencyInformation.TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getStorageQueueNames() {
+        Set<String> storageQueueNames = MessageLatencyRecorder.getStorageQueueNames();
+        return storageQueueNames.toArray(new String[storageQueueNames.size()]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getLatencies(@MBeanOperationParameter(name = "storageQueueName",
+            description = "Storage queue name") String storageQueueName) {
+        List<String> latencies = new ArrayList<>();
+        for (MessageLatencyRecorder.Stage stage : MessageLatencyRecorder.Stage.values()) {
+            LatencyHistogram histogram = MessageLatencyRecorder.getHistogram(storageQueueName, stage);
+            if (null == histogram) {
+                break;
+            }
+            latencies.add(stage.name() + " count=" + histogram.getTotalCount()
+                    + " p50=" + histogram.getValueAtPercentile(50)
+                    + " p90=" + histogram.getValueAtPercentile(90)
+                    + " p99=" + histogram.getValueAtPercentile(99)
+                    + " max=" + histogram.getMaxValue());
+        }
+        return latencies.toArray(new String[latencies.size()]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetLatencies() {
+        MessageLatencyRecorder.reset();
+    }
+}
@@ -19,6 +19,7 @@ package org.wso2.andes.server.message;
 
 import org.apache.log4j.Logger;
 import org.wso2.andes.AMQException;
+import org.wso2.andes.amqp.QpidStoredMessage;
 import org.wso2.andes.framing.ContentHeaderBody;
 import org.wso2.andes.framing.abstraction.MessagePublishInfo;
 import org.wso2.andes.kernel.ProtocolMessage;
@@ -351,6 +352,23 @@ public class AMQMessage implements ServerMessage
         return _handle.getContent(offset, buf);
     }
 
+    /**
+     * Get a read-only view of the message content starting at the given offset, without copying the content.
+     * The view may hold fewer bytes than requested, if the content is stored in chunks.
+     *
+     * @param offset    starting byte position
+     * @param maxLength maximum number of bytes in the view
+     * @return view of the content, or null if the content cannot be viewed without copying
+     */
+    public ByteBuffer getContentView(int offset, int maxLength)
+    {
+        if (_handle instanceof QpidStoredMessage)
+        {
+            return ((QpidStoredMessage<?>) _handle).getContentView(offset, maxLength);
+        }
+        return null;
+    }
+
     public StoredMessage<MessageMetaData> getStoredMessage()
     {
         return _handle;
@@ -123,12 +123,11 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
             int maxBodySize = (int) getProtocolSession().getMaxFrameSize() - AMQFrame.getFrameOverhead();
 
             final int capacity = bodySize > maxBodySize ? maxBodySize : bodySize;
-            ByteBuffer buf = ByteBuffer.allocate(capacity);
 
             int writtenSize = 0;
 
-            writtenSize += message.getContent(buf, writtenSize);
-            buf.flip();
+            ByteBuffer buf = getContentBuffer(message, writtenSize, capacity);
+            writtenSize += buf.remaining();
             AMQDataBlock firstContentBody = new AMQFrame(channelId, PROTOCOL_CONVERTER.convertToBody(buf));
             AMQDataBlock[] blocks = new AMQDataBlock[]{deliver, contentHeader, firstContentBody};
             CompositeAMQDataBlock compositeBlock = new CompositeAMQDataBlock(blocks);
@@ -136,9 +135,8 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
 
             while(writtenSize < bodySize)
             {
-                buf = java.nio.ByteBuffer.allocate(capacity);
-                writtenSize += message.getContent(buf, writtenSize);
-                buf.flip();
+                buf = getContentBuffer(message, writtenSize, capacity);
+                writtenSize += buf.remaining();
                 writeFrame(new AMQFrame(channelId, PROTOCOL_CONVERTER.convertToBody(buf)));
             }
 
@@ -146,6 +144,27 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
     }
 
 
+    /**
+     * Get the content of the message starting at the given offset, up to the given size. Content cached by Andes
+     * is returned as a read-only view, which is written to the network buffer without an intermediate copy.
+     */
+    private ByteBuffer getContentBuffer(MessageContentSource message, int offset, int maxSize)
+    {
+        if(message instanceof AMQMessage)
+        {
+            ByteBuffer view = ((AMQMessage) message).getContentView(offset, maxSize);
+            if(view != null)
+            {
+                return view;
+            }
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(maxSize);
+        message.getContent(buf, offset);
+        buf.flip();
+        return buf;
+    }
+
     private AMQDataBlock createEncodedDeliverFrame(QueueEntry entry, int channelId, long deliveryTag, AMQShortString consumerTag)
             throws AMQException
     {
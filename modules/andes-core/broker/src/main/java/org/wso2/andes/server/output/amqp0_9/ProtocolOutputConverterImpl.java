@@ -119,13 +119,12 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
 
 
             final int capacity = bodySize > maxBodySize ? maxBodySize : bodySize;
-            java.nio.ByteBuffer buf = java.nio.ByteBuffer.allocate(capacity);
 
             int writtenSize = 0;
 
 
-            writtenSize += message.getContent(buf, writtenSize);
-            buf.flip();
+            java.nio.ByteBuffer buf = getContentBuffer(message, writtenSize, capacity);
+            writtenSize += buf.remaining();
             AMQBody firstContentBody = PROTOCOL_CONVERTER.convertToBody(buf);
 
             CompositeAMQBodyBlock
@@ -134,15 +133,35 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
 
             while(writtenSize < bodySize)
             {
-                buf = java.nio.ByteBuffer.allocate(capacity);
 
-                writtenSize += message.getContent(buf, writtenSize);
-                buf.flip();
+                buf = getContentBuffer(message, writtenSize, capacity);
+                writtenSize += buf.remaining();
                 writeFrame(new AMQFrame(channelId, PROTOCOL_CONVERTER.convertToBody(buf)));
             }
         }
     }
 
+    /**
+     * Get the content of the message starting at the given offset, up to the given size. Content cached by Andes
+     * is returned as a read-only view, which is written to the network buffer without an intermediate copy.
+     */
+    private java.nio.ByteBuffer getContentBuffer(MessageContentSource message, int offset, int maxSize)
+    {
+        if(message instanceof AMQMessage)
+        {
+            java.nio.ByteBuffer view = ((AMQMessage) message).getContentView(offset, maxSize);
+            if(view != null)
+            {
+                return view;
+            }
+        }
+
+        java.nio.ByteBuffer buf = java.nio.ByteBuffer.allocate(maxSize);
+        message.getContent(buf, offset);
+        buf.flip();
+        return buf;
+    }
+
     private AMQDataBlock createContentHeaderBlock(final int channelId, final ContentHeaderBody contentHeaderBody)
     {
 
@@ -35,6 +35,9 @@ import org.wso2.andes.framing.AMQFrame;
 import org.wso2.andes.framing.AMQMethodBody;
 import org.wso2.andes.framing.AMQProtocolHeaderException;
 import org.wso2.andes.framing.AMQShortString;
+import org.wso2.andes.framing.BasicAckBody;
+import org.wso2.andes.framing.BasicPublishBody;
+import org.wso2.andes.framing.BasicRejectBody;
 import org.wso2.andes.framing.ChannelCloseBody;
 import org.wso2.andes.framing.ChannelCloseOkBody;
 import org.wso2.andes.framing.ConnectionCloseBody;
@@ -46,7 +49,9 @@ import org.wso2.andes.framing.MethodDispatcher;
 import org.wso2.andes.framing.MethodRegistry;
 import org.wso2.andes.framing.ProtocolInitiation;
 import org.wso2.andes.framing.ProtocolVersion;
+import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.MessagingEngine;
+import org.wso2.andes.kernel.disruptor.inbound.InboundEventManager;
 import org.wso2.andes.pool.Job;
 import org.wso2.andes.pool.ReferenceCountingExecutorService;
 import org.wso2.andes.protocol.AMQConstant;
@@ -90,9 +95,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocolSession, ConnectionConfig
@@ -107,6 +114,9 @@ public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocol
     // channels.  This value must be of the form 2^x - 1.
     private static final int CHANNEL_CACHE_SIZE = 0xff;
 
+    // frames queued for writing are copied into a single buffer of up to this size before being sent
+    private static final int MAX_COALESCED_WRITE_SIZE = 64 * 1024;
+
     private AMQShortString _contextKey;
 
     private AMQShortString _clientVersion = null;
@@ -162,6 +172,17 @@ public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocol
     private Job _readJob;
     private Job _writeJob;
 
+    // encoded frames waiting for the write job, and whether the write job is already scheduled to send them
+    private final ConcurrentLinkedQueue<ByteBuffer> _pendingWrites = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicBoolean _writeScheduled = new AtomicBoolean(false);
+    private final Runnable _pendingWritesTask = new Runnable()
+    {
+        public void run()
+        {
+            sendPendingWrites();
+        }
+    };
+
     private ReferenceCountingExecutorService _poolReference = ReferenceCountingExecutorService.getInstance();
     private long _maxFrameSize;
     private final AtomicBoolean _closing = new AtomicBoolean(false);
@@ -176,6 +197,17 @@ public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocol
     private final NetworkConnection _network;
     private final Sender<ByteBuffer> _sender;
 
+    /**
+     * True if frames are processed and written on the event loop of the connection instead of the job pool
+     */
+    private final boolean _eventLoopBased;
+
+    /**
+     * Number of received frame batches handed to the read job and not yet processed. An event loop based connection
+     * processes frames on the event loop only while this is zero, so frames are processed in the order received.
+     */
+    private final AtomicInteger _queuedReadBatches = new AtomicInteger(0);
+
     public ManagedObject getManagedObject()
     {
         return _managedObject;
@@ -190,6 +222,7 @@ public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocol
         _writeJob = new Job(_poolReference, Job.MAX_JOB_EVENTS, false);
         _network = network;
         _sender = _network.getSender();
+        _eventLoopBased = _network.isEventLoopBased();
 
         _actor = new AMQPConnectionActor(this, virtualHostRegistry.getApplicationRegistry().getRootMessageLogger());
 
@@ -240,26 +273,29 @@ public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocol
             try
             {
                 final ArrayList<AMQDataBlock> dataBlocks = _codecFactory.getDecoder().decodeBuffer(msg);
-                Job.fireAsynchEvent(_poolReference.getPool(), _readJob, new Runnable() {
-                    public void run() {
-                        // Decode buffer
-
-                        for (AMQDataBlock dataBlock : dataBlocks)
-                        {
+                if (_eventLoopBased && _queuedReadBatches.get() == 0 && !mayBlock(dataBlocks))
+                {
+                    // The event loop reads the connection in order, hence no need to hand over to the job pool
+                    dataBlocksReceived(dataBlocks);
+                }
+                else
+                {
+                    // Frames which may block are processed off the event loop, so that other connections of the
+                    // event loop are not stalled. Frames that follow them wait in the same job to keep their order.
+                    _queuedReadBatches.incrementAndGet();
+                    Job.fireAsynchEvent(_poolReference.getPool(), _readJob, new Runnable() {
+                        public void run() {
                             try
                             {
-                                dataBlockReceived(dataBlock);
+                                dataBlocksReceived(dataBlocks);
                             }
-                            catch (Exception e)
+                            finally
                             {
-                                _logger.error("Unexpected exception when processing datablock", e);
-                                e.printStackTrace();
-                                closeProtocolSession();
+                                _queuedReadBatches.decrementAndGet();
                             }
                         }
-                        dataBlocks.clear();
-                    }
-                });
+                    });
+                }
             }
             catch (Exception e)
             {
@@ -268,6 +304,59 @@ public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocol
             }
     }
 
+    /**
+     * Check if processing any of the given blocks may block the calling thread. Content frames, acks and rejects are
+     * published to the inbound ring buffer of the kernel, which only waits if the ring buffer is full. A publish
+     * method only looks up the exchange and checks the publish permission, both held in memory, before the content
+     * header is routed. Other methods, such as declares waiting for the cluster and connection or channel setup, may
+     * wait on other nodes or the store.
+     */
+    private static boolean mayBlock(List<AMQDataBlock> dataBlocks)
+    {
+        boolean publishesToKernel = false;
+        for (AMQDataBlock dataBlock : dataBlocks)
+        {
+            if (!(dataBlock instanceof AMQFrame))
+            {
+                return true;
+            }
+            AMQBody body = ((AMQFrame) dataBlock).getBodyFrame();
+            if (body instanceof BasicPublishBody || body instanceof ContentBody || body instanceof ContentHeaderBody
+                || body instanceof BasicAckBody || body instanceof BasicRejectBody)
+            {
+                publishesToKernel = true;
+            }
+            else if (!(body instanceof HeartbeatBody))
+            {
+                return true;
+            }
+        }
+        if (publishesToKernel)
+        {
+            InboundEventManager inboundEventManager = AndesContext.getInstance().getInboundEventManager();
+            return null == inboundEventManager || !inboundEventManager.hasSpareCapacity();
+        }
+        return false;
+    }
+
+    private void dataBlocksReceived(List<AMQDataBlock> dataBlocks)
+    {
+        for (AMQDataBlock dataBlock : dataBlocks)
+        {
+            try
+            {
+                dataBlockReceived(dataBlock);
+            }
+            catch (Exception e)
+            {
+                _logger.error("Unexpected exception when processing datablock", e);
+                e.printStackTrace();
+                closeProtocolSession();
+            }
+        }
+        dataBlocks.clear();
+    }
+
     public void dataBlockReceived(AMQDataBlock message) throws Exception
     {
         _lastReceived = message;
@@ -497,13 +586,72 @@ public class AMQProtocolEngine implements ProtocolEngine, Managable, AMQProtocol
         final ByteBuffer buf = frame.toNioByteBuffer();
         _lastIoTime = System.currentTimeMillis();
         _writtenBytes += buf.remaining();
-        Job.fireAsynchEvent(_poolReference.getPool(), _writeJob, new Runnable()
+        if (_eventLoopBased)
+        {
+            // Writes are queued to the event loop of the connection in the order they are made
+            _sender.send(buf);
+            return;
+        }
+        _pendingWrites.add(buf);
+        if (_writeScheduled.compareAndSet(false, true))
+        {
+            Job.fireAsynchEvent(_poolReference.getPool(), _writeJob, _pendingWritesTask);
+        }
+    }
+
+    /**
+     * Sends the frames queued by {@link #writeFrame(AMQDataBlock)}. Frames written while a delivery batch is being
+     * sent, such as the deliver, header and body frames of a message, are queued behind each other and are copied
+     * into buffers of up to {@link #MAX_COALESCED_WRITE_SIZE} bytes, so that they reach the network in few writes.
+     */
+    private void sendPendingWrites()
+    {
+        do
         {
-            public void run()
+            int writeCount = 0;
+            ByteBuffer buf;
+            while ((buf = _pendingWrites.poll()) != null)
             {
-                _sender.send(buf);
+                // only this job removes from the queue, hence the frames counted here are the ones polled below
+                int size = buf.remaining();
+                int frameCount = 1;
+                for (ByteBuffer next : _pendingWrites)
+                {
+                    if (size + next.remaining() > MAX_COALESCED_WRITE_SIZE)
+                    {
+                        break;
+                    }
+                    size += next.remaining();
+                    frameCount++;
+                }
+
+                if (frameCount == 1)
+                {
+                    _sender.send(buf);
+                }
+                else
+                {
+                    ByteBuffer coalesced = ByteBuffer.allocate(size);
+                    coalesced.put(buf);
+                    for (int i = 1; i < frameCount; i++)
+                    {
+                        coalesced.put(_pendingWrites.poll());
+                    }
+                    coalesced.flip();
+                    _sender.send(coalesced);
+                }
+
+                if (++writeCount >= Job.MAX_JOB_EVENTS && !_pendingWrites.isEmpty())
+                {
+                    // give the pool thread to other connections, the rest is sent by the next run of the job
+                    Job.fireAsynchEvent(_poolReference.getPool(), _writeJob, _pendingWritesTask);
+                    return;
+                }
             }
-        });
+            _writeScheduled.set(false);
+        }
+        // frames queued after the queue was found empty, but before the flag was cleared, are sent here
+        while (!_pendingWrites.isEmpty() && _writeScheduled.compareAndSet(false, true));
     }
 
     public AMQShortString getContextKey()
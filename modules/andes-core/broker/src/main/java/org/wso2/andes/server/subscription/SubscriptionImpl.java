@@ -568,6 +568,14 @@ public abstract class SubscriptionImpl implements Subscription, FlowCreditManage
         return (_filters == null) || _filters.allAllow(msg);
     }
 
+    /**
+     * @return filters of the subscription or null if it has none
+     */
+    public FilterManager getFilterManager()
+    {
+        return _filters;
+    }
+
     public boolean isAutoClose()
     {
         return _autoClose;
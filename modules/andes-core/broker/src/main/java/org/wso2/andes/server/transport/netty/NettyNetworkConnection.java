@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.transport.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.wso2.andes.transport.Sender;
+import org.wso2.andes.transport.network.NetworkConnection;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * AMQP connection accepted by the {@link NettyNetworkTransport}
+ */
+class NettyNetworkConnection implements NetworkConnection {
+
+    private static final String IDLE_STATE_HANDLER = "idleStateHandler";
+
+    private final Channel channel;
+
+    private final Sender<ByteBuffer> sender;
+
+    private volatile boolean blocked = false;
+
+    /**
+     * Idle times in seconds, 0 if not checked
+     */
+    private int maxReadIdle;
+    private int maxWriteIdle;
+
+    NettyNetworkConnection(Channel channel) {
+        this.channel = channel;
+        this.sender = new NettySender(channel);
+    }
+
+    @Override
+    public Sender<ByteBuffer> getSender() {
+        return sender;
+    }
+
+    @Override
+    public void close() {
+        channel.close();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return channel.remoteAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return channel.localAddress();
+    }
+
+    @Override
+    public synchronized void setMaxWriteIdle(int sec) {
+        maxWriteIdle = sec;
+        updateIdleStateHandler();
+    }
+
+    @Override
+    public synchronized void setMaxReadIdle(int sec) {
+        maxReadIdle = sec;
+        updateIdleStateHandler();
+    }
+
+    /**
+     * Replace the idle state handler of the connection with one using the current idle times
+     */
+    private void updateIdleStateHandler() {
+        IdleStateHandler idleStateHandler = new IdleStateHandler(maxReadIdle, maxWriteIdle, 0);
+        ChannelPipeline pipeline = channel.pipeline();
+        if (null == pipeline.get(IDLE_STATE_HANDLER)) {
+            pipeline.addBefore(NettyNetworkTransport.NETWORK_HANDLER, IDLE_STATE_HANDLER, idleStateHandler);
+        } else {
+            pipeline.replace(IDLE_STATE_HANDLER, IDLE_STATE_HANDLER, idleStateHandler);
+        }
+    }
+
+    @Override
+    public void block() {
+        blocked = true;
+        channel.config().setAutoRead(false);
+    }
+
+    @Override
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    @Override
+    public void unblock() {
+        blocked = false;
+        channel.config().setAutoRead(true);
+    }
+
+    @Override
+    public boolean isEventLoopBased() {
+        return true;
+    }
+}
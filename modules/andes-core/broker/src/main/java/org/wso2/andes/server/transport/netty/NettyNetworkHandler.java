@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.apache.log4j.Logger;
+import org.wso2.andes.protocol.ProtocolEngine;
+import org.wso2.andes.protocol.ProtocolEngineFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Passes data received from a connection to its protocol engine, on the event loop of the connection
+ */
+class NettyNetworkHandler extends ChannelInboundHandlerAdapter {
+
+    private static Logger log = Logger.getLogger(NettyNetworkHandler.class);
+
+    private final ProtocolEngineFactory factory;
+
+    private ProtocolEngine engine;
+
+    NettyNetworkHandler(ProtocolEngineFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (log.isDebugEnabled()) {
+            log.debug("Created connection: " + ctx.channel().remoteAddress());
+        }
+        engine = factory.newProtocolEngine(new NettyNetworkConnection(ctx.channel()));
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ByteBuf buffer = (ByteBuf) msg;
+
+        // Decoded content bodies refer to the received data until their messages are complete, hence the data is
+        // copied out of the pooled buffer, which is reused once released
+        ByteBuffer data;
+        try {
+            data = ByteBuffer.allocate(buffer.readableBytes());
+            buffer.readBytes(data);
+            data.flip();
+        } finally {
+            buffer.release();
+        }
+
+        try {
+            engine.received(data);
+        } catch (RuntimeException e) {
+            engine.exception(e);
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            IdleState state = ((IdleStateEvent) evt).state();
+            if (IdleState.WRITER_IDLE == state) {
+                engine.writerIdle();
+            } else if (IdleState.READER_IDLE == state) {
+                engine.readerIdle();
+            }
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (log.isDebugEnabled()) {
+            log.debug("Closed connection: " + ctx.channel().remoteAddress());
+        }
+        if (null != engine) {
+            engine.closed();
+        } else {
+            log.error("Unable to close ProtocolEngine as none was present");
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (null != engine) {
+            log.error("Exception caught by Netty", cause);
+            engine.exception(cause);
+        } else {
+            log.error("Exception caught by Netty but without protocol engine to handle it", cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.transport.netty;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.ssl.SslHandler;
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.protocol.ProtocolEngineFactory;
+import org.wso2.andes.ssl.SSLContextFactory;
+import org.wso2.andes.transport.NetworkTransportConfiguration;
+import org.wso2.andes.transport.TransportException;
+import org.wso2.andes.transport.network.IncomingNetworkTransport;
+import org.wso2.andes.transport.network.NetworkConnection;
+import org.wso2.andes.transport.network.Transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import static org.wso2.andes.transport.ConnectionSettings.WILDCARD_ADDRESS;
+
+/**
+ * Accepts AMQP connections using Netty. Each connection is read and written by a single event loop, which decodes
+ * and processes its frames in order without handing them over to another thread. The native epoll transport is used
+ * on Linux when enabled through {@link AndesConfiguration#TRANSPORTS_AMQP_NETTY_NATIVE_TRANSPORT}.
+ */
+public class NettyNetworkTransport implements IncomingNetworkTransport {
+
+    private static Logger log = Logger.getLogger(NettyNetworkTransport.class);
+
+    /**
+     * Name of the handler passing data of a connection to its protocol engine
+     */
+    static final String NETWORK_HANDLER = "networkHandler";
+
+    private static final String SSL_HANDLER = "sslHandler";
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
+
+    private Channel serverChannel;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void accept(NetworkTransportConfiguration config, final ProtocolEngineFactory factory,
+                       SSLContextFactory sslFactory) {
+        if (!Transport.TCP.equalsIgnoreCase(config.getTransport())) {
+            throw new TransportException("Unknown transport: " + config.getTransport());
+        }
+
+        InetSocketAddress address;
+        if (config.getHost().equals(WILDCARD_ADDRESS)) {
+            address = new InetSocketAddress(config.getPort());
+        } else {
+            address = new InetSocketAddress(config.getHost(), config.getPort());
+        }
+
+        final SSLContext sslContext;
+        if (null != sslFactory) {
+            try {
+                sslContext = sslFactory.buildServerContext();
+            } catch (GeneralSecurityException | IOException e) {
+                throw new TransportException("Could not create SSL context for " + address, e);
+            }
+        } else {
+            sslContext = null;
+        }
+
+        Class<? extends ServerSocketChannel> serverChannelClass = initEventLoopGroups(config.getConnectorProcessors());
+        int backlog = AndesConfigurationManager.readValue(AndesConfiguration.TRANSPORTS_AMQP_NETTY_SO_BACKLOG);
+
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(serverChannelClass)
+                .option(ChannelOption.SO_BACKLOG, backlog)
+                .option(ChannelOption.SO_REUSEADDR, true)
+                .childOption(ChannelOption.TCP_NODELAY, config.getTcpNoDelay())
+                .childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize())
+                .childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize())
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) throws Exception {
+                        ChannelPipeline pipeline = channel.pipeline();
+                        if (null != sslContext) {
+                            SSLEngine sslEngine = sslContext.createSSLEngine();
+                            sslEngine.setUseClientMode(false);
+                            pipeline.addLast(SSL_HANDLER, new SslHandler(sslEngine));
+                        }
+                        pipeline.addLast(NETWORK_HANDLER, new NettyNetworkHandler(factory));
+                    }
+                });
+
+        ChannelFuture bindFuture = bootstrap.bind(address).awaitUninterruptibly();
+        if (!bindFuture.isSuccess()) {
+            shutdownEventLoopGroups();
+            throw new TransportException("Could not bind to " + address, bindFuture.cause());
+        }
+        serverChannel = bindFuture.channel();
+    }
+
+    /**
+     * Create the event loop groups. Native epoll is used when configured and available.
+     *
+     * @param workerThreadCount number of threads reading and writing connections
+     * @return server channel type matching the event loop groups
+     */
+    private Class<? extends ServerSocketChannel> initEventLoopGroups(int workerThreadCount) {
+        boolean nativeTransport = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_AMQP_NETTY_NATIVE_TRANSPORT);
+
+        if (nativeTransport && Epoll.isAvailable()) {
+            bossGroup = new EpollEventLoopGroup(1);
+            workerGroup = new EpollEventLoopGroup(workerThreadCount);
+            log.info("AMQP transport uses the native epoll transport");
+            return EpollServerSocketChannel.class;
+        }
+
+        if (nativeTransport) {
+            log.warn("Native epoll transport is not available on this platform, AMQP transport uses NIO");
+        }
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(workerThreadCount);
+        return NioServerSocketChannel.class;
+    }
+
+    private void shutdownEventLoopGroups() {
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (null != serverChannel) {
+            serverChannel.close().awaitUninterruptibly();
+            shutdownEventLoopGroups();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An incoming transport has no connection of its own.
+     */
+    @Override
+    public NetworkConnection getConnection() {
+        return null;
+    }
+}
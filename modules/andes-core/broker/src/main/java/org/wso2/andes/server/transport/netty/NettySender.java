@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import org.wso2.andes.transport.Sender;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes data to a connection accepted by the {@link NettyNetworkTransport}. Data can be sent from any thread, it
+ * is written by the event loop of the connection in the order it is sent.
+ * <p>
+ * Data sent while the event loop is busy is written in one go and flushed once, so that frames sent together, such
+ * as the frames of a delivery batch, reach the socket with a single gathering write.
+ */
+class NettySender implements Sender<ByteBuffer> {
+
+    private final Channel channel;
+
+    private volatile ChannelFuture lastWrite;
+
+    /**
+     * Data waiting for the event loop to write it
+     */
+    private final Queue<ByteBuf> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * True while the write task is scheduled on the event loop
+     */
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            writePending();
+        }
+    };
+
+    NettySender(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The data is copied to a pooled direct buffer, since the caller may reuse the given buffer once sent.
+     */
+    @Override
+    public void send(ByteBuffer msg) {
+        ByteBuf buffer = channel.alloc().directBuffer(msg.remaining());
+        buffer.writeBytes(msg);
+        pendingWrites.add(buffer);
+        if (writeScheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(writeTask);
+        }
+    }
+
+    /**
+     * Write the pending data and flush it. Runs on the event loop of the connection.
+     */
+    private void writePending() {
+        do {
+            ByteBuf buffer;
+            while (null != (buffer = pendingWrites.poll())) {
+                lastWrite = channel.write(buffer);
+            }
+            writeScheduled.set(false);
+            // Data sent after the queue was found empty, but before the flag was cleared, is written here
+        } while (!pendingWrites.isEmpty() && writeScheduled.compareAndSet(false, true));
+        channel.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The event loop of the connection writes the pending data without waiting, since it is the thread writing the
+     * data.
+     */
+    @Override
+    public void flush() {
+        if (channel.eventLoop().inEventLoop()) {
+            writePending();
+            return;
+        }
+        channel.eventLoop().submit(writeTask).awaitUninterruptibly();
+        ChannelFuture write = lastWrite;
+        if (null != write) {
+            write.awaitUninterruptibly();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        ChannelFuture closeFuture = channel.close();
+        if (!channel.eventLoop().inEventLoop()) {
+            closeFuture.awaitUninterruptibly();
+        }
+    }
+
+    @Override
+    public void setIdleTimeout(int i) {
+        // Idle times are set through NettyNetworkConnection
+    }
+}
@@ -775,6 +775,22 @@ public class FailureObservingAndesContextStore implements AndesContextStore {
         }
     }
 
+    /**
+     * Add message ids of many queues to store
+     *
+     * @param queueToMessageIds message ids to add keyed by queue name
+     * @throws AndesException
+     */
+    @Override
+    public void addMessageIds(Map<String, List<Long>> queueToMessageIds) throws AndesException {
+        try {
+            wrappedAndesContextStoreInstance.addMessageIds(queueToMessageIds);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * Get message ids for a given queue
      *
@@ -1107,10 +1123,11 @@ public class FailureObservingAndesContextStore implements AndesContextStore {
      * {@inheritDoc}
      */
     public void storeClusterNotification(List<String> clusterNodes, String originatedNode, String artifactType, String
-            clusterNotificationType, String notification, String description) throws AndesException {
+            clusterNotificationType, String notification, String description, String notificationID)
+            throws AndesException {
         try {
             wrappedAndesContextStoreInstance.storeClusterNotification(clusterNodes, originatedNode,
-                    artifactType, clusterNotificationType, notification, description);
+                    artifactType, clusterNotificationType, notification, description, notificationID);
         } catch (AndesStoreUnavailableException exception) {
             notifyFailures(exception);
             throw exception;
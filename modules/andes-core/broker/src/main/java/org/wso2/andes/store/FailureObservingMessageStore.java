@@ -29,7 +29,9 @@ import org.wso2.andes.kernel.AndesMessageMetadata;
 import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.ExpiringMessage;
 import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataPageCursor;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.RecoverySlotCreator;
 import org.wso2.andes.tools.utils.MessageTracer;
@@ -226,6 +228,32 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getNextMetadataPage(MetadataPageCursor cursor) throws AndesException {
+        try {
+            return wrappedInstance.getNextMetadataPage(cursor);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prefetchContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+        try {
+            wrappedInstance.prefetchContent(metadataList);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -392,6 +420,19 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ExpiringMessage> getExpiringMessages() throws AndesException {
+        try {
+            return wrappedInstance.getExpiringMessages();
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
 
     /**
      * {@inheritDoc}
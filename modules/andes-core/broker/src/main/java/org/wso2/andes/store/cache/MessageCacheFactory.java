@@ -20,6 +20,7 @@ package org.wso2.andes.store.cache;
 
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesException;
 
 /**
  * Factory to create a {@link AndesMessageCache} based on the configurations in broker.xml 
@@ -28,24 +29,35 @@ import org.wso2.andes.configuration.enums.AndesConfiguration;
 public class MessageCacheFactory {
 
     
+    /**
+     * Cache type keeping message content off the java heap
+     */
+    private static final String CACHE_TYPE_OFF_HEAP = "offHeap";
+
     /***
      * Create a {@link AndesMessageCache} with the configurations passed.
-     * currently it will either returns a {@link GuavaBasedMessageCacheImpl} or
+     * currently it will either returns a {@link GuavaBasedMessageCacheImpl},
+     * {@link OffHeapMessageCacheImpl} if cache type is configured as 'offHeap' or
      * {@link DisabledMessageCacheImpl} if cacheSize is configured as '0' in
      * broker.xml
      * 
      * @param connectionProperties
      *            configuration options
      * @return a {@link AndesMessageCache}
+     * @throws AndesException if the configured cache cannot be created
      */
-    public AndesMessageCache create() {
+    public AndesMessageCache create() throws AndesException {
 
         int cacheSizeInMegaBytes = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE);
                                     
         AndesMessageCache cache = null;
         
+        String cacheType = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_TYPE);
+
         if ( cacheSizeInMegaBytes <= 0){
             cache = new DisabledMessageCacheImpl();
+        } else if (CACHE_TYPE_OFF_HEAP.equalsIgnoreCase(cacheType)) {
+            cache = new OffHeapMessageCacheImpl();
         } else {
             cache = new GuavaBasedMessageCacheImpl();
         }
@@ -0,0 +1,653 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.api.iterator.MutableLongIterator;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Message cache keeping message content outside the java heap.
+ * <p>
+ * Content is written into direct byte buffers (slabs) allocated as the cache fills, and only the location and the
+ * metadata of a cached message are kept on heap, in a primitive long keyed index. Hence cached payloads do not add
+ * to old generation size or GC pauses.
+ * <p>
+ * Content written to a slab is never overwritten. Reads hand out read only slices of the slabs instead of copying
+ * content, and a slice stays valid after its message is evicted since the slab is only released once it is no
+ * longer reachable.
+ * <p>
+ * Cache is split into segments by message ID, each with its own slabs, index and read write lock (the number of
+ * segments is the configured concurrency level). Reads of a segment run in parallel. When a segment is full, its
+ * oldest slab is retired using the CLOCK algorithm. Messages of the slab read since the slab was written are given
+ * a second chance and moved to the newest slab, while the rest are evicted.
+ */
+public class OffHeapMessageCacheImpl implements AndesMessageCache {
+
+    private static final Logger log = Logger.getLogger(OffHeapMessageCacheImpl.class);
+
+    /**
+     * Size of a slab in bytes. Slabs are the unit of allocation and eviction. A message larger than this is kept in
+     * a slab of its own.
+     */
+    private static final int SLAB_SIZE = 4 * 1024 * 1024;
+
+    private static final ByteBuffer EMPTY_CONTENT = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    private final Segment[] segments;
+
+    /**
+     * Used to expire idle messages and print cache statistics
+     */
+    private final ScheduledExecutorService maintenanceExecutor;
+
+    /**
+     * Number of milliseconds a message is kept in cache without being read
+     */
+    private final long expiryMillis;
+
+    /**
+     * Flag indicating cache statistics should be printed on logs
+     */
+    private final boolean printStats;
+
+    /**
+     * Create the cache with the configured size
+     *
+     * @throws AndesException if the JVM does not allow enough direct memory for the cache
+     */
+    public OffHeapMessageCacheImpl() throws AndesException {
+
+        long cacheSizeInBytes =
+                1024L * 1024L * ((int) AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_SIZE));
+
+        int cacheConcurrency = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERSISTENCE_CACHE_CONCURRENCY_LEVEL);
+
+        int cacheExpirySeconds = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERSISTENCE_CACHE_EXPIRY_SECONDS);
+
+        printStats = AndesConfigurationManager.readValue(AndesConfiguration.PERSISTENCE_CACHE_PRINT_STATS);
+        expiryMillis = TimeUnit.SECONDS.toMillis(cacheExpirySeconds);
+
+        int segmentCount = Math.max(1, cacheConcurrency);
+        long segmentCapacity = cacheSizeInBytes / segmentCount;
+        int slabSize = (int) Math.min(SLAB_SIZE, segmentCapacity);
+
+        // A retired slab is released when it is garbage collected, hence a segment may briefly hold one slab more
+        // than its capacity
+        long requiredDirectMemory = cacheSizeInBytes + segmentCount * (long) slabSize;
+        long maxDirectMemory = getMaxDirectMemory();
+        if (requiredDirectMemory > maxDirectMemory) {
+            throw new AndesException("Off heap message cache requires " + requiredDirectMemory + " bytes of direct "
+                    + "memory but the JVM allows " + maxDirectMemory + " bytes. Reduce the cache size or increase "
+                    + "-XX:MaxDirectMemorySize.");
+        }
+
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity, slabSize);
+        }
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("OffHeapMessageCache-%d")
+                .setDaemon(true).build();
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        maintenanceExecutor.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    removeExpiredMessages();
+
+                    if (printStats) {
+                        log.info("cache stats:" + getStats());
+                    }
+                } catch (Throwable e) {
+                    // Catch everything so that the scheduled task is not cancelled
+                    log.error("Error while cleaning up off heap message cache", e);
+                }
+            }
+        }, cacheExpirySeconds, Math.max(1, cacheExpirySeconds), TimeUnit.SECONDS);
+
+        log.info("Off heap message cache created with " + segmentCount + " segments of " + segmentCapacity
+                 + " bytes");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToCache(AndesMessage message) {
+        long messageId = message.getMetadata().getMessageID();
+        segmentFor(messageId).add(messageId, message);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromCache(LongArrayList messagesToRemove) {
+        MutableLongIterator iterator = messagesToRemove.longIterator();
+        while (iterator.hasNext()) {
+            removeFromCache(iterator.next());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromCache(long messageToRemove) {
+        segmentFor(messageToRemove).remove(messageToRemove);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessage getMessageFromCache(long messageId) {
+        return segmentFor(messageId).getMessage(messageId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void fillContentFromCache(LongArrayList messageIDList,
+            LongObjectHashMap<List<AndesMessagePart>> contentList) {
+
+        MutableLongIterator iterator = messageIDList.longIterator();
+
+        while (iterator.hasNext()) {
+
+            long messageID = iterator.next();
+
+            List<AndesMessagePart> parts = segmentFor(messageID).getParts(messageID);
+
+            if (null != parts) {
+                contentList.put(messageID, parts);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContentFromCache(long messageId, int offsetValue) {
+        return segmentFor(messageId).getPart(messageId, offsetValue);
+    }
+
+    /**
+     * Remove messages that were not read within the expiry time
+     */
+    private void removeExpiredMessages() {
+        long expiryTime = System.currentTimeMillis() - expiryMillis;
+        for (Segment segment : segments) {
+            segment.removeMessagesIdleSince(expiryTime);
+        }
+    }
+
+    private String getStats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long messages = 0;
+        long allocatedBytes = 0;
+        long capacity = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                hits = hits + segment.hitCount.get();
+                misses = misses + segment.missCount.get();
+                evictions = evictions + segment.evictionCount;
+                messages = messages + segment.index.size();
+                allocatedBytes = allocatedBytes + segment.allocatedBytes;
+                capacity = capacity + segment.capacity;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return "hitCount=" + hits + ", missCount=" + misses + ", evictionCount=" + evictions + ", messageCount="
+               + messages + ", allocatedBytes=" + allocatedBytes + "/" + capacity;
+    }
+
+    private Segment segmentFor(long messageId) {
+        // Message IDs of a node are sequential, hence low order bits spread messages evenly
+        int hash = (int) (messageId ^ (messageId >>> 32));
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /**
+     * Get the maximum direct memory the JVM allows. The JVM defaults it to the maximum heap size when
+     * MaxDirectMemorySize is not set.
+     *
+     * @return maximum direct memory in bytes
+     */
+    private static long getMaxDirectMemory() {
+        try {
+            HotSpotDiagnosticMXBean diagnosticBean =
+                    ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            if (null != diagnosticBean) {
+                long maxDirectMemory = Long.parseLong(diagnosticBean.getVMOption("MaxDirectMemorySize").getValue());
+                if (maxDirectMemory > 0) {
+                    return maxDirectMemory;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not read MaxDirectMemorySize, using the maximum heap size", e);
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * A message in cache. Content of the message is laid out sequentially in a slab, starting from the given
+     * position.
+     */
+    private static class CachedMessage {
+
+        private final long messageId;
+
+        private final AndesMessageMetadata metadata;
+
+        /**
+         * Slab holding the content. Null if the message has no content.
+         */
+        private final Slab slab;
+
+        private final int position;
+
+        private final int contentLength;
+
+        /**
+         * Offsets of each content part as given by {@link AndesMessagePart#getOffset()}
+         */
+        private final int[] partOffsets;
+
+        private final int[] partLengths;
+
+        /**
+         * CLOCK reference bit. Set when the message is read and cleared when its slab is retired.
+         */
+        private volatile boolean referenced;
+
+        private volatile long lastAccessTime;
+
+        CachedMessage(long messageId, AndesMessageMetadata metadata, Slab slab, int contentLength,
+                      int[] partOffsets, int[] partLengths) {
+            this.messageId = messageId;
+            this.metadata = metadata;
+            this.slab = slab;
+            this.position = (null == slab) ? 0 : slab.writePosition;
+            this.contentLength = contentLength;
+            this.partOffsets = partOffsets;
+            this.partLengths = partLengths;
+        }
+
+        /**
+         * Get a read only view of a region of the content
+         */
+        ByteBuffer content(int contentPosition, int length) {
+            if (0 == length) {
+                return EMPTY_CONTENT;
+            }
+            // The slab buffer itself is never repositioned, hence it can be duplicated by concurrent readers
+            ByteBuffer view = slab.buffer.duplicate();
+            view.position(position + contentPosition);
+            view.limit(position + contentPosition + length);
+            return view.slice().asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * A direct buffer content is appended to
+     */
+    private static class Slab {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * IDs of the messages written to the slab. A message removed from cache is not removed from the list.
+         */
+        private final LongArrayList messageIds = new LongArrayList();
+
+        private int writePosition;
+
+        /**
+         * Number of messages of the slab still in cache
+         */
+        private int liveCount;
+
+        Slab(int size) {
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+
+        /**
+         * Append content to the slab. Writes go through a duplicate so that the position of the slab buffer does
+         * not change.
+         */
+        void append(ByteBuffer content) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(writePosition);
+            target.put(content);
+            writePosition = target.position();
+        }
+    }
+
+    /**
+     * Independent part of the cache. Reads hold the read lock of the segment while writes, removals and evictions
+     * hold the write lock.
+     */
+    private static class Segment {
+
+        private final long capacity;
+
+        private final int slabSize;
+
+        /**
+         * Slabs in the order they were allocated. Content is appended to the last slab.
+         */
+        private final ArrayDeque<Slab> slabs = new ArrayDeque<>();
+
+        private long allocatedBytes;
+
+        private final LongObjectHashMap<CachedMessage> index = new LongObjectHashMap<>();
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final AtomicLong hitCount = new AtomicLong();
+
+        private final AtomicLong missCount = new AtomicLong();
+
+        private long evictionCount;
+
+        Segment(long capacity, int slabSize) {
+            this.capacity = capacity;
+            this.slabSize = slabSize;
+        }
+
+        void add(long messageId, AndesMessage message) {
+            List<AndesMessagePart> parts = message.getContentChunkList();
+            int[] partOffsets = new int[parts.size()];
+            int[] partLengths = new int[parts.size()];
+            long contentLength = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                AndesMessagePart part = parts.get(i);
+                partOffsets[i] = part.getOffset();
+                partLengths[i] = part.getDataLength();
+                contentLength = contentLength + part.getDataLength();
+            }
+
+            lock.writeLock().lock();
+            try {
+                removeMessage(messageId);
+
+                Slab slab = null;
+                if (contentLength > 0) {
+                    slab = (contentLength > capacity) ? null : reserve((int) contentLength);
+                    if (null == slab) {
+                        // Message cannot be cached. Reader will go to the message store.
+                        return;
+                    }
+                }
+
+                CachedMessage cachedMessage = new CachedMessage(messageId, message.getMetadata(), slab,
+                        (int) contentLength, partOffsets, partLengths);
+                if (null != slab) {
+                    for (AndesMessagePart part : parts) {
+                        slab.append(part.getDataView(0, part.getDataLength()));
+                    }
+                    slab.messageIds.add(messageId);
+                    slab.liveCount++;
+                }
+                cachedMessage.lastAccessTime = System.currentTimeMillis();
+                index.put(messageId, cachedMessage);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long messageId) {
+            lock.writeLock().lock();
+            try {
+                removeMessage(messageId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        AndesMessage getMessage(long messageId) {
+            lock.readLock().lock();
+            try {
+                CachedMessage cachedMessage = access(messageId);
+                if (null == cachedMessage) {
+                    return null;
+                }
+                AndesMessage message = new AndesMessage(cachedMessage.metadata);
+                message.setChunkList(readParts(cachedMessage));
+                return message;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<AndesMessagePart> getParts(long messageId) {
+            lock.readLock().lock();
+            try {
+                CachedMessage cachedMessage = access(messageId);
+                if (null == cachedMessage) {
+                    return null;
+                }
+                return readParts(cachedMessage);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        AndesMessagePart getPart(long messageId, int offset) {
+            lock.readLock().lock();
+            try {
+                CachedMessage cachedMessage = access(messageId);
+                if (null == cachedMessage) {
+                    return null;
+                }
+
+                int position = 0;
+                for (int i = 0; i < cachedMessage.partOffsets.length; i++) {
+                    if (cachedMessage.partOffsets[i] == offset) {
+                        return readPart(cachedMessage, i, position);
+                    }
+                    position = position + cachedMessage.partLengths[i];
+                }
+                return null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void removeMessagesIdleSince(long time) {
+            lock.writeLock().lock();
+            try {
+                // Keys are copied to an array, hence messages can be removed while iterating
+                for (long messageId : index.keySet().toArray()) {
+                    if (index.get(messageId).lastAccessTime < time) {
+                        removeMessage(messageId);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private CachedMessage access(long messageId) {
+            CachedMessage cachedMessage = index.get(messageId);
+            if (null == cachedMessage) {
+                missCount.incrementAndGet();
+            } else {
+                hitCount.incrementAndGet();
+                cachedMessage.referenced = true;
+                cachedMessage.lastAccessTime = System.currentTimeMillis();
+            }
+            return cachedMessage;
+        }
+
+        /**
+         * Remove a message from the index. A slab other than the newest is released as soon as none of its
+         * messages are in cache.
+         */
+        private void removeMessage(long messageId) {
+            CachedMessage cachedMessage = index.remove(messageId);
+            if (null == cachedMessage || null == cachedMessage.slab) {
+                return;
+            }
+            Slab slab = cachedMessage.slab;
+            slab.liveCount--;
+            if (0 == slab.liveCount && slab != slabs.peekLast()) {
+                slabs.remove(slab);
+                allocatedBytes = allocatedBytes - slab.buffer.capacity();
+            }
+        }
+
+        /**
+         * Find a slab with room for the given number of bytes, retiring the oldest slabs if the segment is full
+         *
+         * @return slab to write to
+         */
+        private Slab reserve(int length) {
+            while (true) {
+                Slab newestSlab = slabs.peekLast();
+                if (null != newestSlab && newestSlab.remaining() >= length) {
+                    return newestSlab;
+                }
+                Slab slab = allocate(length);
+                if (null != slab) {
+                    return slab;
+                }
+                if (slabs.isEmpty()) {
+                    return null;
+                }
+                retireOldestSlab();
+            }
+        }
+
+        /**
+         * Allocate a new slab with room for the given number of bytes if the segment has capacity for it
+         *
+         * @return new slab or null if the segment is full
+         */
+        private Slab allocate(int length) {
+            int size = Math.max(slabSize, length);
+            if (allocatedBytes + size > capacity) {
+                return null;
+            }
+            Slab slab = new Slab(size);
+            slabs.addLast(slab);
+            allocatedBytes = allocatedBytes + size;
+            return slab;
+        }
+
+        /**
+         * Release the oldest slab. Messages of the slab read since they were written are moved to the newest slab
+         * if there is room, with the reference bit cleared. Other messages are evicted. Moved messages are evicted
+         * the next time their slab is retired unless they are read again.
+         */
+        private void retireOldestSlab() {
+            Slab slab = slabs.pollFirst();
+            allocatedBytes = allocatedBytes - slab.buffer.capacity();
+
+            MutableLongIterator iterator = slab.messageIds.longIterator();
+            while (iterator.hasNext()) {
+                long messageId = iterator.next();
+                CachedMessage cachedMessage = index.get(messageId);
+                if (null == cachedMessage || cachedMessage.slab != slab) {
+                    // Removed, or moved to another slab
+                    continue;
+                }
+                if (!cachedMessage.referenced || !moveToNewestSlab(cachedMessage)) {
+                    index.remove(messageId);
+                    evictionCount++;
+                }
+            }
+        }
+
+        private boolean moveToNewestSlab(CachedMessage cachedMessage) {
+            Slab target = slabs.peekLast();
+            if (null == target || target.remaining() < cachedMessage.contentLength) {
+                target = allocate(cachedMessage.contentLength);
+                if (null == target) {
+                    return false;
+                }
+            }
+
+            CachedMessage movedMessage = new CachedMessage(cachedMessage.messageId, cachedMessage.metadata, target,
+                    cachedMessage.contentLength, cachedMessage.partOffsets, cachedMessage.partLengths);
+            target.append(cachedMessage.content(0, cachedMessage.contentLength));
+            target.messageIds.add(cachedMessage.messageId);
+            target.liveCount++;
+            movedMessage.lastAccessTime = cachedMessage.lastAccessTime;
+            index.put(cachedMessage.messageId, movedMessage);
+            return true;
+        }
+
+        private List<AndesMessagePart> readParts(CachedMessage cachedMessage) {
+            List<AndesMessagePart> parts = new ArrayList<>(cachedMessage.partOffsets.length);
+            int position = 0;
+            for (int i = 0; i < cachedMessage.partOffsets.length; i++) {
+                parts.add(readPart(cachedMessage, i, position));
+                position = position + cachedMessage.partLengths[i];
+            }
+            return parts;
+        }
+
+        private AndesMessagePart readPart(CachedMessage cachedMessage, int partIndex, int position) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(cachedMessage.messageId);
+            part.setOffSet(cachedMessage.partOffsets[partIndex]);
+            part.setDataBuffer(cachedMessage.content(position, cachedMessage.partLengths[partIndex]));
+            return part;
+        }
+    }
+}
@@ -0,0 +1,1374 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesContextStore;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.ExpiringMessage;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataPageCursor;
+import org.wso2.andes.kernel.slot.RecoverySlotCreator;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.andes.server.queue.DLCQueueUtils;
+import org.wso2.andes.store.AndesStoreUnavailableException;
+import org.wso2.andes.tools.utils.MessageTracer;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer.Context;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded message store keeping messages in append only, memory mapped segment files on the local file system.
+ * Each storage queue (including each DLC) gets its own log, and metadata and content of a message are written
+ * together as a single record. An in memory index per queue maps message IDs to record locations, so that range
+ * reads used for slot delivery are served without any query overhead.
+ * <p>
+ * Deleting a message only flags its record. Disk space is reclaimed by a background task which rewrites segments
+ * that are mostly deleted. This store is meant for standalone deployments where an external database is not
+ * desired. It keeps no data other than messages, hence the context store still needs to be configured.
+ */
+public class FileMessageStoreImpl implements MessageStore {
+
+    private static final Logger log = Logger.getLogger(FileMessageStoreImpl.class);
+
+    /**
+     * Maximum size of a segment. A segment is mapped with a single mapping, which cannot exceed 2GB.
+     */
+    private static final int MAX_SEGMENT_SIZE_IN_MB = 1024;
+
+    /**
+     * Interval between two consecutive stat logs in milliseconds for slot recovery process
+     */
+    private static final int STAT_PUBLISHING_INTERVAL = 10 * 1000;
+
+    private static final String QUEUE_NAME_ENCODING = "UTF-8";
+
+    private FileStoreConnection fileStoreConnection;
+
+    private File storeDirectory;
+
+    private int segmentSize;
+
+    private boolean forceOnWrite;
+
+    /**
+     * Storage queue name to log of the queue
+     */
+    private final Map<String, QueueLog> queueLogs = new ConcurrentHashMap<>();
+
+    /**
+     * Message ID to the log currently holding the message. Needed since a number of operations only carry the
+     * message ID.
+     */
+    private final Map<Long, QueueLog> messageLocations = new ConcurrentHashMap<>();
+
+    /**
+     * Log holding MQTT retained messages
+     */
+    private QueueLog retainedMessageLog;
+
+    /**
+     * Destination to the ID of the message retained for it
+     */
+    private final Map<String, Long> retainedMessages = new ConcurrentHashMap<>();
+
+    /**
+     * Log holding content stored ahead of the metadata of its message
+     */
+    private QueueLog pendingContentLog;
+
+    private ScheduledExecutorService compactionExecutor;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DurableStoreConnection initializeMessageStore(AndesContextStore contextStore,
+            ConfigurationProperties connectionProperties) throws AndesException {
+
+        int segmentSizeInMB = connectionProperties.getProperty(FileStoreConstants.PROP_SEGMENT_SIZE,
+                FileStoreConstants.DEFAULT_SEGMENT_SIZE_IN_MB);
+        if (segmentSizeInMB <= 0 || segmentSizeInMB > MAX_SEGMENT_SIZE_IN_MB) {
+            throw new AndesException("Invalid segment size " + segmentSizeInMB + "MB. Segment size should be between"
+                                     + " 1MB and " + MAX_SEGMENT_SIZE_IN_MB + "MB");
+        }
+        segmentSize = segmentSizeInMB * 1024 * 1024;
+        forceOnWrite = connectionProperties.getProperty(FileStoreConstants.PROP_FORCE_ON_WRITE,
+                FileStoreConstants.DEFAULT_FORCE_ON_WRITE);
+        int compactionInterval = connectionProperties.getProperty(FileStoreConstants.PROP_COMPACTION_INTERVAL,
+                FileStoreConstants.DEFAULT_COMPACTION_INTERVAL);
+        int compactionThreshold = connectionProperties.getProperty(FileStoreConstants.PROP_COMPACTION_THRESHOLD,
+                FileStoreConstants.DEFAULT_COMPACTION_THRESHOLD);
+
+        fileStoreConnection = new FileStoreConnection();
+        fileStoreConnection.initialize(connectionProperties);
+        storeDirectory = fileStoreConnection.getStoreDirectory();
+
+        recoverQueueLogs();
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("FileStoreCompactionTask-%d").build();
+        compactionExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        compactionExecutor.scheduleWithFixedDelay(
+                new SegmentCompactionTask(queueLogs.values(), Arrays.asList(retainedMessageLog, pendingContentLog),
+                        compactionThreshold),
+                compactionInterval, compactionInterval, TimeUnit.SECONDS);
+
+        log.info("Message Store initialised");
+        return fileStoreConnection;
+    }
+
+    /**
+     * Open the log of every storage queue found in the store directory and rebuild the message index
+     */
+    private void recoverQueueLogs() throws AndesException {
+        File[] queueDirectories = storeDirectory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory();
+            }
+        });
+
+        if (null == queueDirectories) {
+            throw new AndesException("Could not list queue directories of " + storeDirectory.getAbsolutePath());
+        }
+
+        for (File queueDirectory : queueDirectories) {
+            String directoryName = queueDirectory.getName();
+
+            if (FileStoreConstants.RETAINED_MESSAGE_LOG.equals(directoryName)
+                    || FileStoreConstants.PENDING_CONTENT_LOG.equals(directoryName)) {
+                continue;
+            }
+
+            String queueName = decodeQueueName(directoryName);
+            try {
+                QueueLog queueLog = new QueueLog(queueName, queueDirectory, segmentSize, forceOnWrite);
+                for (Long messageId : queueLog.getIndex().keySet()) {
+                    if (!queueLog.getRecoveredMovingMessages().contains(messageId)) {
+                        messageLocations.put(messageId, queueLog);
+                    }
+                }
+                queueLogs.put(queueName, queueLog);
+                log.info(queueLog.getMessageCount() + " messages recovered for queue \"" + queueName + "\"");
+            } catch (IOException e) {
+                throw new AndesException("Error while " + FileStoreConstants.TASK_RECOVERING_QUEUE + queueName, e);
+            }
+        }
+        resolveInterruptedMoves();
+
+        try {
+            retainedMessageLog = new QueueLog(FileStoreConstants.RETAINED_MESSAGE_LOG,
+                    new File(storeDirectory, FileStoreConstants.RETAINED_MESSAGE_LOG), segmentSize, forceOnWrite);
+            for (Map.Entry<Long, RecordLocation> entry : retainedMessageLog.getIndex().entrySet()) {
+                retainedMessages.put(entry.getValue().getOrigin(), entry.getKey());
+            }
+        } catch (IOException e) {
+            throw new AndesException("Error while " + FileStoreConstants.TASK_RECOVERING_QUEUE
+                                     + FileStoreConstants.RETAINED_MESSAGE_LOG, e);
+        }
+
+        try {
+            pendingContentLog = new QueueLog(FileStoreConstants.PENDING_CONTENT_LOG,
+                    new File(storeDirectory, FileStoreConstants.PENDING_CONTENT_LOG), segmentSize, forceOnWrite);
+            // Content of messages whose metadata was stored before the broker stopped is no longer pending
+            for (Long messageId : pendingContentLog.getIndex().keySet()) {
+                if (messageLocations.containsKey(messageId)) {
+                    pendingContentLog.remove(messageId);
+                }
+            }
+            pendingContentLog.flush();
+        } catch (IOException e) {
+            throw new AndesException("Error while " + FileStoreConstants.TASK_RECOVERING_QUEUE
+                                     + FileStoreConstants.PENDING_CONTENT_LOG, e);
+        }
+    }
+
+    /**
+     * Resolve moves interrupted by a broker shutdown. A record flagged as moving is stale if the copy made it to the
+     * target log, in which case it is dropped. Otherwise the move is rolled back and the record is live again. Either
+     * way the message ends up in exactly one log.
+     */
+    private void resolveInterruptedMoves() {
+        for (QueueLog queueLog : queueLogs.values()) {
+            Set<Long> movingMessages = queueLog.getRecoveredMovingMessages();
+            if (movingMessages.isEmpty()) {
+                continue;
+            }
+
+            for (Long messageId : movingMessages) {
+                if (messageLocations.containsKey(messageId)) {
+                    queueLog.remove(messageId);
+                } else {
+                    queueLog.cancelMove(messageId);
+                    messageLocations.put(messageId, queueLog);
+                }
+            }
+            log.info("Resolved " + movingMessages.size() + " interrupted message moves of queue \""
+                     + queueLog.getQueueName() + "\"");
+            movingMessages.clear();
+            queueLog.flush();
+        }
+    }
+
+    /**
+     * Content stored ahead of its metadata is kept in the pending content log, one record per message. Parts
+     * stored for a message which already has pending content are added to its record. The content is moved to the
+     * log of the queue of the message in {@link #storeMessages(List)}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessagePart(List<AndesMessagePart> partList) throws AndesException {
+        Map<Long, List<AndesMessagePart>> partsByMessage = new HashMap<>();
+        for (AndesMessagePart part : partList) {
+            List<AndesMessagePart> parts = partsByMessage.get(part.getMessageID());
+            if (null == parts) {
+                parts = new ArrayList<>();
+                partsByMessage.put(part.getMessageID(), parts);
+            }
+            parts.add(part);
+        }
+
+        Context messageContentAdditionContext = MetricManager.timer(MetricsConstants.ADD_MESSAGE_PART, Level.INFO)
+                .start();
+        try {
+            synchronized (pendingContentLog) {
+                for (Map.Entry<Long, List<AndesMessagePart>> entry : partsByMessage.entrySet()) {
+                    List<AndesMessagePart> parts = entry.getValue();
+                    RecordLocation location = pendingContentLog.get(entry.getKey());
+                    if (null != location) {
+                        parts.addAll(0, location.read(true).getParts());
+                    }
+                    pendingContentLog.append(new LogRecord(entry.getKey(), 0, null, new byte[0], parts));
+                }
+            }
+            pendingContentLog.flush();
+        } catch (IOException e) {
+            throw new AndesStoreUnavailableException("Error while " + FileStoreConstants.TASK_STORING_MESSAGE_PARTS,
+                    e);
+        } finally {
+            messageContentAdditionContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessagePart getContent(long messageId, int offsetValue) throws AndesException {
+        Context contentRetrievalContext = MetricManager.timer(MetricsConstants.GET_CONTENT, Level.INFO).start();
+        try {
+            RecordLocation location = getContentLocation(messageId);
+            if (null != location) {
+                for (AndesMessagePart part : location.read(true).getParts()) {
+                    if (part.getOffset() == offsetValue) {
+                        return part;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            contentRetrievalContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIDList) throws AndesException {
+        LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>(messageIDList.size());
+        Context contentRetrievalContext = MetricManager.timer(MetricsConstants.GET_CONTENT_BATCH, Level.INFO).start();
+        try {
+            for (int i = 0; i < messageIDList.size(); i++) {
+                long messageId = messageIDList.get(i);
+                RecordLocation location = getContentLocation(messageId);
+                if (null != location) {
+                    contentList.put(messageId, location.read(true).getParts());
+                }
+            }
+        } finally {
+            contentRetrievalContext.stop();
+        }
+        return contentList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeMessages(List<AndesMessage> messageList) throws AndesException {
+        Set<QueueLog> writtenLogs = new HashSet<>();
+        List<Long> storedPendingContent = new ArrayList<>();
+        Context metaAdditionContext = MetricManager.timer(MetricsConstants.ADD_META_DATA_LIST, Level.INFO).start();
+        try {
+            for (AndesMessage message : messageList) {
+                AndesMessageMetadata metadata = message.getMetadata();
+                List<AndesMessagePart> parts = message.getContentChunkList();
+                if (parts.isEmpty()) {
+                    RecordLocation pendingContent = pendingContentLog.get(metadata.getMessageID());
+                    if (null != pendingContent) {
+                        parts = pendingContent.read(true).getParts();
+                        storedPendingContent.add(metadata.getMessageID());
+                    }
+                }
+
+                QueueLog queueLog = getOrCreateQueueLog(metadata.getStorageQueueName());
+                append(queueLog, new LogRecord(metadata.getMessageID(), getExpirationTime(metadata), null,
+                        metadata.getMetadata(), parts));
+                writtenLogs.add(queueLog);
+            }
+
+            // Force once per queue for the whole batch
+            for (QueueLog queueLog : writtenLogs) {
+                queueLog.flush();
+            }
+
+            // Pending content is dropped only once the records holding it are durable
+            if (!storedPendingContent.isEmpty()) {
+                for (Long messageId : storedPendingContent) {
+                    pendingContentLog.remove(messageId);
+                }
+                pendingContentLog.flush();
+            }
+        } catch (IOException e) {
+            throw new AndesStoreUnavailableException("Error while " + FileStoreConstants.TASK_STORING_MESSAGES, e);
+        } finally {
+            metaAdditionContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToQueue(long messageId, String currentQueueName, String targetQueueName)
+            throws AndesException {
+        QueueLog currentLog = queueLogs.get(currentQueueName);
+        RecordLocation location = (null == currentLog) ? null : currentLog.get(messageId);
+        if (null == location) {
+            log.warn("Message " + messageId + " to be moved to queue " + targetQueueName
+                     + " was not found in queue " + currentQueueName);
+            return;
+        }
+
+        LogRecord record = location.read(true);
+        move(currentLog, getOrCreateQueueLog(targetQueueName), new LogRecord(messageId,
+                record.getExpirationTime(), null, record.getMetadata(), record.getParts()));
+    }
+
+    /**
+     * Original queue of the message is kept in the DLC record, so that messages in DLC can be queried per queue.
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(long messageId, String dlcQueueName) throws AndesException {
+        Context moveMetadataToDLCContext = MetricManager.timer(MetricsConstants.MOVE_METADATA_TO_DLC, Level.INFO)
+                .start();
+        try {
+            moveToDLC(messageId, getOrCreateQueueLog(dlcQueueName));
+        } finally {
+            moveMetadataToDLCContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void moveMetadataToDLC(List<AndesMessageMetadata> messages, String dlcQueueName) throws AndesException {
+        Context moveMetadataToDLCContext = MetricManager.timer(MetricsConstants.MOVE_METADATA_TO_DLC, Level.INFO)
+                .start();
+        try {
+            QueueLog dlcLog = getOrCreateQueueLog(dlcQueueName);
+            for (AndesMessageMetadata message : messages) {
+                moveToDLC(message.getMessageID(), dlcLog);
+            }
+        } finally {
+            moveMetadataToDLCContext.stop();
+        }
+    }
+
+    private void moveToDLC(long messageId, QueueLog dlcLog) throws AndesException {
+        QueueLog currentLog = messageLocations.get(messageId);
+        if (null == currentLog || currentLog == dlcLog) {
+            return;
+        }
+
+        RecordLocation location = currentLog.get(messageId);
+        if (null == location) {
+            return;
+        }
+
+        LogRecord record = location.read(true);
+        move(currentLog, dlcLog, new LogRecord(messageId, record.getExpirationTime(), currentLog.getQueueName(),
+                record.getMetadata(), record.getParts()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateMetadataInformation(String currentQueueName, List<AndesMessageMetadata> metadataList)
+            throws AndesException {
+        Context metaUpdateContext = MetricManager.timer(MetricsConstants.UPDATE_META_DATA_INFORMATION, Level.INFO)
+                .start();
+        try {
+            QueueLog currentLog = queueLogs.get(currentQueueName);
+            if (null == currentLog) {
+                return;
+            }
+
+            for (AndesMessageMetadata metadata : metadataList) {
+                RecordLocation location = currentLog.get(metadata.getMessageID());
+                if (null == location) {
+                    continue;
+                }
+
+                LogRecord record = location.read(true);
+                move(currentLog, getOrCreateQueueLog(metadata.getStorageQueueName()),
+                        new LogRecord(metadata.getMessageID(), getExpirationTime(metadata), null,
+                                metadata.getMetadata(), record.getParts()));
+            }
+        } finally {
+            metaUpdateContext.stop();
+        }
+    }
+
+    /**
+     * Write the record to the target log and then remove it from the current log. If both logs are the same the
+     * record is simply superseded. Otherwise the current record is flagged as moving until the copy is durable, so
+     * that a move interrupted by a crash is resolved on recovery instead of leaving the message in both logs.
+     */
+    private void move(QueueLog currentLog, QueueLog targetLog, LogRecord record) throws AndesException {
+        long messageId = record.getMessageId();
+        boolean crossLog = currentLog != targetLog;
+        if (crossLog) {
+            currentLog.beginMove(messageId);
+        }
+
+        try {
+            append(targetLog, record);
+            targetLog.flush();
+        } catch (IOException e) {
+            if (crossLog) {
+                currentLog.cancelMove(messageId);
+            }
+            throw new AndesStoreUnavailableException(
+                    "Error while " + FileStoreConstants.TASK_MOVING_MESSAGE + messageId, e);
+        }
+
+        if (crossLog) {
+            currentLog.remove(messageId);
+            currentLog.flush();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndesMessageMetadata getMetadata(long messageId) throws AndesException {
+        Context metaRetrievalContext = MetricManager.timer(MetricsConstants.GET_META_DATA, Level.INFO).start();
+        try {
+            RecordLocation location = getLocation(messageId);
+            if (null == location) {
+                return null;
+            }
+            return new AndesMessageMetadata(messageId, location.read(false).getMetadata(), true);
+        } finally {
+            metaRetrievalContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getMetadataList(Slot slot, final String storageQueueName, long firstMsgId,
+            long lastMsgID) throws AndesException {
+
+        List<DeliverableAndesMetadata> metadataList = new ArrayList<>();
+        Context metaListRetrievalContext = MetricManager.timer(MetricsConstants.GET_META_DATA_LIST, Level.INFO).start();
+
+        try {
+            QueueLog queueLog = queueLogs.get(storageQueueName);
+            if (null == queueLog) {
+                return metadataList;
+            }
+
+            for (Map.Entry<Long, RecordLocation> entry
+                    : queueLog.getIndex().subMap(firstMsgId, true, lastMsgID, true).entrySet()) {
+                DeliverableAndesMetadata md = new DeliverableAndesMetadata(slot, entry.getKey(),
+                        entry.getValue().read(false).getMetadata(), true);
+                md.setStorageQueueName(storageQueueName);
+                metadataList.add(md);
+                //Tracing message
+                MessageTracer.trace(md, MessageTracer.METADATA_READ_FROM_DB + " slot = " + slot.getId());
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("request: metadata range (" + firstMsgId + " , " + lastMsgID + ") in destination queue "
+                          + storageQueueName + ", response: metadata count " + metadataList.size());
+            }
+        } finally {
+            metaListRetrievalContext.stop();
+        }
+        return metadataList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getNextMetadataPage(MetadataPageCursor cursor) throws AndesException {
+
+        Slot slot = cursor.getSlot();
+        String storageQueueName = cursor.getStorageQueueName();
+        List<DeliverableAndesMetadata> metadataList = new ArrayList<>(cursor.getPageSize());
+        Context metaListRetrievalContext = MetricManager.timer(MetricsConstants.GET_META_DATA_LIST, Level.INFO).start();
+
+        try {
+            QueueLog queueLog = queueLogs.get(storageQueueName);
+            if (null != queueLog) {
+                for (Map.Entry<Long, RecordLocation> entry : queueLog.getIndex()
+                        .subMap(cursor.getNextMessageId(), true, cursor.getLastMessageId(), true).entrySet()) {
+                    if (metadataList.size() == cursor.getPageSize()) {
+                        break;
+                    }
+                    DeliverableAndesMetadata md = new DeliverableAndesMetadata(slot, entry.getKey(),
+                            entry.getValue().read(false).getMetadata(), true);
+                    md.setStorageQueueName(storageQueueName);
+                    metadataList.add(md);
+                    //Tracing message
+                    MessageTracer.trace(md, MessageTracer.METADATA_READ_FROM_DB + " slot = " + slot.getId());
+                }
+            }
+            cursor.advance(metadataList);
+        } finally {
+            metaListRetrievalContext.stop();
+        }
+        return metadataList;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Content is read directly from the memory mapped segments, hence there is nothing to prefetch.
+     */
+    @Override
+    public void prefetchContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInRange(final String storageQueueName, long firstMessageId, long lastMessageId)
+            throws AndesException {
+        QueueLog queueLog = queueLogs.get(storageQueueName);
+        if (null == queueLog) {
+            return 0;
+        }
+        return queueLog.getIndex().subMap(firstMessageId, true, lastMessageId, true).size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int recoverSlotsForQueue(final String storageQueueName, long firstMsgId, int messageLimitPerSlot,
+            RecoverySlotCreator.CallBack callBack) throws AndesException {
+
+        QueueLog queueLog = queueLogs.get(storageQueueName);
+        if (null == queueLog) {
+            return 0;
+        }
+
+        long messageCountForQueue = queueLog.getMessageCount();
+        int restoreMessagesCounter = 0;
+
+        Context nextMessageIdsRetrievalContext = MetricManager
+                .timer(MetricsConstants.GET_NEXT_MESSAGE_IDS_FROM_QUEUE, Level.INFO).start();
+
+        try {
+            long lastStatPublishTime = System.currentTimeMillis();
+            long batchStartMessageID = 0;
+            int currentBatchCount = 0;
+            long currentMessageId = 0;
+
+            for (Long messageId : queueLog.getIndex().tailMap(firstMsgId, true).keySet()) {
+                currentMessageId = messageId;
+
+                if (currentBatchCount == 0) {
+                    batchStartMessageID = currentMessageId;
+                }
+
+                currentBatchCount++;
+
+                if (currentBatchCount == messageLimitPerSlot) {
+                    callBack.initializeSlotMapForQueue(storageQueueName, batchStartMessageID, currentMessageId,
+                            messageLimitPerSlot);
+                    restoreMessagesCounter = restoreMessagesCounter + currentBatchCount;
+                    currentBatchCount = 0;
+                }
+                lastStatPublishTime = publishStat(storageQueueName, messageCountForQueue, restoreMessagesCounter,
+                        lastStatPublishTime);
+            }
+
+            if (currentBatchCount > 0) {
+                restoreMessagesCounter = restoreMessagesCounter + currentBatchCount;
+                callBack.initializeSlotMapForQueue(storageQueueName, batchStartMessageID, currentMessageId,
+                        messageLimitPerSlot);
+            }
+        } finally {
+            nextMessageIdsRetrievalContext.stop();
+        }
+        return restoreMessagesCounter;
+    }
+
+    /**
+     * Publish restore slot process progress in given time intervals
+     *
+     * @param storageQueueName       storage queue name
+     * @param messageCountForQueue   message count for queue
+     * @param restoreMessagesCounter restore message counter
+     * @param lastStatPublishTime    last stat publish time
+     * @return last stat publish time
+     */
+    private long publishStat(String storageQueueName, long messageCountForQueue,
+                             int restoreMessagesCounter, long lastStatPublishTime) {
+        long currentTimeInMillis = System.currentTimeMillis();
+        if (currentTimeInMillis - lastStatPublishTime > STAT_PUBLISHING_INTERVAL) {
+            // messageCountOfQueue is multiplied by 1.0 to convert it to double
+            double recoveredPercentage = (restoreMessagesCounter / (messageCountForQueue * 1.0)) * 100.0;
+            log.info(restoreMessagesCounter + "/" + messageCountForQueue + " (" + Math.round(recoveredPercentage)
+                     + "%) messages recovered for queue \"" + storageQueueName + "\"");
+            lastStatPublishTime = currentTimeInMillis;
+        }
+        return lastStatPublishTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromQueue(final String storageQueueName, long firstMsgId,
+            int count) throws AndesException {
+        Context nextMetaRetrievalContext = MetricManager
+                .timer(MetricsConstants.GET_NEXT_MESSAGE_METADATA_FROM_QUEUE, Level.INFO).start();
+        try {
+            return readMetadata(queueLogs.get(storageQueueName), storageQueueName, null, firstMsgId, count);
+        } finally {
+            nextMetaRetrievalContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataForQueueFromDLC(String storageQueueName,
+            String dlcQueueName, long firstMsgId, int count) throws AndesException {
+        Context nextMetaRetrievalContext = MetricManager
+                .timer(MetricsConstants.GET_NEXT_MESSAGE_METADATA_IN_DLC_FOR_QUEUE, Level.INFO).start();
+        try {
+            return readMetadata(queueLogs.get(dlcQueueName), storageQueueName, storageQueueName, firstMsgId, count);
+        } finally {
+            nextMetaRetrievalContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count)
+            throws AndesException {
+        Context nextMetaRetrievalContext = MetricManager
+                .timer(MetricsConstants.GET_NEXT_MESSAGE_METADATA_IN_DLC, Level.INFO).start();
+        try {
+            return readMetadata(queueLogs.get(dlcQueueName), dlcQueueName, null, firstMsgId, count);
+        } finally {
+            nextMetaRetrievalContext.stop();
+        }
+    }
+
+    /**
+     * Read metadata of at most count messages starting from the given message ID
+     *
+     * @param queueLog         log to read from, may be null
+     * @param storageQueueName storage queue name set to the read metadata
+     * @param origin           if not null only messages originating from this queue are read
+     * @param firstMsgId       first message ID to read (inclusive)
+     * @param count            maximum number of messages to read
+     * @return list of metadata
+     */
+    private List<AndesMessageMetadata> readMetadata(QueueLog queueLog, String storageQueueName, String origin,
+            long firstMsgId, int count) {
+        List<AndesMessageMetadata> mdList = new ArrayList<>(count);
+        if (null == queueLog) {
+            return mdList;
+        }
+
+        for (Map.Entry<Long, RecordLocation> entry : queueLog.getIndex().tailMap(firstMsgId, true).entrySet()) {
+            if (mdList.size() == count) {
+                break;
+            }
+
+            if (null != origin && !origin.equals(entry.getValue().getOrigin())) {
+                continue;
+            }
+
+            AndesMessageMetadata md = new AndesMessageMetadata(entry.getKey(),
+                    entry.getValue().read(false).getMetadata(), true);
+            md.setStorageQueueName(storageQueueName);
+            mdList.add(md);
+        }
+        return mdList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessageMetadataFromQueue(final String storageQueueName,
+            List<AndesMessageMetadata> messagesToRemove) throws AndesException {
+        Context metaDeletionContext = MetricManager
+                .timer(MetricsConstants.DELETE_MESSAGE_META_DATA_FROM_QUEUE, Level.INFO).start();
+        try {
+            QueueLog queueLog = queueLogs.get(storageQueueName);
+            if (null == queueLog) {
+                return;
+            }
+
+            for (AndesMessageMetadata message : messagesToRemove) {
+                if (null != queueLog.remove(message.getMessageID())) {
+                    messageLocations.remove(message.getMessageID());
+                }
+            }
+            queueLog.flush();
+
+            if (log.isDebugEnabled()) {
+                log.debug("Metadata removed. " + messagesToRemove.size() +
+                          " metadata from destination " + storageQueueName);
+            }
+        } finally {
+            metaDeletionContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(final String storageQueueName, List<AndesMessageMetadata> messagesToRemove)
+            throws AndesException {
+        Context messageDeletionContext = MetricManager
+                .timer(MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT, Level.INFO).start();
+        try {
+            Set<QueueLog> changedLogs = new HashSet<>();
+            for (AndesMessageMetadata message : messagesToRemove) {
+                removeMessage(message.getMessageID(), changedLogs);
+            }
+            flush(changedLogs);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Metadata and content removed: " + messagesToRemove.size() + " for destination queue:"
+                          + storageQueueName);
+            }
+        } finally {
+            messageDeletionContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessages(List<Long> messagesToRemove) throws AndesException {
+        Context messageDeletionContext = MetricManager
+                .timer(MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT, Level.INFO).start();
+        try {
+            Set<QueueLog> changedLogs = new HashSet<>();
+            for (long messageId : messagesToRemove) {
+                removeMessage(messageId, changedLogs);
+            }
+            flush(changedLogs);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Metadata and content removed: " + messagesToRemove.size());
+            }
+        } finally {
+            messageDeletionContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteDLCMessages(List<AndesMessageMetadata> messagesToRemove) throws AndesException {
+        Context messageDeletionContext = MetricManager
+                .timer(MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT, Level.INFO).start();
+        try {
+            Set<QueueLog> changedLogs = new HashSet<>();
+            for (AndesMessageMetadata message : messagesToRemove) {
+                QueueLog queueLog = messageLocations.get(message.getMessageID());
+                if (null != queueLog && DLCQueueUtils.isDeadLetterQueue(queueLog.getQueueName())) {
+                    removeMessage(message.getMessageID(), changedLogs);
+                }
+            }
+            flush(changedLogs);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Messages removed: " + messagesToRemove.size() + " from DLC");
+            }
+        } finally {
+            messageDeletionContext.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessages(long lowerBoundMessageID, String queueName) throws AndesException {
+        List<Long> list = new ArrayList<>();
+        QueueLog queueLog = queueLogs.get(queueName);
+        if (null == queueLog) {
+            return list;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        for (Map.Entry<Long, RecordLocation> entry
+                : queueLog.getIndex().tailMap(lowerBoundMessageID, true).entrySet()) {
+            if (isExpired(entry.getValue(), currentTime)) {
+                list.add(entry.getKey());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getExpiredMessagesFromDLC(long messageCount) throws AndesException {
+        List<Long> list = new ArrayList<>();
+        long currentTime = System.currentTimeMillis();
+
+        for (QueueLog queueLog : queueLogs.values()) {
+            if (!DLCQueueUtils.isDeadLetterQueue(queueLog.getQueueName())) {
+                continue;
+            }
+
+            for (Map.Entry<Long, RecordLocation> entry : queueLog.getIndex().entrySet()) {
+                if (list.size() == messageCount) {
+                    return list;
+                }
+                if (isExpired(entry.getValue(), currentTime)) {
+                    list.add(entry.getKey());
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ExpiringMessage> getExpiringMessages() throws AndesException {
+        List<ExpiringMessage> list = new ArrayList<>();
+
+        for (QueueLog queueLog : queueLogs.values()) {
+            if (DLCQueueUtils.isDeadLetterQueue(queueLog.getQueueName())) {
+                continue;
+            }
+
+            for (Map.Entry<Long, RecordLocation> entry : queueLog.getIndex().entrySet()) {
+                long expirationTime = entry.getValue().getExpirationTime();
+                if (expirationTime > 0) {
+                    list.add(new ExpiringMessage(entry.getKey(), expirationTime, queueLog.getQueueName()));
+                }
+            }
+        }
+        return list;
+    }
+
+    private boolean isExpired(RecordLocation location, long currentTime) {
+        return location.getExpirationTime() > 0 && location.getExpirationTime() < currentTime;
+    }
+
+    /**
+     * Expiration time is kept within the message record itself. The record is rewritten with the given expiration
+     * time if it differs from the stored one.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void addMessageToExpiryQueue(Long messageId, Long expirationTime, boolean isMessageForTopic,
+            String destination) throws AndesException {
+        QueueLog queueLog = messageLocations.get(messageId);
+        RecordLocation location = (null == queueLog) ? null : queueLog.get(messageId);
+        if (null == location) {
+            if (log.isDebugEnabled()) {
+                log.debug("Message " + messageId + " to be added to the expiry queue was not found");
+            }
+            return;
+        }
+
+        long newExpirationTime = (null == expirationTime) ? 0 : expirationTime;
+        if (location.getExpirationTime() == newExpirationTime) {
+            return;
+        }
+
+        LogRecord record = location.read(true);
+        try {
+            append(queueLog, new LogRecord(messageId, newExpirationTime, record.getOrigin(), record.getMetadata(),
+                    record.getParts()));
+            queueLog.flush();
+        } catch (IOException e) {
+            throw new AndesStoreUnavailableException(
+                    "Error while " + FileStoreConstants.TASK_UPDATING_EXPIRATION_TIME + messageId, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteAllMessageMetadata(String storageQueueName) throws AndesException {
+        QueueLog queueLog = queueLogs.get(storageQueueName);
+        if (null == queueLog) {
+            return 0;
+        }
+        return purge(queueLog);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int clearDLCQueue(String dlcQueueName) throws AndesException {
+        QueueLog queueLog = queueLogs.get(dlcQueueName);
+        if (null == queueLog) {
+            return 0;
+        }
+        return purge(queueLog);
+    }
+
+    private int purge(QueueLog queueLog) throws AndesException {
+        for (Long messageId : queueLog.getIndex().keySet()) {
+            messageLocations.remove(messageId);
+        }
+
+        try {
+            int deletedMessageCount = queueLog.purge();
+            if (log.isDebugEnabled()) {
+                log.debug("DELETED all message metadata from " + queueLog.getQueueName());
+            }
+            return deletedMessageCount;
+        } catch (IOException e) {
+            throw new AndesStoreUnavailableException(
+                    "Error while " + FileStoreConstants.TASK_DELETING_QUEUE + queueLog.getQueueName(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongArrayList getMessageIDsAddressedToQueue(String storageQueueName, Long startMessageID)
+            throws AndesException {
+        LongArrayList messageIDs = new LongArrayList();
+        QueueLog queueLog = queueLogs.get(storageQueueName);
+        if (null == queueLog) {
+            return messageIDs;
+        }
+
+        long firstMessageId = (null == startMessageID) ? 0 : startMessageID;
+        for (Long messageId : queueLog.getIndex().tailMap(firstMessageId, true).keySet()) {
+            messageIDs.add(messageId);
+        }
+        return messageIDs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addQueue(String destinationQueueName) throws AndesException {
+        getOrCreateQueueLog(destinationQueueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> getMessageCountForAllQueues(List<String> queueNames) throws AndesException {
+        Map<String, Integer> queueMessageCountForName = new HashMap<>();
+        for (String queueName : queueNames) {
+            // Dead letter channel queues are not counted by this operation
+            if (DLCQueueUtils.isDeadLetterQueue(queueName)) {
+                continue;
+            }
+            QueueLog queueLog = queueLogs.get(queueName);
+            queueMessageCountForName.put(queueName, (null == queueLog) ? 0 : queueLog.getMessageCount());
+        }
+        return queueMessageCountForName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueue(String storageQueueName) throws AndesException {
+        QueueLog queueLog = queueLogs.get(storageQueueName);
+        return (null == queueLog) ? 0 : queueLog.getMessageCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForQueueInDLC(String storageQueueName, String dlcQueueName) throws AndesException {
+        QueueLog dlcLog = queueLogs.get(dlcQueueName);
+        if (null == dlcLog) {
+            return 0;
+        }
+
+        long messageCount = 0;
+        for (RecordLocation location : dlcLog.getIndex().values()) {
+            if (storageQueueName.equals(location.getOrigin())) {
+                messageCount++;
+            }
+        }
+        return messageCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMessageCountForDLCQueue(String dlcQueueName) throws AndesException {
+        return getMessageCountForQueue(dlcQueueName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetMessageCounterForQueue(String storageQueueName) throws AndesException {
+        // Message count is taken from the queue index itself. No need to implement this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeQueue(String storageQueueName) throws AndesException {
+        QueueLog queueLog = queueLogs.remove(storageQueueName);
+        if (null == queueLog) {
+            return;
+        }
+
+        for (Long messageId : queueLog.getIndex().keySet()) {
+            messageLocations.remove(messageId);
+        }
+        queueLog.delete();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeLocalQueueData(String storageQueueName) {
+        // Queue data is removed together with the queue log in removeQueue. Nothing is cached apart from it.
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementMessageCountForQueue(String destinationQueueName, long incrementBy) throws AndesException {
+        // Message count is taken from the queue index itself. No need to implement this
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrementMessageCountForQueue(String destinationQueueName, long decrementBy) throws AndesException {
+        // Message count is taken from the queue index itself. No need to implement this
+    }
+
+    /**
+     * Store retained messages in the retained message log. Destination of a retained message is kept as the origin
+     * of its record so that the destination mapping can be rebuilt at startup.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeRetainedMessages(Map<String, AndesMessage> retainMap) throws AndesException {
+        try {
+            for (AndesMessage message : retainMap.values()) {
+                AndesMessageMetadata metadata = message.getMetadata();
+                String destination = metadata.getDestination();
+                Long previousMessageId;
+
+                // A retained message with an empty payload clears the retained message of the destination
+                if (message.getContentChunkList().isEmpty()
+                    || message.getContentChunkList().get(0).getDataLength() == 0) {
+                    previousMessageId = retainedMessages.remove(destination);
+                } else {
+                    retainedMessageLog.append(new LogRecord(metadata.getMessageID(), getExpirationTime(metadata),
+                            destination, metadata.getMetadata(), message.getContentChunkList()));
+                    previousMessageId = retainedMessages.put(destination, metadata.getMessageID());
+                }
+
+                if (null != previousMessageId && previousMessageId != metadata.getMessageID()) {
+                    retainedMessageLog.remove(previousMessageId);
+                }
+            }
+            retainedMessageLog.flush();
+        } catch (IOException e) {
+            throw new AndesStoreUnavailableException("Error while " + FileStoreConstants.TASK_STORING_RETAINED_MESSAGE,
+                    e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllRetainedTopics() throws AndesException {
+        return new ArrayList<>(retainedMessages.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, AndesMessagePart> getRetainedContentParts(long messageID) throws AndesException {
+        Map<Integer, AndesMessagePart> contentParts = new HashMap<>();
+        RecordLocation location = retainedMessageLog.get(messageID);
+        if (null != location) {
+            for (AndesMessagePart part : location.read(true).getParts()) {
+                contentParts.put(part.getOffset(), part);
+            }
+        }
+        return contentParts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DeliverableAndesMetadata getRetainedMetadata(String destination) throws AndesException {
+        Long messageId = retainedMessages.get(destination);
+        if (null == messageId) {
+            return null;
+        }
+
+        RecordLocation location = retainedMessageLog.get(messageId);
+        if (null == location) {
+            return null;
+        }
+        return new DeliverableAndesMetadata(null, messageId, location.read(false).getMetadata(), true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (null != compactionExecutor) {
+            compactionExecutor.shutdownNow();
+            // A running compaction rewrites segments, which must not be closed underneath it
+            try {
+                if (!compactionExecutor.awaitTermination(FileStoreConstants.COMPACTION_SHUTDOWN_TIMEOUT,
+                        TimeUnit.SECONDS)) {
+                    log.warn("Segment compaction did not stop within "
+                             + FileStoreConstants.COMPACTION_SHUTDOWN_TIMEOUT + " seconds");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (QueueLog queueLog : queueLogs.values()) {
+            queueLog.close();
+        }
+        if (null != retainedMessageLog) {
+            retainedMessageLog.close();
+        }
+        if (null != pendingContentLog) {
+            pendingContentLog.close();
+        }
+
+        if (null != fileStoreConnection) {
+            fileStoreConnection.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc} Check if data can be written, read and finally deleted from the store directory.
+     */
+    @Override
+    public boolean isOperational(String testString, long testTime) {
+        File testFile = new File(storeDirectory, "health-check-" + testTime);
+        String testData = testString + testTime;
+
+        try {
+            try (RandomAccessFile file = new RandomAccessFile(testFile, "rw")) {
+                file.writeUTF(testData);
+                file.getFD().sync();
+                file.seek(0);
+                if (!testData.equals(file.readUTF())) {
+                    return false;
+                }
+            }
+            return testFile.delete();
+        } catch (IOException e) {
+            log.warn("Message store health check failed at " + storeDirectory.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Append a record to a log and point the message to it
+     */
+    private void append(QueueLog queueLog, LogRecord record) throws IOException {
+        queueLog.append(record);
+        messageLocations.put(record.getMessageId(), queueLog);
+    }
+
+    /**
+     * Remove a message from whichever log is holding it
+     *
+     * @param messageId   ID of the message
+     * @param changedLogs log the message was removed from is added to this set so that it is flushed afterwards
+     */
+    private void removeMessage(long messageId, Set<QueueLog> changedLogs) {
+        QueueLog queueLog = messageLocations.remove(messageId);
+        if (null != queueLog) {
+            queueLog.remove(messageId);
+            changedLogs.add(queueLog);
+        }
+        if (null != pendingContentLog.remove(messageId)) {
+            changedLogs.add(pendingContentLog);
+        }
+    }
+
+    /**
+     * Force deletion markers of a delete batch to the storage device
+     */
+    private void flush(Set<QueueLog> changedLogs) {
+        for (QueueLog queueLog : changedLogs) {
+            queueLog.flush();
+        }
+    }
+
+    private RecordLocation getLocation(long messageId) {
+        QueueLog queueLog = messageLocations.get(messageId);
+        return (null == queueLog) ? null : queueLog.get(messageId);
+    }
+
+    /**
+     * Get the record holding the content of a message, which is in the pending content log if the metadata of the
+     * message is not stored yet
+     */
+    private RecordLocation getContentLocation(long messageId) {
+        RecordLocation location = getLocation(messageId);
+        return (null == location) ? pendingContentLog.get(messageId) : location;
+    }
+
+    private long getExpirationTime(AndesMessageMetadata metadata) {
+        return metadata.isExpirationDefined() ? metadata.getExpirationTime() : 0;
+    }
+
+    private QueueLog getOrCreateQueueLog(String storageQueueName) throws AndesException {
+        QueueLog queueLog = queueLogs.get(storageQueueName);
+        if (null == queueLog) {
+            synchronized (queueLogs) {
+                queueLog = queueLogs.get(storageQueueName);
+                if (null == queueLog) {
+                    try {
+                        queueLog = new QueueLog(storageQueueName,
+                                new File(storeDirectory, encodeQueueName(storageQueueName)), segmentSize,
+                                forceOnWrite);
+                    } catch (IOException e) {
+                        throw new AndesStoreUnavailableException("Error while creating log for queue "
+                                                                 + storageQueueName, e);
+                    }
+                    queueLogs.put(storageQueueName, queueLog);
+                }
+            }
+        }
+        return queueLog;
+    }
+
+    private String encodeQueueName(String queueName) throws AndesException {
+        try {
+            return URLEncoder.encode(queueName, QUEUE_NAME_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new AndesException("Could not encode queue name " + queueName, e);
+        }
+    }
+
+    private String decodeQueueName(String directoryName) throws AndesException {
+        try {
+            return URLDecoder.decode(directoryName, QUEUE_NAME_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new AndesException("Could not decode queue directory name " + directoryName, e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.apache.log4j.Logger;
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DurableStoreConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+
+/**
+ * Connection of the segment file based message store. Resolves the store directory and holds an exclusive lock
+ * on it for the lifetime of the connection so that two broker instances never write to the same files.
+ */
+public class FileStoreConnection extends DurableStoreConnection {
+
+    private static final Logger logger = Logger.getLogger(FileStoreConnection.class);
+
+    private File storeDirectory;
+
+    private RandomAccessFile lockFile;
+
+    private FileLock lock;
+
+    @Override
+    public void initialize(ConfigurationProperties connectionProperties) throws AndesException {
+
+        super.initialize(connectionProperties);
+
+        String directoryPath = connectionProperties.getProperty(FileStoreConstants.PROP_STORE_DIRECTORY,
+                FileStoreConstants.DEFAULT_STORE_DIRECTORY);
+        storeDirectory = new File(directoryPath);
+
+        if (!storeDirectory.exists() && !storeDirectory.mkdirs()) {
+            throw new AndesException("Could not create message store directory "
+                                     + storeDirectory.getAbsolutePath());
+        }
+
+        try {
+            lockFile = new RandomAccessFile(new File(storeDirectory, FileStoreConstants.LOCK_FILE_NAME), "rw");
+            lock = lockFile.getChannel().tryLock();
+        } catch (IOException e) {
+            throw new AndesException("Error while locking message store directory "
+                                     + storeDirectory.getAbsolutePath(), e);
+        }
+
+        if (null == lock) {
+            close();
+            throw new AndesException("Message store directory " + storeDirectory.getAbsolutePath()
+                                     + " is in use by another process");
+        }
+
+        logger.info("File message store opened at " + storeDirectory.getAbsolutePath());
+    }
+
+    /**
+     * @return directory under which queue logs are created
+     */
+    public File getStoreDirectory() {
+        return storeDirectory;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (null != lock) {
+                lock.release();
+            }
+            if (null != lockFile) {
+                lockFile.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error while releasing lock of message store directory "
+                         + storeDirectory.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public Object getConnection() {
+        return this;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+/**
+ * Constants used by the segment file based message store. Property names are read from
+ * persistence/messageStore/property elements in broker.xml.
+ */
+public final class FileStoreConstants {
+
+    /**
+     * Directory under which a sub directory is created for each storage queue
+     */
+    protected static final String PROP_STORE_DIRECTORY = "storeDirectory";
+
+    /**
+     * Size of a single memory mapped segment file in megabytes
+     */
+    protected static final String PROP_SEGMENT_SIZE = "segmentSizeInMB";
+
+    /**
+     * If true, segments are forced to the storage device at the end of each write batch
+     */
+    protected static final String PROP_FORCE_ON_WRITE = "forceOnWrite";
+
+    /**
+     * Interval in seconds between two runs of the segment compaction task
+     */
+    protected static final String PROP_COMPACTION_INTERVAL = "compactionInterval";
+
+    /**
+     * A sealed segment is compacted when the percentage of live bytes in it drops below this value
+     */
+    protected static final String PROP_COMPACTION_THRESHOLD = "compactionThresholdPercentage";
+
+    protected static final String DEFAULT_STORE_DIRECTORY = "repository/data/andes/messagestore";
+    protected static final int DEFAULT_SEGMENT_SIZE_IN_MB = 64;
+    protected static final boolean DEFAULT_FORCE_ON_WRITE = true;
+    protected static final int DEFAULT_COMPACTION_INTERVAL = 30;
+    protected static final int DEFAULT_COMPACTION_THRESHOLD = 50;
+
+    /**
+     * Size of the initial mapping of a new segment in bytes. The mapping grows up to the segment size as records
+     * are appended.
+     */
+    protected static final int INITIAL_SEGMENT_MAPPING_SIZE = 1024 * 1024;
+
+    /**
+     * Name of the lock file which prevents two broker instances from opening the same store directory
+     */
+    protected static final String LOCK_FILE_NAME = "store.lock";
+
+    /**
+     * Name of the log holding MQTT retained messages. It cannot clash with a storage queue name since queue
+     * directory names are URL encoded.
+     */
+    protected static final String RETAINED_MESSAGE_LOG = "#retained";
+
+    /**
+     * Name of the log holding content stored ahead of the metadata of its message. Content is moved to the log of
+     * the queue of the message when the metadata is stored.
+     */
+    protected static final String PENDING_CONTENT_LOG = "#content";
+
+    /**
+     * Time to wait for a running compaction to stop when the store is closed, in seconds
+     */
+    protected static final int COMPACTION_SHUTDOWN_TIMEOUT = 30;
+
+    /**
+     * File name extension of a segment file
+     */
+    protected static final String SEGMENT_FILE_SUFFIX = ".log";
+
+    // Task descriptions used in error messages
+    protected static final String TASK_STORING_MESSAGES = "storing messages";
+    protected static final String TASK_MOVING_MESSAGE = "moving message ";
+    protected static final String TASK_RECOVERING_QUEUE = "recovering storage queue ";
+    protected static final String TASK_COMPACTING_QUEUE = "compacting storage queue ";
+    protected static final String TASK_DELETING_QUEUE = "deleting storage queue ";
+    protected static final String TASK_STORING_RETAINED_MESSAGE = "storing retained messages";
+    protected static final String TASK_STORING_MESSAGE_PARTS = "storing message parts";
+    protected static final String TASK_UPDATING_EXPIRATION_TIME = "updating expiration time of message ";
+
+    private FileStoreConstants() {
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A single message as written to a segment file. Metadata and all content chunks of the message are
+ * co-located in one record so that a message can be read with a single lookup.
+ * <p>
+ * Layout of a record (big endian)
+ * <pre>
+ * | length (int) | status (byte) | crc (int) | message id (long) | expiration time (long) |
+ * | origin length (short) | origin (UTF-8) | metadata length (int) | metadata |
+ * | part count (int) | [ offset (int) | length (int) | data ] * part count |
+ * </pre>
+ * Length covers the whole record including the header. The CRC is calculated over the bytes following it so
+ * that the status byte can be flipped in place when the message is deleted.
+ */
+final class LogRecord {
+
+    /**
+     * Size of length, status and crc fields
+     */
+    static final int HEADER_SIZE = 9;
+
+    /**
+     * Offset of the status byte from the start of a record
+     */
+    static final int STATUS_OFFSET = 4;
+
+    static final byte STATUS_LIVE = 1;
+
+    static final byte STATUS_DELETED = 2;
+
+    /**
+     * Record is being moved to another queue log. Set before the copy is written to the target log and replaced
+     * with {@link #STATUS_DELETED} once the copy is durable. A record found in this state on recovery is dropped if
+     * the copy made it to the target log and restored to {@link #STATUS_LIVE} otherwise.
+     */
+    static final byte STATUS_MOVING = 3;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final long messageId;
+
+    private final long expirationTime;
+
+    /**
+     * Original queue of a message in DLC or the destination of a retained message. Empty otherwise.
+     */
+    private final String origin;
+
+    private final byte[] metadata;
+
+    private final List<AndesMessagePart> parts;
+
+    LogRecord(long messageId, long expirationTime, String origin, byte[] metadata, List<AndesMessagePart> parts) {
+        this.messageId = messageId;
+        this.expirationTime = expirationTime;
+        this.origin = (null == origin) ? "" : origin;
+        this.metadata = metadata;
+        this.parts = (null == parts) ? Collections.<AndesMessagePart>emptyList() : parts;
+    }
+
+    long getMessageId() {
+        return messageId;
+    }
+
+    long getExpirationTime() {
+        return expirationTime;
+    }
+
+    String getOrigin() {
+        return origin;
+    }
+
+    byte[] getMetadata() {
+        return metadata;
+    }
+
+    List<AndesMessagePart> getParts() {
+        return parts;
+    }
+
+    /**
+     * Serialize the record including the header. The status of the written record is {@link #STATUS_LIVE}.
+     *
+     * @return bytes to be appended to a segment
+     */
+    byte[] encode() {
+        byte[] originBytes = origin.getBytes(UTF_8);
+        int length = HEADER_SIZE + 8 + 8 + 2 + originBytes.length + 4 + metadata.length + 4;
+        for (AndesMessagePart part : parts) {
+            length = length + 8 + part.getDataLength();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(length);
+        buffer.put(STATUS_LIVE);
+        buffer.putInt(0);
+        buffer.putLong(messageId);
+        buffer.putLong(expirationTime);
+        buffer.putShort((short) originBytes.length);
+        buffer.put(originBytes);
+        buffer.putInt(metadata.length);
+        buffer.put(metadata);
+        buffer.putInt(parts.size());
+        for (AndesMessagePart part : parts) {
+            buffer.putInt(part.getOffset());
+            buffer.putInt(part.getDataLength());
+            buffer.put(part.getData(), 0, part.getDataLength());
+        }
+
+        byte[] record = buffer.array();
+        buffer.putInt(STATUS_OFFSET + 1, checksum(record, 0, length));
+        return record;
+    }
+
+    /**
+     * Calculate the checksum of a record held in the given array
+     *
+     * @param record array holding the record
+     * @param start  start of the record within the array
+     * @param length length of the record
+     * @return CRC32 of the bytes following the header
+     */
+    static int checksum(byte[] record, int start, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(record, start + HEADER_SIZE, length - HEADER_SIZE);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Decode a record
+     *
+     * @param buffer      buffer positioned at the start of the record. Position of the buffer is changed.
+     * @param readContent if false content chunks are not read
+     * @return decoded record
+     */
+    static LogRecord decode(ByteBuffer buffer, boolean readContent) {
+        buffer.position(buffer.position() + HEADER_SIZE);
+        long messageId = buffer.getLong();
+        long expirationTime = buffer.getLong();
+
+        byte[] originBytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(originBytes);
+
+        byte[] metadata = new byte[buffer.getInt()];
+        buffer.get(metadata);
+
+        List<AndesMessagePart> parts = null;
+        if (readContent) {
+            int partCount = buffer.getInt();
+            parts = new ArrayList<>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                AndesMessagePart part = new AndesMessagePart();
+                part.setMessageID(messageId);
+                part.setOffSet(buffer.getInt());
+                byte[] data = new byte[buffer.getInt()];
+                buffer.get(data);
+                part.setData(data);
+                part.setDataLength(data.length);
+                parts.add(part);
+            }
+        }
+
+        return new LogRecord(messageId, expirationTime, new String(originBytes, UTF_8), metadata, parts);
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory mapped, append only file holding {@link LogRecord}s of a single storage queue. Records are appended by
+ * one writer at a time (the owning {@link QueueLog} serialises appends) while any number of readers may read
+ * already written records concurrently.
+ * <p>
+ * A segment starts with a small mapping which is doubled as records are appended until it reaches the maximum
+ * segment size. Queues which hold few messages therefore do not pin a full segment worth of address space.
+ */
+final class LogSegment {
+
+    private static final Logger log = Logger.getLogger(LogSegment.class);
+
+    /**
+     * Sequence number of the segment within its queue log. Also the file name of the segment.
+     */
+    private final long sequence;
+
+    private final File file;
+
+    private final RandomAccessFile randomAccessFile;
+
+    /**
+     * Size the segment may grow up to
+     */
+    private final int maxSize;
+
+    /**
+     * Current mapping of the file. Replaced with a larger mapping when the segment grows. Readers holding the
+     * previous mapping still see the same file pages.
+     */
+    private volatile MappedByteBuffer buffer;
+
+    /**
+     * Position at which the next record is written
+     */
+    private volatile int writePosition;
+
+    /**
+     * Number of bytes held by records which are not deleted
+     */
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    /**
+     * Whether records were written or status bytes changed since the segment was last forced
+     */
+    private volatile boolean dirty;
+
+    private LogSegment(long sequence, File file, int mappedSize, int maxSize) throws IOException {
+        this.sequence = sequence;
+        this.file = file;
+        this.maxSize = maxSize;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+    }
+
+    /**
+     * Create a new empty segment file
+     *
+     * @param directory directory of the queue log
+     * @param sequence  sequence number of the segment
+     * @param maxSize   size the segment may grow up to in bytes
+     * @return created segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static LogSegment create(File directory, long sequence, int maxSize) throws IOException {
+        return new LogSegment(sequence, new File(directory, fileName(sequence)),
+                Math.min(FileStoreConstants.INITIAL_SEGMENT_MAPPING_SIZE, maxSize), maxSize);
+    }
+
+    /**
+     * Open an existing segment file and scan it for valid records. Scanning stops at the first record which is
+     * incomplete or fails the checksum, which is where the next record will be written.
+     *
+     * @param file     segment file
+     * @param sequence sequence number of the segment
+     * @param maxSize  size the segment may grow up to in bytes if it becomes the active segment
+     * @param visitor  called for every live record found in the segment
+     * @return opened segment
+     * @throws IOException if the file cannot be mapped
+     */
+    static LogSegment open(File file, long sequence, int maxSize, RecordVisitor visitor) throws IOException {
+        int fileSize = (int) file.length();
+        LogSegment segment = new LogSegment(sequence, file, fileSize, Math.max(fileSize, maxSize));
+        segment.recover(visitor);
+        return segment;
+    }
+
+    /**
+     * Name of the segment file for the given sequence number
+     */
+    static String fileName(long sequence) {
+        return String.format("%020d", sequence) + FileStoreConstants.SEGMENT_FILE_SUFFIX;
+    }
+
+    private void recover(RecordVisitor visitor) {
+        int capacity = buffer.capacity();
+        int position = 0;
+
+        while (position + LogRecord.HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= LogRecord.HEADER_SIZE || length > capacity - position) {
+                break;
+            }
+
+            byte status = buffer.get(position + LogRecord.STATUS_OFFSET);
+            if (LogRecord.STATUS_LIVE != status && LogRecord.STATUS_DELETED != status
+                && LogRecord.STATUS_MOVING != status) {
+                break;
+            }
+
+            byte[] record = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position);
+            view.get(record);
+            if (buffer.getInt(position + LogRecord.STATUS_OFFSET + 1) != LogRecord.checksum(record, 0, length)) {
+                log.warn("Checksum mismatch in segment " + file.getAbsolutePath() + " at position " + position
+                         + ". Discarding the rest of the segment.");
+                break;
+            }
+
+            if (LogRecord.STATUS_DELETED != status) {
+                liveBytes.addAndGet(length);
+                view.position(position);
+                visitor.visit(this, position, length, status, LogRecord.decode(view, false));
+            }
+            position = position + length;
+        }
+
+        writePosition = position;
+    }
+
+    /**
+     * Append a record to the segment. Caller must make sure only one thread appends at a time.
+     *
+     * @param record encoded record
+     * @return position of the record or -1 if the segment does not have enough space left
+     * @throws IOException if the segment has to grow and the file cannot be remapped
+     */
+    int append(byte[] record) throws IOException {
+        int position = writePosition;
+        if (record.length > maxSize - position) {
+            return -1;
+        }
+
+        if (record.length > buffer.capacity() - position) {
+            grow(position + record.length);
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.put(record);
+        liveBytes.addAndGet(record.length);
+        writePosition = position + record.length;
+        dirty = true;
+        return position;
+    }
+
+    /**
+     * Remap the file with at least the given size. The mapping is doubled to keep the number of remaps
+     * logarithmic in the segment size.
+     */
+    private void grow(int requiredSize) throws IOException {
+        int newSize = (int) Math.min((long) maxSize, Math.max((long) buffer.capacity() * 2, requiredSize));
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+
+    /**
+     * Read a record written to this segment
+     *
+     * @param position    position of the record
+     * @param readContent if false only metadata of the record is read
+     * @return decoded record
+     */
+    LogRecord read(int position, boolean readContent) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        return LogRecord.decode(view, readContent);
+    }
+
+    /**
+     * Mark a record as deleted. The record stays in the segment until the segment is compacted.
+     *
+     * @param position position of the record
+     * @param length   length of the record
+     */
+    void markDeleted(int position, int length) {
+        setStatus(position, LogRecord.STATUS_DELETED);
+        liveBytes.addAndGet(-length);
+    }
+
+    /**
+     * Change the status byte of a live record. The change is durable once the segment is forced.
+     *
+     * @param position position of the record
+     * @param status   {@link LogRecord#STATUS_LIVE}, {@link LogRecord#STATUS_MOVING} or
+     *                 {@link LogRecord#STATUS_DELETED}
+     */
+    void setStatus(int position, byte status) {
+        buffer.put(position + LogRecord.STATUS_OFFSET, status);
+        dirty = true;
+    }
+
+    /**
+     * @param position position of the record
+     * @return status byte of the record
+     */
+    byte getStatus(int position) {
+        return buffer.get(position + LogRecord.STATUS_OFFSET);
+    }
+
+    /**
+     * Flush written records and status changes to the storage device
+     */
+    void force() {
+        // Cleared before forcing so that a change made while forcing leaves the segment dirty
+        dirty = false;
+        buffer.force();
+    }
+
+    /**
+     * @return true if the segment has changes which are not forced to the storage device yet
+     */
+    boolean isDirty() {
+        return dirty;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    /**
+     * @return size the segment may grow up to
+     */
+    int getCapacity() {
+        return maxSize;
+    }
+
+    /**
+     * Close the file backing the segment. The mapping is not released explicitly since a concurrent reader may
+     * still hold a location within it. It is released when the buffer is garbage collected.
+     */
+    void close() {
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            log.warn("Error while closing segment " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Close the segment and delete the underlying file
+     */
+    void delete() {
+        close();
+        if (!file.delete()) {
+            log.warn("Could not delete segment " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Callback used while recovering records of a segment
+     */
+    interface RecordVisitor {
+
+        /**
+         * Called for each record found in a segment which is not deleted
+         *
+         * @param segment  segment holding the record
+         * @param position position of the record in the segment
+         * @param length   length of the record
+         * @param status   {@link LogRecord#STATUS_LIVE} or {@link LogRecord#STATUS_MOVING}
+         * @param record   record decoded without content
+         */
+        void visit(LogSegment segment, int position, int length, byte status, LogRecord record);
+    }
+}
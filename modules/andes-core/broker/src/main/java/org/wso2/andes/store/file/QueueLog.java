@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append only log of a single storage queue. A log is a directory of {@link LogSegment}s of which only the last
+ * one (the active segment) is written to. Messages are looked up through an in memory index ordered by message
+ * ID, which is rebuilt by scanning the segments when the log is opened.
+ * <p>
+ * Appends, compaction and purging are serialised on the log. Reads and deletes do not take the lock.
+ */
+final class QueueLog {
+
+    private static final Logger log = Logger.getLogger(QueueLog.class);
+
+    private final String queueName;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final boolean forceOnWrite;
+
+    /**
+     * Message ID to location of the message record
+     */
+    private final ConcurrentNavigableMap<Long, RecordLocation> index = new ConcurrentSkipListMap<>();
+
+    /**
+     * Number of messages in the index. Kept separately since size of a skip list is not a constant time operation.
+     */
+    private final AtomicInteger messageCount = new AtomicInteger();
+
+    /**
+     * Segments of the log ordered by sequence number. Last segment is the active segment.
+     */
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * Messages whose records were found flagged as {@link LogRecord#STATUS_MOVING} while recovering. The broker
+     * stopped while moving them to another log. Resolved by the store once all logs are recovered.
+     */
+    private final Set<Long> recoveredMovingMessages = new HashSet<>();
+
+    private LogSegment activeSegment;
+
+    /**
+     * Open the log in the given directory, creating it if it does not exist
+     *
+     * @param queueName    storage queue the log belongs to
+     * @param directory    directory of the log
+     * @param segmentSize  size of a segment in bytes
+     * @param forceOnWrite whether {@link #flush()} forces the active segment to the storage device
+     * @throws IOException if the directory cannot be created or a segment cannot be opened
+     */
+    QueueLog(String queueName, File directory, int segmentSize, boolean forceOnWrite) throws IOException {
+        this.queueName = queueName;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceOnWrite = forceOnWrite;
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory.getAbsolutePath());
+        }
+        recover();
+    }
+
+    private void recover() throws IOException {
+        File[] segmentFiles = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(FileStoreConstants.SEGMENT_FILE_SUFFIX);
+            }
+        });
+
+        if (null == segmentFiles) {
+            throw new IOException("Could not list files of " + directory.getAbsolutePath());
+        }
+
+        Arrays.sort(segmentFiles, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+
+        LogSegment.RecordVisitor visitor = new LogSegment.RecordVisitor() {
+            @Override
+            public void visit(LogSegment segment, int position, int length, byte status, LogRecord record) {
+                // A later record of the same message supersedes the earlier one. This happens if the broker stops
+                // between rewriting a record and marking the previous one as deleted.
+                index(record.getMessageId(), new RecordLocation(segment, position, length,
+                        record.getExpirationTime(), record.getOrigin()));
+                if (LogRecord.STATUS_MOVING == status) {
+                    recoveredMovingMessages.add(record.getMessageId());
+                } else {
+                    recoveredMovingMessages.remove(record.getMessageId());
+                }
+            }
+        };
+
+        for (File segmentFile : segmentFiles) {
+            String fileName = segmentFile.getName();
+            long sequence = Long.parseLong(
+                    fileName.substring(0, fileName.length() - FileStoreConstants.SEGMENT_FILE_SUFFIX.length()));
+            segments.add(LogSegment.open(segmentFile, sequence, segmentSize, visitor));
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(LogSegment.create(directory, 0, segmentSize));
+        }
+        activeSegment = segments.get(segments.size() - 1);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Recovered " + messageCount.get() + " messages from " + segments.size()
+                      + " segments of queue " + queueName);
+        }
+    }
+
+    /**
+     * Append a record to the log. If the log already has a record for the message, the previous record is marked
+     * as deleted.
+     *
+     * @param record record to append
+     * @return location of the written record
+     * @throws IOException if a new segment has to be created and creation fails
+     */
+    synchronized RecordLocation append(LogRecord record) throws IOException {
+        byte[] bytes = record.encode();
+        int position = activeSegment.append(bytes);
+
+        if (position < 0) {
+            roll(bytes.length);
+            position = activeSegment.append(bytes);
+        }
+
+        RecordLocation location = new RecordLocation(activeSegment, position, bytes.length,
+                record.getExpirationTime(), record.getOrigin());
+        index(record.getMessageId(), location);
+        return location;
+    }
+
+    private void index(long messageId, RecordLocation location) {
+        RecordLocation previous = index.put(messageId, location);
+        if (null == previous) {
+            messageCount.incrementAndGet();
+        } else {
+            previous.markDeleted();
+        }
+    }
+
+    /**
+     * Seal the active segment and start a new one
+     *
+     * @param recordLength length of the record which did not fit into the active segment
+     */
+    private void roll(int recordLength) throws IOException {
+        activeSegment.force();
+        activeSegment = LogSegment.create(directory, activeSegment.getSequence() + 1,
+                Math.max(segmentSize, recordLength));
+        segments.add(activeSegment);
+    }
+
+    /**
+     * Remove a message from the log
+     *
+     * @param messageId ID of the message
+     * @return location of the removed record, null if the log does not have the message
+     */
+    RecordLocation remove(long messageId) {
+        RecordLocation location = index.remove(messageId);
+        if (null != location) {
+            location.markDeleted();
+            messageCount.decrementAndGet();
+        }
+        return location;
+    }
+
+    /**
+     * Flag the record of a message as being moved to another log and force the flag to the storage device. The
+     * move is completed with {@link #remove(long)} once the copy in the target log is durable, or rolled back with
+     * {@link #cancelMove(long)}. If the broker stops in between, the flag tells recovery which of the two records
+     * is stale.
+     *
+     * @param messageId ID of the message
+     * @return location of the message record, null if the log does not have the message
+     */
+    synchronized RecordLocation beginMove(long messageId) {
+        RecordLocation location = index.get(messageId);
+        if (null != location) {
+            location.setStatus(LogRecord.STATUS_MOVING);
+            flush();
+        }
+        return location;
+    }
+
+    /**
+     * Restore the record of a message flagged by {@link #beginMove(long)} to live
+     *
+     * @param messageId ID of the message
+     */
+    synchronized void cancelMove(long messageId) {
+        RecordLocation location = index.get(messageId);
+        if (null != location) {
+            location.setStatus(LogRecord.STATUS_LIVE);
+            flush();
+        }
+    }
+
+    /**
+     * @return IDs of messages which were being moved out of this log when the broker stopped. Only valid right
+     * after the log is opened.
+     */
+    Set<Long> getRecoveredMovingMessages() {
+        return recoveredMovingMessages;
+    }
+
+    /**
+     * @param messageId ID of the message
+     * @return location of the message record, null if the log does not have the message
+     */
+    RecordLocation get(long messageId) {
+        return index.get(messageId);
+    }
+
+    /**
+     * @return index of the log ordered by message ID. Must not be modified by the caller.
+     */
+    ConcurrentNavigableMap<Long, RecordLocation> getIndex() {
+        return index;
+    }
+
+    int getMessageCount() {
+        return messageCount.get();
+    }
+
+    String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * Force written records and deletion markers to the storage device if configured to do so. Only segments
+     * changed since they were last forced are forced. Called once per write or delete batch rather than per record.
+     */
+    void flush() {
+        if (forceOnWrite) {
+            for (LogSegment segment : segments) {
+                if (segment.isDirty()) {
+                    segment.force();
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrite live records of sealed segments whose live ratio has dropped below the threshold into the active
+     * segment and delete those segments. Segments without live records are deleted without copying.
+     *
+     * @param thresholdPercentage live byte percentage below which a segment is compacted
+     * @return number of segments deleted
+     * @throws IOException if a new segment has to be created and creation fails
+     */
+    synchronized int compact(int thresholdPercentage) throws IOException {
+        List<LogSegment> victims = new ArrayList<>();
+        for (LogSegment segment : segments) {
+            if (segment != activeSegment
+                && segment.getLiveBytes() * 100 < (long) segment.getWritePosition() * thresholdPercentage) {
+                victims.add(segment);
+            }
+        }
+
+        if (victims.isEmpty()) {
+            return 0;
+        }
+
+        List<RecordLocation> copied = new ArrayList<>();
+        for (Map.Entry<Long, RecordLocation> entry : index.entrySet()) {
+            RecordLocation location = entry.getValue();
+            if (!victims.contains(location.getSegment())) {
+                continue;
+            }
+
+            byte[] bytes = location.read(true).encode();
+            int position = activeSegment.append(bytes);
+            if (position < 0) {
+                roll(bytes.length);
+                position = activeSegment.append(bytes);
+            }
+
+            RecordLocation newLocation = new RecordLocation(activeSegment, position, bytes.length,
+                    location.getExpirationTime(), location.getOrigin());
+            // Keep the flag of a record being moved so that recovery still resolves the move correctly
+            if (LogRecord.STATUS_MOVING == location.getStatus()) {
+                newLocation.setStatus(LogRecord.STATUS_MOVING);
+            }
+            if (index.replace(entry.getKey(), location, newLocation)) {
+                copied.add(location);
+            } else {
+                // Message was deleted while being copied
+                newLocation.markDeleted();
+            }
+        }
+
+        // Make sure the copies are durable before the originals are dropped
+        activeSegment.force();
+        for (RecordLocation location : copied) {
+            location.markDeleted();
+        }
+
+        for (LogSegment victim : victims) {
+            segments.remove(victim);
+            victim.delete();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Compacted " + victims.size() + " segments of queue " + queueName + ". "
+                      + copied.size() + " messages were moved.");
+        }
+        return victims.size();
+    }
+
+    /**
+     * Delete all messages of the log. Segments are deleted and a new empty segment is started.
+     *
+     * @return number of messages removed
+     * @throws IOException if the new segment cannot be created
+     */
+    synchronized int purge() throws IOException {
+        int removedCount = messageCount.getAndSet(0);
+        index.clear();
+
+        long nextSequence = activeSegment.getSequence() + 1;
+        for (LogSegment segment : segments) {
+            segment.delete();
+        }
+        segments.clear();
+
+        activeSegment = LogSegment.create(directory, nextSequence, segmentSize);
+        segments.add(activeSegment);
+        return removedCount;
+    }
+
+    /**
+     * Close the log and delete its directory. The log must not be used afterwards.
+     */
+    synchronized void delete() {
+        index.clear();
+        messageCount.set(0);
+        for (LogSegment segment : segments) {
+            segment.delete();
+        }
+        segments.clear();
+
+        if (!directory.delete()) {
+            log.warn("Could not delete directory " + directory.getAbsolutePath() + " of queue " + queueName);
+        }
+    }
+
+    /**
+     * Force and close all segments of the log
+     */
+    synchronized void close() {
+        for (LogSegment segment : segments) {
+            segment.force();
+            segment.close();
+        }
+    }
+}
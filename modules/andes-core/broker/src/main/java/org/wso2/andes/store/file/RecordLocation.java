@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+/**
+ * In memory index entry of a message. Points to the record of the message within a segment and keeps the
+ * fields needed to answer expiry and DLC queries without reading the record.
+ */
+final class RecordLocation {
+
+    private final LogSegment segment;
+
+    private final int position;
+
+    private final int length;
+
+    private final long expirationTime;
+
+    private final String origin;
+
+    RecordLocation(LogSegment segment, int position, int length, long expirationTime, String origin) {
+        this.segment = segment;
+        this.position = position;
+        this.length = length;
+        this.expirationTime = expirationTime;
+        this.origin = origin;
+    }
+
+    LogSegment getSegment() {
+        return segment;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return expiration time of the message or 0 if the message does not expire
+     */
+    long getExpirationTime() {
+        return expirationTime;
+    }
+
+    /**
+     * @return original queue of a message in DLC, destination of a retained message, empty otherwise
+     */
+    String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Read the record this location points to
+     *
+     * @param readContent if false only metadata is read
+     * @return decoded record
+     */
+    LogRecord read(boolean readContent) {
+        return segment.read(position, readContent);
+    }
+
+    /**
+     * Flag the record this location points to as deleted
+     */
+    void markDeleted() {
+        segment.markDeleted(position, length);
+    }
+
+    /**
+     * Change the status of the record this location points to
+     *
+     * @param status new status of the record
+     */
+    void setStatus(byte status) {
+        segment.setStatus(position, status);
+    }
+
+    /**
+     * @return status of the record this location points to
+     */
+    byte getStatus() {
+        return segment.getStatus(position);
+    }
+}
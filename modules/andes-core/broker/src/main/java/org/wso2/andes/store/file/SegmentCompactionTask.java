@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Periodically reclaims disk space held by deleted messages. Each queue log is compacted in turn so that
+ * publishing to a queue is only blocked while its own segments are being rewritten.
+ */
+class SegmentCompactionTask implements Runnable {
+
+    private static final Logger log = Logger.getLogger(SegmentCompactionTask.class);
+
+    private final Collection<QueueLog> queueLogs;
+
+    private final Collection<QueueLog> internalLogs;
+
+    private final int thresholdPercentage;
+
+    /**
+     * @param queueLogs           live view of the queue logs of the store
+     * @param internalLogs        logs of the store which do not belong to a queue, such as the log of retained
+     *                            messages
+     * @param thresholdPercentage live byte percentage below which a segment is compacted
+     */
+    SegmentCompactionTask(Collection<QueueLog> queueLogs, Collection<QueueLog> internalLogs,
+            int thresholdPercentage) {
+        this.queueLogs = queueLogs;
+        this.internalLogs = internalLogs;
+        this.thresholdPercentage = thresholdPercentage;
+    }
+
+    @Override
+    public void run() {
+        for (QueueLog queueLog : queueLogs) {
+            compact(queueLog);
+        }
+        for (QueueLog internalLog : internalLogs) {
+            compact(internalLog);
+        }
+    }
+
+    private void compact(QueueLog queueLog) {
+        try {
+            queueLog.compact(thresholdPercentage);
+        } catch (IOException e) {
+            log.error("Error while " + FileStoreConstants.TASK_COMPACTING_QUEUE + queueLog.getQueueName(), e);
+        } catch (Throwable e) {
+            // Catch everything so that the scheduled task is not cancelled
+            log.error("Unexpected error while " + FileStoreConstants.TASK_COMPACTING_QUEUE
+                      + queueLog.getQueueName(), e);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A database connection borrowed for a message store operation, along with the prepared statements created on it.
+ * A lease pinned to a thread keeps its connection and statements for the next operation of the thread. Any other
+ * lease closes them when released.
+ * <p>
+ * Leases are acquired from and released to a {@link PinnedConnectionManager}. A lease is used by one thread at a
+ * time, hence it is not thread safe.
+ */
+class ConnectionLease {
+
+    private static final Logger log = Logger.getLogger(ConnectionLease.class);
+
+    private final Connection connection;
+
+    /**
+     * Thread the lease is pinned to. Null if the lease is not pinned.
+     */
+    private final Thread owner;
+
+    /**
+     * Generation of the {@link PinnedConnectionManager} the connection was opened in
+     */
+    private final int generation;
+
+    /**
+     * Prepared statements keyed by SQL
+     */
+    private final Map<String, PreparedStatement> statements;
+
+    /**
+     * Statements used since the lease was acquired
+     */
+    private final Set<PreparedStatement> usedStatements =
+            Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
+
+    /**
+     * Statements evicted from the cache while in use. Closed when the lease is released.
+     */
+    private final List<PreparedStatement> evictedStatements = new ArrayList<>();
+
+    private boolean inUse;
+
+    private boolean valid = true;
+
+    /**
+     * Time the lease was last released, in milliseconds
+     */
+    private long releaseTime;
+
+    /**
+     * Create a lease which closes the connection when released
+     *
+     * @param connection connection borrowed from the pool
+     */
+    ConnectionLease(Connection connection) {
+        this.connection = connection;
+        this.owner = null;
+        this.generation = 0;
+        this.statements = new HashMap<>();
+    }
+
+    /**
+     * Create a lease pinned to a thread
+     *
+     * @param connection         connection borrowed from the pool
+     * @param owner              thread the lease is pinned to
+     * @param generation         current generation of the connection manager
+     * @param statementCacheSize maximum number of prepared statements kept
+     */
+    ConnectionLease(Connection connection, Thread owner, int generation, final int statementCacheSize) {
+        this.connection = connection;
+        this.owner = owner;
+        this.generation = generation;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                if (usedStatements.contains(eldest.getValue())) {
+                    evictedStatements.add(eldest.getValue());
+                } else {
+                    closeStatement(eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get the leased connection
+     *
+     * @return connection
+     */
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Get a prepared statement for the given SQL, created on the leased connection. The statement is owned by the
+     * lease and should not be closed by the caller. Result sets should be closed.
+     *
+     * @param sql SQL statement
+     * @return prepared statement
+     * @throws SQLException if the statement could not be prepared
+     */
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (null == statement) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        usedStatements.add(statement);
+        return statement;
+    }
+
+    /**
+     * Mark the connection as unusable. An invalid connection is closed when the lease is released instead of being
+     * kept for the next operation.
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    boolean isPinned() {
+        return null != owner;
+    }
+
+    Thread getOwner() {
+        return owner;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    boolean isInUse() {
+        return inUse;
+    }
+
+    void setInUse(boolean inUse) {
+        this.inUse = inUse;
+        if (!inUse) {
+            releaseTime = System.currentTimeMillis();
+        }
+    }
+
+    long getReleaseTime() {
+        return releaseTime;
+    }
+
+    /**
+     * Prepare a pinned lease for the next operation. Parameters and batches of the used statements are cleared so
+     * that message content bound to them is not kept alive.
+     * <p>
+     * The transaction left open by the operation is rolled back. Writes commit before releasing the lease, but reads
+     * do not, and a transaction kept open across operations would hold locks and, under repeatable read isolation,
+     * keep returning the snapshot of its first read.
+     */
+    void reset() {
+        for (PreparedStatement statement : evictedStatements) {
+            closeStatement(statement);
+            usedStatements.remove(statement);
+        }
+        evictedStatements.clear();
+
+        try {
+            for (PreparedStatement statement : usedStatements) {
+                statement.clearBatch();
+                statement.clearParameters();
+            }
+        } catch (SQLException e) {
+            log.warn("Error while clearing prepared statements. Connection will be closed.", e);
+            valid = false;
+        }
+        usedStatements.clear();
+
+        if (valid) {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                log.warn("Error while ending the transaction of a pinned connection. Connection will be closed.", e);
+                valid = false;
+            }
+        }
+    }
+
+    /**
+     * Close the prepared statements and the connection
+     */
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeStatement(statement);
+        }
+        for (PreparedStatement statement : evictedStatements) {
+            closeStatement(statement);
+        }
+        statements.clear();
+        evictedStatements.clear();
+        usedStatements.clear();
+
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            log.error("Failed to close connection", e);
+        }
+    }
+
+    private void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.error("Closing prepared statement failed", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows to be inserted into a table in a batch. Rows are inserted with a multi-row INSERT ... VALUES statement,
+ * a group of rows per statement, when the database supports it. Rows left over are inserted with the single row
+ * statement. Both statements are executed as JDBC batches, hence failures surface as
+ * {@link java.sql.BatchUpdateException}s as with a plain batch.
+ */
+class MultiRowInsertBatch {
+
+    private final ConnectionLease lease;
+
+    private final String singleRowStatement;
+
+    /**
+     * Statement inserting {@link #rowsPerStatement} rows. Null if multi-row inserts are not used.
+     */
+    private final String multiRowStatement;
+
+    private final int rowsPerStatement;
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * Create a batch inserting rows one statement per row
+     *
+     * @param lease              connection the rows are inserted with
+     * @param singleRowStatement statement inserting a row
+     */
+    MultiRowInsertBatch(ConnectionLease lease, String singleRowStatement) {
+        this(lease, singleRowStatement, null, 1);
+    }
+
+    /**
+     * Create a batch inserting rows in groups
+     *
+     * @param lease              connection the rows are inserted with
+     * @param singleRowStatement statement inserting a row
+     * @param multiRowStatement  statement inserting rowsPerStatement rows, created with
+     *                           {@link #getMultiRowStatement(String, int)}. Null to insert rows one by one.
+     * @param rowsPerStatement   number of rows inserted by the multi-row statement
+     */
+    MultiRowInsertBatch(ConnectionLease lease, String singleRowStatement, String multiRowStatement,
+            int rowsPerStatement) {
+        this.lease = lease;
+        this.singleRowStatement = singleRowStatement;
+        this.multiRowStatement = multiRowStatement;
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    /**
+     * Add a row to the batch. Values are bound to the parameters of the row in order and should be of type
+     * {@link Long}, {@link Integer}, {@link String} or byte[].
+     *
+     * @param values parameter values of the row
+     */
+    void addRow(Object... values) {
+        rows.add(values);
+    }
+
+    boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * Insert the rows added. Not committed.
+     *
+     * @throws SQLException if inserting failed
+     */
+    void execute() throws SQLException {
+        int rowIndex = 0;
+
+        if (null != multiRowStatement && rows.size() >= rowsPerStatement) {
+            PreparedStatement statement = lease.prepareStatement(multiRowStatement);
+            for (; rowIndex + rowsPerStatement <= rows.size(); rowIndex += rowsPerStatement) {
+                int parameterIndex = 1;
+                for (int i = rowIndex; i < rowIndex + rowsPerStatement; i++) {
+                    parameterIndex = setParameters(statement, parameterIndex, rows.get(i));
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        if (rowIndex < rows.size()) {
+            PreparedStatement statement = lease.prepareStatement(singleRowStatement);
+            for (; rowIndex < rows.size(); rowIndex++) {
+                setParameters(statement, 1, rows.get(rowIndex));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Bind the values of a row to the statement parameters starting at the given index
+     *
+     * @param statement      statement to bind to
+     * @param parameterIndex index of the first parameter of the row
+     * @param values         values of the row
+     * @return index of the parameter following the row
+     * @throws SQLException if a value could not be bound
+     */
+    private int setParameters(PreparedStatement statement, int parameterIndex, Object[] values)
+            throws SQLException {
+        for (Object value : values) {
+            if (value instanceof Long) {
+                statement.setLong(parameterIndex, (Long) value);
+            } else if (value instanceof Integer) {
+                statement.setInt(parameterIndex, (Integer) value);
+            } else if (value instanceof byte[]) {
+                statement.setBytes(parameterIndex, (byte[]) value);
+            } else {
+                statement.setString(parameterIndex, (String) value);
+            }
+            parameterIndex++;
+        }
+        return parameterIndex;
+    }
+
+    /**
+     * Create a statement inserting the given number of rows from a single row INSERT ... VALUES statement
+     *
+     * @param singleRowStatement statement inserting a row
+     * @param rowCount           number of rows to insert
+     * @return multi-row insert statement
+     */
+    static String getMultiRowStatement(String singleRowStatement, int rowCount) {
+        int valuesEnd = singleRowStatement.lastIndexOf("VALUES") + "VALUES".length();
+        String row = singleRowStatement.substring(valuesEnd).trim();
+
+        StringBuilder statementBuilder = new StringBuilder(singleRowStatement.substring(0, valuesEnd));
+        statementBuilder.append(' ').append(row);
+        for (int i = 1; i < rowCount; i++) {
+            statementBuilder.append(',').append(row);
+        }
+        return statementBuilder.toString();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.apache.log4j.Logger;
+import org.wso2.andes.store.FailureObservingStoreManager;
+import org.wso2.andes.store.HealthAwareStore;
+import org.wso2.andes.store.StoreHealthListener;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * Hands out database connections for message store operations. The first connections requested are pinned to the
+ * requesting threads, so that threads running frequent operations, such as message writers and delivery workers,
+ * reuse a connection and its prepared statements instead of checking out a connection and preparing statements for
+ * every operation. Other requests, and requests made while the pinned connection of the thread is in use, get a
+ * connection from the pool which is closed on release.
+ * <p>
+ * Pinned connections are opened again after the store health check reports a change in store health, since
+ * connections opened before a failure may not be usable.
+ */
+class PinnedConnectionManager implements StoreHealthListener {
+
+    private static final Logger log = Logger.getLogger(PinnedConnectionManager.class);
+
+    /**
+     * Time a pinned connection can be idle before it is validated on the next use, in milliseconds. The database or
+     * the network may drop connections idle for long.
+     */
+    private static final long IDLE_VALIDATION_INTERVAL = 30 * 1000;
+
+    /**
+     * Time to wait for the validation of an idle connection, in seconds
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final DataSource dataSource;
+
+    private final int maxPinnedConnections;
+
+    private final int statementCacheSize;
+
+    /**
+     * Lease pinned to the current thread
+     */
+    private final ThreadLocal<ConnectionLease> pinnedLease = new ThreadLocal<>();
+
+    /**
+     * All pinned leases. Guarded by itself.
+     */
+    private final Set<ConnectionLease> pinnedLeases = new HashSet<>();
+
+    /**
+     * Incremented when store health changes. Pinned connections of an older generation are closed.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Create a connection manager
+     *
+     * @param dataSource           pooled data source
+     * @param maxPinnedConnections maximum number of connections pinned to threads. Pinning is disabled if 0.
+     * @param statementCacheSize   maximum number of prepared statements kept per pinned connection
+     */
+    PinnedConnectionManager(DataSource dataSource, int maxPinnedConnections, int statementCacheSize) {
+        this.dataSource = dataSource;
+        this.maxPinnedConnections = maxPinnedConnections;
+        this.statementCacheSize = statementCacheSize;
+        FailureObservingStoreManager.registerStoreHealthListener(this);
+    }
+
+    /**
+     * Acquire a connection for an operation. Should be released with {@link #release(ConnectionLease)} once the
+     * operation completes.
+     *
+     * @return lease of a connection
+     * @throws SQLException if a connection could not be obtained
+     */
+    ConnectionLease acquire() throws SQLException {
+        ConnectionLease lease = pinnedLease.get();
+        if (null != lease) {
+            if (lease.isInUse()) {
+                return new ConnectionLease(dataSource.getConnection());
+            }
+            if (lease.getGeneration() == generation.get() && isUsable(lease)) {
+                lease.setInUse(true);
+                return lease;
+            }
+            unpin(lease);
+        }
+
+        Connection connection = dataSource.getConnection();
+        if (maxPinnedConnections > 0) {
+            synchronized (pinnedLeases) {
+                if (pinnedLeases.size() >= maxPinnedConnections) {
+                    closeAbandonedLeases();
+                }
+                if (pinnedLeases.size() < maxPinnedConnections) {
+                    lease = new ConnectionLease(connection, Thread.currentThread(), generation.get(),
+                            statementCacheSize);
+                    pinnedLeases.add(lease);
+                    pinnedLease.set(lease);
+                    lease.setInUse(true);
+                    return lease;
+                }
+            }
+        }
+        return new ConnectionLease(connection);
+    }
+
+    /**
+     * Release a connection acquired for an operation. A pinned connection is kept for the next operation of the
+     * thread unless it was invalidated. Its open transaction is ended before it is marked free, so the next operation
+     * starts a new transaction.
+     *
+     * @param lease lease to release. Ignored if null.
+     */
+    void release(ConnectionLease lease) {
+        if (null == lease) {
+            return;
+        }
+        if (lease.isPinned()) {
+            lease.reset();
+            lease.setInUse(false);
+            if (lease.isValid()) {
+                return;
+            }
+            unpin(lease);
+        } else {
+            lease.close();
+        }
+    }
+
+    /**
+     * Close all pinned connections
+     */
+    void close() {
+        synchronized (pinnedLeases) {
+            for (ConnectionLease lease : pinnedLeases) {
+                lease.close();
+            }
+            pinnedLeases.clear();
+        }
+    }
+
+    /**
+     * Check if the connection of a pinned lease can be used. Connections which were idle for long are validated.
+     *
+     * @param lease pinned lease
+     * @return true if the connection can be used
+     */
+    private boolean isUsable(ConnectionLease lease) {
+        if (System.currentTimeMillis() - lease.getReleaseTime() < IDLE_VALIDATION_INTERVAL) {
+            return true;
+        }
+        try {
+            return lease.getConnection().isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Close a lease pinned to the current thread and stop tracking it
+     *
+     * @param lease lease pinned to the current thread
+     */
+    private void unpin(ConnectionLease lease) {
+        pinnedLease.remove();
+        synchronized (pinnedLeases) {
+            pinnedLeases.remove(lease);
+        }
+        lease.close();
+    }
+
+    /**
+     * Close leases pinned to threads which are no longer running. Should be called holding the lock of
+     * {@link #pinnedLeases}.
+     */
+    private void closeAbandonedLeases() {
+        Iterator<ConnectionLease> iterator = pinnedLeases.iterator();
+        while (iterator.hasNext()) {
+            ConnectionLease lease = iterator.next();
+            if (!lease.getOwner().isAlive()) {
+                lease.close();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pinned connections are opened again on the next operation of each thread.
+     */
+    @Override
+    public void storeNonOperational(HealthAwareStore store, Exception ex) {
+        generation.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Pinned database connections will be reopened since a store became non operational");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pinned connections are opened again on the next operation of each thread.
+     */
+    @Override
+    public void storeOperational(HealthAwareStore store) {
+        generation.incrementAndGet();
+    }
+}
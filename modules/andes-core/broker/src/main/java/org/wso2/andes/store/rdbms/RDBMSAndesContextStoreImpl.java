@@ -33,6 +33,7 @@ import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.server.cluster.NodeHeartBeatData;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
+import org.wso2.andes.server.cluster.coordination.rdbms.DirectNotificationTransport;
 import org.wso2.andes.server.cluster.coordination.rdbms.MembershipEvent;
 import org.wso2.andes.server.cluster.coordination.rdbms.MembershipEventType;
 import org.wso2.andes.store.AndesDataIntegrityViolationException;
@@ -73,6 +74,12 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
      */
     private RDBMSStoreUtils rdbmsStoreUtils;
 
+    /**
+     * True if cluster notifications are stored along with their ID. IDs are only needed by direct notifications,
+     * hence the notification ID column is used only if they are enabled.
+     */
+    private boolean isNotificationIDEnabled;
+
     
     
     /**
@@ -88,10 +95,39 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
         rdbmsStoreUtils = new RDBMSStoreUtils(connectionProperties);
         
         datasource = rdbmsConnection.getDataSource();
+        isNotificationIDEnabled = DirectNotificationTransport.isEnabled();
+        if (isNotificationIDEnabled) {
+            checkNotificationIDColumn();
+        }
         logger.info("Andes Context Store initialised");
         return rdbmsConnection;
     }
 
+    /**
+     * Check if the cluster event table has the notification ID column. The column is added by the migration scripts
+     * for stores created before cluster notifications carried an ID.
+     *
+     * @throws AndesException if the column does not exist or the database could not be queried
+     */
+    private void checkNotificationIDColumn() throws AndesException {
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            if (!rdbmsStoreUtils.isColumnExists(connection, RDBMSConstants.CLUSTER_EVENT_TABLE,
+                    RDBMSConstants.NOTIFICATION_ID)) {
+                throw new AndesException("Column " + RDBMSConstants.NOTIFICATION_ID + " does not exist in table "
+                        + RDBMSConstants.CLUSTER_EVENT_TABLE + ", which is required by direct cluster notifications. "
+                        + "Apply the database script in " + RDBMSConstants.CLUSTER_NOTIFICATION_ID_MIGRATION_SCRIPTS
+                        + " for the database in use.");
+            }
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while "
+                    + RDBMSConstants.TASK_CHECKING_CLUSTER_NOTIFICATION_ID_COLUMN, e);
+        } finally {
+            close(connection, RDBMSConstants.TASK_CHECKING_CLUSTER_NOTIFICATION_ID_COLUMN);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1704,6 +1740,40 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void addMessageIds(Map<String, List<Long>> queueToMessageIds) throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+
+        try {
+
+            connection = getConnection();
+
+            preparedStatement =
+                    connection.prepareStatement(RDBMSConstants.PS_INSERT_SLOT_MESSAGE_ID);
+
+            for (Map.Entry<String, List<Long>> entry : queueToMessageIds.entrySet()) {
+                for (Long messageId : entry.getValue()) {
+                    preparedStatement.setString(1, entry.getKey());
+                    preparedStatement.setLong(2, messageId);
+                    preparedStatement.addBatch();
+                }
+            }
+
+            preparedStatement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            String errMsg = RDBMSConstants.TASK_ADD_MESSAGE_IDS + " for " + queueToMessageIds.size() + " queues";
+            rollback(connection, RDBMSConstants.TASK_ADD_MESSAGE_IDS);
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while " + errMsg, e);
+        } finally {
+            close(preparedStatement, RDBMSConstants.TASK_ADD_MESSAGE_IDS);
+            close(connection, RDBMSConstants.TASK_ADD_MESSAGE_IDS);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -2560,16 +2630,17 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
      */
     @Override
     public void storeClusterNotification(List<String> clusterNodes, String originatedNode, String notifiedArtifact,
-                                         String clusterNotificationType, String notification, String description)
-            throws AndesException {
+                                         String clusterNotificationType, String notification, String description,
+                                         String notificationID) throws AndesException {
 
         Connection connection = null;
         PreparedStatement storeMembershipEventPreparedStatement = null;
         String task = "Storing cluster notification: " + notification + " of type: " + clusterNotificationType;
         try {
             connection = getConnection();
-            storeMembershipEventPreparedStatement =
-                    connection.prepareStatement(RDBMSConstants.PS_INSERT_CLUSTER_NOTIFICATION);
+            storeMembershipEventPreparedStatement = connection.prepareStatement(isNotificationIDEnabled
+                    ? RDBMSConstants.PS_INSERT_CLUSTER_NOTIFICATION_WITH_ID
+                    : RDBMSConstants.PS_INSERT_CLUSTER_NOTIFICATION);
 
             for (String destinedNode : clusterNodes) {
                 storeMembershipEventPreparedStatement.setString(1, destinedNode);
@@ -2578,6 +2649,9 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
                 storeMembershipEventPreparedStatement.setString(4, clusterNotificationType);
                 storeMembershipEventPreparedStatement.setString(5, description);
                 storeMembershipEventPreparedStatement.setString(6, notification);
+                if (isNotificationIDEnabled) {
+                    storeMembershipEventPreparedStatement.setString(7, notificationID);
+                }
                 storeMembershipEventPreparedStatement.addBatch();
             }
             storeMembershipEventPreparedStatement.executeBatch();
@@ -2608,7 +2682,9 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
         try {
             connection = getConnection();
 
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_CLUSTER_NOTIFICATION_FOR_NODE);
+            preparedStatement = connection.prepareStatement(isNotificationIDEnabled
+                    ? RDBMSConstants.PS_SELECT_CLUSTER_NOTIFICATION_WITH_ID_FOR_NODE
+                    : RDBMSConstants.PS_SELECT_CLUSTER_NOTIFICATION_FOR_NODE);
             preparedStatement.setString(1, nodeID);
             resultSet = preparedStatement.executeQuery();
 
@@ -2618,7 +2694,8 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
                         resultSet.getString(RDBMSConstants.EVENT_ARTIFACT),
                         resultSet.getString(RDBMSConstants.EVENT_TYPE),
                         resultSet.getString(RDBMSConstants.EVENT_DESCRIPTION),
-                        resultSet.getString(RDBMSConstants.ORIGINATED_MEMBER_ID));
+                        resultSet.getString(RDBMSConstants.ORIGINATED_MEMBER_ID),
+                        isNotificationIDEnabled ? resultSet.getString(RDBMSConstants.NOTIFICATION_ID) : null);
                 clusterNotifications.add(notification);
             }
 
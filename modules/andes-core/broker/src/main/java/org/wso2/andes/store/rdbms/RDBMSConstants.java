@@ -77,6 +77,32 @@ public class RDBMSConstants {
      */
     protected static final String DATA_ERROR_SQL_STATE_CLASSES = "dataErrorSQLStateClasses";
     protected static final String TRANSACTION_ROLLBACK_ERROR_SQL_STATE_CLASSES = "transactionRollbackSQLStateClasses";
+
+    /**
+     * Configuration name used to specify the maximum number of database connections the message store pins to
+     * threads. A pinned connection keeps its prepared statements between operations of the thread. Pinning is
+     * disabled when set to 0.
+     */
+    protected static final String MAX_PINNED_CONNECTIONS = "maxPinnedConnections";
+
+    protected static final int DEFAULT_MAX_PINNED_CONNECTIONS = 16;
+
+    /**
+     * Configuration name used to specify the maximum number of prepared statements kept per pinned connection
+     */
+    protected static final String STATEMENT_CACHE_SIZE = "statementCacheSize";
+
+    protected static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    /**
+     * Configuration name used to specify the number of rows inserted by a multi-row INSERT statement when storing
+     * metadata, expiry data and content references. Used only with databases supporting multi-row inserts. Rows
+     * are inserted one statement per row when set to 1.
+     */
+    protected static final String MULTI_ROW_INSERT_SIZE = "multiRowInsertSize";
+
+    protected static final int DEFAULT_MULTI_ROW_INSERT_SIZE = 20;
+
     // Message Store tables
     protected static final String CONTENT_TABLE = "MB_CONTENT";
     protected static final String METADATA_TABLE = "MB_METADATA";
@@ -85,6 +111,8 @@ public class RDBMSConstants {
     protected static final String MSG_STORE_STATUS_TABLE = "MB_MSG_STORE_STATUS";
     protected static final String RETAINED_METADATA_TABLE = "MB_RETAINED_METADATA";
     protected static final String RETAINED_CONTENT_TABLE = "MB_RETAINED_CONTENT";
+    protected static final String CONTENT_REFERENCE_TABLE = "MB_CONTENT_REFERENCE";
+    protected static final String SHARED_CONTENT_TABLE = "MB_SHARED_CONTENT";
     // Message Store table columns
     protected static final String MESSAGE_ID = "MESSAGE_ID";
     protected static final String QUEUE_ID = "QUEUE_ID";
@@ -97,6 +125,19 @@ public class RDBMSConstants {
     protected static final String DESTINATION_QUEUE = "MESSAGE_DESTINATION";
     protected static final String TOPIC_NAME = "TOPIC_NAME";
     protected static final String TOPIC_ID = "TOPIC_ID";
+    protected static final String CONTENT_ID = "CONTENT_ID";
+
+    /**
+     * Location of the scripts creating the tables of shared content, within the database scripts of the product
+     */
+    protected static final String SHARED_CONTENT_MIGRATION_SCRIPTS = "dbscripts/migration/shared-content";
+
+    /**
+     * Location of the scripts adding the notification ID column to the cluster event table, within the database
+     * scripts of the product
+     */
+    protected static final String CLUSTER_NOTIFICATION_ID_MIGRATION_SCRIPTS =
+            "dbscripts/migration/cluster-notification-id";
     // Andes Context Store tables
     protected static final String DURABLE_SUB_TABLE = "MB_DURABLE_SUBSCRIPTION";
     protected static final String NODE_INFO_TABLE = "MB_NODE";
@@ -166,6 +207,7 @@ public class RDBMSConstants {
     protected static final String DESTINED_MEMBER_ID = "DESTINED_NODE_ID";
     protected static final String ORIGINATED_MEMBER_ID = "ORIGINATED_NODE_ID";
     protected static final String EVENT_ID = "EVENT_ID";
+    protected static final String NOTIFICATION_ID = "NOTIFICATION_ID";
 
     // prepared statements for Message Store
     protected static final String PS_INSERT_MESSAGE_PART =
@@ -327,6 +369,95 @@ public class RDBMSConstants {
             "DELETE  FROM " + METADATA_TABLE
             + " WHERE " + MESSAGE_ID + "=?";
 
+    protected static final String PS_DELETE_METADATA_RANGE =
+            "DELETE  FROM " + METADATA_TABLE
+            + " WHERE " + MESSAGE_ID + " BETWEEN ? AND ?";
+
+    protected static final String PS_INSERT_CONTENT_REFERENCE =
+            "INSERT INTO " + CONTENT_REFERENCE_TABLE + " ("
+            + MESSAGE_ID + ","
+            + CONTENT_ID + ")"
+            + " VALUES ( ?,? )";
+
+    protected static final String PS_DELETE_CONTENT_REFERENCE =
+            "DELETE FROM " + CONTENT_REFERENCE_TABLE
+            + " WHERE " + MESSAGE_ID + "=?";
+
+    protected static final String PS_INSERT_SHARED_MESSAGE_PART =
+            "INSERT INTO " + SHARED_CONTENT_TABLE + "("
+            + CONTENT_ID + ","
+            + MSG_OFFSET + ","
+            + MESSAGE_CONTENT + ") VALUES (?, ?, ?)";
+
+    protected static final String PS_RETRIEVE_SHARED_MESSAGE_PART =
+            "SELECT " + MESSAGE_CONTENT
+            + " FROM " + SHARED_CONTENT_TABLE + " INNER JOIN " + CONTENT_REFERENCE_TABLE
+            + " ON " + SHARED_CONTENT_TABLE + "." + CONTENT_ID + "=" + CONTENT_REFERENCE_TABLE + "." + CONTENT_ID
+            + " WHERE " + CONTENT_REFERENCE_TABLE + "." + MESSAGE_ID + "=?"
+            + " AND " + MSG_OFFSET + "=?";
+
+    /**
+     * Delete shared content if no message refers to it anymore. Run after the references are removed and
+     * committed, hence the last one to remove a reference will see no references.
+     */
+    protected static final String PS_DELETE_UNREFERENCED_CONTENT =
+            "DELETE FROM " + SHARED_CONTENT_TABLE
+            + " WHERE " + CONTENT_ID + "=?"
+            + " AND NOT EXISTS (SELECT " + CONTENT_REFERENCE_TABLE + "." + CONTENT_ID
+                + " FROM " + CONTENT_REFERENCE_TABLE
+                + " WHERE " + CONTENT_REFERENCE_TABLE + "." + CONTENT_ID + "=?)";
+
+    /**
+     * Delete all the shared content no message refers to
+     */
+    protected static final String PS_DELETE_ALL_UNREFERENCED_CONTENT =
+            "DELETE FROM " + SHARED_CONTENT_TABLE
+            + " WHERE NOT EXISTS (SELECT " + CONTENT_REFERENCE_TABLE + "." + CONTENT_ID
+                + " FROM " + CONTENT_REFERENCE_TABLE
+                + " WHERE " + CONTENT_REFERENCE_TABLE + "." + CONTENT_ID + "=" + SHARED_CONTENT_TABLE + "."
+                + CONTENT_ID + ")";
+
+    /**
+     * Delete references of messages which were removed without removing their references, i.e. by clearing a
+     * queue or removing the queue
+     */
+    protected static final String PS_DELETE_ORPHANED_CONTENT_REFERENCES =
+            "DELETE FROM " + CONTENT_REFERENCE_TABLE
+            + " WHERE NOT EXISTS (SELECT " + MESSAGE_ID
+                + " FROM " + METADATA_TABLE
+                + " WHERE " + METADATA_TABLE + "." + MESSAGE_ID + "=" + CONTENT_REFERENCE_TABLE + "." + MESSAGE_ID
+                + ")";
+
+    /**
+     * Content IDs referred by messages of a queue, including the messages of the queue in DLC
+     */
+    protected static final String PS_SELECT_CONTENT_IDS_OF_QUEUE =
+            "SELECT DISTINCT " + CONTENT_REFERENCE_TABLE + "." + CONTENT_ID
+            + " FROM " + CONTENT_REFERENCE_TABLE + " INNER JOIN " + METADATA_TABLE
+            + " ON " + METADATA_TABLE + "." + MESSAGE_ID + "=" + CONTENT_REFERENCE_TABLE + "." + MESSAGE_ID
+            + " WHERE " + METADATA_TABLE + "." + QUEUE_ID + "=?";
+
+    protected static final String PS_DELETE_CONTENT_REFERENCES_OF_QUEUE =
+            "DELETE FROM " + CONTENT_REFERENCE_TABLE
+            + " WHERE " + MESSAGE_ID + " IN (SELECT " + MESSAGE_ID
+                + " FROM " + METADATA_TABLE
+                + " WHERE " + QUEUE_ID + "=?)";
+
+    /**
+     * Content IDs referred by messages in a DLC queue
+     */
+    protected static final String PS_SELECT_CONTENT_IDS_IN_DLC =
+            "SELECT DISTINCT " + CONTENT_REFERENCE_TABLE + "." + CONTENT_ID
+            + " FROM " + CONTENT_REFERENCE_TABLE + " INNER JOIN " + METADATA_TABLE
+            + " ON " + METADATA_TABLE + "." + MESSAGE_ID + "=" + CONTENT_REFERENCE_TABLE + "." + MESSAGE_ID
+            + " WHERE " + METADATA_TABLE + "." + DLC_QUEUE_ID + "=?";
+
+    protected static final String PS_DELETE_CONTENT_REFERENCES_IN_DLC =
+            "DELETE FROM " + CONTENT_REFERENCE_TABLE
+            + " WHERE " + MESSAGE_ID + " IN (SELECT " + MESSAGE_ID
+                + " FROM " + METADATA_TABLE
+                + " WHERE " + DLC_QUEUE_ID + "=?)";
+
     protected static final String PS_CLEAR_QUEUE_FROM_METADATA =
             "DELETE  FROM " + METADATA_TABLE
             + " WHERE " + QUEUE_ID + "=?";
@@ -347,6 +478,11 @@ public class RDBMSConstants {
             + " WHERE " + EXPIRATION_TIME + "<?"
             + " AND " + DLC_QUEUE_ID + " != -1";
 
+    protected static final String PS_SELECT_EXPIRY_DATA =
+            "SELECT " + MESSAGE_ID + "," + EXPIRATION_TIME + "," + DESTINATION_QUEUE
+            + " FROM " + EXPIRATION_TABLE
+            + " WHERE " + DLC_QUEUE_ID + "=-1";
+
 
     protected static final String PS_SELECT_QUEUE_ID =
             "SELECT " + QUEUE_ID
@@ -408,6 +544,21 @@ public class RDBMSConstants {
             + EVENT_DETAILS + ")"
             + " VALUES (?,?,?,?,?,?)";
 
+    /**
+     * Prepared statement to insert cluster notification along with its ID. Used only if direct notifications are
+     * enabled.
+     */
+    protected static final String PS_INSERT_CLUSTER_NOTIFICATION_WITH_ID =
+            "INSERT INTO " + CLUSTER_EVENT_TABLE + " ("
+            + DESTINED_MEMBER_ID + ","
+            + ORIGINATED_MEMBER_ID + ","
+            + EVENT_ARTIFACT + ","
+            + EVENT_TYPE + ","
+            + EVENT_DESCRIPTION + ","
+            + EVENT_DETAILS + ","
+            + NOTIFICATION_ID + ")"
+            + " VALUES (?,?,?,?,?,?,?)";
+
     /**
      * Prepared statement to select cluster notification destined to a particular member.
      */
@@ -418,6 +569,17 @@ public class RDBMSConstants {
             + " WHERE " + DESTINED_MEMBER_ID + "=?"
             + " ORDER BY " + EVENT_ID;
 
+    /**
+     * Prepared statement to select cluster notification destined to a particular member along with its ID. Used
+     * only if direct notifications are enabled.
+     */
+    protected static final String PS_SELECT_CLUSTER_NOTIFICATION_WITH_ID_FOR_NODE =
+            "SELECT " + ORIGINATED_MEMBER_ID + ", " + EVENT_ARTIFACT + ","
+                    + EVENT_TYPE + ", " + EVENT_DETAILS + "," + EVENT_DESCRIPTION + "," + NOTIFICATION_ID
+            + " FROM " + CLUSTER_EVENT_TABLE
+            + " WHERE " + DESTINED_MEMBER_ID + "=?"
+            + " ORDER BY " + EVENT_ID;
+
     /**
      * Prepared statement to clear all cluster notifications.
      */
@@ -1042,7 +1204,12 @@ public class RDBMSConstants {
     // Message Store related jdbc tasks executed
     protected static final String TASK_STORING_MESSAGE_PARTS = "storing message parts.";
     protected static final String TASK_DELETING_MESSAGE_PARTS = "deleting message parts.";
+    protected static final String TASK_DELETING_UNREFERENCED_CONTENT = "deleting unreferenced shared content.";
     protected static final String TASK_RETRIEVING_MESSAGE_PARTS = "retrieving message parts.";
+    protected static final String TASK_READING_DATABASE_PRODUCT = "reading database product.";
+    protected static final String TASK_CHECKING_SHARED_CONTENT_TABLES = "checking shared content tables.";
+    protected static final String TASK_CHECKING_CLUSTER_NOTIFICATION_ID_COLUMN =
+            "checking notification ID column of cluster event table.";
     protected static final String TASK_RETRIEVING_CONTENT_FOR_MESSAGES = "retrieving content for multiple messages";
     protected static final String TASK_ADDING_METADATA_LIST = "adding metadata list.";
     protected static final String TASK_ADDING_METADATA = "adding metadata.";
@@ -1077,6 +1244,7 @@ public class RDBMSConstants {
     protected static final String TASK_CLEARING_DLC_QUEUE = "clearing dlc queue. " ;
     protected static final String TASK_RESETTING_MESSAGE_COUNTER = "Resetting message counter for queue";
     protected static final String TASK_RETRIEVING_EXPIRED_MESSAGES = "retrieving expired messages.";
+    protected static final String TASK_RETRIEVING_EXPIRY_DATA = "retrieving expiry data.";
     protected static final String TASK_RETRIEVING_QUEUE_ID = "retrieving queue id for queue. ";
     protected static final String TASK_CREATING_QUEUE = "creating queue. ";
 
@@ -1136,6 +1304,7 @@ public class RDBMSConstants {
     protected static final String TASK_GET_MESSAGE_PUBLISHED_NODES = "getting message published nodes";
     protected static final String TASK_SET_SLOT_STATE = "setting slot state";
     protected static final String TASK_ADD_MESSAGE_ID = "adding message id";
+    protected static final String TASK_ADD_MESSAGE_IDS = "adding message ids";
     protected static final String TASK_DELETE_MESSAGE_ID = "deleting message ids";
     protected static final String TASK_GET_MESSAGE_IDS = "getting message ids";
     protected static final String TASK_GET_ASSIGNED_SLOTS_BY_NODE_ID = "getting assigned slots by node id";
@@ -22,8 +22,10 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.Weigher;
+import com.gs.collections.api.iterator.MutableLongIterator;
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
 import org.apache.log4j.Logger;
 import org.wso2.andes.configuration.util.ConfigurationProperties;
 import org.wso2.andes.kernel.AndesContextStore;
@@ -33,7 +35,9 @@ import org.wso2.andes.kernel.AndesMessageMetadata;
 import org.wso2.andes.kernel.AndesMessagePart;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.DurableStoreConnection;
+import org.wso2.andes.kernel.ExpiringMessage;
 import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.kernel.MetadataPageCursor;
 import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.slot.RecoverySlotCreator;
 import org.wso2.andes.metrics.MetricsConstants;
@@ -52,18 +56,25 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
+import static org.wso2.andes.store.rdbms.RDBMSConstants.CONTENT_ID;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.CONTENT_REFERENCE_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.CONTENT_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_CONTENT;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_ID;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MSG_OFFSET;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_CONTENT_REFERENCE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_EXPIRY_DATA;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_MESSAGE_PART;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_METADATA;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_SHARED_MESSAGE_PART;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.SHARED_CONTENT_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.TASK_RETRIEVING_CONTENT_FOR_MESSAGES;
 
 /**
@@ -80,6 +91,26 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
     private RDBMSConnection rdbmsConnection;
 
+    /**
+     * Hands out connections pinned to threads running frequent operations, along with their prepared statements
+     */
+    private PinnedConnectionManager connectionManager;
+
+    /**
+     * Number of rows inserted by a multi-row insert statement. 1 if multi-row inserts are not used.
+     */
+    private int multiRowInsertSize;
+
+    /**
+     * Multi-row insert statements of metadata, expiry data and content references. Null if multi-row inserts are
+     * not used.
+     */
+    private String multiRowInsertMetadata;
+
+    private String multiRowInsertExpiryData;
+
+    private String multiRowInsertContentReference;
+
     /**
      * Contains utils methods related to connection health tests
      */
@@ -95,6 +126,17 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     private static final int STAT_PUBLISHING_INTERVAL = 10 * 1000;
 
+    /**
+     * Minimum number of consecutive message IDs removed with a range delete instead of deleting them one by one
+     */
+    private static final int MIN_METADATA_RANGE_DELETE_SIZE = 3;
+
+    /**
+     * Maximum number of values in the IN clause of a single query. Oracle rejects lists with more than 1000
+     * expressions, hence larger message lists are queried in chunks of this size.
+     */
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
     /**
      * Partially created prepared statement to retrieve content of multiple messages using IN operator
      * this will be completed on the fly when the request comes
@@ -104,6 +146,36 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                     " FROM " + CONTENT_TABLE +
                     " WHERE " + MESSAGE_ID + " IN (";
 
+    /**
+     * Partially created prepared statement to retrieve content of multiple messages sharing content. Content is
+     * retrieved through the references of the messages, keyed by the message ID.
+     */
+    private static final String PS_SELECT_SHARED_CONTENT_PART =
+            "SELECT " + MESSAGE_CONTENT + ", " + CONTENT_REFERENCE_TABLE + "." + MESSAGE_ID + ", " + MSG_OFFSET +
+                    " FROM " + SHARED_CONTENT_TABLE + " INNER JOIN " + CONTENT_REFERENCE_TABLE +
+                    " ON " + SHARED_CONTENT_TABLE + "." + CONTENT_ID + "=" +
+                    CONTENT_REFERENCE_TABLE + "." + CONTENT_ID +
+                    " WHERE " + CONTENT_REFERENCE_TABLE + "." + MESSAGE_ID + " IN (";
+
+    /**
+     * Partially created prepared statement to retrieve references of multiple messages to the content they share
+     */
+    private static final String PS_SELECT_CONTENT_REFERENCE_PART =
+            "SELECT " + MESSAGE_ID + ", " + CONTENT_ID +
+                    " FROM " + CONTENT_REFERENCE_TABLE +
+                    " WHERE " + MESSAGE_ID + " IN (";
+
+    /**
+     * Orders content chunks of a message by offset
+     */
+    private static final Comparator<AndesMessagePart> MESSAGE_PART_OFFSET_COMPARATOR =
+            new Comparator<AndesMessagePart>() {
+                @Override
+                public int compare(AndesMessagePart part1, AndesMessagePart part2) {
+                    return Integer.compare(part1.getOffset(), part2.getOffset());
+                }
+            };
+
     /**
      * The cache which holds the queue mappings(queue name to queue id) in memory
      * In the absence of a queried queue name in the cache, the queue id is loaded from the database
@@ -121,14 +193,87 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         // read data source name from config and use
         this.rdbmsConnection.initialize(connectionProperties);
         this.rdbmsStoreUtils = new RDBMSStoreUtils(connectionProperties);
+        this.connectionManager = new PinnedConnectionManager(rdbmsConnection.getDataSource(),
+                connectionProperties.getProperty(RDBMSConstants.MAX_PINNED_CONNECTIONS,
+                        RDBMSConstants.DEFAULT_MAX_PINNED_CONNECTIONS),
+                connectionProperties.getProperty(RDBMSConstants.STATEMENT_CACHE_SIZE,
+                        RDBMSConstants.DEFAULT_STATEMENT_CACHE_SIZE));
+        initializeMultiRowInserts(connectionProperties);
 
         this.messageCache = (new MessageCacheFactory()).create();
         initializeQueueMappingCache();
 
+        checkSharedContentTables();
+
+        // Clean up shared content left behind if the broker went down while removing messages
+        deleteAllUnreferencedContent();
+
         log.info("Message Store initialised");
         return rdbmsConnection;
     }
 
+    /**
+     * Check that the tables keeping shared content exist. They are created by the database scripts of the product,
+     * hence stores created by older versions need the migration scripts to be applied.
+     *
+     * @throws AndesException if a table does not exist or the database could not be queried
+     */
+    private void checkSharedContentTables() throws AndesException {
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            for (String tableName : new String[] { CONTENT_REFERENCE_TABLE, SHARED_CONTENT_TABLE }) {
+                if (!rdbmsStoreUtils.isTableExists(connection, tableName)) {
+                    throw new AndesException("Table " + tableName + " does not exist in the message store. Apply "
+                            + "the database script in " + RDBMSConstants.SHARED_CONTENT_MIGRATION_SCRIPTS
+                            + " for the database in use.");
+                }
+            }
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while checking the tables of shared content",
+                    e);
+        } finally {
+            close(connection, RDBMSConstants.TASK_CHECKING_SHARED_CONTENT_TABLES);
+        }
+    }
+
+    /**
+     * Decide the number of rows inserted per multi-row insert statement and create the statements. Multi-row
+     * inserts are used only if the database supports them.
+     *
+     * @param connectionProperties message store properties
+     * @throws AndesException if the database could not be queried
+     */
+    private void initializeMultiRowInserts(ConfigurationProperties connectionProperties) throws AndesException {
+        multiRowInsertSize = connectionProperties.getProperty(RDBMSConstants.MULTI_ROW_INSERT_SIZE,
+                RDBMSConstants.DEFAULT_MULTI_ROW_INSERT_SIZE);
+
+        if (multiRowInsertSize > 1) {
+            Connection connection = null;
+            try {
+                connection = getConnection();
+                if (!rdbmsStoreUtils.isMultiRowInsertSupported(connection)) {
+                    multiRowInsertSize = 1;
+                }
+            } catch (SQLException e) {
+                throw rdbmsStoreUtils.convertSQLException("Error occurred while reading the database product", e);
+            } finally {
+                close(connection, RDBMSConstants.TASK_READING_DATABASE_PRODUCT);
+            }
+        }
+
+        if (multiRowInsertSize > 1) {
+            multiRowInsertMetadata = MultiRowInsertBatch.getMultiRowStatement(PS_INSERT_METADATA,
+                    multiRowInsertSize);
+            multiRowInsertExpiryData = MultiRowInsertBatch.getMultiRowStatement(PS_INSERT_EXPIRY_DATA,
+                    multiRowInsertSize);
+            multiRowInsertContentReference = MultiRowInsertBatch.getMultiRowStatement(PS_INSERT_CONTENT_REFERENCE,
+                    multiRowInsertSize);
+        } else {
+            multiRowInsertSize = 1;
+        }
+    }
+
     /**
      * Method to initialize the queue mapping cache.
      * <p>
@@ -171,49 +316,42 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public void storeMessagePart(List<AndesMessagePart> partList) throws AndesException {
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
+        ConnectionLease lease = null;
         Context messageContentAdditionContext = MetricManager.timer(MetricsConstants.ADD_MESSAGE_PART, Level.INFO)
                 .start();
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
 
         try {
-            connection = getConnection();
-            preparedStatement = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
+            lease = connectionManager.acquire();
+            MultiRowInsertBatch storeContentBatch = new MultiRowInsertBatch(lease, PS_INSERT_MESSAGE_PART);
 
             for (AndesMessagePart messagePart : partList) {
-                addContentToBatch(preparedStatement, messagePart);
+                addContentToBatch(storeContentBatch, messagePart);
             }
-            preparedStatement.executeBatch();
-            connection.commit();
+            storeContentBatch.execute();
+            lease.getConnection().commit();
         } catch (BatchUpdateException bue) {
-
-            rdbmsStoreUtils
-                    .raiseBatchUpdateException(partList, connection, bue, RDBMSConstants.TASK_STORING_MESSAGE_PARTS);
+            rdbmsStoreUtils.raiseBatchUpdateException(partList, lease.getConnection(), bue,
+                    RDBMSConstants.TASK_STORING_MESSAGE_PARTS);
 
         } catch (SQLException e) {
-            rollback(connection, RDBMSConstants.TASK_STORING_MESSAGE_PARTS);
+            rollback(lease, RDBMSConstants.TASK_STORING_MESSAGE_PARTS);
             throw rdbmsStoreUtils.convertSQLException("Error occurred while adding message content to DB ", e);
         } finally {
             messageContentAdditionContext.stop();
             contextWrite.stop();
-            close(connection, preparedStatement, RDBMSConstants.TASK_STORING_MESSAGE_PARTS);
+            connectionManager.release(lease);
         }
     }
 
     /**
-     * Adds message content to provided prepared statements batch.
+     * Adds message content to provided batch.
      *
-     * @param preparedStatement Prepared statement for storing message content
-     * @param messagePart       message content to be stored
-     * @throws SQLException
+     * @param batch       batch inserting message content
+     * @param messagePart message content to be stored
      */
-    private void addContentToBatch(PreparedStatement preparedStatement, AndesMessagePart messagePart)
-            throws SQLException {
-        preparedStatement.setLong(1, messagePart.getMessageID());
-        preparedStatement.setInt(2, messagePart.getOffset());
-        preparedStatement.setBytes(3, messagePart.getData());
-        preparedStatement.addBatch();
+    private void addContentToBatch(MultiRowInsertBatch batch, AndesMessagePart messagePart) {
+        batch.addRow(messagePart.getMessageID(), messagePart.getOffset(), messagePart.getData());
     }
 
     /**
@@ -245,27 +383,39 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     private AndesMessagePart getContentFromStorage(long messageId, int offsetValue) throws AndesException {
         AndesMessagePart messagePart = null;
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
+        ConnectionLease lease = null;
+        PreparedStatement preparedStatement;
         ResultSet results = null;
 
         Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
         try {
-            connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_RETRIEVE_MESSAGE_PART);
+            lease = connectionManager.acquire();
+            preparedStatement = lease.prepareStatement(RDBMSConstants.PS_RETRIEVE_MESSAGE_PART);
             preparedStatement.setLong(1, messageId);
             preparedStatement.setInt(2, offsetValue);
             results = preparedStatement.executeQuery();
 
             if (results.next()) {
                 messagePart = createMessagePart(results, messageId, offsetValue);
+            } else {
+                // Message might be sharing content stored under a different ID
+                results.close();
+                preparedStatement = lease.prepareStatement(RDBMSConstants.PS_RETRIEVE_SHARED_MESSAGE_PART);
+                preparedStatement.setLong(1, messageId);
+                preparedStatement.setInt(2, offsetValue);
+                results = preparedStatement.executeQuery();
+
+                if (results.next()) {
+                    messagePart = createMessagePart(results, messageId, offsetValue);
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils.convertSQLException("Error occurred while retrieving message content from DB" +
                     " [msg_id= " + messageId + " ]", e);
         } finally {
             contextRead.stop();
-            close(connection, preparedStatement, results, RDBMSConstants.TASK_RETRIEVING_MESSAGE_PARTS);
+            close(results, RDBMSConstants.TASK_RETRIEVING_MESSAGE_PARTS);
+            connectionManager.release(lease);
         }
         return messagePart;
     }
@@ -299,7 +449,41 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     }
 
     /**
-     * Utility method to retrieve content given the list of messages Ids.
+     * {@inheritDoc}
+     */
+    @Override
+    public void prefetchContent(List<? extends AndesMessageMetadata> metadataList) throws AndesException {
+
+        LongArrayList messagesToFetch = new LongArrayList(metadataList.size());
+        for (AndesMessageMetadata metadata : metadataList) {
+            if (metadata.getMessageContentLength() > 0 && null == getMessageFromCache(metadata.getMessageID())) {
+                messagesToFetch.add(metadata.getMessageID());
+            }
+        }
+
+        if (messagesToFetch.isEmpty()) {
+            return;
+        }
+
+        LongObjectHashMap<List<AndesMessagePart>> contentList = new LongObjectHashMap<>(messagesToFetch.size());
+        fillContentFromStorage(messagesToFetch, contentList);
+
+        for (AndesMessageMetadata metadata : metadataList) {
+            List<AndesMessagePart> parts = contentList.get(metadata.getMessageID());
+            if (null != parts) {
+                // Cached chunks are looked up by index derived from the offset
+                Collections.sort(parts, MESSAGE_PART_OFFSET_COMPARATOR);
+                // Cache a copy so that delivery state of the message is not kept alive by the cache
+                AndesMessage message = new AndesMessage(metadata.shallowCopy(metadata.getMessageID()));
+                message.setChunkList(parts);
+                addToCache(message);
+            }
+        }
+    }
+
+    /**
+     * Utility method to retrieve content given the list of messages Ids. Content of messages which share content is
+     * looked up through their references if it is not found under the message ID.
      *
      * @param messageIDList message ids
      * @param contentList   this list will be filled with content retrieved from database
@@ -307,38 +491,91 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     private void fillContentFromStorage(LongArrayList messageIDList,
             LongObjectHashMap<List<AndesMessagePart>> contentList) throws AndesException {
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
-        ResultSet resultSet = null;
+        ConnectionLease lease = null;
         Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
 
         try {
-            connection = getConnection();
-            preparedStatement = connection.prepareStatement(getSelectContentPreparedStmt(messageIDList.size()));
-            for (int mesageIDCounter = 0; mesageIDCounter < messageIDList.size(); mesageIDCounter++) {
-                preparedStatement.setLong(mesageIDCounter + 1, messageIDList.get(mesageIDCounter));
-            }
+            lease = connectionManager.acquire();
+            fillContent(lease, PS_SELECT_CONTENT_PART, messageIDList, contentList);
 
-            resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                long messageID = resultSet.getLong(MESSAGE_ID);
-                int offset = resultSet.getInt(MSG_OFFSET);
-                List<AndesMessagePart> partList = contentList.get(messageID);
-                if (null == partList) {
-                    partList = new ArrayList<>();
-                    contentList.put(messageID, partList);
+            LongArrayList messagesWithoutContent = new LongArrayList();
+            for (int i = 0; i < messageIDList.size(); i++) {
+                if (!contentList.containsKey(messageIDList.get(i))) {
+                    messagesWithoutContent.add(messageIDList.get(i));
                 }
-                AndesMessagePart msgPart = createMessagePart(resultSet, messageID, offset);
-                partList.add(msgPart);
             }
 
+            if (!messagesWithoutContent.isEmpty()) {
+                fillContent(lease, PS_SELECT_SHARED_CONTENT_PART, messagesWithoutContent, contentList);
+            }
         } catch (SQLException e) {
             throw rdbmsStoreUtils.convertSQLException("Error occurred while retrieving message content from DB for " +
                     messageIDList.size() + " messages ", e);
         } finally {
             contextRead.stop();
-            close(connection, preparedStatement, resultSet, TASK_RETRIEVING_CONTENT_FOR_MESSAGES);
+            connectionManager.release(lease);
+        }
+    }
+
+    /**
+     * Read content of the given messages using the given content query. Messages are queried in chunks of at most
+     * {@link #MAX_IN_CLAUSE_SIZE}, and the IN clause of each chunk is padded with its last message ID as done by
+     * {@link #getPaddedInClauseSize(int)}, so that a few statements serve all message counts and can be kept by the
+     * connection lease.
+     *
+     * @param lease            connection to the database
+     * @param partialStatement content query to be completed with the IN clause for the messages
+     * @param messageIDList    message ids
+     * @param contentList      filled with content retrieved, keyed by message ID
+     * @throws SQLException an error
+     */
+    private void fillContent(ConnectionLease lease, String partialStatement, LongArrayList messageIDList,
+            LongObjectHashMap<List<AndesMessagePart>> contentList) throws SQLException {
+
+        for (int chunkStart = 0; chunkStart < messageIDList.size(); chunkStart += MAX_IN_CLAUSE_SIZE) {
+            int chunkEnd = Math.min(chunkStart + MAX_IN_CLAUSE_SIZE, messageIDList.size());
+            int messageCount = chunkEnd - chunkStart;
+            int parameterCount = getPaddedInClauseSize(messageCount);
+
+            PreparedStatement preparedStatement = lease.prepareStatement(
+                    getInClauseStatement(partialStatement, parameterCount));
+            for (int parameterIndex = 0; parameterIndex < parameterCount; parameterIndex++) {
+                preparedStatement.setLong(parameterIndex + 1,
+                        messageIDList.get(chunkStart + Math.min(parameterIndex, messageCount - 1)));
+            }
+
+            ResultSet resultSet = null;
+            try {
+                resultSet = preparedStatement.executeQuery();
+                while (resultSet.next()) {
+                    long messageID = resultSet.getLong(MESSAGE_ID);
+                    int offset = resultSet.getInt(MSG_OFFSET);
+                    List<AndesMessagePart> partList = contentList.get(messageID);
+                    if (null == partList) {
+                        partList = new ArrayList<>();
+                        contentList.put(messageID, partList);
+                    }
+                    AndesMessagePart msgPart = createMessagePart(resultSet, messageID, offset);
+                    partList.add(msgPart);
+                }
+            } finally {
+                close(resultSet, TASK_RETRIEVING_CONTENT_FOR_MESSAGES);
+            }
+        }
+    }
+
+    /**
+     * Get the number of values the IN clause of a query for the given number of messages is padded to. The count
+     * is rounded up to the next power of two, capped at {@link #MAX_IN_CLAUSE_SIZE}.
+     *
+     * @param messageCount number of messages queried. CONDITION: 0 < messageCount <= MAX_IN_CLAUSE_SIZE
+     * @return number of values in the IN clause
+     */
+    private static int getPaddedInClauseSize(int messageCount) {
+        if (messageCount <= 1) {
+            return messageCount;
         }
+        return Math.min(Integer.highestOneBit(messageCount - 1) << 1, MAX_IN_CLAUSE_SIZE);
     }
 
     private AndesMessagePart createMessagePart(ResultSet results, long messageId, int offsetValue) throws SQLException {
@@ -353,15 +590,16 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     }
 
     /**
-     * Create a prepared statement with given number of ? values set to IN operator
+     * Complete a prepared statement with given number of ? values set to IN operator
      *
-     * @param messageCount number of messages that content need to be retrieved from.
-     *                     CONDITION: messageCount > 0
+     * @param partialStatement statement ending with the opening of the IN operator
+     * @param messageCount     number of messages the statement is executed for.
+     *                         CONDITION: messageCount > 0
      * @return Prepared Statement
      */
-    private String getSelectContentPreparedStmt(int messageCount) {
+    private String getInClauseStatement(String partialStatement, int messageCount) {
 
-        StringBuilder stmtBuilder = new StringBuilder(PS_SELECT_CONTENT_PART);
+        StringBuilder stmtBuilder = new StringBuilder(partialStatement);
         for (int i = 0; i < messageCount - 1; i++) {
             stmtBuilder.append("?,");
         }
@@ -375,39 +613,52 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public void storeMessages(List<AndesMessage> messageList) throws AndesException {
-        Connection connection = null;
-        PreparedStatement storeMetadataPS = null;
-        PreparedStatement storeContentPS = null;
-        PreparedStatement storeExpiryMetadataPS = null;
-        boolean messageWithExpirationDetected = false;
+        ConnectionLease lease = null;
 
         try {
 
-            connection = getConnection();
-            storeMetadataPS = connection.prepareStatement(PS_INSERT_METADATA);
-            storeContentPS = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
-            storeExpiryMetadataPS = connection.prepareStatement(PS_INSERT_EXPIRY_DATA);
+            lease = connectionManager.acquire();
+            MultiRowInsertBatch storeMetadataBatch = createInsertBatch(lease, PS_INSERT_METADATA,
+                    multiRowInsertMetadata);
+            MultiRowInsertBatch storeContentBatch = new MultiRowInsertBatch(lease, PS_INSERT_MESSAGE_PART);
+            MultiRowInsertBatch storeSharedContentBatch = new MultiRowInsertBatch(lease, PS_INSERT_SHARED_MESSAGE_PART);
+            MultiRowInsertBatch storeExpiryMetadataBatch = createInsertBatch(lease, PS_INSERT_EXPIRY_DATA,
+                    multiRowInsertExpiryData);
+            MultiRowInsertBatch storeContentReferenceBatch = createInsertBatch(lease, PS_INSERT_CONTENT_REFERENCE,
+                    multiRowInsertContentReference);
+
+            // Shared content is written once for the batch, along with the first message referring to it
+            LongHashSet storedContentIDs = new LongHashSet();
 
             for (AndesMessage message : messageList) {
 
-                addMetadataToBatch(storeMetadataPS, message.getMetadata(), message.getMetadata().getStorageQueueName());
+                AndesMessageMetadata metadata = message.getMetadata();
+                addMetadataToBatch(storeMetadataBatch, metadata, metadata.getStorageQueueName());
                 //if message has expiration time store it into expiration table
-                if (message.getMetadata().isExpirationDefined()) {
-                    messageWithExpirationDetected = true;
-                    addExpiryTableEntryToBatch(storeExpiryMetadataPS, message.getMetadata());
+                if (metadata.isExpirationDefined()) {
+                    addExpiryTableEntryToBatch(storeExpiryMetadataBatch, metadata);
                 }
 
-                for (AndesMessagePart messagePart : message.getContentChunkList()) {
-                    addContentToBatch(storeContentPS, messagePart);
+                if (metadata.isContentShared()) {
+                    addContentReferenceToBatch(storeContentReferenceBatch, metadata);
+                    if (storedContentIDs.add(metadata.getContentID())) {
+                        for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                            addContentToBatch(storeSharedContentBatch, messagePart);
+                        }
+                    }
+                } else {
+                    for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                        addContentToBatch(storeContentBatch, messagePart);
+                    }
                 }
             }
 
-            storeMetadataPS.executeBatch();
-            storeContentPS.executeBatch();
-            if (messageWithExpirationDetected) {
-                storeExpiryMetadataPS.executeBatch();
-            }
-            connection.commit();
+            storeMetadataBatch.execute();
+            storeContentBatch.execute();
+            storeSharedContentBatch.execute();
+            storeContentReferenceBatch.execute();
+            storeExpiryMetadataBatch.execute();
+            lease.getConnection().commit();
 
             // Add messages to cache after adding them to the database
             // Messages are added afterwards since we need to add messages to the cache only if they are added to the
@@ -415,82 +666,101 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             addToCache(messageList);
         } catch (BatchUpdateException bue) {
             log.warn("Error occurred while inserting message list. Messages will be stored individually.", bue);
-            rollback(connection, RDBMSConstants.TASK_ADDING_METADATA);
+            rollback(lease, RDBMSConstants.TASK_ADDING_METADATA);
             // If adding some of the messages failed, add them individually
+            LongHashSet storedContentIDs = new LongHashSet();
             for (AndesMessage message : messageList) {
-                storeMessage(message);
+                storeMessage(message, storedContentIDs);
             }
         } catch (AndesException e) {
-            rollback(connection, RDBMSConstants.TASK_ADDING_METADATA);
+            rollback(lease, RDBMSConstants.TASK_ADDING_METADATA);
             throw e;
         } catch (SQLException e) {
-            rollback(connection, RDBMSConstants.TASK_ADDING_METADATA);
+            rollback(lease, RDBMSConstants.TASK_ADDING_METADATA);
             throw rdbmsStoreUtils.convertSQLException("Error occurred while inserting messages to queue ", e);
         } finally {
-            close(storeExpiryMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGES);
-            close(storeMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGES);
-            close(storeContentPS, RDBMSConstants.TASK_ADDING_MESSAGES);
-            close(connection, RDBMSConstants.TASK_ADDING_MESSAGES);
+            connectionManager.release(lease);
         }
     }
 
     /**
      * Store a given Andes message to the database and the cache
      *
-     * @param message
+     * @param message          message to store
+     * @param storedContentIDs IDs of shared content already stored. Updated if the message stores shared content.
      * @throws AndesException
      */
-    private void storeMessage(AndesMessage message) throws AndesException {
-        Connection connection = null;
-        PreparedStatement storeMetadataPS = null;
-        PreparedStatement storeContentPS = null;
-        PreparedStatement storeExpiryMetadataPS = null;
+    private void storeMessage(AndesMessage message, LongHashSet storedContentIDs) throws AndesException {
+        AndesMessageMetadata metadata = message.getMetadata();
+        ConnectionLease lease = null;
 
         try {
-            connection = getConnection();
-            storeMetadataPS = connection.prepareStatement(PS_INSERT_METADATA);
-            storeExpiryMetadataPS = connection.prepareStatement(PS_INSERT_EXPIRY_DATA);
-            storeContentPS = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
+            lease = connectionManager.acquire();
+            MultiRowInsertBatch storeMetadataBatch = new MultiRowInsertBatch(lease, PS_INSERT_METADATA);
+            MultiRowInsertBatch storeContentBatch = new MultiRowInsertBatch(lease,
+                    metadata.isContentShared() ? PS_INSERT_SHARED_MESSAGE_PART : PS_INSERT_MESSAGE_PART);
+            MultiRowInsertBatch storeExpiryMetadataBatch = new MultiRowInsertBatch(lease, PS_INSERT_EXPIRY_DATA);
+            MultiRowInsertBatch storeContentReferenceBatch =
+                    new MultiRowInsertBatch(lease, PS_INSERT_CONTENT_REFERENCE);
 
-            AndesMessageMetadata metadata = message.getMetadata();
-            storeMetadataPS.setLong(1, metadata.getMessageID());
-            storeMetadataPS.setInt(2, getCachedQueueID(metadata.getStorageQueueName()));
-            storeMetadataPS.setBytes(3, metadata.getMetadata());
-            storeMetadataPS.execute();
+            boolean storeContent = !metadata.isContentShared() || !storedContentIDs.contains(metadata.getContentID());
 
-            for (AndesMessagePart messagePart : message.getContentChunkList()) {
-                addContentToBatch(storeContentPS, messagePart);
+            addMetadataToBatch(storeMetadataBatch, metadata, metadata.getStorageQueueName());
+            storeMetadataBatch.execute();
+
+            if (storeContent) {
+                for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                    addContentToBatch(storeContentBatch, messagePart);
+                }
+                storeContentBatch.execute();
             }
-            storeContentPS.executeBatch();
+
+            if (metadata.isContentShared()) {
+                addContentReferenceToBatch(storeContentReferenceBatch, metadata);
+                storeContentReferenceBatch.execute();
+            }
+
             if (metadata.isExpirationDefined()) {
-                storeExpiryMetadataPS.setLong(1, metadata.getMessageID());
-                storeExpiryMetadataPS.setLong(2, metadata.getExpirationTime());
-                storeExpiryMetadataPS.setString(3, metadata.getStorageQueueName());
-                storeExpiryMetadataPS.execute();
+                addExpiryTableEntryToBatch(storeExpiryMetadataBatch, metadata);
+                storeExpiryMetadataBatch.execute();
+            }
+            lease.getConnection().commit();
+            if (metadata.isContentShared()) {
+                storedContentIDs.add(metadata.getContentID());
             }
-            connection.commit();
             addToCache(message);
         } catch (AndesException e) {
-            rollback(connection, RDBMSConstants.TASK_ADDING_MESSAGE);
+            rollback(lease, RDBMSConstants.TASK_ADDING_MESSAGE);
             throw e;
         } catch (SQLException e) {
+            // Rolled back in both cases since the connection may be reused for the next operation
+            rollback(lease, RDBMSConstants.TASK_ADDING_MESSAGE);
             AndesException andesException = rdbmsStoreUtils
                     .convertSQLException("Error occurred while inserting message to queue ", e);
             if (AndesDataIntegrityViolationException.class.isInstance(andesException)) {
                 log.warn("Dropped message with ID: " + message.getMetadata().getMessageID() + " since queue: " + message
                         .getMetadata().getStorageQueueName() + " does not exist", e);
             } else {
-                rollback(connection, RDBMSConstants.TASK_ADDING_MESSAGE);
                 throw andesException;
             }
         } finally {
-            close(storeExpiryMetadataPS,RDBMSConstants.TASK_ADDING_MESSAGE);
-            close(storeMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGE);
-            close(storeContentPS, RDBMSConstants.TASK_ADDING_MESSAGE);
-            close(connection, RDBMSConstants.TASK_ADDING_MESSAGE);
+            connectionManager.release(lease);
         }
     }
 
+    /**
+     * Create a batch inserting rows with the given statements. Multi-row inserts are used if enabled.
+     *
+     * @param lease              connection the rows are inserted with
+     * @param singleRowStatement statement inserting a row
+     * @param multiRowStatement  statement inserting a group of rows. Null if multi-row inserts are not used.
+     * @return insert batch
+     */
+    private MultiRowInsertBatch createInsertBatch(ConnectionLease lease, String singleRowStatement,
+            String multiRowStatement) {
+        return new MultiRowInsertBatch(lease, singleRowStatement, multiRowStatement, multiRowInsertSize);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -657,26 +927,19 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     /**
      * Adds a single metadata to a batch insert of metadata.
      *
-     * @param preparedStatement prepared statement to add messages to metadata table
-     * @param metadata          AndesMessageMetadata
-     * @param queueName         queue to be assigned
-     * @throws SQLException
+     * @param batch     batch inserting metadata
+     * @param metadata  AndesMessageMetadata
+     * @param queueName queue to be assigned
+     * @throws AndesException
      */
-    private void addMetadataToBatch(PreparedStatement preparedStatement, AndesMessageMetadata metadata,
+    private void addMetadataToBatch(MultiRowInsertBatch batch, AndesMessageMetadata metadata,
             final String queueName) throws AndesException {
 
         Context metaAdditionToBatchContext = MetricManager.timer(MetricsConstants.ADD_META_DATA_TO_BATCH, Level.INFO)
                 .start();
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
         try {
-            preparedStatement.setLong(1, metadata.getMessageID());
-            preparedStatement.setInt(2, getCachedQueueID(queueName));
-            preparedStatement.setBytes(3, metadata.getMetadata());
-            preparedStatement.addBatch();
-        } catch (SQLException e) {
-            throw rdbmsStoreUtils.convertSQLException(
-                    "error occurred while adding metadata with messaged id: " + metadata.getMessageID() + " to batch",
-                    e);
+            batch.addRow(metadata.getMessageID(), getCachedQueueID(queueName), metadata.getMetadata());
         } finally {
             metaAdditionToBatchContext.stop();
             contextWrite.stop();
@@ -684,18 +947,23 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     }
 
     /**
-     * Does a batch update on the given prepared statement to add entries to expiry table.
+     * Adds the reference of a message to the content it shares to a batch insert of content references.
      *
-     * @param preparedStatement PreparedStatement. Object is not closed within the method
-     * @param metadata          AndesMessageMetadata
-     * @throws SQLException
+     * @param batch    batch inserting content references
+     * @param metadata metadata of a message sharing content
      */
-    private void addExpiryTableEntryToBatch(PreparedStatement preparedStatement, AndesMessageMetadata metadata)
-            throws SQLException {
-        preparedStatement.setLong(1, metadata.getMessageID());
-        preparedStatement.setLong(2, metadata.getExpirationTime());
-        preparedStatement.setString(3, metadata.getStorageQueueName());
-        preparedStatement.addBatch();
+    private void addContentReferenceToBatch(MultiRowInsertBatch batch, AndesMessageMetadata metadata) {
+        batch.addRow(metadata.getMessageID(), metadata.getContentID());
+    }
+
+    /**
+     * Adds an entry of the given message to a batch insert of expiry data.
+     *
+     * @param batch    batch inserting expiry data
+     * @param metadata AndesMessageMetadata
+     */
+    private void addExpiryTableEntryToBatch(MultiRowInsertBatch batch, AndesMessageMetadata metadata) {
+        batch.addRow(metadata.getMessageID(), metadata.getExpirationTime(), metadata.getStorageQueueName());
     }
 
     /**
@@ -746,8 +1014,8 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             long lastMsgID) throws AndesException {
 
         List<DeliverableAndesMetadata> metadataList = new ArrayList<>();
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
+        ConnectionLease lease = null;
+        PreparedStatement preparedStatement;
         ResultSet resultSet = null;
         long getMetadataListExecutionStart = 0;
 
@@ -755,8 +1023,10 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
 
         try {
-            connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_RANGE_FROM_QUEUE);
+            lease = connectionManager.acquire();
+            preparedStatement = lease.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_RANGE_FROM_QUEUE);
+            // The statement is shared with paged reads, which limit the rows
+            preparedStatement.setMaxRows(0);
             preparedStatement.setInt(1, getCachedQueueID(storageQueueName));
             preparedStatement.setLong(2, firstMsgId);
             preparedStatement.setLong(3, lastMsgID);
@@ -791,8 +1061,66 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         } finally {
             metaListRetrievalContext.stop();
             contextRead.stop();
-            close(connection, preparedStatement, resultSet,
-                    RDBMSConstants.TASK_RETRIEVING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+            close(resultSet, RDBMSConstants.TASK_RETRIEVING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+            connectionManager.release(lease);
+        }
+        return metadataList;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The range query used by {@link #getMetadataList(Slot, String, long, long)} is bounded with the maximum
+     * number of rows, hence only a page of rows is transferred from the database per call.
+     */
+    @Override
+    public List<DeliverableAndesMetadata> getNextMetadataPage(MetadataPageCursor cursor) throws AndesException {
+
+        Slot slot = cursor.getSlot();
+        String storageQueueName = cursor.getStorageQueueName();
+        List<DeliverableAndesMetadata> metadataList = new ArrayList<>(cursor.getPageSize());
+        ConnectionLease lease = null;
+        PreparedStatement preparedStatement;
+        ResultSet resultSet = null;
+
+        Context metaListRetrievalContext = MetricManager.timer(MetricsConstants.GET_META_DATA_LIST, Level.INFO).start();
+        Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
+
+        try {
+            lease = connectionManager.acquire();
+            preparedStatement = lease.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_RANGE_FROM_QUEUE);
+            preparedStatement.setMaxRows(cursor.getPageSize());
+            preparedStatement.setFetchSize(cursor.getPageSize());
+            preparedStatement.setInt(1, getCachedQueueID(storageQueueName));
+            preparedStatement.setLong(2, cursor.getNextMessageId());
+            preparedStatement.setLong(3, cursor.getLastMessageId());
+
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                DeliverableAndesMetadata md = new DeliverableAndesMetadata(slot,
+                        resultSet.getLong(RDBMSConstants.MESSAGE_ID), resultSet.getBytes(RDBMSConstants.METADATA),
+                        true);
+                md.setStorageQueueName(storageQueueName);
+                metadataList.add(md);
+                //Tracing message
+                MessageTracer.trace(md, MessageTracer.METADATA_READ_FROM_DB + " slot = " + slot.getId());
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("request: metadata page (" + cursor.getNextMessageId() + " , " + cursor.getLastMessageId()
+                        + ") in destination queue " + storageQueueName + ", response: metadata count "
+                        + metadataList.size());
+            }
+            cursor.advance(metadataList);
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException(
+                    "Error occurred while retrieving messages between msg id " + cursor.getNextMessageId() + " and "
+                            + cursor.getLastMessageId() + " from queue " + storageQueueName, e);
+        } finally {
+            metaListRetrievalContext.stop();
+            contextRead.stop();
+            close(resultSet, RDBMSConstants.TASK_RETRIEVING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+            connectionManager.release(lease);
         }
         return metadataList;
     }
@@ -1072,38 +1400,40 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     public void deleteMessageMetadataFromQueue(final String storageQueueName,
             List<AndesMessageMetadata> messagesToRemove) throws AndesException {
 
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
+        ConnectionLease lease = null;
 
         Context metaDeletionContext = MetricManager
                 .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_FROM_QUEUE).start();
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+        LongHashSet sharedContentIDs;
 
         try {
             int queueID = getCachedQueueID(storageQueueName);
 
-            connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_FROM_QUEUE);
+            lease = connectionManager.acquire();
+            PreparedStatement preparedStatement = lease.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_FROM_QUEUE);
             for (AndesMessageMetadata messageID : messagesToRemove) {
                 preparedStatement.setInt(1, queueID);
                 preparedStatement.setLong(2, messageID.getMessageID());
                 preparedStatement.addBatch();
             }
             preparedStatement.executeBatch();
-            connection.commit();
+            sharedContentIDs = removeContentReferences(lease, messagesToRemove);
+            lease.getConnection().commit();
 
             if (log.isDebugEnabled()) {
                 log.debug("Metadata removed. " + messagesToRemove.size() +
                         " metadata from destination " + storageQueueName);
             }
         } catch (SQLException e) {
-            rollback(connection, RDBMSConstants.TASK_DELETING_METADATA_FROM_QUEUE + storageQueueName);
+            rollback(lease, RDBMSConstants.TASK_DELETING_METADATA_FROM_QUEUE + storageQueueName);
             throw rdbmsStoreUtils.convertSQLException("error occurred while deleting message metadata from queue ", e);
         } finally {
             metaDeletionContext.stop();
             contextWrite.stop();
-            close(connection, preparedStatement, RDBMSConstants.TASK_DELETING_METADATA_FROM_QUEUE + storageQueueName);
+            connectionManager.release(lease);
         }
+        deleteUnreferencedContent(sharedContentIDs);
     }
 
     /**
@@ -1112,39 +1442,62 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     @Override
     public void deleteMessages(final String storageQueueName, List<AndesMessageMetadata> messagesToRemove)
             throws AndesException {
-        Connection connection = null;
-        PreparedStatement metadataRemovalPreparedStatement = null;
+        ConnectionLease lease = null;
+        PreparedStatement metadataRemovalPreparedStatement;
+        PreparedStatement rangeRemovalPreparedStatement = null;
 
         Context messageDeletionContext = MetricManager
                 .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT).start();
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+        LongHashSet sharedContentIDs;
 
         try {
 
-            LongArrayList messageIDsToRemoveFromCache = new LongArrayList();
-            connection = getConnection();
+            LongArrayList messageIDsToRemoveFromCache = new LongArrayList(messagesToRemove.size());
+            for (AndesMessageMetadata message : messagesToRemove) {
+                messageIDsToRemoveFromCache.add(message.getMessageID());
+            }
+            messageIDsToRemoveFromCache.sortThis();
+            lease = connectionManager.acquire();
 
             //Since referential integrity is imposed on the two tables: message content and metadata,
-            //deleting message metadata will cause message content to be automatically deleted
-            metadataRemovalPreparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA);
+            //deleting message metadata will cause message content to be automatically deleted. Shared content is
+            //deleted separately once no message refers to it.
+            metadataRemovalPreparedStatement = lease.prepareStatement(RDBMSConstants.PS_DELETE_METADATA);
 
-            for (AndesMessageMetadata message : messagesToRemove) {
+            LongArrayList singleMessageIDs = new LongArrayList(messageIDsToRemoveFromCache.size());
+            LongArrayList rangeBounds = new LongArrayList();
+            splitIntoDeleteRanges(messageIDsToRemoveFromCache, singleMessageIDs, rangeBounds);
+
+            MutableLongIterator singleIterator = singleMessageIDs.longIterator();
+            while (singleIterator.hasNext()) {
                 //add parameters to delete metadata
-                messageIDsToRemoveFromCache.add(message.getMessageID());
-                metadataRemovalPreparedStatement.setLong(1, message.getMessageID());
+                metadataRemovalPreparedStatement.setLong(1, singleIterator.next());
                 metadataRemovalPreparedStatement.addBatch();
             }
+            for (int i = 0; i < rangeBounds.size(); i = i + 2) {
+                if (null == rangeRemovalPreparedStatement) {
+                    rangeRemovalPreparedStatement = lease.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_RANGE);
+                }
+                rangeRemovalPreparedStatement.setLong(1, rangeBounds.get(i));
+                rangeRemovalPreparedStatement.setLong(2, rangeBounds.get(i + 1));
+                rangeRemovalPreparedStatement.addBatch();
+            }
 
             removeFromCache(messageIDsToRemoveFromCache);
             metadataRemovalPreparedStatement.executeBatch();
-            connection.commit();
+            if (null != rangeRemovalPreparedStatement) {
+                rangeRemovalPreparedStatement.executeBatch();
+            }
+            sharedContentIDs = removeContentReferences(lease, messagesToRemove);
+            lease.getConnection().commit();
 
             if (log.isDebugEnabled()) {
                 log.debug("Metadata and content removed: " + messagesToRemove.size() + " for destination queue:"
                         + storageQueueName);
             }
         } catch (SQLException e) {
-            rollback(connection, RDBMSConstants.TASK_DELETING_METADATA_FROM_QUEUE + storageQueueName + " and "
+            rollback(lease, RDBMSConstants.TASK_DELETING_METADATA_FROM_QUEUE + storageQueueName + " and "
                     + RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
             throw rdbmsStoreUtils
                     .convertSQLException("error occurred while deleting message metadata and content for " + "queue ",
@@ -1152,9 +1505,39 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         } finally {
             messageDeletionContext.stop();
             contextWrite.stop();
-            close(connection, metadataRemovalPreparedStatement,
-                    RDBMSConstants.TASK_DELETING_METADATA_FROM_QUEUE + storageQueueName + " and "
-                            + RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
+            connectionManager.release(lease);
+        }
+        deleteUnreferencedContent(sharedContentIDs);
+    }
+
+    /**
+     * Split message IDs to delete into runs of consecutive IDs removed with a single range delete and IDs removed
+     * one by one. Every ID within a range is in the given list, hence a range delete removes no other message. Runs
+     * shorter than {@link #MIN_METADATA_RANGE_DELETE_SIZE} are deleted one by one.
+     *
+     * @param sortedMessageIDs message IDs in ascending order. Duplicates are deleted once.
+     * @param singleMessageIDs list to add the IDs deleted one by one to
+     * @param rangeBounds      list to add the first and the last ID of each range to
+     */
+    static void splitIntoDeleteRanges(LongArrayList sortedMessageIDs, LongArrayList singleMessageIDs,
+                                      LongArrayList rangeBounds) {
+        int runStart = 0;
+        for (int i = 1; i <= sortedMessageIDs.size(); i++) {
+            // A run continues with the same or the next ID
+            if (i < sortedMessageIDs.size() && sortedMessageIDs.get(i) - sortedMessageIDs.get(i - 1) <= 1) {
+                continue;
+            }
+            long firstID = sortedMessageIDs.get(runStart);
+            long lastID = sortedMessageIDs.get(i - 1);
+            if (lastID - firstID + 1 >= MIN_METADATA_RANGE_DELETE_SIZE) {
+                rangeBounds.add(firstID);
+                rangeBounds.add(lastID);
+            } else {
+                for (long messageID = firstID; messageID <= lastID; messageID++) {
+                    singleMessageIDs.add(messageID);
+                }
+            }
+            runStart = i;
         }
     }
 
@@ -1163,8 +1546,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     public void deleteMessages(List<Long> messagesToRemove)
             throws AndesException {
-        Connection connection = null;
-        PreparedStatement metadataRemovalPreparedStatement = null;
+        ConnectionLease lease = null;
+        PreparedStatement metadataRemovalPreparedStatement;
+        LongHashSet sharedContentIDs;
 
         Context messageDeletionContext = MetricManager
                 .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT).start();
@@ -1173,11 +1557,11 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         try {
 
             LongArrayList messageIDsToRemoveFromCache = new LongArrayList();
-            connection = getConnection();
+            lease = connectionManager.acquire();
 
             //Since referential integrity is imposed on the two tables: message content and metadata,
             //deleting message metadata will cause message content to be automatically deleted
-            metadataRemovalPreparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA);
+            metadataRemovalPreparedStatement = lease.prepareStatement(RDBMSConstants.PS_DELETE_METADATA);
 
             for (long messageID : messagesToRemove) {
                 //add parameters to delete metadata
@@ -1188,20 +1572,23 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
             removeFromCache(messageIDsToRemoveFromCache);
             metadataRemovalPreparedStatement.executeBatch();
-            connection.commit();
+            // Content IDs of the messages are not known, hence they are read from the references being removed
+            sharedContentIDs = removeContentReferences(lease, messageIDsToRemoveFromCache);
+            lease.getConnection().commit();
 
             if (log.isDebugEnabled()) {
                 log.debug("Metadata and content removed: " + messagesToRemove.size());
             }
         } catch (SQLException e) {
-            rollback(connection, RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
+            rollback(lease, RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
             throw rdbmsStoreUtils.convertSQLException("error occurred while deleting message metadata and content for "
                     + "queue ", e);
         } finally {
             messageDeletionContext.stop();
             contextWrite.stop();
-            close(connection, metadataRemovalPreparedStatement, RDBMSConstants.TASK_DELETING_MESSAGE_PARTS);
+            connectionManager.release(lease);
         }
+        deleteUnreferencedContent(sharedContentIDs);
     }
 
     /**
@@ -1209,19 +1596,20 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     @Override
     public void deleteDLCMessages(List<AndesMessageMetadata> messagesToRemove) throws AndesException {
-        Connection connection = null;
-        PreparedStatement metadataRemovalPreparedStatement = null;
+        ConnectionLease lease = null;
 
         Context messageDeletionContext = MetricManager
                 .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT).start();
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+        LongHashSet sharedContentIDs;
 
         try {
-            connection = getConnection();
+            lease = connectionManager.acquire();
 
             //Since referential integrity is imposed on the two tables: message content and metadata,
             //deleting message metadata will cause message content to be automatically deleted
-            metadataRemovalPreparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_IN_DLC);
+            PreparedStatement metadataRemovalPreparedStatement =
+                    lease.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_IN_DLC);
 
             for (AndesMessageMetadata message : messagesToRemove) {
                 //add parameters to delete metadata
@@ -1230,18 +1618,211 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             }
 
             metadataRemovalPreparedStatement.executeBatch();
-            connection.commit();
+            sharedContentIDs = removeContentReferences(lease, messagesToRemove);
+            lease.getConnection().commit();
 
             if (log.isDebugEnabled()) {
                 log.debug("Messages removed: " + messagesToRemove.size() + " from DLC");
             }
         } catch (SQLException e) {
-            rollback(connection, RDBMSConstants.TASK_DELETING_MESSAGE_FROM_DLC);
+            rollback(lease, RDBMSConstants.TASK_DELETING_MESSAGE_FROM_DLC);
             throw rdbmsStoreUtils.convertSQLException("error occurred while deleting message in dlc.", e);
         } finally {
             messageDeletionContext.stop();
             contextWrite.stop();
-            close(connection, metadataRemovalPreparedStatement, RDBMSConstants.TASK_DELETING_MESSAGE_FROM_DLC);
+            connectionManager.release(lease);
+        }
+        deleteUnreferencedContent(sharedContentIDs);
+    }
+
+    /**
+     * Remove the references of the given messages to the content they share. Only the messages which may share
+     * content are looked up, so that the references are not read for every removed message. Removal is done within
+     * the transaction of the lease and is not committed.
+     *
+     * @param lease    connection the messages are removed with
+     * @param messages messages being removed
+     * @return IDs of the content referred by the messages
+     * @throws SQLException
+     */
+    private LongHashSet removeContentReferences(ConnectionLease lease, List<? extends AndesMessageMetadata> messages)
+            throws SQLException {
+        LongArrayList messageIDs = new LongArrayList();
+        for (AndesMessageMetadata message : messages) {
+            if (message.mayShareContent()) {
+                messageIDs.add(message.getMessageID());
+            }
+        }
+
+        if (messageIDs.isEmpty()) {
+            return new LongHashSet();
+        }
+        return removeContentReferences(lease, messageIDs);
+    }
+
+    /**
+     * Remove the references of the given messages, for the messages which have one. Content IDs are read from the
+     * references since they are not known by the caller. Removal is done within the transaction of the lease and
+     * is not committed.
+     *
+     * @param lease      connection the messages are removed with
+     * @param messageIDs IDs of the messages being removed
+     * @return IDs of the content referred by the messages
+     * @throws SQLException
+     */
+    private LongHashSet removeContentReferences(ConnectionLease lease, LongArrayList messageIDs)
+            throws SQLException {
+        LongHashSet sharedContentIDs = new LongHashSet();
+        LongArrayList referringMessageIDs = new LongArrayList();
+
+        for (int chunkStart = 0; chunkStart < messageIDs.size(); chunkStart += MAX_IN_CLAUSE_SIZE) {
+            int chunkEnd = Math.min(chunkStart + MAX_IN_CLAUSE_SIZE, messageIDs.size());
+            int messageCount = chunkEnd - chunkStart;
+            int parameterCount = getPaddedInClauseSize(messageCount);
+
+            PreparedStatement preparedStatement = lease.prepareStatement(
+                    getInClauseStatement(PS_SELECT_CONTENT_REFERENCE_PART, parameterCount));
+            for (int parameterIndex = 0; parameterIndex < parameterCount; parameterIndex++) {
+                preparedStatement.setLong(parameterIndex + 1,
+                        messageIDs.get(chunkStart + Math.min(parameterIndex, messageCount - 1)));
+            }
+
+            ResultSet resultSet = null;
+            try {
+                resultSet = preparedStatement.executeQuery();
+                while (resultSet.next()) {
+                    referringMessageIDs.add(resultSet.getLong(MESSAGE_ID));
+                    sharedContentIDs.add(resultSet.getLong(CONTENT_ID));
+                }
+            } finally {
+                close(resultSet, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
+            }
+        }
+
+        if (!referringMessageIDs.isEmpty()) {
+            PreparedStatement preparedStatement = lease.prepareStatement(RDBMSConstants.PS_DELETE_CONTENT_REFERENCE);
+            for (int i = 0; i < referringMessageIDs.size(); i++) {
+                preparedStatement.setLong(1, referringMessageIDs.get(i));
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+        return sharedContentIDs;
+    }
+
+    /**
+     * Remove the references of all the messages of a queue, or of a DLC queue, before the messages are removed.
+     * Removal is done within the transaction of the connection and is not committed.
+     *
+     * @param connection         connection the messages are removed with
+     * @param contentIDSelection query for the content IDs referred by the messages
+     * @param referenceRemoval   statement removing the references of the messages
+     * @param queueID            ID of the queue
+     * @return IDs of the content referred by the messages
+     * @throws SQLException
+     */
+    private LongHashSet removeContentReferencesOfQueue(Connection connection, String contentIDSelection,
+            String referenceRemoval, int queueID) throws SQLException {
+        LongHashSet sharedContentIDs = new LongHashSet();
+        PreparedStatement selectionPreparedStatement = null;
+        PreparedStatement removalPreparedStatement = null;
+        ResultSet resultSet = null;
+
+        try {
+            selectionPreparedStatement = connection.prepareStatement(contentIDSelection);
+            selectionPreparedStatement.setInt(1, queueID);
+            resultSet = selectionPreparedStatement.executeQuery();
+            while (resultSet.next()) {
+                sharedContentIDs.add(resultSet.getLong(CONTENT_ID));
+            }
+
+            if (!sharedContentIDs.isEmpty()) {
+                removalPreparedStatement = connection.prepareStatement(referenceRemoval);
+                removalPreparedStatement.setInt(1, queueID);
+                removalPreparedStatement.executeUpdate();
+            }
+        } finally {
+            close(resultSet, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
+            close(selectionPreparedStatement, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
+            close(removalPreparedStatement, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
+        }
+        return sharedContentIDs;
+    }
+
+    /**
+     * Delete shared content which is not referred by any message anymore. Should be called after the removal of the
+     * references is committed, so that the last one to remove a reference sees no references left.
+     *
+     * @param contentIDs IDs of content of which references were removed
+     * @throws AndesException
+     */
+    private void deleteUnreferencedContent(LongHashSet contentIDs) throws AndesException {
+        if (contentIDs.isEmpty()) {
+            return;
+        }
+
+        ConnectionLease lease = null;
+        PreparedStatement preparedStatement;
+        Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+
+        try {
+            lease = connectionManager.acquire();
+            preparedStatement = lease.prepareStatement(RDBMSConstants.PS_DELETE_UNREFERENCED_CONTENT);
+
+            MutableLongIterator iterator = contentIDs.longIterator();
+            while (iterator.hasNext()) {
+                long contentID = iterator.next();
+                preparedStatement.setLong(1, contentID);
+                preparedStatement.setLong(2, contentID);
+                preparedStatement.addBatch();
+            }
+
+            preparedStatement.executeBatch();
+            lease.getConnection().commit();
+        } catch (SQLException e) {
+            rollback(lease, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
+            throw rdbmsStoreUtils.convertSQLException("error occurred while deleting unreferenced shared content", e);
+        } finally {
+            contextWrite.stop();
+            connectionManager.release(lease);
+        }
+    }
+
+    /**
+     * Delete all the shared content which is not referred by any message. References of messages removed without
+     * removing their references, i.e. when the broker went down while removing messages, are deleted first. This
+     * scans the whole store, hence is run only when the store starts.
+     *
+     * @throws AndesException
+     */
+    private void deleteAllUnreferencedContent() throws AndesException {
+        Connection connection = null;
+        PreparedStatement referenceRemovalPreparedStatement = null;
+        PreparedStatement contentRemovalPreparedStatement = null;
+        Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+
+        try {
+            connection = getConnection();
+
+            referenceRemovalPreparedStatement = connection
+                    .prepareStatement(RDBMSConstants.PS_DELETE_ORPHANED_CONTENT_REFERENCES);
+            referenceRemovalPreparedStatement.executeUpdate();
+
+            contentRemovalPreparedStatement = connection
+                    .prepareStatement(RDBMSConstants.PS_DELETE_ALL_UNREFERENCED_CONTENT);
+            int deletedContentCount = contentRemovalPreparedStatement.executeUpdate();
+            connection.commit();
+
+            if (log.isDebugEnabled()) {
+                log.debug("Deleted " + deletedContentCount + " unreferenced shared content");
+            }
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
+            throw rdbmsStoreUtils.convertSQLException("error occurred while deleting unreferenced shared content", e);
+        } finally {
+            contextWrite.stop();
+            close(referenceRemovalPreparedStatement, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
+            close(connection, contentRemovalPreparedStatement, RDBMSConstants.TASK_DELETING_UNREFERENCED_CONTENT);
         }
     }
 
@@ -1319,8 +1900,40 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      * {@inheritDoc}
      */
     @Override
-    public void close() {
+    public List<ExpiringMessage> getExpiringMessages() throws AndesException {
+
+        Connection connection = null;
+        List<ExpiringMessage> list = new ArrayList<>();
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        Context contextRead = MetricManager.timer(MetricsConstants.DB_READ, Level.INFO).start();
 
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_EXPIRY_DATA);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                list.add(new ExpiringMessage(resultSet.getLong(RDBMSConstants.MESSAGE_ID),
+                        resultSet.getLong(RDBMSConstants.EXPIRATION_TIME),
+                        resultSet.getString(RDBMSConstants.DESTINATION_QUEUE)));
+            }
+            return list;
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("error occurred while retrieving expiry data.", e);
+        } finally {
+            contextRead.stop();
+            close(connection, preparedStatement, resultSet, RDBMSConstants.TASK_RETRIEVING_EXPIRY_DATA);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        connectionManager.close();
     }
 
     /**
@@ -1482,6 +2095,24 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * On database update failure tries to rollback the transaction of a leased connection. The connection is not
+     * reused if the rollback fails.
+     *
+     * @param lease leased database connection
+     * @param task  explanation of the task done when the rollback was triggered
+     */
+    private void rollback(ConnectionLease lease, String task) {
+        if (null != lease) {
+            try {
+                lease.getConnection().rollback();
+            } catch (SQLException e) {
+                lease.invalidate();
+                log.warn("Rollback failed on " + task, e);
+            }
+        }
+    }
+
     /**
      * Close the prepared statement resource.
      *
@@ -1561,10 +2192,14 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         PreparedStatement preparedStatement = null;
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
         int deletedMessagecount = 0;
+        LongHashSet sharedContentIDs;
         try {
             int queueID = getCachedQueueID(storageQueueName);
 
             connection = getConnection();
+            sharedContentIDs = removeContentReferencesOfQueue(connection,
+                    RDBMSConstants.PS_SELECT_CONTENT_IDS_OF_QUEUE,
+                    RDBMSConstants.PS_DELETE_CONTENT_REFERENCES_OF_QUEUE, queueID);
             preparedStatement = connection.prepareStatement(RDBMSConstants.PS_CLEAR_QUEUE_FROM_METADATA);
             preparedStatement.setInt(1, queueID);
             deletedMessagecount = preparedStatement.executeUpdate();
@@ -1581,6 +2216,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             contextWrite.stop();
             close(connection, preparedStatement, RDBMSConstants.TASK_DELETING_METADATA_FROM_QUEUE + storageQueueName);
         }
+        deleteUnreferencedContent(sharedContentIDs);
         return deletedMessagecount;
     }
 
@@ -1593,10 +2229,13 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         PreparedStatement preparedStatement = null;
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
         int deletedMessagecount = 0;
+        LongHashSet sharedContentIDs;
         try {
             int queueID = getCachedQueueID(dlcQueueName);
 
             connection = getConnection();
+            sharedContentIDs = removeContentReferencesOfQueue(connection, RDBMSConstants.PS_SELECT_CONTENT_IDS_IN_DLC,
+                    RDBMSConstants.PS_DELETE_CONTENT_REFERENCES_IN_DLC, queueID);
             preparedStatement = connection.prepareStatement(RDBMSConstants.PS_CLEAR_DLC_QUEUE);
             preparedStatement.setInt(1, queueID);
 
@@ -1614,6 +2253,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             contextWrite.stop();
             close(connection, preparedStatement, RDBMSConstants.TASK_CLEARING_DLC_QUEUE + dlcQueueName);
         }
+        deleteUnreferencedContent(sharedContentIDs);
         return deletedMessagecount;
     }
 
@@ -1822,9 +2462,16 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         Context contextWrite = MetricManager.timer(MetricsConstants.DB_WRITE, Level.INFO).start();
+        LongHashSet sharedContentIDs;
 
         try {
+            int queueID = getCachedQueueID(storageQueueName);
             connection = getConnection();
+            // Messages of the queue are removed along with the queue mapping, hence their references are removed
+            // beforehand
+            sharedContentIDs = removeContentReferencesOfQueue(connection,
+                    RDBMSConstants.PS_SELECT_CONTENT_IDS_OF_QUEUE,
+                    RDBMSConstants.PS_DELETE_CONTENT_REFERENCES_OF_QUEUE, queueID);
             preparedStatement = connection.prepareStatement(RDBMSConstants.PS_DELETE_QUEUE);
             preparedStatement.setString(1, storageQueueName);
             preparedStatement.execute();
@@ -1838,6 +2485,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             close(preparedStatement, RDBMSConstants.TASK_DELETE_QUEUE_MAPPING);
             close(connection, RDBMSConstants.TASK_DELETE_QUEUE_MAPPING);
         }
+        deleteUnreferencedContent(sharedContentIDs);
     }
 
     /**
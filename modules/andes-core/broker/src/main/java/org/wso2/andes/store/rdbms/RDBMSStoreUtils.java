@@ -21,6 +21,7 @@ package org.wso2.andes.store.rdbms;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DataTruncation;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLClientInfoException;
@@ -37,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
@@ -59,6 +61,13 @@ public class RDBMSStoreUtils {
 
     private static final Logger log = Logger.getLogger(RDBMSStoreUtils.class);
 
+    /**
+     * Database product names, in lower case, of databases accepting multiple rows in the VALUES clause of an
+     * INSERT statement
+     */
+    private static final String[] MULTI_ROW_INSERT_DATABASES =
+            { "mysql", "mariadb", "postgresql", "h2", "microsoft sql server", "db2" };
+
     /**
      * Keep track of SQL state code classes (i.e first two digits)
      * corresponding to database connectivity errors
@@ -181,6 +190,77 @@ public class RDBMSStoreUtils {
   
     
     
+    /**
+     * Check if the database accepts multiple rows in the VALUES clause of an INSERT statement
+     *
+     * @param connection connection to the database
+     * @return true if multi-row inserts are supported
+     * @throws SQLException if the database product could not be read
+     */
+    public boolean isMultiRowInsertSupported(Connection connection) throws SQLException {
+        String productName = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ENGLISH);
+        for (String databaseName : MULTI_ROW_INSERT_DATABASES) {
+            if (productName.contains(databaseName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a table exists in the database. Table names are matched as given, in upper case and in lower case
+     * since databases differ in how they store unquoted names.
+     *
+     * @param connection connection to the database
+     * @param tableName  name of the table
+     * @return true if the table exists
+     * @throws SQLException if the database metadata could not be read
+     */
+    public boolean isTableExists(Connection connection, String tableName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String candidateName : getCandidateNames(tableName)) {
+            ResultSet resultSet = metaData.getTables(null, null, candidateName, null);
+            try {
+                if (resultSet.next()) {
+                    return true;
+                }
+            } finally {
+                close(resultSet, "checking existence of table " + tableName);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a column exists in a table. Names are matched as given, in upper case and in lower case.
+     *
+     * @param connection connection to the database
+     * @param tableName  name of the table
+     * @param columnName name of the column
+     * @return true if the column exists
+     * @throws SQLException if the database metadata could not be read
+     */
+    public boolean isColumnExists(Connection connection, String tableName, String columnName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String[] candidateTableNames = getCandidateNames(tableName);
+        String[] candidateColumnNames = getCandidateNames(columnName);
+        for (int i = 0; i < candidateTableNames.length; i++) {
+            ResultSet resultSet = metaData.getColumns(null, null, candidateTableNames[i], candidateColumnNames[i]);
+            try {
+                if (resultSet.next()) {
+                    return true;
+                }
+            } finally {
+                close(resultSet, "checking existence of column " + columnName + " in table " + tableName);
+            }
+        }
+        return false;
+    }
+
+    private String[] getCandidateNames(String name) {
+        return new String[] { name, name.toUpperCase(Locale.ENGLISH), name.toLowerCase(Locale.ENGLISH) };
+    }
+
     /**
      * Inserts a test record
      * 
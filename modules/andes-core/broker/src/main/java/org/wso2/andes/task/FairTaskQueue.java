@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.task;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduling queue of {@link TaskHolder}s used by {@link TaskProcessor}s.
+ * <p>
+ * Ready tasks are served in start-time fair queuing order. Each task has a virtual time which advances by the
+ * execution time of the task divided by its weight. The ready task with the smallest virtual time runs next, hence
+ * a busy task cannot starve others and each task gets processing time proportional to its weight. A task becoming
+ * ready starts from the current virtual time, so time spent parked is not credited.
+ * <p>
+ * Tasks which did not do productive work are parked instead of being polled. A parked task becomes ready when it
+ * is woken up through {@link #wakeUp(TaskHolder)} or after its park time elapses. Park time doubles with each
+ * consecutive idle run up to a maximum, as a fallback for work that is not signalled.
+ */
+final class FairTaskQueue {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a task becomes ready or the earliest park deadline changes
+     */
+    private final Condition taskAvailable = lock.newCondition();
+
+    /**
+     * Ready tasks ordered by virtual time
+     */
+    private final PriorityQueue<TaskHolder> readyQueue;
+
+    /**
+     * Park entries ordered by deadline. Entries of tasks woken up before the deadline are discarded lazily.
+     */
+    private final PriorityQueue<ParkEntry> parkedQueue;
+
+    /**
+     * Park time after the first idle run
+     */
+    private final long minIdleDelayNanos;
+
+    /**
+     * Maximum park time of a task
+     */
+    private final long maxIdleDelayNanos;
+
+    /**
+     * Virtual time of the last dispatched task
+     */
+    private long virtualTime;
+
+    /**
+     * Number of tasks in the queue, excluding running tasks
+     */
+    private int taskCount;
+
+    /**
+     * Create a scheduling queue
+     *
+     * @param minIdleDelayMillis park time of a task after its first idle run
+     * @param maxIdleDelayMillis maximum park time of a task
+     */
+    FairTaskQueue(long minIdleDelayMillis, long maxIdleDelayMillis) {
+        this.minIdleDelayNanos = TimeUnit.MILLISECONDS.toNanos(minIdleDelayMillis);
+        this.maxIdleDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(minIdleDelayMillis, maxIdleDelayMillis));
+        readyQueue = new PriorityQueue<>(64, new Comparator<TaskHolder>() {
+            @Override
+            public int compare(TaskHolder holder1, TaskHolder holder2) {
+                return Long.compare(holder1.virtualTime, holder2.virtualTime);
+            }
+        });
+        parkedQueue = new PriorityQueue<>(64, new Comparator<ParkEntry>() {
+            @Override
+            public int compare(ParkEntry entry1, ParkEntry entry2) {
+                return Long.compare(entry1.deadline - entry2.deadline, 0);
+            }
+        });
+    }
+
+    /**
+     * Add a new task. The task is ready to run immediately.
+     *
+     * @param taskHolder holder of the task
+     */
+    void add(TaskHolder taskHolder) {
+        lock.lock();
+        try {
+            taskCount++;
+            makeReady(taskHolder, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the next task to run. Blocks until a task is ready.
+     *
+     * @return holder of the task to run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    TaskHolder take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                promoteDueTasks(now);
+
+                TaskHolder taskHolder = readyQueue.poll();
+                if (null != taskHolder) {
+                    taskCount--;
+                    taskHolder.state = TaskHolder.State.RUNNING;
+                    virtualTime = Math.max(virtualTime, taskHolder.virtualTime);
+                    taskHolder.executionDelayNanos = now - taskHolder.readySince;
+                    return taskHolder;
+                }
+
+                ParkEntry earliest = parkedQueue.peek();
+                if (null == earliest) {
+                    taskAvailable.await();
+                } else {
+                    taskAvailable.awaitNanos(earliest.deadline - now);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Put back a task taken by {@link #take()} after running it
+     *
+     * @param taskHolder        holder of the task
+     * @param executionTimeNanos time spent running the task
+     * @param isIdle            whether the task did productive work in the run
+     */
+    void reschedule(TaskHolder taskHolder, long executionTimeNanos, boolean isIdle) {
+        lock.lock();
+        try {
+            taskCount++;
+            taskHolder.virtualTime = taskHolder.virtualTime
+                    + Math.max(executionTimeNanos, 1) / Math.max(taskHolder.getTask().getWeight(), 1);
+            long now = System.nanoTime();
+
+            if (!isIdle || taskHolder.wakeUpPending) {
+                taskHolder.consecutiveIdleRuns = 0;
+                makeReady(taskHolder, now);
+            } else {
+                long delay = maxIdleDelayNanos;
+                if (taskHolder.consecutiveIdleRuns < 32) {
+                    delay = Math.min(minIdleDelayNanos << taskHolder.consecutiveIdleRuns, maxIdleDelayNanos);
+                }
+                taskHolder.consecutiveIdleRuns++;
+                taskHolder.state = TaskHolder.State.PARKED;
+                taskHolder.parkGeneration++;
+                parkedQueue.add(new ParkEntry(taskHolder, now + delay));
+                taskAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Make a parked task ready to run. If the task is running at the moment it is made ready as soon as the run
+     * completes.
+     *
+     * @param taskHolder holder of the task
+     */
+    void wakeUp(TaskHolder taskHolder) {
+        // A ready task, or a running task with a wake up already pending, will run again anyway. The lock is
+        // skipped for these since wake ups are frequent on busy queues.
+        TaskHolder.State state = taskHolder.state;
+        if (TaskHolder.State.READY == state
+                || (TaskHolder.State.RUNNING == state && taskHolder.wakeUpPending)) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (TaskHolder.State.PARKED == taskHolder.state) {
+                taskHolder.consecutiveIdleRuns = 0;
+                makeReady(taskHolder, System.nanoTime());
+            } else if (TaskHolder.State.RUNNING == taskHolder.state) {
+                taskHolder.wakeUpPending = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of tasks waiting in the queue
+     *
+     * @return number of ready and parked tasks
+     */
+    int size() {
+        lock.lock();
+        try {
+            return taskCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move parked tasks whose deadline has passed to the ready queue
+     *
+     * @param now current time in nanoseconds
+     */
+    private void promoteDueTasks(long now) {
+        ParkEntry entry = parkedQueue.peek();
+        while (null != entry && entry.deadline - now <= 0) {
+            parkedQueue.poll();
+            TaskHolder taskHolder = entry.taskHolder;
+            if (TaskHolder.State.PARKED == taskHolder.state && entry.generation == taskHolder.parkGeneration) {
+                makeReady(taskHolder, now);
+            }
+            entry = parkedQueue.peek();
+        }
+    }
+
+    private void makeReady(TaskHolder taskHolder, long now) {
+        taskHolder.state = TaskHolder.State.READY;
+        taskHolder.wakeUpPending = false;
+        taskHolder.readySince = now;
+        // Time spent parked is not credited, otherwise a task waking up would monopolise processors
+        taskHolder.virtualTime = Math.max(taskHolder.virtualTime, virtualTime);
+        readyQueue.add(taskHolder);
+        taskAvailable.signal();
+    }
+
+    /**
+     * Park deadline of a task. Valid only if the task is still parked with the same generation.
+     */
+    private static final class ParkEntry {
+
+        private final TaskHolder taskHolder;
+
+        private final long deadline;
+
+        private final long generation;
+
+        ParkEntry(TaskHolder taskHolder, long deadline) {
+            this.taskHolder = taskHolder;
+            this.deadline = deadline;
+            this.generation = taskHolder.parkGeneration;
+        }
+    }
+}
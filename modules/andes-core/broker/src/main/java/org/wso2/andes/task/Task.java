@@ -22,7 +22,7 @@ import java.util.concurrent.Callable;
 
 /**
  *
- * This task will be processed by {@link TaskExecutorService} using {@link TaskProcessor} in a round robin manner
+ * This task will be processed by {@link TaskExecutorService} using {@link TaskProcessor} in a weighted fair manner
  *
  */
 public abstract class Task implements Callable<Task.TaskHint> {
@@ -61,6 +61,25 @@ public abstract class Task implements Callable<Task.TaskHint> {
      */
     public abstract String getId();
 
+    /**
+     * Weight of the task when sharing processors with other tasks. A task gets processing time proportional to its
+     * weight while it has work to do.
+     *
+     * @return weight, at least 1
+     */
+    public int getWeight() {
+        return 1;
+    }
+
+    /**
+     * Callback invoked before each execution of the task with the time the task waited to be processed after it
+     * became ready
+     *
+     * @param delayNanos waiting time in nanoseconds
+     */
+    public void onExecutionDelay(long delayNanos) {
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -25,15 +25,14 @@ import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.DelayQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Manage processing of {@link Task}. Holds the {@link TaskHolder} ring and the {@link TaskProcessor} list that
- * process the {@link Task}
+ * Manage processing of {@link Task}. Holds the {@link FairTaskQueue} of {@link TaskHolder}s and the
+ * {@link TaskProcessor} list that process the {@link Task}
  */
 public final class TaskExecutorService<T extends Task> {
 
@@ -43,9 +42,10 @@ public final class TaskExecutorService<T extends Task> {
     private static Log log = LogFactory.getLog(TaskExecutorService.class);
 
     /**
-     * {@link DelayQueue} used by processors to schedule tasks. Idle task will be processed after a delay
+     * {@link FairTaskQueue} used by processors to schedule tasks. Idle tasks are parked until woken up or until
+     * their park time elapses
      */
-    private final DelayQueue<TaskHolder> taskHolderDelayQueue;
+    private final FairTaskQueue taskHolderQueue;
 
     /**
      * Mapping of registered tasks with its task id
@@ -78,27 +78,37 @@ public final class TaskExecutorService<T extends Task> {
     private TaskExceptionHandler taskExceptionHandler;
 
     /**
-     * Delay for processing IDLE tasks in the next iteration
+     * Create a Task manager with a given number of threads to process the tasks. IDLE tasks are delayed by a fixed
+     * time.
+     *
+     * @param workerCount maximum number of threads spawned to process the tasks
+     * @param idleTaskDelayMillis delay set for processing a task with IDLE {@link org.wso2.andes.task.Task.TaskHint}
+     * @param threadFactory  thread factory to be used for processing the tasks
      */
-    private long idleTaskDelayMillis;
+    public TaskExecutorService(int workerCount, long idleTaskDelayMillis, ThreadFactory threadFactory) {
+        this(workerCount, idleTaskDelayMillis, idleTaskDelayMillis, threadFactory);
+    }
 
     /**
-     * Create a Task manager with a given number of threads to process the tasks
+     * Create a Task manager with a given number of threads to process the tasks. Delay of an IDLE task doubles
+     * with each consecutive IDLE run, starting from the minimum delay, until the task is woken up through
+     * {@link #wakeUp(String)} or does productive work.
      *
      * @param workerCount maximum number of threads spawned to process the tasks
-     * @param idleTaskDelayMillis delay set for processing a task with IDLE {@link org.wso2.andes.task.Task.TaskHint}
+     * @param minIdleTaskDelayMillis delay set for a task after its first IDLE run
+     * @param maxIdleTaskDelayMillis maximum delay set for a task with IDLE {@link org.wso2.andes.task.Task.TaskHint}
      * @param threadFactory  thread factory to be used for processing the tasks
      */
-    public TaskExecutorService(int workerCount, long idleTaskDelayMillis, ThreadFactory threadFactory) {
+    public TaskExecutorService(int workerCount, long minIdleTaskDelayMillis, long maxIdleTaskDelayMillis,
+            ThreadFactory threadFactory) {
 
         taskExecutorPool = Executors.newFixedThreadPool(workerCount, threadFactory);
         this.workerCount = workerCount;
         taskProcessorQueue = new ArrayDeque<>(workerCount);
         taskUpdateExecutorService = Executors.newSingleThreadExecutor(threadFactory);
         taskExceptionHandler = new DefaultExceptionHandler();
-        taskHolderDelayQueue = new DelayQueue<>();
+        taskHolderQueue = new FairTaskQueue(minIdleTaskDelayMillis, maxIdleTaskDelayMillis);
         taskHolderRegistry = new ConcurrentHashMap<>();
-        this.idleTaskDelayMillis = idleTaskDelayMillis;
     }
 
     /**
@@ -127,6 +137,19 @@ public final class TaskExecutorService<T extends Task> {
         taskUpdateExecutorService.submit(new RemoveRequest(id));
     }
 
+    /**
+     * Wake up the {@link Task} with the given task id, if it is waiting after an IDLE run. If the task is running
+     * at the moment it is processed again right after the run. Call this when there is new work for the task.
+     *
+     * @param id ID of the {@link Task} to wake up
+     */
+    public void wakeUp(String id) {
+        TaskHolder<T> taskHolder = taskHolderRegistry.get(id);
+        if (null != taskHolder) {
+            taskHolderQueue.wakeUp(taskHolder);
+        }
+    }
+
     /**
      * Returns the {@link Task} implementation relevant to the task id
      *
@@ -145,7 +168,7 @@ public final class TaskExecutorService<T extends Task> {
      * Stop processing the tasks
      */
     public synchronized void stop() {
-        log.info("Stopping task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Stopping task manager. Task count " + taskHolderQueue.size());
         for (TaskProcessor taskProcessor : taskProcessorQueue) {
             taskProcessor.deactivate();
         }
@@ -181,11 +204,11 @@ public final class TaskExecutorService<T extends Task> {
      * Start processing the tasks
      */
     public synchronized void start() {
-        log.info("Starting task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Starting task manager. Task count " + taskHolderQueue.size());
 
         for (int i = 0; i < workerCount; i++) {
             TaskProcessor taskProcessor =
-                    new TaskProcessor(taskHolderDelayQueue, taskExceptionHandler, idleTaskDelayMillis);
+                    new TaskProcessor(taskHolderQueue, taskExceptionHandler);
             taskProcessorQueue.add(taskProcessor);
             taskExecutorPool.submit(taskProcessor);
         }
@@ -218,12 +241,12 @@ public final class TaskExecutorService<T extends Task> {
                     return;
                 }
                 TaskHolder<T> taskHolder = new TaskHolder<>(task);
-                task.onAdd(); // Invoke task callback before adding the task to the taskHolderDelayQueue
+                task.onAdd(); // Invoke task callback before adding the task to the taskHolderQueue
                               // to be processed
                 taskHolderRegistry.put(task.getId(), taskHolder);
-                taskHolderDelayQueue.add(taskHolder);
+                taskHolderQueue.add(taskHolder);
                 if (log.isDebugEnabled()) {
-                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderQueue.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while adding Task " + task, e);
@@ -247,8 +270,9 @@ public final class TaskExecutorService<T extends Task> {
             try {
                 TaskHolder taskHolder = taskHolderRegistry.remove(id);
                 taskHolder.disableProcessing(); // disable processors from processing the task
+                taskHolderQueue.wakeUp(taskHolder); // so that a parked task is removed without waiting
                 if (log.isDebugEnabled()) {
-                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderQueue.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while removing task. Task id " + id, e);
@@ -18,15 +18,32 @@
 
 package org.wso2.andes.task;
 
-import java.util.concurrent.Delayed;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Holds a single {@link Task}. Has references to the next and previous {@link TaskHolder} of the {@link TaskHolder}
- * ring
+ * Holds a single {@link Task} along with its scheduling state in the {@link FairTaskQueue}
  */
-final class TaskHolder<T extends Task> implements Delayed {
+final class TaskHolder<T extends Task> {
+
+    /**
+     * Scheduling state of a task
+     */
+    enum State {
+        /**
+         * Waiting in the ready queue to be processed
+         */
+        READY,
+
+        /**
+         * Taken by a {@link TaskProcessor}
+         */
+        RUNNING,
+
+        /**
+         * Waiting for a wake up or the park time to elapse
+         */
+        PARKED
+    }
 
     /**
      * {@link Task} implementation related to this {@link TaskHolder}
@@ -43,11 +60,45 @@ final class TaskHolder<T extends Task> implements Delayed {
      */
     private AtomicBoolean isProcessing;
 
+    /*
+     * Following fields are guarded by the lock of the FairTaskQueue. State and wakeUpPending are also read
+     * without the lock to skip redundant wake ups.
+     */
+
+    /**
+     * Scheduling state of the task
+     */
+    volatile State state;
+
     /**
-     * Task expiry time in milliseconds. Expired messages will be picked from the
-     * {@link java.util.concurrent.DelayQueue} by the {@link TaskProcessor}s
+     * Virtual time of the task. Advances by the execution time divided by the weight of the task.
      */
-    private long expiryTime;
+    long virtualTime;
+
+    /**
+     * Time in nanoseconds the task became ready
+     */
+    long readySince;
+
+    /**
+     * Time in nanoseconds the task waited in the ready queue before the current run
+     */
+    long executionDelayNanos;
+
+    /**
+     * Number of consecutive runs which did not do productive work
+     */
+    int consecutiveIdleRuns;
+
+    /**
+     * Whether a wake up was requested while the task was running
+     */
+    volatile boolean wakeUpPending;
+
+    /**
+     * Incremented each time the task is parked, to discard outdated park entries
+     */
+    long parkGeneration;
 
     /**
      * Create a {@link TaskHolder} instance with a {@link Task} implementation
@@ -57,7 +108,6 @@ final class TaskHolder<T extends Task> implements Delayed {
         this.task = task;
         this.isDisabled = new AtomicBoolean(false);
         this.isProcessing = new AtomicBoolean(false);
-        expiryTime = System.currentTimeMillis();
     }
 
     /**
@@ -131,60 +181,16 @@ final class TaskHolder<T extends Task> implements Delayed {
      * {@inheritDoc}
      */
     @Override
-    public long getDelay(TimeUnit unit) {
-        return unit.convert(expiryTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-    }
-
-    /**
-     * Set the expiry time for the {@link Delayed}
-     * @param delay delay
-     * @param timeUnit {@link TimeUnit}
-     */
-    void setDelay(long delay, TimeUnit timeUnit) {
-        this.expiryTime = System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(delay, timeUnit);
-    }
-
-    /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
-     *
-     * {@inheritDoc}
-     */
-    @Override
-    public int compareTo(Delayed delayedObject) {
-
-        int order = Long.compare(expiryTime, ((TaskHolder)delayedObject).expiryTime); // order by expiryTime
-        if (order == 0 ) {
-            order = getId().compareTo(((TaskHolder) delayedObject).getId()); // order by string id
-        }
-        return order;
+    public boolean equals(Object obj) {
+        return obj instanceof TaskHolder && ((TaskHolder) obj).getId().equals(getId());
     }
 
     /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
-     *
      * {@inheritDoc}
      */
     @Override
-    public boolean equals(Object obj) {
-        boolean isEqual;
-        if ( obj instanceof TaskHolder) {
-            isEqual = ((TaskHolder) obj).getId().compareTo(getId()) == 0;
-        } else {
-            isEqual = this.equals(obj);
-        }
-        return isEqual;
+    public int hashCode() {
+        return getId().hashCode();
     }
 
     /**
@@ -22,12 +22,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Process {@link Task} by going through each {@link TaskHolder} in the {@link TaskHolder} ring
+ * Process {@link Task}s taken from the {@link FairTaskQueue}
  */
 final class TaskProcessor implements Callable<Boolean> {
 
@@ -39,7 +37,7 @@ final class TaskProcessor implements Callable<Boolean> {
     /**
      * Reference to {@link TaskHolder} queue
      */
-    private DelayQueue<TaskHolder> taskHolderQueue;
+    private FairTaskQueue taskHolderQueue;
 
     /**
      * Whether the processor is active or not
@@ -51,16 +49,10 @@ final class TaskProcessor implements Callable<Boolean> {
      */
     private TaskExceptionHandler taskExceptionHandler;
 
-    /**
-     * Delay to be set for the IDLE tasks
-     */
-    private final long idleWaitTimeMillis;
-
-    TaskProcessor(DelayQueue<TaskHolder> taskQueue, TaskExceptionHandler exceptionHandler, long idleWaitTimeMillis) {
+    TaskProcessor(FairTaskQueue taskQueue, TaskExceptionHandler exceptionHandler) {
         isActive = new AtomicBoolean(false);
         this.taskExceptionHandler = exceptionHandler;
         this.taskHolderQueue = taskQueue;
-        this.idleWaitTimeMillis = idleWaitTimeMillis;
     }
 
     /**
@@ -79,13 +71,15 @@ final class TaskProcessor implements Callable<Boolean> {
             }
             while (isActive.get()) {
                 TaskHolder taskHolder = null;
-                long delay = 0; // No delay
+                boolean isIdle = false;
+                long executionStartTime = 0;
                 try {
                     taskHolder = taskHolderQueue.take(); // Wait if queue is empty
+                    // Taken before any task callback so that a callback failing never charges time since 0
+                    executionStartTime = System.nanoTime();
+                    taskHolder.getTask().onExecutionDelay(taskHolder.executionDelayNanos);
                     Task.TaskHint hint = taskHolder.executeTask();
-                    if (hint == Task.TaskHint.IDLE) {
-                        delay = idleWaitTimeMillis;
-                    }
+                    isIdle = (hint == Task.TaskHint.IDLE);
                 } catch (InterruptedException e) {
                     if (isActive.get()) {
                         taskExceptionHandler.handleException(e, "null");
@@ -105,10 +99,8 @@ final class TaskProcessor implements Callable<Boolean> {
                         if (taskHolder.isDisabled() ) {
                             taskHolder.onRemoveTask();
                         } else {
-                            // Add a delay when adding back to the queue. This ensures the TaskHolder is added to the
-                            // end of the queue. If not TaskHolder will be added to front of the queue
-                            taskHolder.setDelay(delay, TimeUnit.MILLISECONDS);
-                            taskHolderQueue.put(taskHolder);
+                            // Execution time is charged to the task so that busy tasks do not starve others
+                            taskHolderQueue.reschedule(taskHolder, System.nanoTime() - executionStartTime, isIdle);
                         }
                     }
                 }
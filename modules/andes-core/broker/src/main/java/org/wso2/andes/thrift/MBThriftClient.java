@@ -20,6 +20,7 @@ package org.wso2.andes.thrift;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocol;
@@ -37,6 +38,8 @@ import org.wso2.andes.thrift.slot.gen.SlotInfo;
 import org.wso2.andes.thrift.slot.gen.SlotManagementService;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
@@ -66,6 +69,12 @@ public class MBThriftClient {
 
     private static AtomicBoolean isConnected = new AtomicBoolean(false);
 
+    /**
+     * Whether the current coordinator accepts slots in batches. Coordinators running an older version do not
+     * know updateMessageIds, in which case slots are sent one at a time with updateMessageId.
+     */
+    private static volatile boolean batchUpdateSupported = true;
+
     /**
      * getSlot method. Returns Slot Object, when the
      * queue name is given
@@ -154,6 +163,83 @@ public class MBThriftClient {
         }
     }
 
+    /**
+     * Pass a batch of locally chosen slot ranges to the SlotManagerClusterMode in a single call. Slots are recorded
+     * as with {@link #updateMessageId(String, String, long, long, long)}.
+     *
+     * @param nodeId        unique hazelcast identifier of node.
+     * @param slots         locally chosen slots, in the order they were closed
+     * @param localSafeZone Minimum message ID of the node that is deemed safe after the last slot.
+     * @throws ConnectionException in case of an connection error
+     */
+    public static synchronized void updateMessageIds(String nodeId, List<Slot> slots, long localSafeZone)
+            throws ConnectionException {
+        List<SlotInfo> slotInfoList = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            SlotInfo slotInfo = new SlotInfo();
+            slotInfo.setStartMessageId(slot.getStartMessageId());
+            slotInfo.setEndMessageId(slot.getEndMessageId());
+            slotInfo.setQueueName(slot.getStorageQueueName());
+            slotInfo.setAssignedNodeId(nodeId);
+            slotInfoList.add(slotInfo);
+        }
+        try {
+            client = getServiceClient();
+            submitMessageIds(nodeId, slotInfoList, localSafeZone);
+        } catch (TException e) {
+            try {
+                //retry once
+                reConnectToServer();
+                submitMessageIds(nodeId, slotInfoList, localSafeZone);
+            } catch (TException e1) {
+                handleCoordinatorChanges();
+                throw new ConnectionException("Coordinator has changed", e);
+            }
+        } catch (ThriftClientException e) {
+            handleCoordinatorChanges();
+            throw new ConnectionException("Error occurred in thrift client " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Send a batch of slots to the coordinator. If the coordinator does not know updateMessageIds, slots are sent
+     * one at a time. The local safe zone sent with a slot is kept below the start of the slots not yet sent, so
+     * that the coordinator never holds a safe zone ahead of a slot it has not recorded.
+     *
+     * @param nodeId        unique hazelcast identifier of node.
+     * @param slotInfoList  slots in the order they were closed
+     * @param localSafeZone Minimum message ID of the node that is deemed safe after the last slot.
+     * @throws TException in case of an connection error
+     */
+    private static void submitMessageIds(String nodeId, List<SlotInfo> slotInfoList, long localSafeZone)
+            throws TException {
+        if (batchUpdateSupported) {
+            try {
+                client.updateMessageIds(nodeId, slotInfoList, localSafeZone);
+                return;
+            } catch (TApplicationException e) {
+                if (TApplicationException.UNKNOWN_METHOD != e.getType()) {
+                    throw e;
+                }
+                batchUpdateSupported = false;
+                log.warn("Coordinator does not support submitting slots in batches. Slots will be submitted one "
+                        + "at a time until the coordinator changes.");
+            }
+        }
+
+        long[] safeZones = new long[slotInfoList.size()];
+        long safeZone = localSafeZone;
+        for (int index = slotInfoList.size() - 1; index >= 0; index--) {
+            safeZones[index] = safeZone;
+            safeZone = Math.min(safeZone, slotInfoList.get(index).getStartMessageId());
+        }
+        for (int index = 0; index < slotInfoList.size(); index++) {
+            SlotInfo slotInfo = slotInfoList.get(index);
+            client.updateMessageId(slotInfo.getQueueName(), nodeId, slotInfo.getStartMessageId(),
+                    slotInfo.getEndMessageId(), safeZones[index]);
+        }
+    }
+
     /**
      * Delete the slot from SlotAssignmentMap when all the messages in the slot has been sent and
      * all the acks are received.
@@ -302,6 +388,7 @@ public class MBThriftClient {
      */
     private static void resetServiceClient() {
         client = null;
+        batchUpdateSupported = true;
         transport.close();
     }
 
@@ -334,6 +421,7 @@ public class MBThriftClient {
             transport.open();
             TProtocol protocol = new TBinaryProtocol(transport);
             client = new SlotManagementService.Client(protocol);
+            batchUpdateSupported = true;
             notifyConnection();
         } catch (TTransportException e) {
             log.error("Could not connect to the Thrift Server" , e);
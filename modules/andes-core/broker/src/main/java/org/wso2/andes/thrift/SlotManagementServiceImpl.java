@@ -26,6 +26,9 @@ import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
 import org.wso2.andes.thrift.slot.gen.SlotInfo;
 import org.wso2.andes.thrift.slot.gen.SlotManagementService;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This is the implementation of SlotManagementService interface. This class contains operations
  * does on slots through slot manager.When thrift client calls the services on
@@ -68,6 +71,25 @@ public class SlotManagementServiceImpl implements SlotManagementService.Iface {
         }
     }
 
+    @Override
+    public void updateMessageIds(String nodeId, List<SlotInfo> slotInfoList, long localSafeZone) throws TException {
+        if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
+            List<Slot> slots = new ArrayList<>(slotInfoList.size());
+            for (SlotInfo slotInfo : slotInfoList) {
+                slots.add(new Slot(slotInfo.getStartMessageId(), slotInfo.getEndMessageId(),
+                        slotInfo.getQueueName()));
+            }
+            try {
+                slotManager.updateMessageIDs(nodeId, slots, localSafeZone);
+            } catch (AndesException e) {
+                throw new TException("Failed to update message ids of " + slots.size() + " slots for nodeId: "
+                        + nodeId, e);
+            }
+        } else {
+            throw new TException("This node is not the slot coordinator right now");
+        }
+    }
+
     @Override
     public boolean deleteSlot(String queueName, SlotInfo slotInfo, String nodeId) throws TException {
         if (AndesContext.getInstance().getClusterAgent().isCoordinator()) {
@@ -28,6 +28,8 @@ public class SlotManagementService {
 
     public void updateMessageId(String queueName, String nodeId, long startMessageId, long endMessageId, long localSafeZone) throws org.apache.thrift.TException;
 
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone) throws org.apache.thrift.TException;
+
     public boolean deleteSlot(String queueName, SlotInfo slotInfo, String nodeId) throws org.apache.thrift.TException;
 
     public void reAssignSlotWhenNoSubscribers(String nodeId, String queueName) throws org.apache.thrift.TException;
@@ -51,6 +53,8 @@ public class SlotManagementService {
 
     public void updateMessageId(String queueName, String nodeId, long startMessageId, long endMessageId, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.updateMessageId_call> resultHandler) throws org.apache.thrift.TException;
 
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.updateMessageIds_call> resultHandler) throws org.apache.thrift.TException;
+
     public void deleteSlot(String queueName, SlotInfo slotInfo, String nodeId, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.deleteSlot_call> resultHandler) throws org.apache.thrift.TException;
 
     public void reAssignSlotWhenNoSubscribers(String nodeId, String queueName, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.reAssignSlotWhenNoSubscribers_call> resultHandler) throws org.apache.thrift.TException;
@@ -129,6 +133,28 @@ public class SlotManagementService {
       return;
     }
 
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone) throws org.apache.thrift.TException
+    {
+      send_updateMessageIds(nodeId, slots, localSafeZone);
+      recv_updateMessageIds();
+    }
+
+    public void send_updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone) throws org.apache.thrift.TException
+    {
+      updateMessageIds_args args = new updateMessageIds_args();
+      args.setNodeId(nodeId);
+      args.setSlots(slots);
+      args.setLocalSafeZone(localSafeZone);
+      sendBase("updateMessageIds", args);
+    }
+
+    public void recv_updateMessageIds() throws org.apache.thrift.TException
+    {
+      updateMessageIds_result result = new updateMessageIds_result();
+      receiveBase(result, "updateMessageIds");
+      return;
+    }
+
     public boolean deleteSlot(String queueName, SlotInfo slotInfo, String nodeId) throws org.apache.thrift.TException
     {
       send_deleteSlot(queueName, slotInfo, nodeId);
@@ -316,6 +342,44 @@ public class SlotManagementService {
       }
     }
 
+    public void updateMessageIds(String nodeId, List<SlotInfo> slots, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<updateMessageIds_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      updateMessageIds_call method_call = new updateMessageIds_call(nodeId, slots, localSafeZone, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class updateMessageIds_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private String nodeId;
+      private List<SlotInfo> slots;
+      private long localSafeZone;
+      public updateMessageIds_call(String nodeId, List<SlotInfo> slots, long localSafeZone, org.apache.thrift.async.AsyncMethodCallback<updateMessageIds_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.nodeId = nodeId;
+        this.slots = slots;
+        this.localSafeZone = localSafeZone;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("updateMessageIds", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        updateMessageIds_args args = new updateMessageIds_args();
+        args.setNodeId(nodeId);
+        args.setSlots(slots);
+        args.setLocalSafeZone(localSafeZone);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public void getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        (new Client(prot)).recv_updateMessageIds();
+      }
+    }
+
     public void deleteSlot(String queueName, SlotInfo slotInfo, String nodeId, org.apache.thrift.async.AsyncMethodCallback<deleteSlot_call> resultHandler) throws org.apache.thrift.TException {
       checkReady();
       deleteSlot_call method_call = new deleteSlot_call(queueName, slotInfo, nodeId, resultHandler, this, ___protocolFactory, ___transport);
@@ -471,6 +535,7 @@ public class SlotManagementService {
     private static <I extends Iface> Map<String,  org.apache.thrift.ProcessFunction<I, ? extends  org.apache.thrift.TBase>> getProcessMap(Map<String,  org.apache.thrift.ProcessFunction<I, ? extends  org.apache.thrift.TBase>> processMap) {
       processMap.put("getSlotInfo", new getSlotInfo());
       processMap.put("updateMessageId", new updateMessageId());
+      processMap.put("updateMessageIds", new updateMessageIds());
       processMap.put("deleteSlot", new deleteSlot());
       processMap.put("reAssignSlotWhenNoSubscribers", new reAssignSlotWhenNoSubscribers());
       processMap.put("updateCurrentMessageIdForSafeZone", new updateCurrentMessageIdForSafeZone());
@@ -521,6 +586,27 @@ public class SlotManagementService {
       }
     }
 
+    private static class updateMessageIds<I extends Iface> extends org.apache.thrift.ProcessFunction<I, updateMessageIds_args> {
+      public updateMessageIds() {
+        super("updateMessageIds");
+      }
+
+      public updateMessageIds_args getEmptyArgsInstance() {
+        return new updateMessageIds_args();
+      }
+
+        @Override
+        protected boolean isOneway() {
+            return false;
+        }
+
+      public updateMessageIds_result getResult(I iface, updateMessageIds_args args) throws org.apache.thrift.TException {
+        updateMessageIds_result result = new updateMessageIds_result();
+        iface.updateMessageIds(args.nodeId, args.slots, args.localSafeZone);
+        return result;
+      }
+    }
+
     private static class deleteSlot<I extends Iface> extends org.apache.thrift.ProcessFunction<I, deleteSlot_args> {
       public deleteSlot() {
         super("deleteSlot");
@@ -2136,6 +2222,721 @@ public class SlotManagementService {
 
   }
 
+  public static class updateMessageIds_args implements org.apache.thrift.TBase<updateMessageIds_args, updateMessageIds_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("updateMessageIds_args");
+
+    private static final org.apache.thrift.protocol.TField NODE_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("nodeId", org.apache.thrift.protocol.TType.STRING, (short)1);
+    private static final org.apache.thrift.protocol.TField SLOTS_FIELD_DESC = new org.apache.thrift.protocol.TField("slots", org.apache.thrift.protocol.TType.LIST, (short)2);
+    private static final org.apache.thrift.protocol.TField LOCAL_SAFE_ZONE_FIELD_DESC = new org.apache.thrift.protocol.TField("localSafeZone", org.apache.thrift.protocol.TType.I64, (short)3);
+
+    public String nodeId; // required
+    public List<SlotInfo> slots; // required
+    public long localSafeZone; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      NODE_ID((short)1, "nodeId"),
+      SLOTS((short)2, "slots"),
+      LOCAL_SAFE_ZONE((short)3, "localSafeZone");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // NODE_ID
+            return NODE_ID;
+          case 2: // SLOTS
+            return SLOTS;
+          case 3: // LOCAL_SAFE_ZONE
+            return LOCAL_SAFE_ZONE;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __LOCALSAFEZONE_ISSET_ID = 0;
+    private BitSet __isset_bit_vector = new BitSet(1);
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.NODE_ID, new org.apache.thrift.meta_data.FieldMetaData("nodeId", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.SLOTS, new org.apache.thrift.meta_data.FieldMetaData("slots", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, SlotInfo.class))));
+      tmpMap.put(_Fields.LOCAL_SAFE_ZONE, new org.apache.thrift.meta_data.FieldMetaData("localSafeZone", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(updateMessageIds_args.class, metaDataMap);
+    }
+
+    public updateMessageIds_args() {
+    }
+
+    public updateMessageIds_args(
+      String nodeId,
+      List<SlotInfo> slots,
+      long localSafeZone)
+    {
+      this();
+      this.nodeId = nodeId;
+      this.slots = slots;
+      this.localSafeZone = localSafeZone;
+      setLocalSafeZoneIsSet(true);
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public updateMessageIds_args(updateMessageIds_args other) {
+      __isset_bit_vector.clear();
+      __isset_bit_vector.or(other.__isset_bit_vector);
+      if (other.isSetNodeId()) {
+        this.nodeId = other.nodeId;
+      }
+      if (other.isSetSlots()) {
+        List<SlotInfo> __this__slots = new ArrayList<SlotInfo>();
+        for (SlotInfo other_element : other.slots) {
+          __this__slots.add(new SlotInfo(other_element));
+        }
+        this.slots = __this__slots;
+      }
+      this.localSafeZone = other.localSafeZone;
+    }
+
+    public updateMessageIds_args deepCopy() {
+      return new updateMessageIds_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.nodeId = null;
+      this.slots = null;
+      setLocalSafeZoneIsSet(false);
+      this.localSafeZone = 0;
+    }
+
+    public String getNodeId() {
+      return this.nodeId;
+    }
+
+    public updateMessageIds_args setNodeId(String nodeId) {
+      this.nodeId = nodeId;
+      return this;
+    }
+
+    public void unsetNodeId() {
+      this.nodeId = null;
+    }
+
+    /** Returns true if field nodeId is set (has been assigned a value) and false otherwise */
+    public boolean isSetNodeId() {
+      return this.nodeId != null;
+    }
+
+    public void setNodeIdIsSet(boolean value) {
+      if (!value) {
+        this.nodeId = null;
+      }
+    }
+
+    public int getSlotsSize() {
+      return (this.slots == null) ? 0 : this.slots.size();
+    }
+
+    public java.util.Iterator<SlotInfo> getSlotsIterator() {
+      return (this.slots == null) ? null : this.slots.iterator();
+    }
+
+    public void addToSlots(SlotInfo elem) {
+      if (this.slots == null) {
+        this.slots = new ArrayList<SlotInfo>();
+      }
+      this.slots.add(elem);
+    }
+
+    public List<SlotInfo> getSlots() {
+      return this.slots;
+    }
+
+    public updateMessageIds_args setSlots(List<SlotInfo> slots) {
+      this.slots = slots;
+      return this;
+    }
+
+    public void unsetSlots() {
+      this.slots = null;
+    }
+
+    /** Returns true if field slots is set (has been assigned a value) and false otherwise */
+    public boolean isSetSlots() {
+      return this.slots != null;
+    }
+
+    public void setSlotsIsSet(boolean value) {
+      if (!value) {
+        this.slots = null;
+      }
+    }
+
+    public long getLocalSafeZone() {
+      return this.localSafeZone;
+    }
+
+    public updateMessageIds_args setLocalSafeZone(long localSafeZone) {
+      this.localSafeZone = localSafeZone;
+      setLocalSafeZoneIsSet(true);
+      return this;
+    }
+
+    public void unsetLocalSafeZone() {
+      __isset_bit_vector.clear(__LOCALSAFEZONE_ISSET_ID);
+    }
+
+    /** Returns true if field localSafeZone is set (has been assigned a value) and false otherwise */
+    public boolean isSetLocalSafeZone() {
+      return __isset_bit_vector.get(__LOCALSAFEZONE_ISSET_ID);
+    }
+
+    public void setLocalSafeZoneIsSet(boolean value) {
+      __isset_bit_vector.set(__LOCALSAFEZONE_ISSET_ID, value);
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case NODE_ID:
+        if (value == null) {
+          unsetNodeId();
+        } else {
+          setNodeId((String)value);
+        }
+        break;
+
+      case SLOTS:
+        if (value == null) {
+          unsetSlots();
+        } else {
+          setSlots((List<SlotInfo>)value);
+        }
+        break;
+
+      case LOCAL_SAFE_ZONE:
+        if (value == null) {
+          unsetLocalSafeZone();
+        } else {
+          setLocalSafeZone((Long)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case NODE_ID:
+        return getNodeId();
+
+      case SLOTS:
+        return getSlots();
+
+      case LOCAL_SAFE_ZONE:
+        return Long.valueOf(getLocalSafeZone());
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case NODE_ID:
+        return isSetNodeId();
+      case SLOTS:
+        return isSetSlots();
+      case LOCAL_SAFE_ZONE:
+        return isSetLocalSafeZone();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof updateMessageIds_args)
+        return this.equals((updateMessageIds_args)that);
+      return false;
+    }
+
+    public boolean equals(updateMessageIds_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_nodeId = true && this.isSetNodeId();
+      boolean that_present_nodeId = true && that.isSetNodeId();
+      if (this_present_nodeId || that_present_nodeId) {
+        if (!(this_present_nodeId && that_present_nodeId))
+          return false;
+        if (!this.nodeId.equals(that.nodeId))
+          return false;
+      }
+
+      boolean this_present_slots = true && this.isSetSlots();
+      boolean that_present_slots = true && that.isSetSlots();
+      if (this_present_slots || that_present_slots) {
+        if (!(this_present_slots && that_present_slots))
+          return false;
+        if (!this.slots.equals(that.slots))
+          return false;
+      }
+
+      boolean this_present_localSafeZone = true;
+      boolean that_present_localSafeZone = true;
+      if (this_present_localSafeZone || that_present_localSafeZone) {
+        if (!(this_present_localSafeZone && that_present_localSafeZone))
+          return false;
+        if (this.localSafeZone != that.localSafeZone)
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(updateMessageIds_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      updateMessageIds_args typedOther = (updateMessageIds_args)other;
+
+      lastComparison = Boolean.valueOf(isSetNodeId()).compareTo(typedOther.isSetNodeId());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetNodeId()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.nodeId, typedOther.nodeId);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetSlots()).compareTo(typedOther.isSetSlots());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSlots()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.slots, typedOther.slots);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetLocalSafeZone()).compareTo(typedOther.isSetLocalSafeZone());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetLocalSafeZone()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.localSafeZone, typedOther.localSafeZone);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 1: // NODE_ID
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.nodeId = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2: // SLOTS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list0 = iprot.readListBegin();
+                this.slots = new ArrayList<SlotInfo>(_list0.size);
+                for (int _i1 = 0; _i1 < _list0.size; ++_i1)
+                {
+                  SlotInfo _elem2; // required
+                  _elem2 = new SlotInfo();
+                  _elem2.read(iprot);
+                  this.slots.add(_elem2);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 3: // LOCAL_SAFE_ZONE
+            if (field.type == org.apache.thrift.protocol.TType.I64) {
+              this.localSafeZone = iprot.readI64();
+              setLocalSafeZoneIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      validate();
+
+      oprot.writeStructBegin(STRUCT_DESC);
+      if (this.nodeId != null) {
+        oprot.writeFieldBegin(NODE_ID_FIELD_DESC);
+        oprot.writeString(this.nodeId);
+        oprot.writeFieldEnd();
+      }
+      if (this.slots != null) {
+        oprot.writeFieldBegin(SLOTS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.slots.size()));
+          for (SlotInfo _iter3 : this.slots)
+          {
+            _iter3.write(oprot);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldBegin(LOCAL_SAFE_ZONE_FIELD_DESC);
+      oprot.writeI64(this.localSafeZone);
+      oprot.writeFieldEnd();
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("updateMessageIds_args(");
+      boolean first = true;
+
+      sb.append("nodeId:");
+      if (this.nodeId == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.nodeId);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("slots:");
+      if (this.slots == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.slots);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("localSafeZone:");
+      sb.append(this.localSafeZone);
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bit_vector = new BitSet(1);
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class updateMessageIds_result implements org.apache.thrift.TBase<updateMessageIds_result, updateMessageIds_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("updateMessageIds_result");
+
+
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+;
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(updateMessageIds_result.class, metaDataMap);
+    }
+
+    public updateMessageIds_result() {
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public updateMessageIds_result(updateMessageIds_result other) {
+    }
+
+    public updateMessageIds_result deepCopy() {
+      return new updateMessageIds_result(this);
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof updateMessageIds_result)
+        return this.equals((updateMessageIds_result)that);
+      return false;
+    }
+
+    public boolean equals(updateMessageIds_result that) {
+      if (that == null)
+        return false;
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(updateMessageIds_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      updateMessageIds_result typedOther = (updateMessageIds_result)other;
+
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      oprot.writeStructBegin(STRUCT_DESC);
+
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("updateMessageIds_result(");
+      boolean first = true;
+
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+
   public static class deleteSlot_args implements org.apache.thrift.TBase<deleteSlot_args, deleteSlot_args._Fields>, java.io.Serializable, Cloneable   {
     private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("deleteSlot_args");
 
@@ -59,6 +59,8 @@ public class MessageTracer {
             + "the database";
     public static final String EXPIRED_MESSAGE_DETECTED_FROM_DLC = "expired message detected from"
             + "the DLC";
+    public static final String EXPIRED_MESSAGE_DETECTED_FROM_INDEX = "expired message detected from "
+            + "the expiry index";
 
     /**
      * This method will print debug logs for message activities. This will accept parameters for
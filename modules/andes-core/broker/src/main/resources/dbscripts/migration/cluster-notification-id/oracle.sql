@@ -0,0 +1,6 @@
+-- Column keeping the ID of a cluster notification, used by nodes exchanging notifications directly to dispatch a
+-- notification received both directly and through the database once. Apply to the context store database before
+-- enabling direct cluster notifications.
+
+ALTER TABLE MB_CLUSTER_EVENT ADD (NOTIFICATION_ID VARCHAR2(64))
+/
@@ -0,0 +1,18 @@
+-- Tables keeping the content of a topic message routed to more than one storage queue only once, shared by all the
+-- copies. MB_SHARED_CONTENT holds the content keyed by content ID and MB_CONTENT_REFERENCE maps each copy to the
+-- content it refers to. Apply to the message store database before starting brokers of this version.
+
+CREATE TABLE IF NOT EXISTS MB_SHARED_CONTENT (
+                CONTENT_ID BIGINT,
+                CONTENT_OFFSET INT,
+                MESSAGE_CONTENT BINARY NOT NULL,
+                PRIMARY KEY (CONTENT_ID,CONTENT_OFFSET)
+);
+
+CREATE TABLE IF NOT EXISTS MB_CONTENT_REFERENCE (
+                MESSAGE_ID BIGINT,
+                CONTENT_ID BIGINT NOT NULL,
+                PRIMARY KEY (MESSAGE_ID)
+);
+
+CREATE INDEX IF NOT EXISTS MB_CONTENT_REF_CONTENT_ID_IDX ON MB_CONTENT_REFERENCE (CONTENT_ID);
@@ -0,0 +1,21 @@
+-- Tables keeping the content of a topic message routed to more than one storage queue only once, shared by all the
+-- copies. MB_SHARED_CONTENT holds the content keyed by content ID and MB_CONTENT_REFERENCE maps each copy to the
+-- content it refers to. Apply to the message store database before starting brokers of this version.
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_SHARED_CONTENT]') AND TYPE IN (N'U'))
+CREATE TABLE MB_SHARED_CONTENT (
+                CONTENT_ID BIGINT,
+                CONTENT_OFFSET INT,
+                MESSAGE_CONTENT VARBINARY(MAX) NOT NULL,
+                PRIMARY KEY (CONTENT_ID,CONTENT_OFFSET)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[MB_CONTENT_REFERENCE]') AND TYPE IN (N'U'))
+CREATE TABLE MB_CONTENT_REFERENCE (
+                MESSAGE_ID BIGINT,
+                CONTENT_ID BIGINT NOT NULL,
+                PRIMARY KEY (MESSAGE_ID)
+);
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'MB_CONTENT_REF_CONTENT_ID_IDX')
+CREATE INDEX MB_CONTENT_REF_CONTENT_ID_IDX ON MB_CONTENT_REFERENCE (CONTENT_ID);
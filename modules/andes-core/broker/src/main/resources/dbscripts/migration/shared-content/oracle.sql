@@ -0,0 +1,19 @@
+-- Tables keeping the content of a topic message routed to more than one storage queue only once, shared by all the
+-- copies. MB_SHARED_CONTENT holds the content keyed by content ID and MB_CONTENT_REFERENCE maps each copy to the
+-- content it refers to. Apply to the message store database before starting brokers of this version.
+
+CREATE TABLE MB_SHARED_CONTENT (
+                CONTENT_ID NUMBER(19),
+                CONTENT_OFFSET NUMBER(10),
+                MESSAGE_CONTENT BLOB NOT NULL,
+                CONSTRAINT PK_MB_SHARED_CONTENT PRIMARY KEY (CONTENT_ID,CONTENT_OFFSET)
+)
+/
+CREATE TABLE MB_CONTENT_REFERENCE (
+                MESSAGE_ID NUMBER(19),
+                CONTENT_ID NUMBER(19) NOT NULL,
+                CONSTRAINT PK_MB_CONTENT_REFERENCE PRIMARY KEY (MESSAGE_ID)
+)
+/
+CREATE INDEX MB_CONTENT_REF_CONTENT_ID_IDX ON MB_CONTENT_REFERENCE (CONTENT_ID)
+/
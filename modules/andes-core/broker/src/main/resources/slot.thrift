@@ -1,3 +1,11 @@
+/*
+ * Java sources in org.wso2.andes.thrift.slot.gen are generated from this file with the Thrift 0.7.0 compiler
+ *
+ *     thrift-0.7.0 --gen java slot.thrift
+ *
+ * The isOneway() override of each ProcessFunction in SlotManagementService is not emitted by the 0.7.0 compiler
+ * and is added after generation for the libthrift version the broker runs on.
+ */
 namespace java org.wso2.andes.thrift.slot.gen
 
 //typedef i64 long
@@ -32,6 +40,11 @@ service SlotManagementService {
     */
     void updateMessageId(1: string queueName, 2: string nodeId, 3: i64 startMessageId, 4: i64 endMessageId, 5: i64 localSafeZone),
 
+    /* The updateMessageIds operation submits a batch of slots collected by a node in a single call. Slots are handled as
+    *  in updateMessageId and the local safe zone of the node is updated once for the batch.
+    */
+    void updateMessageIds(1: string nodeId, 2: list<SlotInfo> slots, 3: i64 localSafeZone),
+
     /* Delete empty slots
     */
     bool deleteSlot(1: string queueName, 2: SlotInfo slotInfo, 3: string nodeId),
@@ -0,0 +1,166 @@
+package org.dna.mqtt.moquette.messaging.spi.impl.subscriptions;
+
+import org.dna.mqtt.moquette.messaging.spi.IPersistentSubscriptionStore;
+import org.dna.mqtt.moquette.proto.messages.AbstractMessage.QOSType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SubscriptionsStore}. Covers lookups and the use of the store by several inbound partitions
+ * at once, each owning a set of clients.
+ */
+public class SubscriptionsStoreTest {
+
+    private static final int PARTITIONS = 4;
+
+    private static final int CLIENTS_PER_PARTITION = 25;
+
+    private static final int ROUNDS = 200;
+
+    private SubscriptionsStore store;
+
+    @Before
+    public void setUp() {
+        store = new SubscriptionsStore();
+        store.init(new MemorySubscriptionStore());
+    }
+
+    @Test
+    public void testMatchesWildcardSubscriptions() {
+        store.add(new Subscription("client1", "sensors/+/temperature", QOSType.LEAST_ONE, false));
+        store.add(new Subscription("client2", "sensors/#", QOSType.LEAST_ONE, false));
+        store.add(new Subscription("client3", "sensors/room2/temperature", QOSType.LEAST_ONE, false));
+
+        assertEquals(2, store.matches("sensors/room1/temperature").size());
+        assertEquals(3, store.matches("sensors/room2/temperature").size());
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    public void testLookupDoesNotCreateNodes() {
+        String treeBefore = store.dumpTree();
+
+        assertNull(store.getSubscriptions("sensors/room1", "client1"));
+        store.removeSubscription("sensors/room1", "client1");
+
+        assertEquals(treeBefore, store.dumpTree());
+    }
+
+    @Test
+    public void testRemoveForClient() {
+        store.add(new Subscription("client1", "sensors/room1", QOSType.LEAST_ONE, false));
+        store.add(new Subscription("client1", "sensors/room2", QOSType.LEAST_ONE, false));
+        store.add(new Subscription("client2", "sensors/room1", QOSType.LEAST_ONE, false));
+
+        store.removeForClient("client1");
+
+        assertNull(store.getSubscriptions("sensors/room1", "client1"));
+        assertNotNull(store.getSubscriptions("sensors/room1", "client2"));
+        assertEquals(1, store.size());
+    }
+
+    /**
+     * Each partition subscribes, deactivates, activates and unsubscribes its own clients on shared topics while
+     * another thread matches published topics, as the inbound processors and delivery do.
+     */
+    @Test
+    public void testConcurrentPartitions() throws InterruptedException {
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch partitionsLatch = new CountDownLatch(PARTITIONS);
+        final AtomicBoolean running = new AtomicBoolean(true);
+
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            final int partitionIndex = partition;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int round = 0; round < ROUNDS; round++) {
+                            for (int client = 0; client < CLIENTS_PER_PARTITION; client++) {
+                                String clientID = clientID(partitionIndex, client);
+                                String topic = "sensors/room" + (client % 5) + "/" + clientID;
+                                store.add(new Subscription(clientID, topic, QOSType.LEAST_ONE, false));
+                                store.add(new Subscription(clientID, "sensors/#", QOSType.LEAST_ONE, false));
+                                store.deactivate(clientID);
+                                store.activate(clientID);
+                                store.getSubscriptions(topic, clientID);
+                                store.removeSubscription(topic, clientID);
+                                if (round % 2 == 1) {
+                                    store.removeForClient(clientID);
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        partitionsLatch.countDown();
+                    }
+                }
+            });
+            thread.start();
+        }
+
+        Thread matcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    startLatch.await();
+                    while (running.get()) {
+                        store.matches("sensors/room1/client-0-1");
+                        store.size();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        });
+        matcher.start();
+
+        startLatch.countDown();
+        assertTrue("Partitions did not complete", partitionsLatch.await(60, TimeUnit.SECONDS));
+        running.set(false);
+        matcher.join();
+
+        assertTrue("Concurrent access failed: " + errors, errors.isEmpty());
+        // The last round removed every client
+        assertEquals(0, store.size());
+        assertTrue(store.matches("sensors/room1/client-0-1").isEmpty());
+    }
+
+    private static String clientID(int partition, int client) {
+        return "client-" + partition + "-" + client;
+    }
+
+    /**
+     * Keeps nothing, subscriptions are only tracked in the tree under test
+     */
+    private static class MemorySubscriptionStore implements IPersistentSubscriptionStore {
+
+        @Override
+        public void addNewSubscription(Subscription newSubscription, String clientID) {
+        }
+
+        @Override
+        public void removeAllSubscriptions(String clientID) {
+        }
+
+        @Override
+        public List<Subscription> retrieveAllSubscriptions() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link ConcurrentLongObjectMap}. Covers the map operations, growth of segments with removed keys
+ * in between, and lookups without locking while other threads update and rehash the map.
+ */
+public class ConcurrentLongObjectMapTest {
+
+    private static final int ENTRY_COUNT = 10000;
+
+    private static final int WRITERS = 4;
+
+    private static final int READERS = 4;
+
+    private static final int ROUNDS = 200;
+
+    private ConcurrentLongObjectMap<String> map;
+
+    @Before
+    public void setUp() {
+        map = new ConcurrentLongObjectMap<>(4);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        assertNull(map.get(1L));
+        assertTrue(map.isEmpty());
+
+        assertNull(map.put(1L, "a"));
+        assertEquals("a", map.put(1L, "b"));
+        assertEquals("b", map.putIfAbsent(1L, "c"));
+        assertEquals("b", map.get(1L));
+        assertTrue(map.containsKey(1L));
+        assertEquals(1, map.size());
+
+        assertEquals("b", map.remove(1L));
+        assertNull(map.remove(1L));
+        assertFalse(map.containsKey(1L));
+        assertTrue(map.isEmpty());
+
+        // A removed key can be mapped again
+        assertNull(map.putIfAbsent(1L, "d"));
+        assertEquals("d", map.get(1L));
+    }
+
+    @Test
+    public void testGrowthWithRemovedKeys() {
+        for (long key = 0; key < ENTRY_COUNT; key++) {
+            map.put(key, Long.toString(key));
+            // Leave every other key removed so that probes pass over removed keys
+            if (key % 2 == 1) {
+                map.remove(key);
+            }
+        }
+        assertEquals(ENTRY_COUNT / 2, map.size());
+
+        for (long key = 0; key < ENTRY_COUNT; key++) {
+            if (key % 2 == 0) {
+                assertEquals(Long.toString(key), map.get(key));
+            } else {
+                assertNull(map.get(key));
+            }
+        }
+
+        List<String> values = map.values();
+        assertEquals(ENTRY_COUNT / 2, values.size());
+        assertEquals(ENTRY_COUNT / 2, new HashSet<>(values).size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0L));
+        assertTrue(map.values().isEmpty());
+    }
+
+    @Test
+    public void testMessageIdKeys() {
+        // Keys laid out as message IDs, sharing the node ID and differing in the timestamp and offset
+        Set<Long> keys = new HashSet<>();
+        for (long time = 0; time < 100; time++) {
+            for (long offset = 0; offset < 100; offset++) {
+                long key = ((1000000L + time) << 18) | (7L << 10) | offset;
+                keys.add(key);
+                map.put(key, Long.toString(key));
+            }
+        }
+        assertEquals(keys.size(), map.size());
+        for (Long key : keys) {
+            assertEquals(key.toString(), map.get(key));
+        }
+    }
+
+    /**
+     * Writers keep adding and removing their own keys, growing and rehashing the segments, while readers look up
+     * keys which are mapped throughout the test.
+     */
+    @Test
+    public void testLookupsDuringUpdates() throws InterruptedException {
+        for (long key = 0; key < ENTRY_COUNT; key++) {
+            map.put(stableKey(key), Long.toString(key));
+        }
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch writersLatch = new CountDownLatch(WRITERS);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+
+        for (int writer = 0; writer < WRITERS; writer++) {
+            final int writerIndex = writer;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int round = 0; round < ROUNDS; round++) {
+                            for (long key = 0; key < 100; key++) {
+                                map.put(changingKey(writerIndex, round, key), "changing");
+                            }
+                            for (long key = 0; key < 100; key++) {
+                                map.remove(changingKey(writerIndex, round, key));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        writersLatch.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        for (int reader = 0; reader < READERS; reader++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        while (running.get()) {
+                            for (long key = 0; key < ENTRY_COUNT; key++) {
+                                String value = map.get(stableKey(key));
+                                if (!Long.toString(key).equals(value)) {
+                                    errors.add(new AssertionError("Key " + key + " mapped to " + value));
+                                    return;
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            readers.add(thread);
+            thread.start();
+        }
+
+        startLatch.countDown();
+        assertTrue("Writers did not complete", writersLatch.await(60, TimeUnit.SECONDS));
+        running.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+
+        assertTrue("Concurrent access failed: " + errors, errors.isEmpty());
+        assertEquals(ENTRY_COUNT, map.size());
+    }
+
+    private static long stableKey(long key) {
+        return key << 1;
+    }
+
+    private static long changingKey(int writer, int round, long key) {
+        return (((long) writer * ROUNDS + round) * 100 + key) << 1 | 1;
+    }
+}
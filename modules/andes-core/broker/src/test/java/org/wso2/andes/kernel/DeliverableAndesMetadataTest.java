@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+import org.wso2.andes.kernel.subscription.SubscriberConnection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link DeliverableAndesMetadata}. Message and channel statuses are packed into ints, hence these
+ * tests check that transitions, delivery counts and disposability are tracked as they were with status lists.
+ */
+public class DeliverableAndesMetadataTest {
+
+    private static final long MESSAGE_ID = 1000L;
+
+    private final UUID firstChannel = UUID.randomUUID();
+
+    private final UUID secondChannel = UUID.randomUUID();
+
+    private final UUID thirdChannel = UUID.randomUUID();
+
+    private DeliverableAndesMetadata metadata;
+
+    @Before
+    public void setUp() {
+        metadata = new DeliverableAndesMetadata(new Slot(), MESSAGE_ID, new byte[0], false);
+    }
+
+    @Test
+    public void testInitialState() {
+        assertEquals(MessageStatus.READ, metadata.getLatestState());
+        assertEquals(Collections.singletonList(MessageStatus.READ), metadata.getStatusHistory());
+        assertFalse(metadata.isOKToDispose());
+        assertTrue(metadata.getAllDeliveredChannels().isEmpty());
+    }
+
+    @Test
+    public void testInvalidTransitionIsRejected() {
+        assertFalse(metadata.addMessageStatus(MessageStatus.ACKED_BY_ALL));
+        assertEquals(MessageStatus.READ, metadata.getLatestState());
+
+        metadata.markAsBuffered();
+        assertFalse(metadata.addMessageStatus(MessageStatus.READ));
+        assertEquals(MessageStatus.BUFFERED, metadata.getLatestState());
+    }
+
+    @Test
+    public void testAcknowledgedByAllChannels() {
+        schedule(firstChannel, secondChannel);
+        metadata.markAsDispatchedToDeliver(firstChannel);
+        metadata.markAsDispatchedToDeliver(secondChannel);
+
+        assertFalse(metadata.markAsAcknowledgedByChannel(firstChannel));
+        assertEquals(MessageStatus.SCHEDULED_TO_SEND, metadata.getLatestState());
+
+        assertTrue(metadata.markAsAcknowledgedByChannel(secondChannel));
+        assertTrue(metadata.isAknowledgedByAll());
+        assertFalse(metadata.isOKToDispose());
+
+        metadata.markAsDeletedMessage();
+        assertEquals(MessageStatus.DELETED, metadata.getLatestState());
+        assertTrue(metadata.isOKToDispose());
+    }
+
+    @Test
+    public void testClosedAndRejectedChannelsAreNotWaitedFor() {
+        schedule(firstChannel, secondChannel, thirdChannel);
+        metadata.markAsDispatchedToDeliver(firstChannel);
+        metadata.markAsDispatchedToDeliver(secondChannel);
+        metadata.markAsDispatchedToDeliver(thirdChannel);
+
+        metadata.markAsAcknowledgedByChannel(firstChannel);
+        metadata.markDeliveredChannelAsClosed(secondChannel);
+        metadata.markDeliveryFailureByProtocol(thirdChannel);
+        metadata.evaluateMessageAcknowledgement();
+        assertEquals(MessageStatus.SCHEDULED_TO_SEND, metadata.getLatestState());
+
+        metadata.markAsRejectedByClient(thirdChannel);
+        metadata.evaluateMessageAcknowledgement();
+        assertEquals(MessageStatus.ACKED_BY_ALL, metadata.getLatestState());
+    }
+
+    @Test
+    public void testAckWithoutDispatchIsIgnored() {
+        schedule(firstChannel);
+
+        assertFalse(metadata.markAsAcknowledgedByChannel(firstChannel));
+        assertFalse(metadata.markAsAcknowledgedByChannel(secondChannel));
+        assertEquals(MessageStatus.SCHEDULED_TO_SEND, metadata.getLatestState());
+    }
+
+    @Test
+    public void testDeliveryCountPerChannel() {
+        schedule(firstChannel, secondChannel);
+        assertFalse(metadata.isRedelivered(firstChannel));
+
+        metadata.markAsDispatchedToDeliver(firstChannel);
+        assertEquals(1, metadata.getNumOfDeliveries4Channel(firstChannel));
+        assertTrue(metadata.isRedelivered(firstChannel));
+
+        metadata.markAsNackedByClient(firstChannel);
+        metadata.markAsDispatchedToDeliver(firstChannel);
+        assertEquals(2, metadata.getNumOfDeliveries4Channel(firstChannel));
+
+        // A failed send does not count as a delivery
+        assertEquals(1, metadata.markDeliveryFailureOfASentMessage(firstChannel));
+        assertEquals(0, metadata.getNumOfDeliveries4Channel(secondChannel));
+        assertEquals(0, metadata.getNumOfDeliveries4Channel(UUID.randomUUID()));
+    }
+
+    @Test
+    public void testDeliveryCountDoesNotOverwriteChannelStatus() {
+        int deliveryCount = 5000;
+        schedule(firstChannel);
+        for (int i = 0; i < deliveryCount; i++) {
+            metadata.markAsDispatchedToDeliver(firstChannel);
+            metadata.markAsNackedByClient(firstChannel);
+        }
+        metadata.markAsDispatchedToDeliver(firstChannel);
+
+        assertEquals(deliveryCount + 1, metadata.getNumOfDeliveries4Channel(firstChannel));
+        assertTrue(metadata.markAsAcknowledgedByChannel(firstChannel));
+        assertEquals(deliveryCount + 1, metadata.getNumOfDeliveries4Channel(firstChannel));
+    }
+
+    @Test
+    public void testDispatchBeyondRollbackIsNotCounted() {
+        schedule(firstChannel);
+        metadata.setIsBeyondLastRollbackedMessage(true);
+        metadata.markAsDispatchedToDeliver(firstChannel);
+
+        assertEquals(0, metadata.getNumOfDeliveries4Channel(firstChannel));
+        assertTrue(metadata.markAsAcknowledgedByChannel(firstChannel));
+    }
+
+    @Test
+    public void testDisposableOnceDLCStatusIsPassed() {
+        schedule(firstChannel);
+        metadata.markAsDLCMessage();
+        assertTrue(metadata.isDLCMessage());
+        assertTrue(metadata.isOKToDispose());
+
+        // Message is buffered again from the DLC. It was in the DLC before, hence it still can be disposed.
+        metadata.markAsBuffered();
+        assertEquals(MessageStatus.BUFFERED, metadata.getLatestState());
+        assertTrue(metadata.isOKToDispose());
+    }
+
+    @Test
+    public void testDisposableWhileSlotIsReturned() {
+        metadata.markAsBuffered();
+        metadata.markAsSlotReturned();
+        assertTrue(metadata.isOKToDispose());
+
+        // Slot returned is only disposable while it is the latest status
+        metadata.addMessageStatus(MessageStatus.READ);
+        assertEquals(MessageStatus.READ, metadata.getLatestState());
+        assertFalse(metadata.isOKToDispose());
+    }
+
+    @Test
+    public void testExpiredAndPurged() {
+        schedule(firstChannel);
+        assertTrue(metadata.addMessageStatus(MessageStatus.EXPIRED));
+        assertTrue(metadata.isPurgedOrDeletedOrExpired());
+        assertTrue(metadata.isOKToDispose());
+
+        metadata.markAsSlotReturned();
+        metadata.markAsPurgedMessage();
+        assertEquals(MessageStatus.PURGED, metadata.getLatestState());
+        assertTrue(metadata.isPurgedOrDeletedOrExpired());
+    }
+
+    @Test
+    public void testScheduledChannelsAreNotDuplicated() {
+        schedule(firstChannel, secondChannel);
+        // Message is buffered again, for instance after a rejection, and scheduled to the same channel
+        schedule(firstChannel);
+
+        assertEquals(new HashSet<>(Arrays.asList(firstChannel, secondChannel)), metadata.getAllDeliveredChannels());
+    }
+
+    /**
+     * Buffer the message and schedule it to a subscription on each of the given channels
+     */
+    private void schedule(UUID... channels) {
+        List<AndesSubscription> subscriptions = new ArrayList<>(channels.length);
+        for (UUID channel : channels) {
+            SubscriberConnection connection = new SubscriberConnection("protocolChannelID=" + channel);
+            subscriptions.add(new AndesSubscription(channel.toString(), null, ProtocolType.AMQP, connection));
+        }
+        metadata.markAsBuffered();
+        metadata.markAsScheduledToDeliver(subscriptions);
+    }
+}
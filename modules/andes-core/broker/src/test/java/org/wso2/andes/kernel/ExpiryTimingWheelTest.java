@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link ExpiryTimingWheel}. Covers expiry within the first level, cascading of entries from upper
+ * levels, and removal and replacement of entries.
+ */
+public class ExpiryTimingWheelTest {
+
+    private static final long TICK_DURATION = 1000;
+
+    /**
+     * Time spanned by a full turn of the first level
+     */
+    private static final long FIRST_LEVEL_SPAN = TICK_DURATION * ExpiryTimingWheel.WHEEL_SIZE;
+
+    /**
+     * Time spanned by a full turn of the second level
+     */
+    private static final long SECOND_LEVEL_SPAN = FIRST_LEVEL_SPAN * ExpiryTimingWheel.WHEEL_SIZE;
+
+    /**
+     * Start of a tick, chosen so that upper levels are not aligned with the start time
+     */
+    private static final long START_TIME = 1000123 * TICK_DURATION;
+
+    private ExpiryTimingWheel<String> wheel;
+
+    @Before
+    public void setUp() {
+        wheel = new ExpiryTimingWheel<>(TICK_DURATION, START_TIME);
+    }
+
+    @Test
+    public void testEntryExpiresAfterItsTick() {
+        wheel.add(1, "first", START_TIME + 1500);
+
+        assertTrue(wheel.advance(START_TIME + 1999).isEmpty());
+        assertEquals(Collections.singletonList("first"), wheel.advance(START_TIME + 2000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testExpiredEntryIsReturnedByNextAdvance() {
+        wheel.advance(START_TIME + 5 * TICK_DURATION);
+        wheel.add(1, "late", START_TIME);
+
+        assertEquals(Collections.singletonList("late"), wheel.advance(START_TIME + 6 * TICK_DURATION));
+    }
+
+    @Test
+    public void testEntriesCascadeFromSecondLevel() {
+        long expirationTime = START_TIME + FIRST_LEVEL_SPAN + 10 * TICK_DURATION;
+        wheel.add(1, "second-level", expirationTime);
+
+        // Turn tick by tick past the cascade point, the entry must not expire early
+        for (long time = START_TIME; time <= expirationTime; time += TICK_DURATION) {
+            assertTrue("Expired early at " + (time - START_TIME), wheel.advance(time).isEmpty());
+        }
+        assertEquals(Collections.singletonList("second-level"), wheel.advance(expirationTime + TICK_DURATION));
+    }
+
+    @Test
+    public void testEntriesCascadeFromThirdLevel() {
+        long expirationTime = START_TIME + SECOND_LEVEL_SPAN + 3 * FIRST_LEVEL_SPAN + 7 * TICK_DURATION;
+        wheel.add(1, "third-level", expirationTime);
+        wheel.add(2, "second-level", START_TIME + 2 * FIRST_LEVEL_SPAN);
+
+        List<String> expired = new ArrayList<>();
+        for (long time = START_TIME; time <= expirationTime; time += FIRST_LEVEL_SPAN / 4) {
+            expired.addAll(wheel.advance(time));
+        }
+        expired.addAll(wheel.advance(expirationTime));
+        assertEquals("Only the second level entry should have expired", Collections.singletonList("second-level"),
+                expired);
+
+        assertEquals(Collections.singletonList("third-level"), wheel.advance(expirationTime + TICK_DURATION));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testEntriesExpireInOneLargeAdvance() {
+        for (int i = 0; i < 1000; i++) {
+            wheel.add(i, "entry-" + i, START_TIME + i * 997 * TICK_DURATION);
+        }
+
+        List<String> expired = wheel.advance(START_TIME + 500 * 997 * TICK_DURATION);
+        assertEquals(500, expired.size());
+        assertEquals(500, wheel.size());
+    }
+
+    @Test
+    public void testRemovedEntryDoesNotExpire() {
+        wheel.add(1, "removed", START_TIME + 2 * TICK_DURATION);
+        wheel.add(2, "removed-after-cascade", START_TIME + FIRST_LEVEL_SPAN + 2 * TICK_DURATION);
+        wheel.add(3, "kept", START_TIME + FIRST_LEVEL_SPAN + 2 * TICK_DURATION);
+
+        assertTrue(wheel.remove(1));
+        assertFalse(wheel.remove(1));
+        assertEquals(2, wheel.size());
+
+        // Move the remaining entries down to the first level before removing one of them
+        assertTrue(wheel.advance(START_TIME + FIRST_LEVEL_SPAN).isEmpty());
+        assertTrue(wheel.remove(2));
+
+        assertEquals(Collections.singletonList("kept"), wheel.advance(START_TIME + 2 * FIRST_LEVEL_SPAN));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testAddingExistingKeyReschedulesEntry() {
+        wheel.add(1, "original", START_TIME + 2 * TICK_DURATION);
+        wheel.add(1, "rescheduled", START_TIME + 10 * TICK_DURATION);
+
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(START_TIME + 5 * TICK_DURATION).isEmpty());
+        assertEquals(Collections.singletonList("rescheduled"), wheel.advance(START_TIME + 11 * TICK_DURATION));
+    }
+}
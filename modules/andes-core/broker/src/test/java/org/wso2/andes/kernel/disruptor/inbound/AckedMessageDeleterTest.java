@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link AckedMessageDeleter}. Checks that acknowledged messages are deleted in batches bounded by
+ * size and delay, and that messages waiting to be deleted are deleted when the deleter stops.
+ */
+public class AckedMessageDeleterTest {
+
+    /**
+     * Maximum time to wait for messages to be deleted, in milliseconds
+     */
+    private static final long WAIT_TIMEOUT = 10000;
+
+    private RecordingDeleter deleter;
+
+    @After
+    public void tearDown() {
+        if (null != deleter) {
+            deleter.stop();
+        }
+    }
+
+    @Test
+    public void testFullBatchesAreDeletedWithoutDelay() throws Exception {
+        int maxDelay = 5000;
+        deleter = new RecordingDeleter(10, maxDelay, 0);
+        deleter.start();
+
+        long startTime = System.nanoTime();
+        deleter.delete(createMessages(0, 20));
+        deleter.awaitDeletion(20);
+
+        assertTrue("Full batches waited for the delay",
+                System.nanoTime() - startTime < TimeUnit.MILLISECONDS.toNanos(maxDelay));
+        assertEquals(2, deleter.batches.size());
+        for (List<DeliverableAndesMetadata> batch : deleter.batches) {
+            assertEquals(10, batch.size());
+        }
+    }
+
+    @Test
+    public void testPartialBatchIsDeletedAfterDelay() throws Exception {
+        int maxDelay = 300;
+        deleter = new RecordingDeleter(100, maxDelay, 0);
+        deleter.start();
+
+        long startTime = System.nanoTime();
+        deleter.delete(createMessages(0, 5));
+        deleter.awaitDeletion(5);
+
+        assertTrue("Partial batch was deleted before the delay",
+                System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(maxDelay));
+        assertEquals(1, deleter.batches.size());
+        assertEquals(5, deleter.batches.get(0).size());
+    }
+
+    @Test
+    public void testBatchesAreCollectedAcrossDeleteCalls() throws Exception {
+        deleter = new RecordingDeleter(10, 5000, 0);
+        deleter.start();
+
+        deleter.delete(createMessages(0, 4));
+        deleter.delete(createMessages(4, 6));
+        deleter.awaitDeletion(10);
+
+        assertEquals(1, deleter.batches.size());
+        assertEquals(10, deleter.batches.get(0).size());
+    }
+
+    @Test
+    public void testStopDeletesPendingMessages() throws Exception {
+        // Deletion is slowed down so that messages are still waiting when the deleter is stopped
+        deleter = new RecordingDeleter(10, 100, 50);
+        deleter.start();
+
+        deleter.delete(createMessages(0, 55));
+        deleter.stop();
+
+        Set<Long> deletedIDs = new HashSet<>();
+        for (List<DeliverableAndesMetadata> batch : deleter.batches) {
+            assertTrue("Batch larger than the maximum batch size", batch.size() <= 10);
+            for (DeliverableAndesMetadata message : batch) {
+                deletedIDs.add(message.getMessageID());
+            }
+        }
+        assertEquals(55, deletedIDs.size());
+    }
+
+    private static List<DeliverableAndesMetadata> createMessages(long firstMessageID, int count) {
+        List<DeliverableAndesMetadata> messages = new ArrayList<>(count);
+        for (long messageID = firstMessageID; messageID < firstMessageID + count; messageID++) {
+            messages.add(new DeliverableAndesMetadata(new Slot(), messageID, new byte[0], false));
+        }
+        return messages;
+    }
+
+    /**
+     * Deleter recording the batches it deletes instead of deleting from a message store
+     */
+    private static class RecordingDeleter extends AckedMessageDeleter {
+
+        private final List<List<DeliverableAndesMetadata>> batches = new CopyOnWriteArrayList<>();
+
+        /**
+         * Time taken to delete a batch, in milliseconds
+         */
+        private final long deletionTime;
+
+        private int deletedCount;
+
+        RecordingDeleter(int maxBatchSize, int maxDelay, long deletionTime) {
+            super(null, maxBatchSize, maxDelay);
+            this.deletionTime = deletionTime;
+        }
+
+        @Override
+        void removeMessages(List<DeliverableAndesMetadata> messagesToRemove) throws AndesException {
+            try {
+                TimeUnit.MILLISECONDS.sleep(deletionTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AndesException("Interrupted while deleting messages", e);
+            }
+            batches.add(new ArrayList<>(messagesToRemove));
+            synchronized (this) {
+                deletedCount = deletedCount + messagesToRemove.size();
+                notifyAll();
+            }
+        }
+
+        synchronized void awaitDeletion(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+            while (deletedCount < count && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            assertEquals(count, deletedCount);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel.router;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link HashTrieMap}. Compares the map with a {@link HashMap} and covers keys with colliding
+ * hashes, region lookups and the immutability of older versions.
+ */
+public class HashTrieMapTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<>();
+        HashTrieMap<Integer, Integer> map = HashTrieMap.empty();
+
+        for (int i = 0; i < 20000; i++) {
+            // A small key range makes sure keys are replaced and removed as well as added
+            Integer key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(expected.keySet(), new HashSet<>(map.keySet()));
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        HashTrieMap<CollidingKey, String> map = HashTrieMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.put(new CollidingKey(i, 7), "value" + i);
+        }
+        // Differs from the colliding keys only in the highest bits of the hash
+        map = map.put(new CollidingKey(100, 7 | 0x40000000), "other");
+
+        assertEquals(11, map.size());
+        assertEquals("value3", map.get(new CollidingKey(3, 7)));
+        assertEquals("other", map.get(new CollidingKey(100, 7 | 0x40000000)));
+
+        for (int i = 0; i < 10; i++) {
+            map = map.remove(new CollidingKey(i, 7));
+        }
+        assertEquals(1, map.size());
+        assertNull(map.get(new CollidingKey(3, 7)));
+        assertEquals("other", map.get(new CollidingKey(100, 7 | 0x40000000)));
+
+        map = map.remove(new CollidingKey(100, 7 | 0x40000000));
+        assertTrue(map.isEmpty());
+        assertFalse(map.keySet().iterator().hasNext());
+    }
+
+    @Test
+    public void testRegionLookup() {
+        HashTrieMap<String, String> map = HashTrieMap.empty();
+        map = map.put("sports", "1").put("cricket", "2").put("score", "3");
+
+        String routingKey = "sports.cricket.score";
+        assertEquals("1", map.get(routingKey, 0, 6));
+        assertEquals("2", map.get(routingKey, 7, 14));
+        assertEquals("3", map.get(routingKey, 15, 20));
+        assertNull(map.get(routingKey, 0, 5));
+    }
+
+    @Test
+    public void testOlderVersionsUnchanged() {
+        HashTrieMap<String, String> first = HashTrieMap.<String, String>empty().put("a", "1");
+        HashTrieMap<String, String> second = first.put("b", "2").put("a", "3");
+        HashTrieMap<String, String> third = second.remove("a");
+
+        assertEquals(1, first.size());
+        assertEquals("1", first.get("a"));
+        assertNull(first.get("b"));
+        assertEquals("3", second.get("a"));
+        assertEquals(2, second.size());
+        assertEquals(new HashSet<>(Arrays.asList("b")), third.keySet());
+        assertSame(third, third.remove("missing"));
+    }
+
+    @Test
+    public void testPutReplacesKey() {
+        CollidingKey original = new CollidingKey(1, 1);
+        CollidingKey replacement = new CollidingKey(1, 1);
+        HashTrieMap<CollidingKey, CollidingKey> map = HashTrieMap.empty();
+        map = map.put(original, original).put(replacement, replacement);
+
+        Set<CollidingKey> keys = map.keySet();
+        assertEquals(1, keys.size());
+        assertSame(replacement, keys.iterator().next());
+    }
+
+    /**
+     * Key with a chosen hash code, equal to other keys with the same ID
+     */
+    private static class CollidingKey {
+
+        private final int id;
+
+        private final int hash;
+
+        CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
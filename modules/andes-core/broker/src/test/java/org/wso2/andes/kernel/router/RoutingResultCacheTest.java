@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel.router;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for {@link RoutingResultCache}. Checks that cached routing results are served until a storage queue
+ * is bound or unbound, and are recomputed afterwards.
+ */
+public class RoutingResultCacheTest {
+
+    private static final int CACHE_SIZE = 100;
+
+    /**
+     * Router used only to give storage queues a binding key
+     */
+    private final AndesMessageRouter bindingRouter = new QueueMessageRouter("amq.topic", "topic", false);
+
+    private TopicRoutingMatcher matcher;
+
+    private RoutingResultCache routingCache;
+
+    @Before
+    public void setUp() {
+        matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        routingCache = new RoutingResultCache(matcher, CACHE_SIZE);
+    }
+
+    @Test
+    public void testCachedResultIsReused() throws AndesException {
+        StorageQueue queue = addQueue("queue", "sports.*");
+
+        Set<StorageQueue> firstResult = routingCache.getMatchingStorageQueues("sports.cricket");
+        Set<StorageQueue> secondResult = routingCache.getMatchingStorageQueues("sports.cricket");
+
+        assertMatches(firstResult, queue);
+        assertSame(firstResult, secondResult);
+    }
+
+    @Test
+    public void testBindInvalidatesCachedResults() throws AndesException {
+        StorageQueue first = addQueue("first", "sports.*");
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"), first);
+        assertMatches(routingCache.getMatchingStorageQueues("news.local"));
+
+        StorageQueue second = addQueue("second", "#");
+
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"), first, second);
+        assertMatches(routingCache.getMatchingStorageQueues("news.local"), second);
+    }
+
+    @Test
+    public void testUnbindInvalidatesCachedResults() throws AndesException {
+        StorageQueue first = addQueue("first", "sports.*");
+        StorageQueue second = addQueue("second", "sports.cricket");
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"), first, second);
+
+        matcher.removeStorageQueue(first);
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"), second);
+
+        matcher.removeStorageQueue(second);
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"));
+    }
+
+    @Test
+    public void testRebindAfterUnbind() throws AndesException {
+        StorageQueue queue = addQueue("queue", "sports.cricket");
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"), queue);
+
+        matcher.removeStorageQueue(queue);
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"));
+
+        addQueue("queue", "sports.#");
+        assertMatches(routingCache.getMatchingStorageQueues("sports.cricket"), queue);
+    }
+
+    @Test
+    public void testDisabledCache() throws AndesException {
+        RoutingResultCache disabledCache = new RoutingResultCache(matcher, 0);
+        StorageQueue first = addQueue("first", "sports.*");
+        assertMatches(disabledCache.getMatchingStorageQueues("sports.cricket"), first);
+
+        StorageQueue second = addQueue("second", "sports.cricket");
+        assertMatches(disabledCache.getMatchingStorageQueues("sports.cricket"), first, second);
+    }
+
+    private StorageQueue addQueue(String name, String bindingKey) throws AndesException {
+        StorageQueue queue = new StorageQueue("queueName=" + name);
+        queue.bindQueueToMessageRouter(bindingKey, bindingRouter);
+        matcher.addStorageQueue(queue);
+        return queue;
+    }
+
+    private void assertMatches(Set<StorageQueue> matchingQueues, StorageQueue... expectedQueues) {
+        assertEquals(new HashSet<>(Arrays.asList(expectedQueues)), new HashSet<>(matchingQueues));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel.router;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link StripedCounter}. Checks that no increment is lost when several threads count at once.
+ */
+public class StripedCounterTest {
+
+    private static final int THREADS = 8;
+
+    private static final int INCREMENTS_PER_THREAD = 100000;
+
+    @Test
+    public void testSingleThread() {
+        StripedCounter counter = new StripedCounter();
+        assertEquals(0, counter.sum());
+
+        for (int i = 0; i < 10; i++) {
+            counter.increment();
+        }
+        assertEquals(10, counter.sum());
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(THREADS);
+
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int j = 0; j < INCREMENTS_PER_THREAD; j++) {
+                            counter.increment();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            });
+            thread.start();
+        }
+
+        startLatch.countDown();
+        assertTrue("Threads did not complete", doneLatch.await(60, TimeUnit.SECONDS));
+        assertEquals((long) THREADS * INCREMENTS_PER_THREAD, counter.sum());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.kernel.router;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TopicRoutingMatcher}. Covers single and multi level wildcards of both AMQP and MQTT at the
+ * start, middle and end of binding keys.
+ */
+public class TopicRoutingMatcherTest {
+
+    /**
+     * Router used only to give storage queues a binding key
+     */
+    private final AndesMessageRouter bindingRouter = new QueueMessageRouter("amq.topic", "topic", false);
+
+    @Test
+    public void testAMQPSingleLevelWildcard() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue trailing = addQueue(matcher, "trailing", "sports.*");
+        StorageQueue leading = addQueue(matcher, "leading", "*.cricket");
+        StorageQueue middle = addQueue(matcher, "middle", "sports.*.score");
+
+        assertMatches(matcher, "sports.cricket", trailing, leading);
+        assertMatches(matcher, "news.cricket", leading);
+        assertMatches(matcher, "sports.cricket.score", middle);
+        // A single level wildcard matches exactly one word
+        assertMatches(matcher, "sports");
+        assertMatches(matcher, "sports.score", trailing);
+        assertMatches(matcher, "sports.cricket.test.score");
+        assertMatches(matcher, "cricket");
+    }
+
+    @Test
+    public void testAMQPMultiLevelWildcard() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue all = addQueue(matcher, "all", "#");
+        StorageQueue trailing = addQueue(matcher, "trailing", "sports.#");
+        StorageQueue leading = addQueue(matcher, "leading", "#.score");
+        StorageQueue middle = addQueue(matcher, "middle", "sports.#.score");
+
+        // Multi level wildcard matches zero words as well
+        assertMatches(matcher, "sports", all, trailing);
+        assertMatches(matcher, "score", all, leading);
+        assertMatches(matcher, "sports.score", all, trailing, leading, middle);
+        assertMatches(matcher, "sports.cricket.score", all, trailing, leading, middle);
+        assertMatches(matcher, "sports.cricket.test.score", all, trailing, leading, middle);
+        assertMatches(matcher, "sports.cricket", all, trailing);
+        assertMatches(matcher, "news.score", all, leading);
+        assertMatches(matcher, "news", all);
+    }
+
+    @Test
+    public void testAMQPMixedWildcards() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue atLeastOne = addQueue(matcher, "atLeastOne", "*.#");
+        StorageQueue atLeastTwo = addQueue(matcher, "atLeastTwo", "#.*.*");
+        StorageQueue exact = addQueue(matcher, "exact", "sports.cricket");
+
+        assertMatches(matcher, "sports", atLeastOne);
+        assertMatches(matcher, "sports.cricket", atLeastOne, atLeastTwo, exact);
+        assertMatches(matcher, "a.b.c.d", atLeastOne, atLeastTwo);
+    }
+
+    @Test
+    public void testEmptyWords() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue single = addQueue(matcher, "single", "sports.*.score");
+
+        // An empty word is still a word
+        assertMatches(matcher, "sports..score", single);
+        assertMatches(matcher, "sports.score");
+    }
+
+    @Test
+    public void testMQTTWildcards() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.MQTT);
+        StorageQueue multi = addQueue(matcher, "multi", "sport/tennis/#");
+        StorageQueue single = addQueue(matcher, "single", "sport/+/player1");
+        StorageQueue twoLevels = addQueue(matcher, "twoLevels", "+/+");
+        StorageQueue all = addQueue(matcher, "all", "#");
+
+        // Multi level wildcard includes the parent level
+        assertMatches(matcher, "sport/tennis", multi, twoLevels, all);
+        assertMatches(matcher, "sport/tennis/player1", multi, single, all);
+        assertMatches(matcher, "sport/tennis/player1/ranking", multi, all);
+        // Single level wildcard matches an empty level
+        assertMatches(matcher, "/finance", twoLevels, all);
+        assertMatches(matcher, "sport", all);
+    }
+
+    @Test
+    public void testRemoveStorageQueue() throws AndesException {
+        TopicRoutingMatcher matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+        StorageQueue first = addQueue(matcher, "first", "sports.#");
+        StorageQueue second = addQueue(matcher, "second", "sports.#");
+        StorageQueue exact = addQueue(matcher, "exact", "sports.cricket");
+        long bindingVersion = matcher.getBindingVersion();
+
+        matcher.removeStorageQueue(first);
+
+        assertTrue(matcher.getBindingVersion() > bindingVersion);
+        assertMatches(matcher, "sports.cricket", second, exact);
+
+        matcher.removeStorageQueue(second);
+        matcher.removeStorageQueue(exact);
+
+        assertMatches(matcher, "sports.cricket");
+        assertEquals(0, matcher.getAllStorageQueues().size());
+    }
+
+    private StorageQueue addQueue(TopicRoutingMatcher matcher, String name, String bindingKey)
+            throws AndesException {
+        StorageQueue queue = new StorageQueue("queueName=" + name);
+        queue.bindQueueToMessageRouter(bindingKey, bindingRouter);
+        matcher.addStorageQueue(queue);
+        return queue;
+    }
+
+    private void assertMatches(TopicRoutingMatcher matcher, String routingKey, StorageQueue... expectedQueues) {
+        Set<StorageQueue> expected = new HashSet<>(Arrays.asList(expectedQueues));
+        assertEquals("Queues matched for " + routingKey, expected,
+                new HashSet<>(matcher.getMatchingStorageQueues(routingKey)));
+    }
+}
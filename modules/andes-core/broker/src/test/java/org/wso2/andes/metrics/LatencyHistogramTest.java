@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link LatencyHistogram}. Checks the bucket boundaries against the 12.5% error bound and the
+ * percentile calculation over recorded values.
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (long value = 0; value < 16; value++) {
+            histogram.record(value);
+        }
+        assertEquals(16, histogram.getTotalCount());
+        assertEquals(15, histogram.getMaxValue());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(7, histogram.getValueAtPercentile(50));
+        assertEquals(11, histogram.getValueAtPercentile(75));
+        assertEquals(15, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * A recorded value is reported as the highest value of its bucket, which must not be below the value or more
+     * than 12.5% above it
+     */
+    @Test
+    public void testBucketBoundaries() {
+        for (long value = 0; value < 100000; value++) {
+            assertBucketOf(value);
+        }
+        for (int exponent = 17; exponent < 63; exponent++) {
+            long powerOfTwo = 1L << exponent;
+            assertBucketOf(powerOfTwo - 1);
+            assertBucketOf(powerOfTwo);
+            assertBucketOf(powerOfTwo + 1);
+            assertBucketOf(powerOfTwo + powerOfTwo / 2);
+        }
+        assertBucketOf(Long.MAX_VALUE - 1);
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(100, histogram.getMaxValue());
+
+        // 50 is counted in the bucket 48 to 51 and 95 in the bucket 88 to 95
+        assertEquals(51, histogram.getValueAtPercentile(50));
+        assertEquals(95, histogram.getValueAtPercentile(95));
+        // 96 to 100 are counted in the bucket 96 to 103, which is capped at the largest recorded value
+        assertEquals(100, histogram.getValueAtPercentile(96));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(100, histogram.getValueAtPercentile(150));
+    }
+
+    @Test
+    public void testNegativeValuesAreRecordedAsZero() {
+        histogram.record(-5);
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testReset() {
+        histogram.record(1000);
+        histogram.record(5);
+        histogram.reset();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+
+        histogram.record(3);
+        assertEquals(3, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Record the value along with the largest value, so that the median is the highest value of the bucket of the
+     * given value instead of being capped at the maximum
+     */
+    private void assertBucketOf(long value) {
+        histogram.reset();
+        histogram.record(value);
+        histogram.record(Long.MAX_VALUE);
+        long reported = histogram.getValueAtPercentile(50);
+        assertTrue("Value " + value + " reported as " + reported, reported >= value);
+        assertTrue("Value " + value + " reported as " + reported, reported - value <= value / 8);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.server.cluster.coordination;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link AtomicTimeStampBasedMessageIdGenerator}. Checks that IDs keep increasing when the offset
+ * of a millisecond is exhausted, when the clock moves backwards and when the node ID changes.
+ */
+public class AtomicTimeStampBasedMessageIdGeneratorTest {
+
+    private static final long REFERENCE_START = 41L * 365L * 24L * 60L * 60L * 1000L;
+
+    private static final int OFFSET_BITS = 10;
+
+    private static final int NODE_ID_BITS = 8;
+
+    private static final int MAX_OFFSET = 1 << OFFSET_BITS;
+
+    private static final int NODE_ID = 42;
+
+    private static final long START_TIME = REFERENCE_START + 1000000L;
+
+    private ManualClockIdGenerator idGenerator;
+
+    @Before
+    public void setUp() {
+        idGenerator = new ManualClockIdGenerator();
+        idGenerator.time = START_TIME;
+    }
+
+    @Test
+    public void testOffsetExhaustion() {
+        long previousId = idGenerator.getNextId();
+        assertEquals(START_TIME, timestampOf(previousId));
+        assertEquals(0, offsetOf(previousId));
+
+        for (int i = 1; i < MAX_OFFSET; i++) {
+            long id = idGenerator.getNextId();
+            assertTrue(id > previousId);
+            assertEquals(START_TIME, timestampOf(id));
+            assertEquals(i, offsetOf(id));
+            previousId = id;
+        }
+
+        // Offset of the millisecond is exhausted. Next millisecond is borrowed before the clock gets there.
+        long id = idGenerator.getNextId();
+        assertTrue(id > previousId);
+        assertEquals(START_TIME + 1, timestampOf(id));
+        assertEquals(0, offsetOf(id));
+        assertEquals(NODE_ID, nodeIdOf(id));
+
+        // Clock reaches the borrowed millisecond, counting continues from the borrowed ID
+        idGenerator.time = START_TIME + 1;
+        previousId = id;
+        id = idGenerator.getNextId();
+        assertTrue(id > previousId);
+        assertEquals(START_TIME + 1, timestampOf(id));
+        assertEquals(1, offsetOf(id));
+
+        // Clock moves past the borrowed millisecond
+        idGenerator.time = START_TIME + 5;
+        id = idGenerator.getNextId();
+        assertEquals(START_TIME + 5, timestampOf(id));
+        assertEquals(0, offsetOf(id));
+    }
+
+    @Test
+    public void testClockRegression() {
+        idGenerator.time = START_TIME + 100;
+        long previousId = idGenerator.getNextId();
+
+        idGenerator.time = START_TIME;
+        for (int i = 0; i < 3 * MAX_OFFSET; i++) {
+            long id = idGenerator.getNextId();
+            assertTrue(id > previousId);
+            assertEquals(NODE_ID, nodeIdOf(id));
+            previousId = id;
+        }
+        // 3072 IDs after the first one borrow three milliseconds ahead of the last used timestamp
+        assertEquals(START_TIME + 103, timestampOf(previousId));
+
+        // Generator catches up with the clock once the clock passes the last used timestamp
+        idGenerator.time = START_TIME + 200;
+        long id = idGenerator.getNextId();
+        assertTrue(id > previousId);
+        assertEquals(START_TIME + 200, timestampOf(id));
+        assertEquals(0, offsetOf(id));
+    }
+
+    @Test
+    public void testNodeIdChange() {
+        long previousId = idGenerator.getNextId();
+
+        // Node ID is refreshed to a smaller value while the clock is behind the last used timestamp
+        idGenerator.nodeId = NODE_ID - 1;
+        idGenerator.time = START_TIME - 5;
+        for (int i = 0; i < 3; i++) {
+            long id = idGenerator.getNextId();
+            assertTrue(id > previousId);
+            assertEquals(START_TIME, timestampOf(id));
+            assertEquals(NODE_ID, nodeIdOf(id));
+            previousId = id;
+        }
+
+        // Refreshed node ID is applied once the timestamp advances
+        idGenerator.time = START_TIME + 1;
+        long id = idGenerator.getNextId();
+        assertTrue(id > previousId);
+        assertEquals(NODE_ID - 1, nodeIdOf(id));
+        assertEquals(0, offsetOf(id));
+    }
+
+    @Test
+    public void testConcurrentGeneration() throws Exception {
+        final int threadCount = 8;
+        final int idsPerThread = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        long[] ids = new long[idsPerThread];
+                        for (int j = 0; j < idsPerThread; j++) {
+                            ids[j] = idGenerator.getNextId();
+                        }
+                        return ids;
+                    }
+                }));
+            }
+
+            Set<Long> allIds = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int j = 0; j < ids.length; j++) {
+                    if (j > 0) {
+                        assertTrue(ids[j] > ids[j - 1]);
+                    }
+                    allIds.add(ids[j]);
+                }
+            }
+            assertEquals(threadCount * idsPerThread, allIds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long timestampOf(long id) {
+        return (id >>> (OFFSET_BITS + NODE_ID_BITS)) + REFERENCE_START;
+    }
+
+    private long offsetOf(long id) {
+        return id & (MAX_OFFSET - 1);
+    }
+
+    private long nodeIdOf(long id) {
+        return (id >>> OFFSET_BITS) & ((1 << NODE_ID_BITS) - 1);
+    }
+
+    /**
+     * Generator with a clock controlled by the test and a fixed node ID
+     */
+    private static class ManualClockIdGenerator extends AtomicTimeStampBasedMessageIdGenerator {
+
+        private volatile long time;
+
+        private volatile int nodeId = NODE_ID;
+
+        @Override
+        long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        int getUniqueIdForLocalNode() {
+            return nodeId;
+        }
+    }
+}
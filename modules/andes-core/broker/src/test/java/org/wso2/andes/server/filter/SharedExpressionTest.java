@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.server.filter;
+
+import junit.framework.TestCase;
+import org.wso2.andes.server.message.AMQMessageHeader;
+import org.wso2.andes.server.queue.Filterable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Test class for {@link SharedExpression} and {@link EvaluationCache}. Selectors rewritten to share sub-expressions
+ * should evaluate to the same values as the parsed selectors, when a message is offered to many selectors in turn.
+ */
+public class SharedExpressionTest extends TestCase
+{
+    /**
+     * Selectors are evaluated on messages with each combination of these values, including missing properties
+     */
+    private static final Object[] REGIONS = { "EU", "US", null };
+
+    private static final Object[] PRICES = { 5, 10, 25.5, null };
+
+    private static final Object[] NAMES = { "apple", "banana", "a_b", null };
+
+    public void testSameResultsAsUnsharedEvaluation()
+    {
+        List<BooleanExpression> unsharedSelectors = createSelectors();
+        List<BooleanExpression> sharedSelectors = new ArrayList<BooleanExpression>();
+        for (BooleanExpression selector : createSelectors())
+        {
+            sharedSelectors.add((BooleanExpression) SharedExpression.share(selector));
+        }
+
+        for (Object region : REGIONS)
+        {
+            for (Object price : PRICES)
+            {
+                for (Object name : NAMES)
+                {
+                    Map<String, Object> headers = createHeaders(region, price, name);
+                    // One caching message is offered to all the selectors in turn, as done on delivery
+                    TestMessage cachingMessage = new TestMessage(headers, true);
+
+                    for (int i = 0; i < unsharedSelectors.size(); i++)
+                    {
+                        TestMessage plainMessage = new TestMessage(headers, false);
+                        String description = unsharedSelectors.get(i) + " on " + headers;
+
+                        assertEquals(description, unsharedSelectors.get(i).evaluate(plainMessage),
+                                     sharedSelectors.get(i).evaluate(cachingMessage));
+                        assertEquals(description, unsharedSelectors.get(i).matches(plainMessage),
+                                     sharedSelectors.get(i).matches(cachingMessage));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testCommonSubExpressionEvaluatedOnce()
+    {
+        BooleanExpression cheapSelector = (BooleanExpression) SharedExpression.share(
+                LogicExpression.createAND(regionIsEU(),
+                                          ComparisonExpression.createLessThan(new PropertyExpression("price"),
+                                                                              new ConstantExpression(10))));
+        BooleanExpression expensiveSelector = (BooleanExpression) SharedExpression.share(
+                LogicExpression.createAND(regionIsEU(),
+                                          ComparisonExpression.createGreaterThan(new PropertyExpression("price"),
+                                                                                 new ConstantExpression(20))));
+
+        TestMessage message = new TestMessage(createHeaders("EU", 25.5, "apple"), true);
+        assertFalse(cheapSelector.matches(message));
+        assertTrue(expensiveSelector.matches(message));
+        assertEquals("Shared region comparison should read the property once", 1, message.getReadCount("region"));
+        assertEquals("Distinct price comparisons should each read the property", 2, message.getReadCount("price"));
+    }
+
+    public void testNullValueIsCached()
+    {
+        // Comparing a missing property gives an unknown value
+        BooleanExpression selector = (BooleanExpression) SharedExpression.share(
+                ComparisonExpression.createGreaterThan(new PropertyExpression("price"), new ConstantExpression(10)));
+
+        TestMessage message = new TestMessage(createHeaders("EU", null, "apple"), true);
+        assertNull(selector.evaluate(message));
+        assertNull(selector.evaluate(message));
+        assertFalse(selector.matches(message));
+        assertEquals("Unknown value should be cached as well", 1, message.getReadCount("price"));
+    }
+
+    public void testLikeExpressionsWithDifferentPatternsNotShared()
+    {
+        BooleanExpression startsWithA = (BooleanExpression) SharedExpression.share(
+                ComparisonExpression.createLike(new PropertyExpression("name"), "a%", null));
+        BooleanExpression startsWithB = (BooleanExpression) SharedExpression.share(
+                ComparisonExpression.createLike(new PropertyExpression("name"), "b%", null));
+
+        TestMessage message = new TestMessage(createHeaders("EU", 5, "apple"), true);
+        assertTrue(startsWithA.matches(message));
+        assertFalse(startsWithB.matches(message));
+    }
+
+    public void testMessageWithoutCacheEvaluatedEachTime()
+    {
+        BooleanExpression selector = (BooleanExpression) SharedExpression.share(regionIsEU());
+
+        TestMessage message = new TestMessage(createHeaders("EU", 5, "apple"), false);
+        assertTrue(selector.matches(message));
+        assertTrue(selector.matches(message));
+        assertEquals(2, message.getReadCount("region"));
+    }
+
+    /**
+     * Create a fresh set of selector trees. Sharing rewrites a tree in place, hence shared and unshared selectors
+     * are created separately. Selectors have sub-expressions in common, and cover unknown values in logic
+     * operators.
+     */
+    private List<BooleanExpression> createSelectors()
+    {
+        PropertyExpression price = new PropertyExpression("price");
+        PropertyExpression name = new PropertyExpression("name");
+
+        List<BooleanExpression> selectors = new ArrayList<BooleanExpression>();
+        selectors.add(regionIsEU());
+        selectors.add(LogicExpression.createAND(regionIsEU(),
+                                                ComparisonExpression.createGreaterThan(price,
+                                                                                       new ConstantExpression(6))));
+        selectors.add(LogicExpression.createOR(regionIsEU(),
+                                               ComparisonExpression.createBetween(price, new ConstantExpression(6),
+                                                                                  new ConstantExpression(20))));
+        selectors.add(UnaryExpression.createNOT(LogicExpression.createAND(regionIsEU(),
+                ComparisonExpression.createLike(name, "a%", null))));
+        selectors.add(ComparisonExpression.createLike(name, "a\\_b", "\\"));
+        selectors.add(ComparisonExpression.createInFilter(new PropertyExpression("region"),
+                                                          Arrays.asList("EU", "APAC")));
+        selectors.add(ComparisonExpression.createIsNull(new PropertyExpression("region")));
+        selectors.add(ComparisonExpression.createGreaterThanEqual(
+                ArithmeticExpression.createMultiply(price, new ConstantExpression(2)),
+                ArithmeticExpression.createPlus(new ConstantExpression(10), new ConstantExpression(10))));
+        selectors.add(LogicExpression.createOR(
+                LogicExpression.createAND(regionIsEU(), ComparisonExpression.createLessThan(price,
+                                                                                            new ConstantExpression(20))),
+                UnaryExpression.createNOT(regionIsEU())));
+        return selectors;
+    }
+
+    private BooleanExpression regionIsEU()
+    {
+        return ComparisonExpression.createEqual(new PropertyExpression("region"), new ConstantExpression("EU"));
+    }
+
+    private Map<String, Object> createHeaders(Object region, Object price, Object name)
+    {
+        Map<String, Object> headers = new HashMap<String, Object>();
+        if (null != region)
+        {
+            headers.put("region", region);
+        }
+        if (null != price)
+        {
+            headers.put("price", price);
+        }
+        if (null != name)
+        {
+            headers.put("name", name);
+        }
+        return headers;
+    }
+
+    /**
+     * Message with the given properties, counting property reads. It caches evaluations only if asked to.
+     */
+    private static class TestMessage implements Filterable, EvaluationCache
+    {
+        private final TestHeader header;
+
+        private final Map<String, Object> evaluations;
+
+        TestMessage(Map<String, Object> headers, boolean cachesEvaluations)
+        {
+            header = new TestHeader(headers);
+            evaluations = cachesEvaluations ? new HashMap<String, Object>() : null;
+        }
+
+        public AMQMessageHeader getMessageHeader()
+        {
+            return header;
+        }
+
+        public boolean isPersistent()
+        {
+            return false;
+        }
+
+        public boolean isRedelivered()
+        {
+            return false;
+        }
+
+        public Object getEvaluation(String expression)
+        {
+            return (null == evaluations) ? null : evaluations.get(expression);
+        }
+
+        public void putEvaluation(String expression, Object value)
+        {
+            if (null != evaluations)
+            {
+                evaluations.put(expression, value);
+            }
+        }
+
+        int getReadCount(String name)
+        {
+            Integer count = header.readCounts.get(name);
+            return (null == count) ? 0 : count;
+        }
+    }
+
+    private static class TestHeader implements AMQMessageHeader
+    {
+        private final Map<String, Object> headers;
+
+        private final Map<String, Integer> readCounts = new HashMap<String, Integer>();
+
+        TestHeader(Map<String, Object> headers)
+        {
+            this.headers = headers;
+        }
+
+        public Object getHeader(String name)
+        {
+            Integer count = readCounts.get(name);
+            readCounts.put(name, (null == count) ? 1 : count + 1);
+            return headers.get(name);
+        }
+
+        public boolean containsHeaders(Set<String> names)
+        {
+            return headers.keySet().containsAll(names);
+        }
+
+        public boolean containsHeader(String name)
+        {
+            return headers.containsKey(name);
+        }
+
+        public String getCorrelationId()
+        {
+            return null;
+        }
+
+        public long getExpiration()
+        {
+            return 0;
+        }
+
+        public String getMessageId()
+        {
+            return null;
+        }
+
+        public String getMimeType()
+        {
+            return null;
+        }
+
+        public String getEncoding()
+        {
+            return null;
+        }
+
+        public byte getPriority()
+        {
+            return 0;
+        }
+
+        public long getTimestamp()
+        {
+            return 0;
+        }
+
+        public String getType()
+        {
+            return null;
+        }
+
+        public String getReplyTo()
+        {
+            return null;
+        }
+
+        public String getReplyToExchange()
+        {
+            return null;
+        }
+
+        public String getReplyToRoutingKey()
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesMessagePart;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link QueueLog}. Covers appending, recovery from segment files, compaction, segment growth and
+ * recovery of interrupted moves.
+ */
+public class QueueLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private static final int CONTENT_SIZE = 100;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("queue-log", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        QueueLog queueLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        queueLog.append(createRecord(1, "origin"));
+
+        LogRecord record = queueLog.get(1).read(true);
+
+        assertEquals(1, record.getMessageId());
+        assertEquals("origin", record.getOrigin());
+        assertArrayEquals(metadataOf(1), record.getMetadata());
+        assertEquals(2, record.getParts().size());
+        assertEquals(CONTENT_SIZE, record.getParts().get(1).getOffset());
+        assertArrayEquals(contentOf(1), record.getParts().get(1).getData());
+        queueLog.close();
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        QueueLog queueLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        for (long messageId = 1; messageId <= 50; messageId++) {
+            queueLog.append(createRecord(messageId, null));
+        }
+        queueLog.remove(10);
+        // Superseded record must not be recovered
+        queueLog.append(createRecord(20, "updated"));
+        queueLog.close();
+
+        QueueLog recoveredLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+
+        assertEquals(49, recoveredLog.getMessageCount());
+        assertNull(recoveredLog.get(10));
+        assertEquals("updated", recoveredLog.get(20).getOrigin());
+        assertArrayEquals(contentOf(50), recoveredLog.get(50).read(true).getParts().get(0).getData());
+        recoveredLog.close();
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        QueueLog queueLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        for (long messageId = 1; messageId <= 50; messageId++) {
+            queueLog.append(createRecord(messageId, null));
+        }
+        int segmentCount = directory.listFiles().length;
+
+        for (long messageId = 1; messageId <= 50; messageId++) {
+            if (messageId % 10 != 0) {
+                queueLog.remove(messageId);
+            }
+        }
+
+        int deletedSegments = queueLog.compact(50);
+
+        assertEquals(segmentCount - 1, deletedSegments);
+        assertEquals(5, queueLog.getMessageCount());
+        assertArrayEquals(contentOf(30), queueLog.get(30).read(true).getParts().get(0).getData());
+        queueLog.close();
+
+        QueueLog recoveredLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        assertEquals(5, recoveredLog.getMessageCount());
+        recoveredLog.close();
+    }
+
+    @Test
+    public void testSegmentGrowsOnDemand() throws IOException {
+        int segmentSize = 4 * FileStoreConstants.INITIAL_SEGMENT_MAPPING_SIZE;
+        QueueLog queueLog = new QueueLog("testQueue", directory, segmentSize, false);
+        queueLog.append(createRecord(1, null));
+
+        File segmentFile = directory.listFiles()[0];
+        assertEquals(FileStoreConstants.INITIAL_SEGMENT_MAPPING_SIZE, segmentFile.length());
+
+        int recordLength = queueLog.get(1).getLength();
+        int messageCount = FileStoreConstants.INITIAL_SEGMENT_MAPPING_SIZE / recordLength + 1;
+        for (long messageId = 2; messageId <= messageCount; messageId++) {
+            queueLog.append(createRecord(messageId, null));
+        }
+
+        assertEquals(1, directory.listFiles().length);
+        assertEquals(2L * FileStoreConstants.INITIAL_SEGMENT_MAPPING_SIZE, segmentFile.length());
+        assertArrayEquals(contentOf(1), queueLog.get(1).read(true).getParts().get(0).getData());
+        queueLog.close();
+
+        QueueLog recoveredLog = new QueueLog("testQueue", directory, segmentSize, false);
+        assertEquals(messageCount, recoveredLog.getMessageCount());
+        recoveredLog.close();
+    }
+
+    @Test
+    public void testInterruptedMoveRecovery() throws IOException {
+        QueueLog queueLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        for (long messageId = 1; messageId <= 3; messageId++) {
+            queueLog.append(createRecord(messageId, null));
+        }
+        queueLog.beginMove(2);
+        queueLog.close();
+
+        QueueLog recoveredLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        assertEquals(3, recoveredLog.getMessageCount());
+        assertEquals(1, recoveredLog.getRecoveredMovingMessages().size());
+        assertTrue(recoveredLog.getRecoveredMovingMessages().contains(2L));
+
+        // Copy never made it to the target, hence the move is rolled back
+        recoveredLog.cancelMove(2);
+        recoveredLog.beginMove(3);
+        recoveredLog.close();
+
+        recoveredLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        assertFalse(recoveredLog.getRecoveredMovingMessages().contains(2L));
+        assertTrue(recoveredLog.getRecoveredMovingMessages().contains(3L));
+
+        // Copy made it to the target, hence the stale record is dropped
+        recoveredLog.remove(3);
+        recoveredLog.close();
+
+        recoveredLog = new QueueLog("testQueue", directory, SEGMENT_SIZE, false);
+        assertEquals(2, recoveredLog.getMessageCount());
+        assertTrue(recoveredLog.getRecoveredMovingMessages().isEmpty());
+        recoveredLog.close();
+    }
+
+    private LogRecord createRecord(long messageId, String origin) {
+        List<AndesMessagePart> parts = new ArrayList<>();
+        for (int offset = 0; offset < 2 * CONTENT_SIZE; offset = offset + CONTENT_SIZE) {
+            AndesMessagePart part = new AndesMessagePart();
+            part.setMessageID(messageId);
+            part.setOffSet(offset);
+            part.setData(contentOf(messageId));
+            part.setDataLength(CONTENT_SIZE);
+            parts.add(part);
+        }
+        return new LogRecord(messageId, 0, origin, metadataOf(messageId), parts);
+    }
+
+    private byte[] metadataOf(long messageId) {
+        return ("metadata-" + messageId).getBytes();
+    }
+
+    private byte[] contentOf(long messageId) {
+        byte[] content = new byte[CONTENT_SIZE];
+        for (int i = 0; i < CONTENT_SIZE; i++) {
+            content[i] = (byte) (messageId + i);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link PinnedConnectionManager}. Uses an in-memory H2 database with table level locks, so a
+ * transaction left open on a pinned connection blocks writes of other connections until the lock timeout.
+ */
+public class PinnedConnectionManagerTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:pinned_connection_test;LOCK_MODE=1;LOCK_TIMEOUT=1000";
+
+    private static final String COUNT_ROWS = "SELECT COUNT(*) FROM TEST_MESSAGE";
+
+    private static final String INSERT_ROW = "INSERT INTO TEST_MESSAGE (MESSAGE_ID) VALUES (?)";
+
+    private DataSource dataSource;
+
+    /**
+     * Keeps the in-memory database open for the duration of a test
+     */
+    private Connection setupConnection;
+
+    private PinnedConnectionManager connectionManager;
+
+    @Before
+    public void setUp() throws SQLException {
+        JdbcDataSource h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL(DB_URL);
+        dataSource = new TransactionalDataSource(h2DataSource);
+
+        setupConnection = h2DataSource.getConnection();
+        Statement statement = setupConnection.createStatement();
+        statement.execute("CREATE TABLE TEST_MESSAGE (MESSAGE_ID BIGINT)");
+        statement.close();
+
+        connectionManager = new PinnedConnectionManager(dataSource, 2, 10);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connectionManager.close();
+        setupConnection.close();
+    }
+
+    @Test
+    public void testPinnedLeaseIsReused() throws SQLException {
+        ConnectionLease lease = connectionManager.acquire();
+        assertTrue(lease.isPinned());
+
+        ConnectionLease nestedLease = connectionManager.acquire();
+        assertFalse("Lease in use should not be handed out again", nestedLease.isPinned());
+        connectionManager.release(nestedLease);
+        connectionManager.release(lease);
+
+        ConnectionLease nextLease = connectionManager.acquire();
+        assertSame(lease, nextLease);
+        assertNotSame(nestedLease.getConnection(), nextLease.getConnection());
+        connectionManager.release(nextLease);
+    }
+
+    @Test
+    public void testReadAfterReleaseSeesInsertOfOtherConnection() throws SQLException {
+        ConnectionLease lease = connectionManager.acquire();
+        assertEquals(0, countRows(lease));
+        connectionManager.release(lease);
+
+        // Fails with a lock timeout if the read transaction of the pinned connection is still open
+        insertFromOtherConnection(1);
+
+        lease = connectionManager.acquire();
+        assertTrue(lease.isPinned());
+        assertEquals(1, countRows(lease));
+        connectionManager.release(lease);
+    }
+
+    @Test
+    public void testUncommittedWriteIsRolledBackOnRelease() throws SQLException {
+        ConnectionLease lease = connectionManager.acquire();
+        PreparedStatement insert = lease.prepareStatement(INSERT_ROW);
+        insert.setLong(1, 1);
+        insert.executeUpdate();
+        connectionManager.release(lease);
+
+        insertFromOtherConnection(2);
+
+        lease = connectionManager.acquire();
+        assertEquals(1, countRows(lease));
+        connectionManager.release(lease);
+    }
+
+    private int countRows(ConnectionLease lease) throws SQLException {
+        ResultSet resultSet = lease.prepareStatement(COUNT_ROWS).executeQuery();
+        try {
+            assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    private void insertFromOtherConnection(long messageId) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            PreparedStatement insert = connection.prepareStatement(INSERT_ROW);
+            insert.setLong(1, messageId);
+            insert.executeUpdate();
+            insert.close();
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Hands out connections with auto commit disabled, as configured for the message store data source
+     */
+    private static class TransactionalDataSource implements DataSource {
+
+        private final DataSource dataSource;
+
+        TransactionalDataSource(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = dataSource.getConnection();
+            connection.setAutoCommit(false);
+            return connection;
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            Connection connection = dataSource.getConnection(username, password);
+            connection.setAutoCommit(false);
+            return connection;
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return dataSource.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            dataSource.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            dataSource.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return dataSource.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return dataSource.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return dataSource.isWrapperFor(iface);
+        }
+    }
+}
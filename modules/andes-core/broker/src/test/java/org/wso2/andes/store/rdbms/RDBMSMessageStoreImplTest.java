@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the split of deleted message IDs into range deletes and single deletes in
+ * {@link RDBMSMessageStoreImpl}. A range must only cover IDs being deleted, otherwise other messages are lost.
+ */
+public class RDBMSMessageStoreImplTest {
+
+    private LongArrayList singleMessageIDs;
+
+    private LongArrayList rangeBounds;
+
+    @Before
+    public void setUp() {
+        singleMessageIDs = new LongArrayList();
+        rangeBounds = new LongArrayList();
+    }
+
+    @Test
+    public void testEmptyList() {
+        split();
+
+        assertEquals(new LongArrayList(), singleMessageIDs);
+        assertEquals(new LongArrayList(), rangeBounds);
+    }
+
+    @Test
+    public void testSingleRun() {
+        split(10, 11, 12, 13, 14);
+
+        assertEquals(new LongArrayList(), singleMessageIDs);
+        assertEquals(LongArrayList.newListWith(10, 14), rangeBounds);
+    }
+
+    @Test
+    public void testRunsShorterThanMinimumAreDeletedOneByOne() {
+        split(1, 5, 6, 20);
+
+        assertEquals(LongArrayList.newListWith(1, 5, 6, 20), singleMessageIDs);
+        assertEquals(new LongArrayList(), rangeBounds);
+    }
+
+    @Test
+    public void testRunOfMinimumSize() {
+        split(7, 8, 9);
+
+        assertEquals(new LongArrayList(), singleMessageIDs);
+        assertEquals(LongArrayList.newListWith(7, 9), rangeBounds);
+    }
+
+    @Test
+    public void testGapsSplitRuns() {
+        split(1, 2, 3, 5, 6, 7, 8, 10, 12, 13);
+
+        assertEquals(LongArrayList.newListWith(10, 12, 13), singleMessageIDs);
+        assertEquals(LongArrayList.newListWith(1, 3, 5, 8), rangeBounds);
+    }
+
+    @Test
+    public void testDuplicatesAreDeletedOnce() {
+        split(4, 4, 5, 5, 6, 9, 9, 20, 20, 20);
+
+        assertEquals(LongArrayList.newListWith(9, 20), singleMessageIDs);
+        assertEquals(LongArrayList.newListWith(4, 6), rangeBounds);
+    }
+
+    @Test
+    public void testDuplicatesDoNotLengthenShortRuns() {
+        split(4, 4, 4, 5, 5);
+
+        assertEquals(LongArrayList.newListWith(4, 5), singleMessageIDs);
+        assertEquals(new LongArrayList(), rangeBounds);
+    }
+
+    @Test
+    public void testRunAtEndOfList() {
+        split(1, 3, 100, 101, 102, 103);
+
+        assertEquals(LongArrayList.newListWith(1, 3), singleMessageIDs);
+        assertEquals(LongArrayList.newListWith(100, 103), rangeBounds);
+    }
+
+    @Test
+    public void testShortRunAtEndOfList() {
+        split(1, 2, 3, 100, 101);
+
+        assertEquals(LongArrayList.newListWith(100, 101), singleMessageIDs);
+        assertEquals(LongArrayList.newListWith(1, 3), rangeBounds);
+    }
+
+    private void split(long... sortedMessageIDs) {
+        RDBMSMessageStoreImpl.splitIntoDeleteRanges(LongArrayList.newListWith(sortedMessageIDs), singleMessageIDs,
+                rangeBounds);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link FairTaskQueue}. Checks weighted sharing between ready tasks and parking and waking up of
+ * idle tasks.
+ */
+public class FairTaskQueueTest {
+
+    /**
+     * Park time long enough that a parked task never becomes ready by itself within a test
+     */
+    private static final long LONG_IDLE_DELAY_MILLIS = 60000;
+
+    private ExecutorService takeExecutor;
+
+    @Before
+    public void setUp() {
+        takeExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        // Interrupts takes left blocked on parked tasks
+        takeExecutor.shutdownNow();
+    }
+
+    /**
+     * Busy tasks should get processing time proportional to their weights
+     */
+    @Test
+    public void testWeightedSharing() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue(LONG_IDLE_DELAY_MILLIS, LONG_IDLE_DELAY_MILLIS);
+        TaskHolder<TestTask> lightTask = new TaskHolder<>(new TestTask("light", 1));
+        TaskHolder<TestTask> heavyTask = new TaskHolder<>(new TestTask("heavy", 3));
+        queue.add(lightTask);
+        queue.add(heavyTask);
+
+        int lightRuns = 0;
+        int heavyRuns = 0;
+        for (int i = 0; i < 4000; i++) {
+            TaskHolder taskHolder = queue.take();
+            if (lightTask == taskHolder) {
+                lightRuns++;
+            } else {
+                heavyRuns++;
+            }
+            queue.reschedule(taskHolder, 1000, false);
+        }
+
+        assertEquals("Light task runs", 1000, lightRuns, 10);
+        assertEquals("Heavy task runs", 3000, heavyRuns, 10);
+    }
+
+    /**
+     * A task waking up after a long park should not be credited for the time it was parked
+     */
+    @Test
+    public void testParkedTimeIsNotCredited() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue(LONG_IDLE_DELAY_MILLIS, LONG_IDLE_DELAY_MILLIS);
+        TaskHolder<TestTask> sleepyTask = new TaskHolder<>(new TestTask("sleepy", 1));
+        TaskHolder<TestTask> busyTask = new TaskHolder<>(new TestTask("busy", 1));
+        queue.add(sleepyTask);
+        queue.add(busyTask);
+
+        assertSame(sleepyTask, queue.take());
+        queue.reschedule(sleepyTask, 1000, true);
+        for (int i = 0; i < 1000; i++) {
+            assertSame(busyTask, queue.take());
+            queue.reschedule(busyTask, 1000, false);
+        }
+
+        queue.wakeUp(sleepyTask);
+        int sleepyRuns = 0;
+        for (int i = 0; i < 100; i++) {
+            TaskHolder taskHolder = queue.take();
+            if (sleepyTask == taskHolder) {
+                sleepyRuns++;
+            }
+            queue.reschedule(taskHolder, 1000, false);
+        }
+        assertEquals("Woken up task should share equally with the busy task", 50, sleepyRuns, 1);
+    }
+
+    /**
+     * An idle task should be parked until it is woken up
+     */
+    @Test
+    public void testIdleTaskParkedUntilWokenUp() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue(LONG_IDLE_DELAY_MILLIS, LONG_IDLE_DELAY_MILLIS);
+        TaskHolder<TestTask> taskHolder = new TaskHolder<>(new TestTask("task", 1));
+        queue.add(taskHolder);
+
+        assertSame(taskHolder, queue.take());
+        queue.reschedule(taskHolder, 1000, true);
+        assertEquals(1, queue.size());
+
+        Future<TaskHolder> pendingTake = submitTake(queue);
+        assertNotCompleted(pendingTake);
+
+        queue.wakeUp(taskHolder);
+        assertSame(taskHolder, pendingTake.get(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * A wake up received while the task is running should make the task ready after the run, even if the run
+     * was idle
+     */
+    @Test
+    public void testWakeUpWhileRunning() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue(LONG_IDLE_DELAY_MILLIS, LONG_IDLE_DELAY_MILLIS);
+        TaskHolder<TestTask> taskHolder = new TaskHolder<>(new TestTask("task", 1));
+        queue.add(taskHolder);
+
+        assertSame(taskHolder, queue.take());
+        queue.wakeUp(taskHolder);
+        // Repeated wake ups while a wake up is pending are skipped without the lock
+        queue.wakeUp(taskHolder);
+        queue.reschedule(taskHolder, 1000, true);
+
+        assertSame(taskHolder, submitTake(queue).get(5, TimeUnit.SECONDS));
+
+        // Pending wake up was consumed, hence the next idle run parks the task
+        queue.reschedule(taskHolder, 1000, true);
+        assertNotCompleted(submitTake(queue));
+    }
+
+    /**
+     * Waking up a ready task should not add it to the ready queue again
+     */
+    @Test
+    public void testWakeUpReadyTask() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue(LONG_IDLE_DELAY_MILLIS, LONG_IDLE_DELAY_MILLIS);
+        TaskHolder<TestTask> taskHolder = new TaskHolder<>(new TestTask("task", 1));
+        queue.add(taskHolder);
+        queue.wakeUp(taskHolder);
+        queue.wakeUp(taskHolder);
+
+        assertSame(taskHolder, queue.take());
+        queue.reschedule(taskHolder, 1000, true);
+        assertNotCompleted(submitTake(queue));
+    }
+
+    /**
+     * A parked task should become ready by itself after its park time elapses
+     */
+    @Test
+    public void testParkTimeElapses() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue(10, 20);
+        TaskHolder<TestTask> taskHolder = new TaskHolder<>(new TestTask("task", 1));
+        queue.add(taskHolder);
+
+        assertSame(taskHolder, queue.take());
+        queue.reschedule(taskHolder, 1000, true);
+        assertSame(taskHolder, submitTake(queue).get(5, TimeUnit.SECONDS));
+    }
+
+    private Future<TaskHolder> submitTake(final FairTaskQueue queue) {
+        return takeExecutor.submit(new Callable<TaskHolder>() {
+            @Override
+            public TaskHolder call() throws Exception {
+                return queue.take();
+            }
+        });
+    }
+
+    private void assertNotCompleted(Future<TaskHolder> pendingTake) throws Exception {
+        try {
+            pendingTake.get(100, TimeUnit.MILLISECONDS);
+            fail("Parked task should not be taken");
+        } catch (TimeoutException e) {
+            assertFalse(pendingTake.isDone());
+        }
+    }
+
+    /**
+     * Task doing nothing, used only for scheduling
+     */
+    private static class TestTask extends Task {
+
+        private final String id;
+
+        private final int weight;
+
+        TestTask(String id, int weight) {
+            this.id = id;
+            this.weight = weight;
+        }
+
+        @Override
+        public TaskHint call() throws Exception {
+            return TaskHint.ACTIVE;
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public int getWeight() {
+            return weight;
+        }
+    }
+}
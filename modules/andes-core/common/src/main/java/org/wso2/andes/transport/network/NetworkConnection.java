@@ -51,4 +51,10 @@ public interface NetworkConnection
 
     void unblock();
 
+    /**
+     * Returns true if the connection is read and written by an event loop. Received data can then be processed in
+     * order on the reading thread, and data can be sent from any thread without serializing sends on another thread.
+     */
+    boolean isEventLoopBased();
+
 }
\ No newline at end of file
@@ -105,4 +105,9 @@ public class IoNetworkConnection implements NetworkConnection
     public void unblock() {
         //Do nothing
     }
+
+    @Override
+    public boolean isEventLoopBased() {
+        return false;
+    }
 }
@@ -98,4 +98,9 @@ public class MinaNetworkConnection implements NetworkConnection
         _session.resumeRead();
     }
 
+    @Override
+    public boolean isEventLoopBased() {
+        return false;
+    }
+
 }
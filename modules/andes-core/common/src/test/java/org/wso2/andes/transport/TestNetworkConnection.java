@@ -151,4 +151,9 @@ public class TestNetworkConnection implements NetworkConnection
         return false;
     }
 
+    @Override
+    public boolean isEventLoopBased() {
+        return false;
+    }
+
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.management.common.mbeans;
+
+import org.wso2.andes.management.common.mbeans.annotations.MBeanAttribute;
+import org.wso2.andes.management.common.mbeans.annotations.MBeanOperationParameter;
+
+/**
+ * This is the interface for exposing the time messages take to reach each stage of the broker pipeline.
+ */
+public interface MessageLatencyInformation {
+
+    static final String TYPE = "MessageLatencyInformation";
+
+    /**
+     * Get the storage queues latencies are recorded for
+     *
+     * @return storage queue names
+     */
+    @MBeanAttribute(name = "StorageQueueNames", description = "Storage queues with recorded latencies")
+    String[] getStorageQueueNames();
+
+    /**
+     * Get latencies of a storage queue. One entry is returned per pipeline stage, with the number of samples and
+     * the 50th, 90th, 99th percentile and maximum latency in milliseconds.
+     *
+     * @param storageQueueName storage queue name
+     * @return latency summary per stage
+     */
+    @MBeanAttribute(name = "Latencies", description = "Latencies of a storage queue per pipeline stage")
+    String[] getLatencies(@MBeanOperationParameter(name = "storageQueueName",
+            description = "Storage queue name") String storageQueueName);
+
+    /**
+     * Clear latencies recorded so far
+     */
+    @MBeanAttribute(name = "ResetLatencies", description = "Clear recorded latencies")
+    void resetLatencies();
+}